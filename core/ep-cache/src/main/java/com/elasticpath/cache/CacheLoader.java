@@ -0,0 +1,19 @@
+package com.elasticpath.cache;
+
+/**
+ * Computes a value for a cache key that is not currently cached.
+ *
+ * @param <K> the type used as a key into the cache.
+ * @param <V> the type of the loaded value.
+ */
+public interface CacheLoader<K, V> {
+
+	/**
+	 * Loads the value for the given key. Returning <tt>null</tt> means there is
+	 * no value for the key, and nothing will be cached.
+	 *
+	 * @param key the key to load
+	 * @return the loaded value, or <tt>null</tt>
+	 */
+	V load(K key);
+}
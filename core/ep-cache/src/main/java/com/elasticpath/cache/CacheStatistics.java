@@ -0,0 +1,90 @@
+package com.elasticpath.cache;
+
+import java.io.Serializable;
+
+/**
+ * Immutable snapshot of the counters kept by a cache.
+ */
+public final class CacheStatistics implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long hitCount;
+	private final long missCount;
+	private final long loadCount;
+	private final long evictionCount;
+	private final long expirationCount;
+	private final int size;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param hitCount the number of lookups that found a live value
+	 * @param missCount the number of lookups that found no live value
+	 * @param loadCount the number of values computed by a loader
+	 * @param evictionCount the number of entries removed to honour the size bound
+	 * @param expirationCount the number of entries removed because they timed out
+	 * @param size the number of entries held at the time of the snapshot
+	 */
+	public CacheStatistics(final long hitCount, final long missCount, final long loadCount,
+			final long evictionCount, final long expirationCount, final int size) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.loadCount = loadCount;
+		this.evictionCount = evictionCount;
+		this.expirationCount = expirationCount;
+		this.size = size;
+	}
+
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	public long getMissCount() {
+		return missCount;
+	}
+
+	public long getLoadCount() {
+		return loadCount;
+	}
+
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	public long getExpirationCount() {
+		return expirationCount;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the total number of lookups.
+	 *
+	 * @return hits plus misses
+	 */
+	public long getRequestCount() {
+		return hitCount + missCount;
+	}
+
+	/**
+	 * Gets the ratio of lookups that were served from the cache.
+	 *
+	 * @return the hit rate between 0 and 1, or 0 if there were no lookups
+	 */
+	public double getHitRate() {
+		final long requests = getRequestCount();
+		if (requests == 0) {
+			return 0;
+		}
+		return (double) hitCount / requests;
+	}
+
+	@Override
+	public String toString() {
+		return "hits=" + hitCount + ", misses=" + missCount + ", loads=" + loadCount
+			+ ", evictions=" + evictionCount + ", expirations=" + expirationCount + ", size=" + size;
+	}
+}
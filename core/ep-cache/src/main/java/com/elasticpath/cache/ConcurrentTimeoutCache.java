@@ -0,0 +1,514 @@
+package com.elasticpath.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * A concurrent, optionally size-bounded timeout cache.
+ * <p>
+ * Entries are spread over a number of lock stripes so that lookups of different keys rarely
+ * contend with each other. Each stripe keeps its entries in least-recently-used order; when a
+ * maximum size is given the least recently used entry of a stripe is evicted once the stripe
+ * is full, which bounds the cache to roughly <tt>maxEntries</tt> entries.
+ * <p>
+ * As with {@link SimpleTimeoutCache}, expired entries are removed when they are read. They can
+ * also be removed in the background by calling {@link #startExpirySweeper(long)}. Callers that
+ * compute values on a miss should use {@link #getOrLoad(Object, CacheLoader)}, which makes sure
+ * only one thread computes the value for a given key at a time.
+ * <p>
+ * Constructed with only a timeout, this cache behaves like {@link SimpleTimeoutCache} and can be
+ * used wherever one is expected. <tt>null</tt> cannot sensibly be cached.
+ *
+ * @param <K> the type used as a key into the cache.
+ * @param <V> the type to actually cache.
+ */
+public class ConcurrentTimeoutCache<K, V> extends SimpleTimeoutCache<K, V> {
+
+	/** Maximum size value meaning the cache is not bounded. */
+	public static final int UNBOUNDED = 0;
+
+	private static final Logger LOG = Logger.getLogger(ConcurrentTimeoutCache.class);
+
+	private static final int MAX_STRIPES = 16;
+
+	private static final int MIN_STRIPE_CAPACITY = 64;
+
+	private static final int HASH_SPREAD_SHIFT = 16;
+
+	private final Stripe<K, V>[] stripes;
+
+	private final int stripeMask;
+
+	private final ConcurrentMap<K, FutureTask<V>> loadsInFlight = new ConcurrentHashMap<K, FutureTask<V>>();
+
+	private volatile long timeout;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong loadCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong expirationCount = new AtomicLong();
+
+	private final Object sweeperLock = new Object();
+
+	private ScheduledFuture<?> sweeperTask;
+
+	/**
+	 * Creates an unbounded cache with the given <tt>timeout</tt>.
+	 *
+	 * @param timeout - The time in milliseconds that an item in cache will become stale.
+	 */
+	public ConcurrentTimeoutCache(final long timeout) {
+		this(timeout, UNBOUNDED);
+	}
+
+	/**
+	 * Creates a cache with the given <tt>timeout</tt> that holds roughly at most <tt>maxEntries</tt> entries.
+	 *
+	 * @param timeout - The time in milliseconds that an item in cache will become stale.
+	 * @param maxEntries - The maximum number of entries to hold, or {@link #UNBOUNDED}.
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentTimeoutCache(final long timeout, final int maxEntries) {
+		super(timeout);
+		if (maxEntries < 0) {
+			throw new IllegalArgumentException("maxEntries must not be negative: " + maxEntries);
+		}
+		this.timeout = timeout;
+
+		int stripeCount = MAX_STRIPES;
+		int stripeCapacity = UNBOUNDED;
+		if (maxEntries != UNBOUNDED) {
+			stripeCount = Math.max(1, Math.min(MAX_STRIPES, Integer.highestOneBit(maxEntries / MIN_STRIPE_CAPACITY)));
+			stripeCapacity = (maxEntries + stripeCount - 1) / stripeCount;
+		}
+		stripes = new Stripe[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			stripes[i] = new Stripe<K, V>(stripeCapacity);
+		}
+		stripeMask = stripeCount - 1;
+	}
+
+	/**
+	 * Returns the value associated with the specified <tt>key</tt>. Returns
+	 * <tt>null</tt> if the cache contains no association for this key or if
+	 * the cached item associated with the key has timed out.
+	 *
+	 * @param key - Key whose associated value will be returned.
+	 * @return The value associated with the key if found, or
+	 *         <tt>null</tt> if there is no associated value or it is timed out.
+	 */
+	@Override
+	public V get(final K key) {
+		final Stripe<K, V> stripe = stripeFor(key);
+		final ExpiringEntry<V> entry;
+		boolean expired = false;
+		synchronized (stripe) {
+			entry = stripe.get(key);
+			if (entry != null && (entry.getValue() == null || isExpired(entry, getCurrentTimeMillis()))) {
+				stripe.remove(key);
+				expired = true;
+			}
+		}
+
+		if (entry == null) {
+			missCount.incrementAndGet();
+			return null;
+		}
+		if (expired) {
+			missCount.incrementAndGet();
+			expirationCount.incrementAndGet();
+			beforeRemoveHook(key, entry.getValue());
+			return null;
+		}
+		hitCount.incrementAndGet();
+		return entry.getValue();
+	}
+
+	/**
+	 * Returns the value associated with the specified <tt>key</tt>, loading and caching it with
+	 * the given <tt>loader</tt> if there is no live value. Concurrent callers asking for the same
+	 * missing key wait for a single load rather than each running the loader.
+	 *
+	 * @param key - Key whose associated value will be returned.
+	 * @param loader - Computes the value if it is not cached.
+	 * @return the cached or loaded value, or <tt>null</tt> if the loader returned <tt>null</tt>
+	 */
+	public V getOrLoad(final K key, final CacheLoader<K, V> loader) {
+		final V cached = get(key);
+		if (cached != null) {
+			return cached;
+		}
+
+		final FutureTask<V> newLoad = new FutureTask<V>(new Callable<V>() {
+			public V call() {
+				loadCount.incrementAndGet();
+				return loader.load(key);
+			}
+		});
+
+		final FutureTask<V> load = loadsInFlight.putIfAbsent(key, newLoad);
+		if (load == null) {
+			try {
+				newLoad.run();
+				final V loaded = waitFor(newLoad);
+				if (loaded != null) {
+					put(key, loaded);
+				}
+				return loaded;
+			} finally {
+				loadsInFlight.remove(key, newLoad);
+			}
+		}
+		return waitFor(load);
+	}
+
+	private V waitFor(final FutureTask<V> load) {
+		try {
+			return load.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a cache load", e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("Cache load failed", cause);
+		}
+	}
+
+	/**
+	 * Stores the <tt>key</tt>/<tt>value</tt> association into the cache.
+	 *
+	 * @param key - The identifier to associate the value with in the cache.
+	 * @param value - The value to be stored in the cache.
+	 */
+	@Override
+	public void put(final K key, final V value) {
+		final Stripe<K, V> stripe = stripeFor(key);
+		final List<Map.Entry<K, ExpiringEntry<V>>> evicted;
+		synchronized (stripe) {
+			stripe.put(key, new ExpiringEntry<V>(value, getCurrentTimeMillis() + timeout));
+			evicted = stripe.evictOverflow();
+		}
+
+		for (Map.Entry<K, ExpiringEntry<V>> entry : evicted) {
+			evictionCount.incrementAndGet();
+			beforeRemoveHook(entry.getKey(), entry.getValue().getValue());
+		}
+	}
+
+	/**
+	 * Removes the association for the given <tt>key</tt>, if any. Like {@link #clear()}, this does
+	 * not call {@link #beforeRemoveHook(Object, Object)}.
+	 *
+	 * @param key - The key to remove.
+	 * @return the removed value, or <tt>null</tt> if there was none
+	 */
+	public V remove(final K key) {
+		final Stripe<K, V> stripe = stripeFor(key);
+		final ExpiringEntry<V> removed;
+		synchronized (stripe) {
+			removed = stripe.remove(key);
+		}
+		if (removed == null) {
+			return null;
+		}
+		return removed.getValue();
+	}
+
+	/**
+	 * Removes every entry that has timed out, calling {@link #beforeRemoveHook(Object, Object)} for each.
+	 *
+	 * @return the number of entries removed
+	 */
+	public int removeExpired() {
+		final long now = getCurrentTimeMillis();
+		int removedCount = 0;
+		for (Stripe<K, V> stripe : stripes) {
+			final List<Map.Entry<K, ExpiringEntry<V>>> expired = new ArrayList<Map.Entry<K, ExpiringEntry<V>>>();
+			synchronized (stripe) {
+				stripe.removeExpired(now, expired);
+			}
+			for (Map.Entry<K, ExpiringEntry<V>> entry : expired) {
+				expirationCount.incrementAndGet();
+				beforeRemoveHook(entry.getKey(), entry.getValue().getValue());
+			}
+			removedCount += expired.size();
+		}
+		return removedCount;
+	}
+
+	/**
+	 * Starts removing expired entries in the background every <tt>intervalMillis</tt> milliseconds.
+	 * Any sweeper already running for this cache is replaced. The sweeper runs on a shared daemon
+	 * thread; call {@link #stopExpirySweeper()} when the cache is discarded.
+	 *
+	 * @param intervalMillis the time in milliseconds between sweeps
+	 */
+	public void startExpirySweeper(final long intervalMillis) {
+		if (intervalMillis <= 0) {
+			throw new IllegalArgumentException("Sweep interval must be positive: " + intervalMillis);
+		}
+		synchronized (sweeperLock) {
+			stopExpirySweeper();
+			sweeperTask = SweeperHolder.EXECUTOR.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					try {
+						removeExpired();
+					} catch (RuntimeException e) {
+						// keep the sweeper scheduled, a later sweep will retry
+						LOG.error("Failed to sweep expired cache entries", e);
+					}
+				}
+			}, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops the background sweeper started by {@link #startExpirySweeper(long)}, if any.
+	 */
+	public void stopExpirySweeper() {
+		synchronized (sweeperLock) {
+			if (sweeperTask != null) {
+				sweeperTask.cancel(false);
+				sweeperTask = null;
+			}
+		}
+	}
+
+	/**
+	 * Set the expiry milliseconds for cache entries added after this call - current
+	 * entry's expiry timeout will be unaffected (it was determined when the entry was
+	 * added).
+	 *
+	 * @param cacheTimeoutMillis the number of milliseconds after which new cache entries
+	 *        will be expired from the cache.
+	 */
+	@Override
+	public void setTimeout(final long cacheTimeoutMillis) {
+		this.timeout = cacheTimeoutMillis;
+	}
+
+	/**
+	 * Clears the cache.
+	 */
+	@Override
+	public void clear() {
+		for (Stripe<K, V> stripe : stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+	}
+
+	/**
+	 * Gets the number of entries currently held, including any that have expired but not yet been removed.
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe<K, V> stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Gets a snapshot of the hit, miss, load, eviction and expiration counters of this cache.
+	 *
+	 * @return the cache statistics
+	 */
+	public CacheStatistics getStatistics() {
+		return new CacheStatistics(hitCount.get(), missCount.get(), loadCount.get(),
+				evictionCount.get(), expirationCount.get(), size());
+	}
+
+	private boolean isExpired(final ExpiringEntry<V> entry, final long now) {
+		return now >= entry.getExpiryTime();
+	}
+
+	private Stripe<K, V> stripeFor(final K key) {
+		if (key == null) {
+			return stripes[0];
+		}
+		final int hash = key.hashCode();
+		return stripes[(hash ^ (hash >>> HASH_SPREAD_SHIFT)) & stripeMask];
+	}
+
+	/**
+	 * A lock stripe: an access-ordered map of entries with an optional capacity.
+	 * Callers must hold the stripe's monitor.
+	 *
+	 * @param <K> the key type
+	 * @param <V> the value type
+	 */
+	private static final class Stripe<K, V> {
+
+		private static final int INITIAL_CAPACITY = 16;
+
+		private static final float LOAD_FACTOR = 0.75f;
+
+		private final LinkedHashMap<K, ExpiringEntry<V>> entries =
+			new LinkedHashMap<K, ExpiringEntry<V>>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+
+		private final int capacity;
+
+		Stripe(final int capacity) {
+			this.capacity = capacity;
+		}
+
+		ExpiringEntry<V> get(final K key) {
+			return entries.get(key);
+		}
+
+		void put(final K key, final ExpiringEntry<V> entry) {
+			entries.put(key, entry);
+		}
+
+		ExpiringEntry<V> remove(final K key) {
+			return entries.remove(key);
+		}
+
+		void clear() {
+			entries.clear();
+		}
+
+		int size() {
+			return entries.size();
+		}
+
+		/**
+		 * Removes least recently used entries until the stripe is within its capacity.
+		 *
+		 * @return the removed entries
+		 */
+		List<Map.Entry<K, ExpiringEntry<V>>> evictOverflow() {
+			if (capacity == UNBOUNDED || entries.size() <= capacity) {
+				return Collections.emptyList();
+			}
+			final List<Map.Entry<K, ExpiringEntry<V>>> evicted = new ArrayList<Map.Entry<K, ExpiringEntry<V>>>();
+			final Iterator<Map.Entry<K, ExpiringEntry<V>>> iterator = entries.entrySet().iterator();
+			while (entries.size() > capacity && iterator.hasNext()) {
+				final Map.Entry<K, ExpiringEntry<V>> eldest = iterator.next();
+				evicted.add(new ImmutableEntry<K, ExpiringEntry<V>>(eldest.getKey(), eldest.getValue()));
+				iterator.remove();
+			}
+			return evicted;
+		}
+
+		/**
+		 * Removes the entries that have expired at <tt>now</tt>.
+		 *
+		 * @param now the current time in milliseconds
+		 * @param expired collects the removed entries
+		 */
+		void removeExpired(final long now, final List<Map.Entry<K, ExpiringEntry<V>>> expired) {
+			final Iterator<Map.Entry<K, ExpiringEntry<V>>> iterator = entries.entrySet().iterator();
+			while (iterator.hasNext()) {
+				final Map.Entry<K, ExpiringEntry<V>> entry = iterator.next();
+				if (now >= entry.getValue().getExpiryTime()) {
+					expired.add(new ImmutableEntry<K, ExpiringEntry<V>>(entry.getKey(), entry.getValue()));
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * A cached value together with the time at which it expires.
+	 *
+	 * @param <T> the type of the cached value
+	 */
+	private static final class ExpiringEntry<T> {
+
+		private final T value;
+
+		private final long expiryTime;
+
+		ExpiringEntry(final T value, final long expiryTime) {
+			this.value = value;
+			this.expiryTime = expiryTime;
+		}
+
+		T getValue() {
+			return value;
+		}
+
+		long getExpiryTime() {
+			return expiryTime;
+		}
+	}
+
+	/**
+	 * Detached copy of a map entry, safe to use after the entry has been removed from its map.
+	 *
+	 * @param <A> the key type
+	 * @param <B> the value type
+	 */
+	private static final class ImmutableEntry<A, B> implements Map.Entry<A, B> {
+
+		private final A key;
+
+		private final B value;
+
+		ImmutableEntry(final A key, final B value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		public A getKey() {
+			return key;
+		}
+
+		public B getValue() {
+			return value;
+		}
+
+		public B setValue(final B value) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Lazily created daemon scheduler shared by all cache expiry sweepers.
+	 */
+	private static final class SweeperHolder {
+
+		static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "ep-cache-expiry-sweeper");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		private SweeperHolder() {
+			// holder class
+		}
+	}
+}
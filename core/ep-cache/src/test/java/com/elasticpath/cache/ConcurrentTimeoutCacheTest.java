@@ -0,0 +1,241 @@
+package com.elasticpath.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Test that {@link ConcurrentTimeoutCache} works as intended.
+ */
+public class ConcurrentTimeoutCacheTest {
+
+	private static final String BOB = "bob";
+	private static final String BOBS_INFO = "bob's info";
+	private static final String FRED = "fred";
+	private static final String FREDS_INFORMATION = "fred's information";
+	private static final String JOE = "joe";
+	private static final String JOES_INFO = "joe's info";
+	private static final long LONG_TIMEOUT = 10000;
+
+	/**
+	 * Simple test for putting and getting from the cache.
+	 */
+	@Test
+	public void testSimpleCaching() {
+		ConcurrentTimeoutCache<String, String> cache = new ConcurrentTimeoutCache<String, String>(LONG_TIMEOUT);
+		cache.put(FRED, FREDS_INFORMATION);
+		assertEquals(FREDS_INFORMATION, cache.get(FRED));
+		assertEquals(FREDS_INFORMATION, cache.get(FRED));
+		assertNull(cache.get(BOB));
+
+		CacheStatistics statistics = cache.getStatistics();
+		assertEquals(2, statistics.getHitCount());
+		assertEquals(1, statistics.getMissCount());
+		assertEquals(1, statistics.getSize());
+	}
+
+	/**
+	 * Test that with a zero timeout nothing is cached, as with {@link SimpleTimeoutCache}.
+	 */
+	@Test
+	public void testZeroTimeout() {
+		ConcurrentTimeoutCache<String, String> cache = new ConcurrentTimeoutCache<String, String>(0);
+		cache.put(FRED, FREDS_INFORMATION);
+		assertNull("Information should not have been cached", cache.get(FRED));
+	}
+
+	/**
+	 * Test that entries expire and are passed to the remove hook.
+	 */
+	@Test
+	public void testTimeoutCallsRemoveHook() {
+		final long timeout = 5;
+		final long five = 5;
+		final long [] currentTime = new long [] {0};
+		final List<String> removedKeys = new ArrayList<String>();
+
+		ConcurrentTimeoutCache<String, String> cache = new ConcurrentTimeoutCache<String, String>(timeout) {
+			@Override
+			long getCurrentTimeMillis() {
+				return currentTime[0];
+			}
+
+			@Override
+			protected void beforeRemoveHook(final String key, final String value) {
+				removedKeys.add(key);
+			}
+		};
+		cache.put(FRED, FREDS_INFORMATION);
+		assertEquals(FREDS_INFORMATION, cache.get(FRED));
+
+		currentTime[0] = five;
+		assertNull("Cached entry should have expired", cache.get(FRED));
+		assertEquals(1, removedKeys.size());
+		assertEquals(FRED, removedKeys.get(0));
+		assertEquals(1, cache.getStatistics().getExpirationCount());
+	}
+
+	/**
+	 * Test that the sweep removes only expired entries.
+	 */
+	@Test
+	public void testRemoveExpired() {
+		final long timeout = 5;
+		final long ten = 10;
+		final long twelve = 12;
+		final long [] currentTime = new long [] {0};
+
+		ConcurrentTimeoutCache<String, String> cache = new ConcurrentTimeoutCache<String, String>(timeout) {
+			@Override
+			long getCurrentTimeMillis() {
+				return currentTime[0];
+			}
+		};
+		cache.put(FRED, FREDS_INFORMATION);
+		currentTime[0] = ten;
+		cache.put(BOB, BOBS_INFO);
+		currentTime[0] = twelve;
+
+		assertEquals(1, cache.removeExpired());
+		assertEquals(1, cache.size());
+		assertEquals(BOBS_INFO, cache.get(BOB));
+	}
+
+	/**
+	 * Test that a bounded cache evicts the least recently used entry.
+	 */
+	@Test
+	public void testLeastRecentlyUsedEviction() {
+		final List<String> evictedKeys = new ArrayList<String>();
+		ConcurrentTimeoutCache<String, String> cache = new ConcurrentTimeoutCache<String, String>(LONG_TIMEOUT, 2) {
+			@Override
+			protected void beforeRemoveHook(final String key, final String value) {
+				evictedKeys.add(key);
+			}
+		};
+		cache.put(FRED, FREDS_INFORMATION);
+		cache.put(BOB, BOBS_INFO);
+		assertEquals(FREDS_INFORMATION, cache.get(FRED));
+
+		cache.put(JOE, JOES_INFO);
+
+		assertEquals(2, cache.size());
+		assertEquals(1, evictedKeys.size());
+		assertEquals(BOB, evictedKeys.get(0));
+		assertEquals(FREDS_INFORMATION, cache.get(FRED));
+		assertEquals(JOES_INFO, cache.get(JOE));
+		assertEquals(1, cache.getStatistics().getEvictionCount());
+	}
+
+	/**
+	 * Test that a loaded value is cached and the loader is not called again.
+	 */
+	@Test
+	public void testGetOrLoadCachesValue() {
+		final AtomicInteger loads = new AtomicInteger();
+		CacheLoader<String, String> loader = new CacheLoader<String, String>() {
+			public String load(final String key) {
+				loads.incrementAndGet();
+				return key + "'s info";
+			}
+		};
+		ConcurrentTimeoutCache<String, String> cache = new ConcurrentTimeoutCache<String, String>(LONG_TIMEOUT);
+
+		assertEquals(BOBS_INFO, cache.getOrLoad(BOB, loader));
+		assertEquals(BOBS_INFO, cache.getOrLoad(BOB, loader));
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getStatistics().getLoadCount());
+	}
+
+	/**
+	 * Test that concurrent callers for the same missing key share a single load.
+	 *
+	 * @throws InterruptedException if the test is interrupted
+	 */
+	@Test
+	public void testGetOrLoadIsSingleFlight() throws InterruptedException {
+		final int threadCount = 8;
+		final AtomicInteger loads = new AtomicInteger();
+		final CountDownLatch loaderEntered = new CountDownLatch(1);
+		final CountDownLatch releaseLoader = new CountDownLatch(1);
+		final Object loadedValue = new Object();
+		final ConcurrentTimeoutCache<String, Object> cache = new ConcurrentTimeoutCache<String, Object>(LONG_TIMEOUT);
+		final CacheLoader<String, Object> loader = new CacheLoader<String, Object>() {
+			public Object load(final String key) {
+				loads.incrementAndGet();
+				loaderEntered.countDown();
+				try {
+					releaseLoader.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return loadedValue;
+			}
+		};
+
+		final List<Object> results = new ArrayList<Object>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < threadCount; i++) {
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					Object result = cache.getOrLoad(FRED, loader);
+					synchronized (results) {
+						results.add(result);
+					}
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+
+		loaderEntered.await();
+		releaseLoader.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(1, loads.get());
+		assertEquals(threadCount, results.size());
+		for (Object result : results) {
+			assertSame(loadedValue, result);
+		}
+	}
+
+	/**
+	 * Test that a loader returning null caches nothing.
+	 */
+	@Test
+	public void testGetOrLoadWithNullValue() {
+		ConcurrentTimeoutCache<String, String> cache = new ConcurrentTimeoutCache<String, String>(LONG_TIMEOUT);
+		assertNull(cache.getOrLoad(FRED, new CacheLoader<String, String>() {
+			public String load(final String key) {
+				return null;
+			}
+		}));
+		assertEquals(0, cache.size());
+	}
+
+	/**
+	 * Test that remove and clear empty the cache.
+	 */
+	@Test
+	public void testRemoveAndClear() {
+		ConcurrentTimeoutCache<String, String> cache = new ConcurrentTimeoutCache<String, String>(LONG_TIMEOUT);
+		cache.put(FRED, FREDS_INFORMATION);
+		cache.put(BOB, BOBS_INFO);
+
+		assertEquals(FREDS_INFORMATION, cache.remove(FRED));
+		assertNull(cache.get(FRED));
+
+		cache.clear();
+		assertTrue(cache.size() == 0);
+	}
+}
@@ -77,6 +77,20 @@ public interface PromotedPriceLookupService {
 			final PriceListStack plStack, final Store store, final Set <Long> ruleTracker);
 	
 	
+	/**
+	 * Obtain the catalog promoted prices of a batch of products in several {@link PriceListStack}s. The result is the same as calling
+	 * {@link #getProductPrice(Product, PriceListStack, Store, Set, BaseAmountDataSourceFactory)} for each product and stack, but the
+	 * catalog promotion rules are fired once for each currency for the whole batch rather than once for every SKU.
+	 *
+	 * @param products the products to look up
+	 * @param plStacks the price list stacks to price the products in, keyed by a name of the caller's choosing
+	 * @param store store
+	 * @param dataSourceFactory the BaseAmountDataSourceFactory to be used to access the base amounts
+	 * @return the prices keyed by the name of the price list stack and then by product code, leaving out products without a price
+	 */
+	Map<String, Map<String, Price>> getPromotedProductsPrices(final Collection<? extends Product> products,
+			final Map<String, PriceListStack> plStacks, final Store store, final BaseAmountDataSourceFactory dataSourceFactory);
+
 	/**
 	 * Apply catalog promotions on a given product price.
 	 *
@@ -0,0 +1,414 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.common.pricing.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+import com.elasticpath.commons.util.InvalidatableCache;
+import com.elasticpath.domain.pricing.PriceListAssignment;
+import com.elasticpath.domain.pricing.PriceListStack;
+import com.elasticpath.domain.sellingcontext.SellingContext;
+import com.elasticpath.tags.Tag;
+import com.elasticpath.tags.TagSet;
+import com.elasticpath.tags.domain.Condition;
+import com.elasticpath.tags.domain.ConditionalExpression;
+import com.elasticpath.tags.domain.LogicalOperator;
+import com.elasticpath.tags.domain.TagDictionary;
+import com.elasticpath.tags.service.ConditionDSLBuilder;
+
+/**
+ * Builds price list stacks like {@link PLAStackLookupStrategy}, but caches the assignments of each catalog and currency, and the
+ * assignments whose selling contexts a tag set satisfies. Two tag sets share the same cached assignments when they agree on the values of
+ * the tags which the catalog's selling context conditions refer to, so the stack lookup of most new sessions and tag changes costs neither
+ * a database query nor a condition evaluation.
+ * <p>
+ * Time conditions are evaluated on every lookup, since the shopping start time tag is unique to each session. The assignments of a
+ * catalog and currency are read again every {@link #setRefreshInterval(long) refresh interval}, and the cached tag set results are
+ * dropped when an assignment, its price list or its selling context conditions changed.
+ */
+@ManagedResource(objectName = "com.elasticpath.core:name=PriceListStackCacheStats",
+		description = "Stats of the price list stack cache", currencyTimeLimit = 1)
+public class CachingPLAStackLookupStrategy extends PLAStackLookupStrategy implements InvalidatableCache {
+
+	private static final Logger LOG = Logger.getLogger(CachingPLAStackLookupStrategy.class);
+
+	/** The selling context dictionaries whose conditions are evaluated once per tag set signature. */
+	private static final String[] SIGNATURE_DICTIONARIES = {
+		TagDictionary.DICTIONARY_SHOPPER_GUID,
+		TagDictionary.DICTIONARY_STORES_GUID,
+		TagDictionary.DICTIONARY_PLA_SHOPPER_GUID,
+		TagDictionary.DICTIONARY_PROMOTIONS_SHOPPER_GUID,
+		TagDictionary.DICTIONARY_OFFER_SHOPPER_GUID
+	};
+
+	private static final long DEFAULT_REFRESH_INTERVAL = 60000;
+
+	private static final int DEFAULT_MAX_SIGNATURES = 1000;
+
+	private static final double PERCENT = 100.0;
+
+	private static final char SEPARATOR = '|';
+
+	private final ConcurrentMap<String, CatalogAssignments> catalogAssignments = new ConcurrentHashMap<String, CatalogAssignments>();
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong uncacheableCount = new AtomicLong();
+
+	private final AtomicLong rebuildCount = new AtomicLong();
+
+	private ConditionDSLBuilder conditionDSLBuilder;
+
+	private long refreshInterval = DEFAULT_REFRESH_INTERVAL;
+
+	private int maxSignatures = DEFAULT_MAX_SIGNATURES;
+
+	@Override
+	public PriceListStack getPriceListStack(final String catalogCode, final Currency currency, final TagSet tagSet) {
+		if (tagSet == null) {
+			return super.getPriceListStack(catalogCode, currency, tagSet);
+		}
+
+		final CatalogAssignments assignments = getCatalogAssignments(catalogCode, currency.getCurrencyCode());
+		final PriceListStack stack = createPriceListStack(currency);
+		for (PriceListAssignment assignment : getSignatureSatisfiedAssignments(assignments, tagSet)) {
+			final SellingContext context = assignment.getSellingContext();
+			if (context == null || context.isSatisfied(getConditionEvaluatorService(), tagSet, TagDictionary.DICTIONARY_TIME_GUID)) {
+				stack.addPriceList(assignment.getPriceListDescriptor().getGuid());
+			}
+		}
+		return stack;
+	}
+
+	/**
+	 * Gets the assignments whose selling contexts the tag set satisfies, time conditions aside, from the cache when possible.
+	 */
+	private List<PriceListAssignment> getSignatureSatisfiedAssignments(final CatalogAssignments assignments, final TagSet tagSet) {
+		if (assignments.getTagKeys() == null) {
+			uncacheableCount.incrementAndGet();
+			return filterForSignatureDictionaries(assignments.getAssignments(), tagSet);
+		}
+
+		final String signature = createSignature(assignments.getTagKeys(), tagSet);
+		final Map<String, List<PriceListAssignment>> satisfiedBySignature = assignments.getSatisfiedAssignmentsBySignature();
+		List<PriceListAssignment> satisfied = satisfiedBySignature.get(signature);
+		if (satisfied == null) {
+			missCount.incrementAndGet();
+			satisfied = filterForSignatureDictionaries(assignments.getAssignments(), tagSet);
+			if (satisfiedBySignature.size() >= maxSignatures) {
+				satisfiedBySignature.clear();
+			}
+			satisfiedBySignature.put(signature, satisfied);
+		} else {
+			hitCount.incrementAndGet();
+		}
+		return satisfied;
+	}
+
+	private List<PriceListAssignment> filterForSignatureDictionaries(final List<PriceListAssignment> assignments, final TagSet tagSet) {
+		final List<PriceListAssignment> satisfied = new ArrayList<PriceListAssignment>();
+		for (PriceListAssignment assignment : assignments) {
+			final SellingContext context = assignment.getSellingContext();
+			if (context == null || context.isSatisfied(getConditionEvaluatorService(), tagSet, SIGNATURE_DICTIONARIES)) {
+				satisfied.add(assignment);
+			}
+		}
+		return Collections.unmodifiableList(satisfied);
+	}
+
+	/**
+	 * Gets the cached assignments of a catalog and currency, reading them again when the refresh interval has passed. Only the thread
+	 * that claims the refresh reads them; the others carry on with the cached ones meanwhile.
+	 */
+	private CatalogAssignments getCatalogAssignments(final String catalogCode, final String currencyCode) {
+		final String key = catalogCode + SEPARATOR + currencyCode;
+		final CatalogAssignments cached = catalogAssignments.get(key);
+		final long now = System.currentTimeMillis();
+		if (cached != null && !cached.claimRefresh(now, refreshInterval)) {
+			return cached;
+		}
+
+		List<PriceListAssignment> assignments = getPriceListAssignmentService().listByCatalogAndCurrencyCode(catalogCode, currencyCode, true);
+		if (assignments == null) {
+			assignments = Collections.emptyList();
+		}
+		assignments = orderPriceListAssignment(assignments);
+		final String fingerprint = createFingerprint(assignments);
+		if (cached != null && cached.getFingerprint().equals(fingerprint)) {
+			return cached;
+		}
+
+		rebuildCount.incrementAndGet();
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Price list assignments of " + key + " changed, dropping their cached price list stacks");
+		}
+		final CatalogAssignments rebuilt = new CatalogAssignments(Collections.unmodifiableList(assignments), fingerprint,
+				getReferencedTagKeys(assignments), now);
+		catalogAssignments.put(key, rebuilt);
+		return rebuilt;
+	}
+
+	/**
+	 * Describes everything about the assignments the price list stacks depend on.
+	 */
+	private String createFingerprint(final List<PriceListAssignment> assignments) {
+		final StringBuilder fingerprint = new StringBuilder();
+		for (PriceListAssignment assignment : assignments) {
+			fingerprint.append(assignment.getGuid()).append(SEPARATOR)
+				.append(assignment.getPriority()).append(SEPARATOR)
+				.append(assignment.isHidden()).append(SEPARATOR)
+				.append(assignment.getPriceListDescriptor().getGuid()).append(SEPARATOR);
+			final SellingContext context = assignment.getSellingContext();
+			if (context != null) {
+				final Map<String, ConditionalExpression> conditions = new TreeMap<String, ConditionalExpression>(context.getConditions());
+				for (Map.Entry<String, ConditionalExpression> condition : conditions.entrySet()) {
+					fingerprint.append(condition.getKey()).append('=').append(condition.getValue().getConditionString()).append(SEPARATOR);
+				}
+			}
+			fingerprint.append('\n');
+		}
+		return fingerprint.toString();
+	}
+
+	/**
+	 * Gets the keys of the tags the signature dictionary conditions of the assignments refer to.
+	 *
+	 * @return the sorted tag keys, or null if a condition cannot be parsed, in which case tag set results are not cached
+	 */
+	private Set<String> getReferencedTagKeys(final List<PriceListAssignment> assignments) {
+		final Set<String> tagKeys = new TreeSet<String>();
+		for (PriceListAssignment assignment : assignments) {
+			final SellingContext context = assignment.getSellingContext();
+			if (context == null) {
+				continue;
+			}
+			for (String dictionary : SIGNATURE_DICTIONARIES) {
+				final ConditionalExpression expression = context.getCondition(dictionary);
+				if (expression != null && !addTagKeys(expression.getConditionString(), tagKeys)) {
+					LOG.warn("Cannot find the tags of condition " + expression.getGuid() + ", price list stacks of catalog "
+							+ assignment.getCatalog().getCode() + " will not be cached");
+					return null;
+				}
+			}
+		}
+		return Collections.unmodifiableSet(tagKeys);
+	}
+
+	private boolean addTagKeys(final String conditionString, final Set<String> tagKeys) {
+		final LogicalOperator root;
+		try {
+			root = conditionDSLBuilder.getLogicalOperationTree(conditionString);
+		} catch (RuntimeException e) {
+			LOG.debug("Cannot parse condition " + conditionString, e);
+			return false;
+		}
+		return root == null || addTagKeys(root, tagKeys);
+	}
+
+	private boolean addTagKeys(final LogicalOperator operator, final Set<String> tagKeys) {
+		for (Condition condition : operator.getConditions()) {
+			if (condition.getTagDefinition() == null || condition.getTagDefinition().getGuid() == null) {
+				return false;
+			}
+			tagKeys.add(condition.getTagDefinition().getGuid());
+		}
+		for (LogicalOperator child : operator.getLogicalOperators()) {
+			if (!addTagKeys(child, tagKeys)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Creates the signature of the tag set values which the conditions can tell apart.
+	 */
+	private String createSignature(final Set<String> tagKeys, final TagSet tagSet) {
+		final StringBuilder signature = new StringBuilder();
+		for (String tagKey : tagKeys) {
+			signature.append(tagKey);
+			final Tag tag = tagSet.getTagValue(tagKey);
+			if (tag != null) {
+				signature.append('=').append(tag.getValue());
+			}
+			signature.append(SEPARATOR);
+		}
+		return signature.toString();
+	}
+
+	/**
+	 * Drops all cached assignments.
+	 */
+	@Override
+	@ManagedOperation(description = "Drop the cached price list assignments and stacks.")
+	public void invalidate() {
+		catalogAssignments.clear();
+	}
+
+	/**
+	 * Drops the cached assignments of a catalog, for all currencies.
+	 *
+	 * @param catalogCode the catalog code
+	 */
+	@Override
+	public void invalidate(final Object catalogCode) {
+		final String prefix = String.valueOf(catalogCode) + SEPARATOR;
+		for (String key : catalogAssignments.keySet()) {
+			if (key.startsWith(prefix)) {
+				catalogAssignments.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * @return the number of lookups answered from cached tag set results
+	 */
+	@ManagedAttribute(description = "Lookups answered from cached tag set results", currencyTimeLimit = 1)
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of lookups which evaluated the selling contexts and cached the result
+	 */
+	@ManagedAttribute(description = "Lookups which evaluated the selling contexts", currencyTimeLimit = 1)
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * @return the number of lookups whose catalog has conditions that cannot be cached
+	 */
+	@ManagedAttribute(description = "Lookups of catalogs whose conditions cannot be cached", currencyTimeLimit = 1)
+	public long getUncacheableCount() {
+		return uncacheableCount.get();
+	}
+
+	/**
+	 * @return the number of times the assignments of a catalog and currency were cached anew
+	 */
+	@ManagedAttribute(description = "Times the assignments of a catalog and currency were cached anew", currencyTimeLimit = 1)
+	public long getRebuildCount() {
+		return rebuildCount.get();
+	}
+
+	/**
+	 * @return the percentage of lookups answered from cached tag set results
+	 */
+	@ManagedAttribute(description = "Percentage of lookups answered from cached tag set results", currencyTimeLimit = 1)
+	public double getHitPercentage() {
+		final long hits = getHitCount();
+		final long lookups = hits + getMissCount() + getUncacheableCount();
+		if (lookups == 0) {
+			return 0;
+		}
+		return PERCENT * hits / lookups;
+	}
+
+	/**
+	 * Resets the counts.
+	 */
+	@ManagedOperation(description = "Reset the counts.")
+	public void resetCounts() {
+		hitCount.set(0);
+		missCount.set(0);
+		uncacheableCount.set(0);
+		rebuildCount.set(0);
+	}
+
+	/**
+	 * Sets the builder used to find the tags the selling context conditions refer to.
+	 *
+	 * @param conditionDSLBuilder the condition DSL builder
+	 */
+	public void setConditionDSLBuilder(final ConditionDSLBuilder conditionDSLBuilder) {
+		this.conditionDSLBuilder = conditionDSLBuilder;
+	}
+
+	/**
+	 * Sets the milliseconds between two reads of the assignments of a catalog and currency.
+	 *
+	 * @param refreshInterval the refresh interval
+	 */
+	public void setRefreshInterval(final long refreshInterval) {
+		this.refreshInterval = refreshInterval;
+	}
+
+	/**
+	 * Sets the number of tag set signatures cached per catalog and currency, beyond which the cached results are dropped.
+	 *
+	 * @param maxSignatures the maximum number of signatures
+	 */
+	public void setMaxSignatures(final int maxSignatures) {
+		this.maxSignatures = maxSignatures;
+	}
+
+	/**
+	 * The sorted assignments of a catalog and currency, and the ones each tag set signature satisfies.
+	 */
+	private static final class CatalogAssignments {
+
+		private final List<PriceListAssignment> assignments;
+
+		private final String fingerprint;
+
+		private final Set<String> tagKeys;
+
+		private final ConcurrentMap<String, List<PriceListAssignment>> satisfiedAssignmentsBySignature =
+			new ConcurrentHashMap<String, List<PriceListAssignment>>();
+
+		private final AtomicLong lastRefreshTime;
+
+		CatalogAssignments(final List<PriceListAssignment> assignments, final String fingerprint, final Set<String> tagKeys,
+				final long refreshTime) {
+			this.assignments = assignments;
+			this.fingerprint = fingerprint;
+			this.tagKeys = tagKeys;
+			this.lastRefreshTime = new AtomicLong(refreshTime);
+		}
+
+		/**
+		 * Claims the refresh of the assignments if the refresh interval has passed.
+		 *
+		 * @return true if the caller should refresh the assignments
+		 */
+		boolean claimRefresh(final long now, final long refreshInterval) {
+			final long refreshTime = lastRefreshTime.get();
+			return now - refreshTime >= refreshInterval && lastRefreshTime.compareAndSet(refreshTime, now);
+		}
+
+		List<PriceListAssignment> getAssignments() {
+			return assignments;
+		}
+
+		String getFingerprint() {
+			return fingerprint;
+		}
+
+		Set<String> getTagKeys() {
+			return tagKeys;
+		}
+
+		Map<String, List<PriceListAssignment>> getSatisfiedAssignmentsBySignature() {
+			return satisfiedAssignmentsBySignature;
+		}
+	}
+}
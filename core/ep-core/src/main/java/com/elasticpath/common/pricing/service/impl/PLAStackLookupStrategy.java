@@ -111,7 +111,7 @@ public class PLAStackLookupStrategy implements PriceListStackLookupStrategy {
 	 * @param priceListAssignments list to reorder
 	 * @return sorted list
 	 */
-	private List<PriceListAssignment> orderPriceListAssignment(final List<PriceListAssignment> priceListAssignments) {
+	protected List<PriceListAssignment> orderPriceListAssignment(final List<PriceListAssignment> priceListAssignments) {
 		List<PriceListAssignment> sortedResult = new ArrayList<PriceListAssignment>();
 		sortedResult.addAll(priceListAssignments);
 		Collections.sort(sortedResult, priceListAssignmentComparator);
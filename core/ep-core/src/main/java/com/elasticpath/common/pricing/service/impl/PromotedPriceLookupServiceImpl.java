@@ -1,11 +1,13 @@
 package com.elasticpath.common.pricing.service.impl;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Currency;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -112,6 +114,108 @@ public class PromotedPriceLookupServiceImpl implements PromotedPriceLookupServic
 		return productCodePrice;
 	}
 
+	@Override
+	public Map<String, Map<String, Price>> getPromotedProductsPrices(final Collection<? extends Product> products,
+			final Map<String, PriceListStack> plStacks, final Store store, final BaseAmountDataSourceFactory dataSourceFactory) {
+		// the unpromoted SKU prices in each stack, and the prices of each product in each currency for the rule engine
+		final Map<String, Map<String, Price>> skuPricesByStack = new HashMap<String, Map<String, Price>>();
+		final Map<Currency, Map<String, List<Price>>> productPricesByCurrency = new HashMap<Currency, Map<String, List<Price>>>();
+		for (final Map.Entry<String, PriceListStack> stackEntry : plStacks.entrySet()) {
+			final PriceListStack plStack = stackEntry.getValue();
+			final PriceProvider priceProvider = getPriceProvider(store, plStack, new HashSet<Long>(), dataSourceFactory);
+			final Map<String, Price> skuPrices = new HashMap<String, Price>();
+			skuPricesByStack.put(stackEntry.getKey(), skuPrices);
+
+			Map<String, List<Price>> productPrices = productPricesByCurrency.get(plStack.getCurrency());
+			if (productPrices == null) {
+				productPrices = new HashMap<String, List<Price>>();
+				productPricesByCurrency.put(plStack.getCurrency(), productPrices);
+			}
+
+			for (final Product product : products) {
+				if (getBundleIdentifier().isCalculatedBundle(product)) {
+					continue;
+				}
+				for (final ProductSku sku : product.getProductSkus().values()) {
+					final Price skuPrice = getPricedEntityFactory().createPricedProductSku(sku, plStack, priceProvider, dataSourceFactory).getPrice();
+					skuPrices.put(sku.getSkuCode(), skuPrice);
+					if (skuPrice != null) {
+						addPrice(productPrices, product.getCode(), skuPrice);
+					}
+				}
+			}
+		}
+
+		for (final Map.Entry<Currency, Map<String, List<Price>>> currencyEntry : productPricesByCurrency.entrySet()) {
+			final Map<String, List<Price>> productPrices = currencyEntry.getValue();
+			final List<Product> pricedProducts = new ArrayList<Product>(productPrices.size());
+			for (final Product product : products) {
+				if (productPrices.containsKey(product.getCode())) {
+					pricedProducts.add(product);
+				}
+			}
+			getEpRuleEngine().fireCatalogPromotionRules(pricedProducts, new HashSet<Long>(), currencyEntry.getKey(), store, productPrices);
+		}
+
+		final Map<String, Map<String, Price>> pricesByStack = new HashMap<String, Map<String, Price>>();
+		for (final Map.Entry<String, PriceListStack> stackEntry : plStacks.entrySet()) {
+			final PriceListStack plStack = stackEntry.getValue();
+			final PriceProvider priceProvider = getPromotedSkuPriceProvider(store, plStack, skuPricesByStack.get(stackEntry.getKey()),
+					dataSourceFactory);
+			final Map<String, Price> productPrices = new HashMap<String, Price>();
+			pricesByStack.put(stackEntry.getKey(), productPrices);
+
+			for (final Product product : products) {
+				final Price price = getPricedEntityFactory().createPricedProduct(product, priceProvider).getPrice();
+				if (price != null) {
+					productPrices.put(product.getCode(), price);
+				}
+			}
+		}
+		return pricesByStack;
+	}
+
+	private void addPrice(final Map<String, List<Price>> productPrices, final String productCode, final Price price) {
+		List<Price> prices = productPrices.get(productCode);
+		if (prices == null) {
+			prices = new ArrayList<Price>();
+			productPrices.put(productCode, prices);
+		}
+		prices.add(price);
+	}
+
+	/**
+	 * Gets a price provider which hands out the SKU prices that have already been promoted, and falls back to the regular lookup for
+	 * other SKUs, such as those of calculated bundles or of bundle constituents outside the batch.
+	 *
+	 * @param store the store
+	 * @param plStack the price list stack
+	 * @param promotedSkuPrices the promoted SKU prices keyed by SKU code
+	 * @param dataSourceFactory the BaseAmountDataSourceFactory to be used to access the base amounts
+	 * @return the price provider
+	 */
+	private PriceProvider getPromotedSkuPriceProvider(final Store store, final PriceListStack plStack, final Map<String, Price> promotedSkuPrices,
+			final BaseAmountDataSourceFactory dataSourceFactory) {
+		final PriceProvider regularPriceProvider = getPriceProvider(store, plStack, new HashSet<Long>(), dataSourceFactory);
+		return new PriceProvider() {
+
+			public Price getProductSkuPrice(final ProductSku productSku) {
+				if (promotedSkuPrices.containsKey(productSku.getSkuCode())) {
+					return promotedSkuPrices.get(productSku.getSkuCode());
+				}
+				return regularPriceProvider.getProductSkuPrice(productSku);
+			}
+
+			public Price getProductPrice(final Product product) {
+				return regularPriceProvider.getProductPrice(product);
+			}
+
+			public Currency getCurrency() {
+				return plStack.getCurrency();
+			}
+		};
+	}
+
 	/**
 	 * @param product product
 	 * @param store store
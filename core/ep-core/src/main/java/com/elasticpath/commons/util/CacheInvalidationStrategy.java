@@ -1,5 +1,6 @@
 package com.elasticpath.commons.util;
 
+import java.util.Collection;
 import java.util.Set;
 
 /**
@@ -17,6 +18,15 @@ public interface CacheInvalidationStrategy {
 	 */
 	void invalidateCachesForObject(final Object objectUid);
 
+	/**
+	 * Remove from known caches the entries depending on the given entities. Only caches which are
+	 * {@link EntityInvalidatableCache}s take part; other caches are left alone.
+	 * @param entityType the type of the changed entities
+	 * @param entityKeys the uids, codes or guids of the changed entities
+	 * @return the number of cache entries removed
+	 */
+	int invalidateCachesForEntities(final Class< ? > entityType, final Collection< ? > entityKeys);
+
 	/**
 	 * Set the caches to be managed by this invalidation strategy.
 	 * @param caches set of caches that need invalidation
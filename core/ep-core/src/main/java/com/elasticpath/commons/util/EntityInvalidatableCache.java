@@ -0,0 +1,22 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.commons.util;
+
+import java.util.Collection;
+
+/**
+ * An {@link InvalidatableCache} which can evict just the entries depending on given entities, rather than all of its entries.
+ */
+public interface EntityInvalidatableCache extends InvalidatableCache {
+
+	/**
+	 * Removes from the cache the entries which hold or depend on any of the given entities. Entities are identified by their uid or
+	 * by their code or guid, whichever the caller has at hand; entity types this cache does not hold are ignored.
+	 *
+	 * @param entityType the type of the changed entities, for instance {@code Product.class}
+	 * @param entityKeys the uids ({@link Long}) or codes or guids ({@link String}) of the changed entities
+	 * @return the number of entries removed
+	 */
+	int invalidate(final Class< ? > entityType, final Collection< ? > entityKeys);
+}
@@ -1,10 +1,12 @@
 package com.elasticpath.commons.util.impl;
 
+import java.util.Collection;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
 
 import com.elasticpath.commons.util.CacheInvalidationStrategy;
+import com.elasticpath.commons.util.EntityInvalidatableCache;
 import com.elasticpath.commons.util.InvalidatableCache;
 
 /**
@@ -35,6 +37,22 @@ public class TriggeredCacheInvalidationStrategyImpl implements CacheInvalidation
 	}
 
 
+	@Override
+	public int invalidateCachesForEntities(final Class< ? > entityType, final Collection< ? > entityKeys) {
+		if (entityKeys.isEmpty()) {
+			return 0;
+		}
+		int removedEntries = 0;
+		for (InvalidatableCache cache : getCaches()) {
+			if (cache instanceof EntityInvalidatableCache) {
+				removedEntries += ((EntityInvalidatableCache) cache).invalidate(entityType, entityKeys);
+			}
+		}
+		LOG.info("Cache invalidated for " + entityKeys.size() + " " + entityType.getSimpleName() + " keys, " + removedEntries + " entries removed");
+		return removedEntries;
+	}
+
+
 	@Override
 	public void setInvalidatableCaches(final Set<InvalidatableCache> caches) {
 		this.caches = caches;
@@ -1721,9 +1721,11 @@ public class ShoppingCartImpl extends AbstractEpDomainImpl implements ShoppingCa
 		if (!isExchangeOrderShoppingCart()) {
 			clearPromotionsInternal();
 			ruleDiscountRecordMap.clear();
-			getRuleEngine().fireOrderPromotionRules(this);
-			updateTaxCalculationResult();
-			getRuleEngine().fireOrderPromotionSubtotalRules(this);
+			getRuleEngine().fireAllOrderPromotionRules(this, new Runnable() {
+				public void run() {
+					updateTaxCalculationResult();
+				}
+			});
 			for (Iterator<Map.Entry<String, Long>> entryIterator =
 				getLimitedUsagePromotionRuleCodes().entrySet().iterator(); entryIterator.hasNext();) {
 				Map.Entry<String, Long> entry = entryIterator.next();
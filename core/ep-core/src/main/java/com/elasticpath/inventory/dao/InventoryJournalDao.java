@@ -4,6 +4,7 @@
 package com.elasticpath.inventory.dao;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.elasticpath.inventory.InventoryDto;
@@ -32,6 +33,15 @@ public interface InventoryJournalDao {
 	 */
 	InventoryJournalRollup getRollup(final InventoryKey inventoryKey);
 	
+	/**
+	 * Sums up the quantity on-hand and allocated quantities for the given sku codes in a warehouse with a single query.
+	 * 
+	 * @param skuCodes The sku codes.
+	 * @param warehouseUid The warehouse uid.
+	 * @return A map of sku code to an InventoryJournalRollup with the summed values, which are zero for sku codes without journal rows.
+	 */
+	Map<String, InventoryJournalRollup> getRollups(final Set<String> skuCodes, final long warehouseUid);
+	
 	/**
 	 * Get all uidPk of TINVENTORYJOURNAL for a inventory key.
 	 * @param inventoryKey the key of inventory
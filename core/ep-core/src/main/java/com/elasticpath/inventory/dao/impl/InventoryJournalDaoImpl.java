@@ -4,9 +4,13 @@
 package com.elasticpath.inventory.dao.impl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.apache.log4j.Logger;
+
 import com.elasticpath.inventory.InventoryDto;
 import com.elasticpath.inventory.InventoryKey;
 import com.elasticpath.inventory.dao.InventoryJournalDao;
@@ -20,6 +24,8 @@ import com.elasticpath.persistence.dao.impl.AbstractDaoImpl;
  */
 public class InventoryJournalDaoImpl extends AbstractDaoImpl implements InventoryJournalDao {
 
+	private static final Logger LOG = Logger.getLogger(InventoryJournalDaoImpl.class);
+
 	@Override
 	public InventoryJournal saveOrUpdate(final InventoryJournal inventoryJournal) {
 		return getPersistenceEngine().saveOrUpdate(inventoryJournal);
@@ -39,6 +45,30 @@ public class InventoryJournalDaoImpl extends AbstractDaoImpl implements Inventor
 		return result.get(0);
 	}
 
+	@Override
+	public Map<String, InventoryJournalRollup> getRollups(final Set<String> skuCodes, final long warehouseUid) {
+		final Map<String, InventoryJournalRollup> rollups = new HashMap<String, InventoryJournalRollup>();
+		if (skuCodes.isEmpty()) {
+			return rollups;
+		}
+		final long start = System.currentTimeMillis();
+		final List<InventoryJournalRollup> result = getPersistenceEngine().retrieveByNamedQueryWithList(
+				"INVENTORY_JOURNAL_SUM_DELTAS_BY_SKUCODES_AND_WAREHOUSE_UID", "list", new ArrayList<String>(skuCodes), warehouseUid);
+		for (InventoryJournalRollup rollup : result) {
+			rollups.put(rollup.getInventoryKey().getSkuCode(), rollup);
+		}
+		for (String skuCode : skuCodes) {
+			if (!rollups.containsKey(skuCode)) {
+				rollups.put(skuCode, new InventoryJournalRollupImpl(skuCode, warehouseUid, 0L, 0L));
+			}
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Summed journal rows of " + skuCodes.size() + " skus in warehouse " + warehouseUid + " in "
+					+ (System.currentTimeMillis() - start) + " ms, " + result.size() + " with journal rows");
+		}
+		return rollups;
+	}
+
 	@Override
 	public InventoryJournalRollup getRollupByUids(final List<Long> journalUids) {
 		
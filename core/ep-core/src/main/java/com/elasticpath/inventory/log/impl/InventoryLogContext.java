@@ -23,7 +23,13 @@ public class InventoryLogContext {
 	public static final String ROLLUP_ENDED_MSG = "INV011 InventoryJournal rollup ended.";
 	
 	/** Inventory rollup contention log messages. */
-	public static final String ROLLUP_CONTENTION_MSG = "INV012 InventoryJournal rollup contention, task terminated: ";
+	public static final String ROLLUP_CONTENTION_MSG = "INV012 InventoryJournal rollup contention, key will be retried: ";
+
+	/** Inventory rollup skipped key log message. */
+	public static final String ROLLUP_SKIPPED_MSG = "INV013 InventoryJournal rollup skipped contended key until next run";
+
+	/** Inventory rollup statistics log message. */
+	public static final String ROLLUP_STATISTICS_MSG = "INV014 InventoryJournal rollup statistics: ";
 	
 	/** Attribute name for order number. */
 	public static final String ORDER_NUMBER = "orderNumber";
@@ -1,12 +1,21 @@
 package com.elasticpath.inventory.strategy.impl;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Level;
 import org.springframework.core.NestedRuntimeException;
 import org.springframework.orm.jpa.JpaOptimisticLockingFailureException;
 import org.springframework.orm.jpa.JpaSystemException;
 
+import com.elasticpath.base.exception.EpSystemException;
 import com.elasticpath.inventory.InventoryKey;
 import com.elasticpath.inventory.log.impl.InventoryLogContext;
 import com.elasticpath.inventory.log.impl.InventoryLogSupport;
@@ -14,13 +23,32 @@ import com.elasticpath.inventory.strategy.InventoryJournalRollupService;
 
 /**
  * Job which will rollup inventory journal.
+ * <p>
+ * The inventory keys are partitioned by hash over the configured number of threads, so that no two threads of a run roll up
+ * the same key. A key whose rollup meets contention, such as a concurrent rollup of the same key on another server, is skipped
+ * and retried once all the other keys are done, after a backoff that doubles with every retry. Keys still contended after the
+ * last retry are left for the next run.
  */
 public class InventoryJournalRollupJobImpl {
-	
+
+	private static final int DEFAULT_THREAD_COUNT = 4;
+
+	private static final int DEFAULT_MAX_RETRIES = 3;
+
+	private static final long DEFAULT_RETRY_BACKOFF = 1000L;
+
+	private static final double MILLIS_PER_SECOND = 1000.0;
+
 	private InventoryJournalRollupService inventoryJournalRollupService;
-	
+
 	private InventoryLogSupport inventoryLogSupport;
-	
+
+	private int threadCount = DEFAULT_THREAD_COUNT;
+
+	private int maxRetries = DEFAULT_MAX_RETRIES;
+
+	private long retryBackoff = DEFAULT_RETRY_BACKOFF;
+
 	/**
 	 * @param inventoryLogSupport the inventoryLogSupport to set
 	 */
@@ -37,28 +65,148 @@ public class InventoryJournalRollupJobImpl {
 	}
 
 	/**
-	 * Rollup inventory journals. 
+	 * @param threadCount the number of threads rolling up keys
+	 */
+	public void setThreadCount(final int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * @param maxRetries the number of times contended keys are retried in a run
+	 */
+	public void setMaxRetries(final int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	/**
+	 * @param retryBackoff the milliseconds to wait before the first retry of contended keys, doubled for every further retry
+	 */
+	public void setRetryBackoff(final long retryBackoff) {
+		this.retryBackoff = retryBackoff;
+	}
+
+	/**
+	 * Rollup inventory journals.
 	 */
 	public void rollup() {
 		inventoryLogSupport.log(Level.INFO, InventoryLogContext.ROLLUP_STARTED_MSG, null);
-		List<InventoryKey> inventoryKeys = inventoryJournalRollupService.getAllInventoryKeys();
+		final long start = System.currentTimeMillis();
+		final List<InventoryKey> inventoryKeys = inventoryJournalRollupService.getAllInventoryKeys();
+		final AtomicInteger rolledUpKeys = new AtomicInteger();
+		List<InventoryKey> contendedKeys;
+
+		final ExecutorService executor = createExecutor();
+		try {
+			contendedKeys = rollup(executor, inventoryKeys, rolledUpKeys);
+			long backoff = retryBackoff;
+			for (int retry = 1; retry <= maxRetries && !contendedKeys.isEmpty(); retry++) {
+				Thread.sleep(backoff);
+				backoff *= 2;
+				contendedKeys = rollup(executor, contendedKeys, rolledUpKeys);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new EpSystemException("Inventory journal rollup interrupted", e);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (InventoryKey inventoryKey : contendedKeys) {
+			inventoryLogSupport.log(Level.INFO, InventoryLogContext.ROLLUP_SKIPPED_MSG, new InventoryLogContext(inventoryKey));
+		}
+		logStatistics(inventoryKeys.size(), rolledUpKeys.get(), contendedKeys.size(), System.currentTimeMillis() - start);
+		inventoryLogSupport.log(Level.INFO, InventoryLogContext.ROLLUP_ENDED_MSG, null);
+	}
+
+	/**
+	 * Rolls up keys in parallel.
+	 *
+	 * @param executor the executor running the partitions
+	 * @param inventoryKeys the keys to roll up
+	 * @param rolledUpKeys counts the keys rolled up
+	 * @return the keys skipped because of contention
+	 * @throws InterruptedException if interrupted while waiting for the partitions
+	 */
+	private List<InventoryKey> rollup(final ExecutorService executor, final List<InventoryKey> inventoryKeys,
+			final AtomicInteger rolledUpKeys) throws InterruptedException {
+		final List<Future<List<InventoryKey>>> partitions = new ArrayList<Future<List<InventoryKey>>>();
+		for (final List<InventoryKey> partition : partition(inventoryKeys)) {
+			partitions.add(executor.submit(new Callable<List<InventoryKey>>() {
+				@Override
+				public List<InventoryKey> call() {
+					return rollupPartition(partition, rolledUpKeys);
+				}
+			}));
+		}
+
+		final List<InventoryKey> contendedKeys = new ArrayList<InventoryKey>();
+		for (Future<List<InventoryKey>> partition : partitions) {
+			try {
+				contendedKeys.addAll(partition.get());
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new EpSystemException("Inventory journal rollup failed", e.getCause());
+			}
+		}
+		return contendedKeys;
+	}
+
+	private List<List<InventoryKey>> partition(final List<InventoryKey> inventoryKeys) {
+		final int partitionCount = Math.max(1, Math.min(threadCount, inventoryKeys.size()));
+		final List<List<InventoryKey>> partitions = new ArrayList<List<InventoryKey>>(partitionCount);
+		for (int i = 0; i < partitionCount; i++) {
+			partitions.add(new ArrayList<InventoryKey>());
+		}
 		for (InventoryKey inventoryKey : inventoryKeys) {
+			partitions.get((inventoryKey.hashCode() & Integer.MAX_VALUE) % partitionCount).add(inventoryKey);
+		}
+		return partitions;
+	}
+
+	private List<InventoryKey> rollupPartition(final List<InventoryKey> inventoryKeys, final AtomicInteger rolledUpKeys) {
+		final List<InventoryKey> contendedKeys = new ArrayList<InventoryKey>();
+		for (InventoryKey inventoryKey : inventoryKeys) {
+			if (Thread.currentThread().isInterrupted()) {
+				break;
+			}
 			try {
 				inventoryJournalRollupService.processRollup(inventoryKey);
+				rolledUpKeys.incrementAndGet();
 			} catch (JpaSystemException e) {
 				log(inventoryKey, e);
-				break;
+				contendedKeys.add(inventoryKey);
 			} catch (JpaOptimisticLockingFailureException e) {
 				log(inventoryKey, e);
-				break;
+				contendedKeys.add(inventoryKey);
 			}
 		}
-		inventoryLogSupport.log(Level.INFO, InventoryLogContext.ROLLUP_ENDED_MSG, null);
+		return contendedKeys;
+	}
+
+	private ExecutorService createExecutor() {
+		return Executors.newFixedThreadPool(Math.max(1, threadCount), new ThreadFactory() {
+			private final AtomicInteger threadNumber = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "InventoryJournalRollup-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	private void logStatistics(final int keys, final int rolledUpKeys, final int skippedKeys, final long millis) {
+		final long keysPerSecond = Math.round(rolledUpKeys * MILLIS_PER_SECOND / Math.max(1L, millis));
+		inventoryLogSupport.log(Level.INFO, InventoryLogContext.ROLLUP_STATISTICS_MSG + "Keys=" + keys + ", RolledUpKeys=" + rolledUpKeys
+				+ ", SkippedKeys=" + skippedKeys + ", Threads=" + threadCount + ", Millis=" + millis + ", KeysPerSecond=" + keysPerSecond, null);
 	}
 
 	private void log(final InventoryKey inventoryKey, final NestedRuntimeException jpaException) {
 		InventoryLogContext inventoryLogContext = new InventoryLogContext(inventoryKey);
-		inventoryLogSupport.log(Level.INFO, 
+		inventoryLogSupport.log(Level.INFO,
 				InventoryLogContext.ROLLUP_CONTENTION_MSG + jpaException.getMostSpecificCause().getMessage(),
 				inventoryLogContext);
 	}
@@ -83,28 +83,28 @@ public class JournalingInventoryStrategy extends AbstractEPInventoryStrategy {
 		for (final long warehouseId : keysByWarehouses.keySet()) {
 			final Map<String, Inventory> inventoryMap = getInventoryDao().getInventoryMap(getSkuCodesFromInventoryKeys(
 					keysByWarehouses.get(warehouseId)), warehouseId);
-			addInventoriesToResult(result, inventoryMap, keysByWarehouses.get(warehouseId));
+			addInventoriesToResult(result, inventoryMap, keysByWarehouses.get(warehouseId), warehouseId);
 		}
 		
 		return result;
 	}
 	
 	/**
-	 * TODO: Do a single DB query to get rollups for all InventoryKeys at once.
-	 * Right now we are doing DB queries one at a time.
+	 * Adds the inventories of a warehouse with their rollups, which are fetched for all of them with a single query.
 	 * 
 	 * @param result The map to fill up.
 	 * @param inventoryMap The inventory map.
 	 * @param keys The set of keys.
+	 * @param warehouseUid The warehouse of the inventories.
 	 */
 	private void addInventoriesToResult(final Map<InventoryKey, InventoryDto> result,
-			final Map<String, Inventory> inventoryMap, final Set<InventoryKey> keys) {
+			final Map<String, Inventory> inventoryMap, final Set<InventoryKey> keys, final long warehouseUid) {
 		
+		final Map<String, InventoryJournalRollup> rollups = getInventoryJournalDao().getRollups(inventoryMap.keySet(), warehouseUid);
 		for (final String skuCode : inventoryMap.keySet()) {
 			final InventoryKey key = findInventoryKey(skuCode, keys);
 			final Inventory inventory = inventoryMap.get(skuCode);
-			InventoryJournalRollup inventoryJournalRollup = getInventoryJournalDao().getRollup(key);
-			result.put(key, getInventoryDtoAssembler().assembleDtoFromDomain(inventory, inventoryJournalRollup));
+			result.put(key, getInventoryDtoAssembler().assembleDtoFromDomain(inventory, rollups.get(skuCode)));
 		}
 		
 	}
@@ -126,9 +126,9 @@ public class JournalingInventoryStrategy extends AbstractEPInventoryStrategy {
 			final Set<String> skuCodes, final long warehouseUid) {
 		Map<String, InventoryDto> result = new HashMap<String, InventoryDto>();
 		Map<String, Inventory> inventories = getInventoryDao().getInventoryMap(skuCodes, warehouseUid);
+		Map<String, InventoryJournalRollup> rollups = getInventoryJournalDao().getRollups(inventories.keySet(), warehouseUid);
 		for (Map.Entry<String, Inventory> entry : inventories.entrySet()) {			
-			Inventory inventory = entry.getValue();
-			InventoryDto inventoryDto = rollupDto(inventory);
+			InventoryDto inventoryDto = getInventoryDtoAssembler().assembleDtoFromDomain(entry.getValue(), rollups.get(entry.getKey()));
 			result.put(entry.getKey(), inventoryDto);			
 		}
 		return result;
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.persistence.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.elasticpath.base.exception.EpSystemException;
+import com.elasticpath.commons.beanframework.BeanFactory;
+import com.elasticpath.commons.constants.ContextIdNames;
+import com.elasticpath.domain.search.IndexNotification;
+import com.elasticpath.domain.search.IndexNotification.AffectedEntityType;
+import com.elasticpath.domain.search.UpdateType;
+import com.elasticpath.persistence.api.Persistable;
+import com.elasticpath.persistence.api.PersistenceEngine;
+import com.elasticpath.persistence.openjpa.ChangeType;
+import com.elasticpath.persistence.openjpa.impl.AbstractPersistenceEngineEntityListener;
+import com.elasticpath.service.search.IndexType;
+
+/**
+ * EntityListener which journals the saves and deletes of indexed entities as single unit {@link IndexNotification}s, in the
+ * transaction of the change. The search server tails these notifications to update its indexes within seconds of the commit, rather
+ * than waiting for its next poll of modified entities.
+ * <p>
+ * Entities are matched on their exact class name. New entities whose uid is not assigned yet when they are saved are left to the poll.
+ */
+public class IndexNotificationJournalEntityListener extends AbstractPersistenceEngineEntityListener {
+
+	private final Map<String, IndexType> journalledIndexTypes = new HashMap<String, IndexType>();
+
+	private BeanFactory beanFactory;
+
+	private PersistenceEngine persistenceEngine;
+
+	@Override
+	public void endSingleOperation(final Persistable object, final ChangeType type) {
+		if (object == null || !object.isPersisted()) {
+			return;
+		}
+		final IndexType indexType = journalledIndexTypes.get(object.getClass().getName());
+		if (indexType == null) {
+			return;
+		}
+
+		final IndexNotification notification = beanFactory.getBean(ContextIdNames.INDEX_NOTIFICATION);
+		notification.setIndexType(indexType);
+		notification.setAffectedUid(object.getUidPk());
+		notification.setAffectedEntityType(AffectedEntityType.SINGLE_UNIT);
+		if (type == ChangeType.DELETE) {
+			notification.setUpdateType(UpdateType.DELETE);
+		} else {
+			notification.setUpdateType(UpdateType.UPDATE);
+		}
+		getPersistenceEngine().save(notification);
+	}
+
+	private PersistenceEngine getPersistenceEngine() {
+		if (persistenceEngine == null) {
+			persistenceEngine = beanFactory.getBean(ContextIdNames.PERSISTENCE_ENGINE);
+		}
+		return persistenceEngine;
+	}
+
+	/**
+	 * Sets the indexes to journal the changes of entities to.
+	 *
+	 * @param journalledClasses the index type names, by the class names of the entities they index
+	 */
+	public void setJournalledClasses(final Map<String, String> journalledClasses) {
+		journalledIndexTypes.clear();
+		for (Map.Entry<String, String> journalledClass : journalledClasses.entrySet()) {
+			final IndexType indexType = IndexType.findFromName(journalledClass.getValue());
+			if (indexType == null) {
+				throw new EpSystemException("Unknown index type " + journalledClass.getValue() + " for " + journalledClass.getKey());
+			}
+			journalledIndexTypes.put(journalledClass.getKey(), indexType);
+		}
+	}
+
+	/**
+	 *
+	 * @param beanFactory The bean factory.
+	 */
+	public void setBeanFactory(final BeanFactory beanFactory) {
+		this.beanFactory = beanFactory;
+	}
+}
@@ -225,6 +225,23 @@ public interface CategoryService extends EpPersistenceService {
 	 */
 	List<Long> findDescendantCategoryUids(List<Long> categoryUids);
 
+	/**
+	 * Checks whether a category is a direct or indirect sub-category of another category.
+	 *
+	 * @param categoryUid the category UID
+	 * @param ancestorCategoryUid the UID of the possible ancestor category
+	 * @return true if the category is below the ancestor category
+	 */
+	boolean isDescendantCategory(long categoryUid, long ancestorCategoryUid);
+
+	/**
+	 * Notifies the service that categories were added, modified or deleted outside of it, for instance on another server,
+	 * so that the category hierarchies of their catalogs are reloaded.
+	 *
+	 * @param changedCategoryUids the UIDs of the changed categories
+	 */
+	void refreshCategoryHierarchy(Collection<Long> changedCategoryUids);
+
 	/**
 	 * Retrieve all direct descendant Category objects of the given category UID. <br>
 	 * For example, if Category-A has children SubCategory-A and SubCategory-B, and SubCategory-A has child SubSubCategory-A, then this method will
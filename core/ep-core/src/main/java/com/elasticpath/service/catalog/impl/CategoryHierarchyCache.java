@@ -0,0 +1,279 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.service.catalog.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.elasticpath.persistence.api.PersistenceEngine;
+import com.elasticpath.service.misc.TimeService;
+
+/**
+ * Holds a {@link CategoryHierarchyIndex} for every catalog, built from two queries rather than one query per tree level.
+ * <p>
+ * The indexes are loaded on first use. Catalogs are rebuilt one at a time, never all at once: a catalog is rebuilt on its next use
+ * after it is invalidated by a local change or by {@link #refreshCategories(Collection)}, for instance when the search indexer
+ * picks up changed categories. A local change invalidates its catalog once its transaction commits, so that no index is rebuilt
+ * from the database before the change is visible there. Changes made elsewhere in the cluster are also looked for, the same way the
+ * search indexer does, at most once per change check interval; the request that finds the check due runs it while other requests
+ * keep using the current indexes. Each check looks one interval further back than the previous check, so that changes committed
+ * after the previous check but dated before it are still found.
+ * <p>
+ * Lookups of categories that are not in any index, such as ones created on another server since the last check, return null so
+ * that callers can fall back to querying the database.
+ */
+public class CategoryHierarchyCache {
+
+	private static final Logger LOG = Logger.getLogger(CategoryHierarchyCache.class);
+
+	private static final long DEFAULT_CHANGE_CHECK_INTERVAL = 60000L;
+
+	private static final String PLACE_HOLDER_FOR_LIST = "list";
+
+	private static final int CATEGORY_UID = 0;
+
+	private static final int PARENT_UID = 1;
+
+	private static final int CATALOG_UID = 2;
+
+	private static final int CODE = 1;
+
+	private PersistenceEngine persistenceEngine;
+
+	private TimeService timeService;
+
+	private long changeCheckInterval = DEFAULT_CHANGE_CHECK_INTERVAL;
+
+	private volatile Map<Long, CategoryHierarchyIndex> indexes;
+
+	private final Set<Long> staleCatalogUids = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+	private final AtomicBoolean checkingForChanges = new AtomicBoolean();
+
+	private volatile long nextChangeCheck;
+
+	private Date lastChangeCheckDate;
+
+	/**
+	 * Finds the index of the catalog holding a category, loading or rebuilding indexes first if needed.
+	 *
+	 * @param categoryUid the category uid
+	 * @return the index, or null if no index holds the category
+	 */
+	public CategoryHierarchyIndex findIndexForCategory(final long categoryUid) {
+		return findIndex(getIndexes(), categoryUid);
+	}
+
+	/**
+	 * Marks the catalog of a category as changed, so that its index is rebuilt on its next use. Within a transaction the catalog is
+	 * marked once the transaction commits.
+	 *
+	 * @param catalogUid the catalog uid
+	 */
+	public void invalidateCatalog(final long catalogUid) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			staleCatalogUids.add(catalogUid);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				staleCatalogUids.add(catalogUid);
+			}
+		});
+	}
+
+	/**
+	 * Marks the catalogs of changed categories as changed, so that their indexes are rebuilt on their next use. Deleted categories
+	 * are found in the current indexes and added or modified ones in the database.
+	 *
+	 * @param categoryUids the uids of added, modified or deleted categories
+	 */
+	public void refreshCategories(final Collection<Long> categoryUids) {
+		final Map<Long, CategoryHierarchyIndex> currentIndexes = indexes;
+		if (categoryUids.isEmpty() || currentIndexes == null) {
+			return;
+		}
+		final List<Long> unknownCategoryUids = new ArrayList<Long>();
+		for (Long categoryUid : categoryUids) {
+			final CategoryHierarchyIndex index = findIndex(currentIndexes, categoryUid);
+			if (index == null) {
+				unknownCategoryUids.add(categoryUid);
+			} else {
+				staleCatalogUids.add(index.getCatalogUid());
+			}
+		}
+		if (!unknownCategoryUids.isEmpty()) {
+			final List<Long> catalogUids = persistenceEngine.retrieveByNamedQueryWithList("CATEGORY_CATALOG_UIDS_SELECT_BY_UIDS",
+					PLACE_HOLDER_FOR_LIST, unknownCategoryUids);
+			staleCatalogUids.addAll(catalogUids);
+		}
+	}
+
+	private Map<Long, CategoryHierarchyIndex> getIndexes() {
+		Map<Long, CategoryHierarchyIndex> currentIndexes = indexes;
+		if (currentIndexes == null) {
+			currentIndexes = loadAll();
+		}
+		if (System.currentTimeMillis() >= nextChangeCheck && checkingForChanges.compareAndSet(false, true)) {
+			try {
+				checkForChanges();
+			} finally {
+				checkingForChanges.set(false);
+			}
+		}
+		if (!staleCatalogUids.isEmpty()) {
+			currentIndexes = rebuildStaleCatalogs();
+		}
+		return currentIndexes;
+	}
+
+	private synchronized Map<Long, CategoryHierarchyIndex> loadAll() {
+		if (indexes == null) {
+			final long start = System.currentTimeMillis();
+			lastChangeCheckDate = timeService.getCurrentTime();
+			nextChangeCheck = start + changeCheckInterval;
+			final List<Object[]> categories = persistenceEngine.retrieveByNamedQuery("CATEGORY_HIERARCHY_SELECT_ALL");
+			final List<Object[]> codes = persistenceEngine.retrieveByNamedQuery("CATEGORY_HIERARCHY_CODES_SELECT_ALL");
+			indexes = Collections.unmodifiableMap(buildIndexes(categories, codes));
+			LOG.info("Loaded the hierarchies of " + indexes.size() + " catalogs with " + categories.size() + " categories in "
+					+ (System.currentTimeMillis() - start) + " ms");
+		}
+		return indexes;
+	}
+
+	/**
+	 * Looks for categories changed or deleted since one interval before the previous check and marks their catalogs as changed.
+	 * Failures are logged and the changes are looked for again on the next check.
+	 */
+	private void checkForChanges() {
+		final Date checkDate = timeService.getCurrentTime();
+		nextChangeCheck = System.currentTimeMillis() + changeCheckInterval;
+		final Date changedSince = new Date(lastChangeCheckDate.getTime() - changeCheckInterval);
+		try {
+			final Set<Long> changedCategoryUids = new HashSet<Long>();
+			changedCategoryUids.addAll(persistenceEngine.<Long>retrieveByNamedQuery("CATEGORY_UIDS_SELECT_BY_MODIFIED_DATE", changedSince));
+			changedCategoryUids.addAll(persistenceEngine.<Long>retrieveByNamedQuery("CATEGORY_UIDS_SELECT_BY_DELETED_DATE", changedSince));
+			refreshCategories(changedCategoryUids);
+			lastChangeCheckDate = checkDate;
+		} catch (final RuntimeException e) {
+			LOG.error("Could not check for changed categories", e);
+		}
+	}
+
+	private synchronized Map<Long, CategoryHierarchyIndex> rebuildStaleCatalogs() {
+		final List<Long> catalogUids = new ArrayList<Long>(staleCatalogUids);
+		if (catalogUids.isEmpty()) {
+			return indexes;
+		}
+		staleCatalogUids.removeAll(catalogUids);
+		final long start = System.currentTimeMillis();
+		final Map<Long, CategoryHierarchyIndex> newIndexes = new HashMap<Long, CategoryHierarchyIndex>(indexes);
+		newIndexes.keySet().removeAll(catalogUids);
+		try {
+			final List<Object[]> categories = persistenceEngine.retrieveByNamedQueryWithList("CATEGORY_HIERARCHY_SELECT_BY_CATALOG_UIDS",
+					PLACE_HOLDER_FOR_LIST, catalogUids);
+			final List<Object[]> codes = persistenceEngine.retrieveByNamedQueryWithList("CATEGORY_HIERARCHY_CODES_SELECT_BY_CATALOG_UIDS",
+					PLACE_HOLDER_FOR_LIST, catalogUids);
+			newIndexes.putAll(buildIndexes(categories, codes));
+		} catch (final RuntimeException e) {
+			// without an index the catalog is queried from the database until it changes again
+			LOG.error("Could not rebuild the category hierarchies of catalogs " + catalogUids, e);
+		}
+		indexes = Collections.unmodifiableMap(newIndexes);
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Rebuilt the category hierarchies of catalogs " + catalogUids + " in " + (System.currentTimeMillis() - start) + " ms");
+		}
+		return indexes;
+	}
+
+	/**
+	 * Builds the indexes of catalogs from their category rows.
+	 *
+	 * @param categories rows of category uid, parent uid or null, and catalog uid
+	 * @param codes rows of master category uid and code
+	 * @return the indexes by catalog uid; catalogs whose categories do not form a tree are logged and left out
+	 */
+	static Map<Long, CategoryHierarchyIndex> buildIndexes(final List<Object[]> categories, final List<Object[]> codes) {
+		final Map<Long, String> codesByUid = new HashMap<Long, String>(codes.size() * 2);
+		for (Object[] code : codes) {
+			codesByUid.put((Long) code[CATEGORY_UID], (String) code[CODE]);
+		}
+
+		final Map<Long, CategoryHierarchyIndex.Builder> builders = new HashMap<Long, CategoryHierarchyIndex.Builder>();
+		for (Object[] category : categories) {
+			final Long catalogUid = (Long) category[CATALOG_UID];
+			CategoryHierarchyIndex.Builder builder = builders.get(catalogUid);
+			if (builder == null) {
+				builder = new CategoryHierarchyIndex.Builder(catalogUid);
+				builders.put(catalogUid, builder);
+			}
+			final Long categoryUid = (Long) category[CATEGORY_UID];
+			long parentUid = 0L;
+			if (category[PARENT_UID] != null) {
+				parentUid = (Long) category[PARENT_UID];
+			}
+			builder.addCategory(categoryUid, parentUid, codesByUid.get(categoryUid));
+		}
+
+		final Map<Long, CategoryHierarchyIndex> builtIndexes = new HashMap<Long, CategoryHierarchyIndex>(builders.size() * 2);
+		for (Map.Entry<Long, CategoryHierarchyIndex.Builder> builder : builders.entrySet()) {
+			try {
+				builtIndexes.put(builder.getKey(), builder.getValue().build());
+			} catch (final IllegalArgumentException e) {
+				LOG.error("Could not index the category hierarchy of catalog " + builder.getKey(), e);
+			}
+		}
+		return builtIndexes;
+	}
+
+	private static CategoryHierarchyIndex findIndex(final Map<Long, CategoryHierarchyIndex> indexes, final long categoryUid) {
+		for (CategoryHierarchyIndex index : indexes.values()) {
+			if (index.contains(categoryUid)) {
+				return index;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Sets the persistence engine.
+	 *
+	 * @param persistenceEngine the persistence engine
+	 */
+	public void setPersistenceEngine(final PersistenceEngine persistenceEngine) {
+		this.persistenceEngine = persistenceEngine;
+	}
+
+	/**
+	 * Sets the time service, whose time the category modified and deleted dates are compared with.
+	 *
+	 * @param timeService the time service
+	 */
+	public void setTimeService(final TimeService timeService) {
+		this.timeService = timeService;
+	}
+
+	/**
+	 * Sets how often categories changed elsewhere in the cluster are looked for.
+	 *
+	 * @param changeCheckInterval the interval in milliseconds
+	 */
+	public void setChangeCheckInterval(final long changeCheckInterval) {
+		this.changeCheckInterval = changeCheckInterval;
+	}
+}
@@ -0,0 +1,319 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.service.catalog.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable index of the category tree of one catalog, answering ancestor and descendant questions without queries.
+ * <p>
+ * Categories are held in primitive arrays sorted by uid, each with the position of its parent. The tree is numbered in depth
+ * first order, so the descendants of a category are the contiguous run of categories numbered after it up to the end of its
+ * interval, which makes "is descendant" an O(1) interval check and a descendant lookup a single array copy. The codes of the
+ * master category ancestors of every category are computed when the index is built.
+ */
+public final class CategoryHierarchyIndex {
+
+	private static final int NO_PARENT = -1;
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	private final long catalogUid;
+
+	private final long[] uids;
+
+	private final int[] parents;
+
+	private final int[] tourStarts;
+
+	private final int[] tourEnds;
+
+	private final long[] tourUids;
+
+	private final List<Set<String>> ancestorCodes;
+
+	private CategoryHierarchyIndex(final long catalogUid, final long[] uids, final int[] parents, final int[] tourStarts,
+			final int[] tourEnds, final long[] tourUids, final List<Set<String>> ancestorCodes) {
+		this.catalogUid = catalogUid;
+		this.uids = uids;
+		this.parents = parents;
+		this.tourStarts = tourStarts;
+		this.tourEnds = tourEnds;
+		this.tourUids = tourUids;
+		this.ancestorCodes = ancestorCodes;
+	}
+
+	/**
+	 * Gets the uid of the catalog whose categories are indexed.
+	 *
+	 * @return the catalog uid
+	 */
+	public long getCatalogUid() {
+		return catalogUid;
+	}
+
+	/**
+	 * Gets the number of categories.
+	 *
+	 * @return the number of categories
+	 */
+	public int size() {
+		return uids.length;
+	}
+
+	/**
+	 * Checks whether a category is in the index.
+	 *
+	 * @param categoryUid the category uid
+	 * @return true if the category is in the index
+	 */
+	public boolean contains(final long categoryUid) {
+		return Arrays.binarySearch(uids, categoryUid) >= 0;
+	}
+
+	/**
+	 * Checks whether a category is a direct or indirect sub-category of another.
+	 *
+	 * @param categoryUid the category uid
+	 * @param ancestorCategoryUid the uid of the possible ancestor
+	 * @return true if the category is below the ancestor, false if it is not or if either is not in the index
+	 */
+	public boolean isDescendant(final long categoryUid, final long ancestorCategoryUid) {
+		final int category = Arrays.binarySearch(uids, categoryUid);
+		final int ancestor = Arrays.binarySearch(uids, ancestorCategoryUid);
+		if (category < 0 || ancestor < 0) {
+			return false;
+		}
+		return tourStarts[ancestor] < tourStarts[category] && tourStarts[category] < tourEnds[ancestor];
+	}
+
+	/**
+	 * Gets the uid of the parent of a category.
+	 *
+	 * @param categoryUid the category uid
+	 * @return the parent uid, or 0 for a root category
+	 * @throws IllegalArgumentException if the category is not in the index
+	 */
+	public long getParentUid(final long categoryUid) {
+		final int parent = parents[indexOf(categoryUid)];
+		if (parent == NO_PARENT) {
+			return 0L;
+		}
+		return uids[parent];
+	}
+
+	/**
+	 * Gets the uids of the direct and indirect sub-categories of a category, in depth first order.
+	 *
+	 * @param categoryUid the category uid
+	 * @return the descendant uids
+	 * @throws IllegalArgumentException if the category is not in the index
+	 */
+	public long[] getDescendantUids(final long categoryUid) {
+		final int category = indexOf(categoryUid);
+		return Arrays.copyOfRange(tourUids, tourStarts[category] + 1, tourEnds[category]);
+	}
+
+	/**
+	 * Gets the uids of the ancestors of a category, its parent first.
+	 *
+	 * @param categoryUid the category uid
+	 * @return the ancestor uids
+	 * @throws IllegalArgumentException if the category is not in the index
+	 */
+	public long[] getAncestorUids(final long categoryUid) {
+		final int category = indexOf(categoryUid);
+		int depth = 0;
+		for (int parent = parents[category]; parent != NO_PARENT; parent = parents[parent]) {
+			depth++;
+		}
+		final long[] ancestorUids = new long[depth];
+		int ancestor = 0;
+		for (int parent = parents[category]; parent != NO_PARENT; parent = parents[parent]) {
+			ancestorUids[ancestor++] = uids[parent];
+		}
+		return ancestorUids;
+	}
+
+	/**
+	 * Gets the codes of the master category ancestors of a category. Linked categories have no code of their own, so linked
+	 * ancestors are left out, as they are by the category code queries.
+	 *
+	 * @param categoryUid the category uid
+	 * @return an unmodifiable set of ancestor codes
+	 * @throws IllegalArgumentException if the category is not in the index
+	 */
+	public Set<String> getAncestorCodes(final long categoryUid) {
+		return ancestorCodes.get(indexOf(categoryUid));
+	}
+
+	private int indexOf(final long categoryUid) {
+		final int category = Arrays.binarySearch(uids, categoryUid);
+		if (category < 0) {
+			throw new IllegalArgumentException("Category " + categoryUid + " is not in the hierarchy of catalog " + catalogUid);
+		}
+		return category;
+	}
+
+	/**
+	 * Builds the index of a catalog from its categories, added in any order.
+	 */
+	public static class Builder {
+
+		private final long catalogUid;
+
+		private long[] uids = new long[INITIAL_CAPACITY];
+
+		private long[] parentUids = new long[INITIAL_CAPACITY];
+
+		private final List<String> codes = new ArrayList<String>();
+
+		private int size;
+
+		/**
+		 * Creates a builder.
+		 *
+		 * @param catalogUid the uid of the catalog whose categories are added
+		 */
+		public Builder(final long catalogUid) {
+			this.catalogUid = catalogUid;
+		}
+
+		/**
+		 * Adds a category.
+		 *
+		 * @param uid the category uid
+		 * @param parentUid the uid of the parent category, or 0 for a root category
+		 * @param code the code of a master category, or null for a linked category
+		 * @return this builder
+		 */
+		public Builder addCategory(final long uid, final long parentUid, final String code) {
+			if (size == uids.length) {
+				uids = Arrays.copyOf(uids, size * 2);
+				parentUids = Arrays.copyOf(parentUids, size * 2);
+			}
+			uids[size] = uid;
+			parentUids[size] = parentUid;
+			codes.add(code);
+			size++;
+			return this;
+		}
+
+		/**
+		 * Builds the index.
+		 *
+		 * @return the index
+		 * @throws IllegalArgumentException if a category was added twice or the categories do not form a tree
+		 */
+		public CategoryHierarchyIndex build() {
+			final long[] sortedUids = Arrays.copyOf(uids, size);
+			Arrays.sort(sortedUids);
+			for (int i = 1; i < size; i++) {
+				if (sortedUids[i] == sortedUids[i - 1]) {
+					throw new IllegalArgumentException("Category " + sortedUids[i] + " was added twice to catalog " + catalogUid);
+				}
+			}
+
+			final int[] parents = new int[size];
+			final String[] sortedCodes = new String[size];
+			final int[] childCounts = new int[size + 1];
+			for (int row = 0; row < size; row++) {
+				final int category = Arrays.binarySearch(sortedUids, uids[row]);
+				int parent = NO_PARENT;
+				if (parentUids[row] != 0L) {
+					parent = Arrays.binarySearch(sortedUids, parentUids[row]);
+					if (parent < 0) {
+						throw new IllegalArgumentException("The parent " + parentUids[row] + " of category " + uids[row]
+								+ " is not in catalog " + catalogUid);
+					}
+					childCounts[parent + 1]++;
+				}
+				parents[category] = parent;
+				sortedCodes[category] = codes.get(row);
+			}
+
+			// children of category i are children[childStarts[i]] up to children[childStarts[i + 1]], in uid order
+			final int[] childStarts = childCounts;
+			for (int i = 1; i <= size; i++) {
+				childStarts[i] += childStarts[i - 1];
+			}
+			final int[] children = new int[size];
+			final int[] nextChild = Arrays.copyOf(childStarts, size);
+			for (int category = 0; category < size; category++) {
+				if (parents[category] != NO_PARENT) {
+					children[nextChild[parents[category]]++] = category;
+				}
+			}
+
+			final int[] tourStarts = new int[size];
+			final int[] tourEnds = new int[size];
+			final long[] tourUids = new long[size];
+			final List<Set<String>> ancestorCodes = new ArrayList<Set<String>>(Collections.<Set<String>>nCopies(size, null));
+			final int visited = tour(sortedUids, parents, sortedCodes, childStarts, children, tourStarts, tourEnds, tourUids, ancestorCodes);
+			if (visited != size) {
+				throw new IllegalArgumentException("The categories of catalog " + catalogUid + " have a parent cycle");
+			}
+			return new CategoryHierarchyIndex(catalogUid, sortedUids, parents, tourStarts, tourEnds, tourUids, ancestorCodes);
+		}
+
+		/**
+		 * Numbers the categories in depth first order from the roots without recursion, and computes their ancestor codes.
+		 *
+		 * @return the number of categories reached from the roots
+		 */
+		@SuppressWarnings("PMD.ExcessiveParameterList")
+		private int tour(final long[] sortedUids, final int[] parents, final String[] sortedCodes, final int[] childStarts,
+				final int[] children, final int[] tourStarts, final int[] tourEnds, final long[] tourUids,
+				final List<Set<String>> ancestorCodes) {
+			final Set<String> noCodes = Collections.emptySet();
+			final int[] stack = new int[size];
+			final int[] nextChildren = new int[size];
+			int position = 0;
+			for (int root = 0; root < size; root++) {
+				if (parents[root] != NO_PARENT) {
+					continue;
+				}
+				int depth = 0;
+				stack[depth] = root;
+				position = enter(root, position, sortedUids, childStarts, tourStarts, tourUids, nextChildren);
+				ancestorCodes.set(root, noCodes);
+				while (depth >= 0) {
+					final int category = stack[depth];
+					if (nextChildren[category] < childStarts[category + 1]) {
+						final int child = children[nextChildren[category]++];
+						position = enter(child, position, sortedUids, childStarts, tourStarts, tourUids, nextChildren);
+						ancestorCodes.set(child, childAncestorCodes(ancestorCodes.get(category), sortedCodes[category]));
+						stack[++depth] = child;
+					} else {
+						tourEnds[category] = position;
+						depth--;
+					}
+				}
+			}
+			return position;
+		}
+
+		private static int enter(final int category, final int position, final long[] sortedUids, final int[] childStarts,
+				final int[] tourStarts, final long[] tourUids, final int[] nextChildren) {
+			tourStarts[category] = position;
+			tourUids[position] = sortedUids[category];
+			nextChildren[category] = childStarts[category];
+			return position + 1;
+		}
+
+		private static Set<String> childAncestorCodes(final Set<String> parentAncestorCodes, final String parentCode) {
+			if (parentCode == null) {
+				return parentAncestorCodes;
+			}
+			final Set<String> codes = new HashSet<String>(parentAncestorCodes);
+			codes.add(parentCode);
+			return Collections.unmodifiableSet(codes);
+		}
+	}
+}
@@ -70,6 +70,8 @@ public class CategoryServiceImpl extends AbstractEpPersistenceServiceImpl implem
 	/** Load tuner used in operations related to linking products to categories or linked categories. */
 	private FetchGroupLoadTuner linkProductCategoryLoadTuner;
 
+	private CategoryHierarchyCache categoryHierarchyCache;
+
 	private static final String DUPLICATE_GUID = "Inconsistent data -- duplicate guid:";
 
 	/**
@@ -95,6 +97,7 @@ public class CategoryServiceImpl extends AbstractEpPersistenceServiceImpl implem
 					"Category code '" + category.getCode() + "' already exists in catalog " + category.getCatalog().getCode());
 		}
 		getPersistenceEngine().save(category);
+		invalidateCategoryHierarchy(category);
 		getProductService().notifyCategoryUpdated(category);
 		getIndexNotificationService().addNotificationForEntityIndexUpdate(IndexType.CATEGORY, category.getUidPk());
 		return category;
@@ -161,6 +164,7 @@ public class CategoryServiceImpl extends AbstractEpPersistenceServiceImpl implem
 	public Category update(final Category category) throws EpServiceException {
 		sanityCheck();
 		final Category updatedCategory = getPersistenceEngine().update(category);
+		invalidateCategoryHierarchy(updatedCategory);
 		getProductService().notifyCategoryUpdated(updatedCategory);
 		getIndexNotificationService().addNotificationForEntityIndexUpdate(IndexType.CATEGORY, updatedCategory.getUidPk());
 		return updatedCategory;
@@ -517,6 +521,7 @@ public class CategoryServiceImpl extends AbstractEpPersistenceServiceImpl implem
 		if (updatedCategory.getParent() != null) {
 			getPersistenceEngine().evictObjectFromCache(updatedCategory.getParent());
 		}
+		invalidateCategoryHierarchy(updatedCategory);
 
 		getProductService().notifyCategoryUpdated(updatedCategory);
 		getIndexNotificationService().addNotificationForEntityIndexUpdate(IndexType.CATEGORY, updatedCategory.getUidPk());
@@ -569,6 +574,10 @@ public class CategoryServiceImpl extends AbstractEpPersistenceServiceImpl implem
 	@Override
 	public List<Long> findDescendantCategoryUids(final long categoryUid) {
 		sanityCheck();
+		final CategoryHierarchyIndex index = findCategoryHierarchyIndex(categoryUid);
+		if (index != null) {
+			return toList(index.getDescendantUids(categoryUid));
+		}
 		List<Long> result = new ArrayList<Long>();
 		if (categoryUid > 0) {
 			final List<Long> queryResponse = getPersistenceEngine().retrieveByNamedQuery("CATEGORY_LIST_SUBCATEGORY_UIDS", new Long(categoryUid));
@@ -609,6 +618,16 @@ public class CategoryServiceImpl extends AbstractEpPersistenceServiceImpl implem
 	@Override
 	public List<Long> findDescendantCategoryUids(final List<Long> categoryUids) {
 		sanityCheck();
+		final List<CategoryHierarchyIndex> indexes = findCategoryHierarchyIndexes(categoryUids);
+		if (indexes != null) {
+			final Set<Long> descendantUids = new LinkedHashSet<Long>();
+			for (int i = 0; i < categoryUids.size(); i++) {
+				for (long descendantUid : indexes.get(i).getDescendantUids(categoryUids.get(i))) {
+					descendantUids.add(descendantUid);
+				}
+			}
+			return new ArrayList<Long>(descendantUids);
+		}
 		final List<Long> result = new ArrayList<Long>();
 		List<Long> subCategoryUids = getPersistenceEngine().retrieveByNamedQueryWithList(
 				"CATEGORY_UID_SELECT_BY_PARENT_UIDS", PLACE_HOLDER_FOR_LIST, categoryUids);
@@ -621,6 +640,32 @@ public class CategoryServiceImpl extends AbstractEpPersistenceServiceImpl implem
 		return result;
 	}
 
+	/**
+	 * Checks whether a category is a direct or indirect sub-category of another category, with a single comparison when the
+	 * category hierarchy of its catalog is cached.
+	 *
+	 * @param categoryUid the category UID
+	 * @param ancestorCategoryUid the UID of the possible ancestor category
+	 * @return true if the category is below the ancestor category
+	 */
+	@Override
+	public boolean isDescendantCategory(final long categoryUid, final long ancestorCategoryUid) {
+		sanityCheck();
+		final CategoryHierarchyIndex index = findCategoryHierarchyIndex(categoryUid);
+		if (index != null) {
+			// the ancestors of a category are always in its own catalog
+			return index.isDescendant(categoryUid, ancestorCategoryUid);
+		}
+		return findAncestorCategoryUids(categoryUid).contains(ancestorCategoryUid);
+	}
+
+	@Override
+	public void refreshCategoryHierarchy(final Collection<Long> changedCategoryUids) {
+		if (categoryHierarchyCache != null) {
+			categoryHierarchyCache.refreshCategories(changedCategoryUids);
+		}
+	}
+
 	/**
 	 * Return <code>true</code> if the product with the given product UID is in the category
 	 * with the given category UID. Otherwise, <code>false</code>.
@@ -689,6 +734,7 @@ public class CategoryServiceImpl extends AbstractEpPersistenceServiceImpl implem
 
 		getPersistenceEngine().delete(category);
 		addCategoryDeleted(category.getUidPk());
+		invalidateCategoryHierarchy(category);
 	}
 
 	private void addCategoryDeleted(final long uid) {
@@ -1087,6 +1133,10 @@ public class CategoryServiceImpl extends AbstractEpPersistenceServiceImpl implem
 	@Override
 	public Set<String> findAncestorCategoryCodesByCategoryUid(final long categoryUid) {
 		sanityCheck();
+		final CategoryHierarchyIndex index = findCategoryHierarchyIndex(categoryUid);
+		if (index != null) {
+			return new HashSet<String>(index.getAncestorCodes(categoryUid));
+		}
 
 		// Get the list of ancestor uids
 		final List<Long> parentUids =  findAncestorCategoryUids(categoryUid);
@@ -1121,6 +1171,14 @@ public class CategoryServiceImpl extends AbstractEpPersistenceServiceImpl implem
 	 * @return A list of ancestor category UIDs.
 	 */
 	private List<Long> findAncestorCategoryUids(final List<Long> categoryUids) {
+		final List<CategoryHierarchyIndex> indexes = findCategoryHierarchyIndexes(categoryUids);
+		if (indexes != null) {
+			final List<Long> ancestorUids = new ArrayList<Long>();
+			for (int i = 0; i < categoryUids.size(); i++) {
+				ancestorUids.addAll(toList(indexes.get(i).getAncestorUids(categoryUids.get(i))));
+			}
+			return ancestorUids;
+		}
 		final List<Long> result = new ArrayList<Long>();
 
 		// Get the list of immediate parent uids
@@ -1137,6 +1195,51 @@ public class CategoryServiceImpl extends AbstractEpPersistenceServiceImpl implem
 		return result;
 	}
 
+	/**
+	 * Finds the cached hierarchy of the catalog holding a category.
+	 *
+	 * @param categoryUid the category UID
+	 * @return the hierarchy, or null if hierarchies are not cached or the category is not in them
+	 */
+	private CategoryHierarchyIndex findCategoryHierarchyIndex(final long categoryUid) {
+		if (categoryHierarchyCache == null) {
+			return null;
+		}
+		return categoryHierarchyCache.findIndexForCategory(categoryUid);
+	}
+
+	/**
+	 * Finds the cached hierarchies of the catalogs holding categories.
+	 *
+	 * @param categoryUids the category UIDs
+	 * @return the hierarchy of each category in the same order, or null if any of the categories is not in a cached hierarchy
+	 */
+	private List<CategoryHierarchyIndex> findCategoryHierarchyIndexes(final List<Long> categoryUids) {
+		final List<CategoryHierarchyIndex> indexes = new ArrayList<CategoryHierarchyIndex>(categoryUids.size());
+		for (Long categoryUid : categoryUids) {
+			final CategoryHierarchyIndex index = findCategoryHierarchyIndex(categoryUid);
+			if (index == null) {
+				return null;
+			}
+			indexes.add(index);
+		}
+		return indexes;
+	}
+
+	private void invalidateCategoryHierarchy(final Category category) {
+		if (categoryHierarchyCache != null && category.getCatalog() != null) {
+			categoryHierarchyCache.invalidateCatalog(category.getCatalog().getUidPk());
+		}
+	}
+
+	private static List<Long> toList(final long[] uids) {
+		final List<Long> list = new ArrayList<Long>(uids.length);
+		for (long uid : uids) {
+			list.add(uid);
+		}
+		return list;
+	}
+
 	/**
 	 * Returns a list of <code>Category</code> based on the given UIDs. The returned category will be populated based on the default load tuner.
 	 *
@@ -1354,6 +1457,7 @@ public class CategoryServiceImpl extends AbstractEpPersistenceServiceImpl implem
 	 */
 	protected Category saveOrMerge(final Category category) {
 		final Category updatedCategory = getPersistenceEngine().saveOrMerge(category);
+		invalidateCategoryHierarchy(updatedCategory);
 		getIndexNotificationService().addNotificationForEntityIndexUpdate(IndexType.CATEGORY, updatedCategory.getUidPk());
 		return updatedCategory;
 	}
@@ -1588,6 +1692,7 @@ public class CategoryServiceImpl extends AbstractEpPersistenceServiceImpl implem
 		// delete it from the database
 		getPersistenceEngine().delete(linkedCategory);
 		addCategoryDeleted(linkedCategory.getUidPk());
+		invalidateCategoryHierarchy(linkedCategory);
 	}
 
 	/**
@@ -1726,6 +1831,15 @@ public class CategoryServiceImpl extends AbstractEpPersistenceServiceImpl implem
 		this.catalogService = catalogService;
 	}
 
+	/**
+	 * Sets the cache of category hierarchies answering ancestor and descendant lookups. Without one they are queried from the database.
+	 *
+	 * @param categoryHierarchyCache the category hierarchy cache
+	 */
+	public void setCategoryHierarchyCache(final CategoryHierarchyCache categoryHierarchyCache) {
+		this.categoryHierarchyCache = categoryHierarchyCache;
+	}
+
 	@Override
 	public Category findByGuid(final String categoryCode, final String catalogCode, final CategoryLoadTuner loadTuner) {
 		if (catalogCode == null) {
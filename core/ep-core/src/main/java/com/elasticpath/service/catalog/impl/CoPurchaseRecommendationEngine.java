@@ -0,0 +1,363 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.service.catalog.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.elasticpath.base.exception.EpSystemException;
+
+/**
+ * Counts how many customers purchased each pair of products and keeps the most co-purchased products of every product, the same
+ * recommendations {@link ProductRecommendationServiceImpl} computes from scratch, but updated incrementally as the purchases of
+ * customers change.
+ * <p>
+ * The distinct products of every customer are held as sorted primitive arrays and the co-purchase counts in primitive long-keyed
+ * maps. When the products of a customer change only the counts of the pairs that involve the added or removed products are
+ * updated, and only the products whose counts changed have their recommendations recomputed. Recommendations are ranked by count,
+ * products with the same count by uid, so they do not depend on the order in which purchases were counted.
+ * <p>
+ * The counts are split into partitions by source product, each of which is only ever touched by one thread, so that counting can
+ * run in parallel without locking. Not thread safe otherwise: one store's engine is updated by one job at a time.
+ */
+final class CoPurchaseRecommendationEngine {
+
+	private static final long[] NO_PRODUCTS = new long[0];
+
+	private static final int INITIAL_PRODUCTS_PER_CUSTOMER = 4;
+
+	private static final int CUSTOMER_UID = 0;
+
+	private static final int PRODUCT_UID = 1;
+
+	private final LongObjectHashMap<long[]> customerProducts = new LongObjectHashMap<long[]>();
+
+	/** Pairs of the previous and new products of customers, waiting to be counted. */
+	private final List<long[][]> pendingChanges = new ArrayList<long[][]>();
+
+	private final Partition[] partitions;
+
+	private int maxRecommendations;
+
+	/**
+	 * Creates an engine with no purchases.
+	 *
+	 * @param partitionCount the number of partitions the counts are split into, which is the number of threads that can count
+	 */
+	CoPurchaseRecommendationEngine(final int partitionCount) {
+		partitions = new Partition[Math.max(1, partitionCount)];
+		for (int i = 0; i < partitions.length; i++) {
+			partitions[i] = new Partition(i);
+		}
+	}
+
+	/**
+	 * Replaces the purchases of customers. Customers that are given but have no purchases no longer count.
+	 *
+	 * @param customerUids the uids of the customers whose purchases are replaced, in addition to the customers of the purchases
+	 * @param purchases rows of customer uid and purchased product uid, products being repeated for every purchase
+	 */
+	void replacePurchases(final Collection<Long> customerUids, final List<Object[]> purchases) {
+		final LongObjectHashMap<long[]> productsByCustomer = new LongObjectHashMap<long[]>();
+		final LongIntHashMap productCounts = new LongIntHashMap();
+		for (Object[] purchase : purchases) {
+			final long customerUid = ((Number) purchase[CUSTOMER_UID]).longValue();
+			final int productCount = productCounts.get(customerUid);
+			long[] products = productsByCustomer.get(customerUid);
+			if (products == null) {
+				products = new long[INITIAL_PRODUCTS_PER_CUSTOMER];
+				productsByCustomer.put(customerUid, products);
+			} else if (productCount == products.length) {
+				products = Arrays.copyOf(products, productCount * 2);
+				productsByCustomer.put(customerUid, products);
+			}
+			products[productCount] = ((Number) purchase[PRODUCT_UID]).longValue();
+			productCounts.add(customerUid, 1);
+		}
+
+		for (Long customerUid : customerUids) {
+			if (productsByCustomer.get(customerUid) == null) {
+				setCustomerProducts(customerUid, NO_PRODUCTS);
+			}
+		}
+		for (int slot = 0; slot < productsByCustomer.capacity(); slot++) {
+			final long[] products = productsByCustomer.valueAt(slot);
+			if (products != null) {
+				final long customerUid = productsByCustomer.keyAt(slot);
+				setCustomerProducts(customerUid, distinct(products, productCounts.get(customerUid)));
+			}
+		}
+	}
+
+	private void setCustomerProducts(final long customerUid, final long[] products) {
+		long[] previousProducts = customerProducts.get(customerUid);
+		if (previousProducts == null) {
+			previousProducts = NO_PRODUCTS;
+		}
+		if (Arrays.equals(previousProducts, products)) {
+			return;
+		}
+		pendingChanges.add(new long[][] { previousProducts, products });
+		if (products.length == 0) {
+			customerProducts.remove(customerUid);
+		} else {
+			customerProducts.put(customerUid, products);
+		}
+	}
+
+	/**
+	 * @return the number of customers with purchases
+	 */
+	int getCustomerCount() {
+		return customerProducts.size();
+	}
+
+	/**
+	 * @return the number of customers whose purchases changed since the changes were last counted
+	 */
+	int getPendingChangeCount() {
+		return pendingChanges.size();
+	}
+
+	/**
+	 * Counts the changed purchases of customers into the co-purchase counts, running every partition as a task of the given
+	 * executor, or in the calling thread if there is no executor or a single partition.
+	 *
+	 * @param executor the executor, may be null
+	 */
+	void countPendingChanges(final ExecutorService executor) {
+		if (executor == null || partitions.length == 1) {
+			for (Partition partition : partitions) {
+				partition.count(pendingChanges);
+			}
+			pendingChanges.clear();
+			return;
+		}
+
+		final List<Future<Object>> counts = new ArrayList<Future<Object>>(partitions.length);
+		for (final Partition partition : partitions) {
+			counts.add(executor.submit(new Callable<Object>() {
+				@Override
+				public Object call() {
+					partition.count(pendingChanges);
+					return null;
+				}
+			}));
+		}
+		try {
+			for (Future<Object> count : counts) {
+				count.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new EpSystemException("Co-purchase counting interrupted", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new EpSystemException("Co-purchase counting failed", e.getCause());
+		}
+		pendingChanges.clear();
+	}
+
+	/**
+	 * Gets the recommendations that changed since they were last taken, and remembers them as taken. All recommendations are
+	 * recomputed if the maximum number of recommendations changed.
+	 *
+	 * @param maxRecommendations the maximum number of recommendations of a product
+	 * @return the new recommendations by product uid, most co-purchased first, empty for products that are no longer co-purchased
+	 */
+	Map<Long, List<Long>> takeChangedRecommendations(final int maxRecommendations) {
+		final boolean recomputeAll = maxRecommendations != this.maxRecommendations;
+		this.maxRecommendations = maxRecommendations;
+		final Map<Long, List<Long>> changedRecommendations = new HashMap<Long, List<Long>>();
+		for (Partition partition : partitions) {
+			partition.takeChangedRecommendations(maxRecommendations, recomputeAll, changedRecommendations);
+		}
+		return changedRecommendations;
+	}
+
+	private int partitionOf(final long productUid) {
+		return (LongIntHashMap.hash(productUid) & Integer.MAX_VALUE) % partitions.length;
+	}
+
+	/**
+	 * Sorts products and removes the repeated ones.
+	 */
+	private static long[] distinct(final long[] products, final int length) {
+		Arrays.sort(products, 0, length);
+		int distinctLength = 0;
+		for (int i = 0; i < length; i++) {
+			if (distinctLength == 0 || products[distinctLength - 1] != products[i]) {
+				products[distinctLength++] = products[i];
+			}
+		}
+		return Arrays.copyOf(products, distinctLength);
+	}
+
+	/**
+	 * Gets the products of a sorted array that are not in another sorted array.
+	 */
+	private static long[] difference(final long[] products, final long[] excludedProducts) {
+		final long[] remaining = new long[products.length];
+		int length = 0;
+		for (long product : products) {
+			if (Arrays.binarySearch(excludedProducts, product) < 0) {
+				remaining[length++] = product;
+			}
+		}
+		return Arrays.copyOf(remaining, length);
+	}
+
+	/**
+	 * Gets the most co-purchased products of a product, most co-purchased first.
+	 */
+	private static long[] topRecommendations(final LongIntHashMap coPurchaseCounts, final int maxRecommendations) {
+		if (coPurchaseCounts == null || maxRecommendations <= 0) {
+			return NO_PRODUCTS;
+		}
+		final long[] products = new long[maxRecommendations];
+		final int[] counts = new int[maxRecommendations];
+		int length = 0;
+		for (int slot = 0; slot < coPurchaseCounts.capacity(); slot++) {
+			if (!coPurchaseCounts.isUsed(slot)) {
+				continue;
+			}
+			final long product = coPurchaseCounts.keyAt(slot);
+			final int count = coPurchaseCounts.valueAt(slot);
+			if (length == maxRecommendations && !isBetter(count, product, counts[length - 1], products[length - 1])) {
+				continue;
+			}
+			int index = Math.min(length, maxRecommendations - 1);
+			while (index > 0 && isBetter(count, product, counts[index - 1], products[index - 1])) {
+				products[index] = products[index - 1];
+				counts[index] = counts[index - 1];
+				index--;
+			}
+			products[index] = product;
+			counts[index] = count;
+			length = Math.min(length + 1, maxRecommendations);
+		}
+		return Arrays.copyOf(products, length);
+	}
+
+	private static boolean isBetter(final int count1, final long product1, final int count2, final long product2) {
+		return count1 > count2 || (count1 == count2 && product1 < product2);
+	}
+
+	/**
+	 * The co-purchase counts and recommendations of the source products of one partition.
+	 */
+	private final class Partition {
+
+		private final int index;
+
+		private final LongObjectHashMap<LongIntHashMap> coPurchaseCounts = new LongObjectHashMap<LongIntHashMap>();
+
+		private final LongObjectHashMap<long[]> recommendations = new LongObjectHashMap<long[]>();
+
+		private LongObjectHashMap<Boolean> changedProducts = new LongObjectHashMap<Boolean>();
+
+		Partition(final int index) {
+			this.index = index;
+		}
+
+		/**
+		 * Counts the pairs of products that were added or removed by changes to the purchases of customers. The pairs of a removed
+		 * product are all its previous pairs, those of an added product all its new pairs, and a product kept by the customer only
+		 * gains or loses the pairs with the added or removed products.
+		 */
+		void count(final List<long[][]> changes) {
+			for (long[][] change : changes) {
+				final long[] previousProducts = change[0];
+				final long[] products = change[1];
+				final long[] removedProducts = difference(previousProducts, products);
+				final long[] addedProducts = difference(products, previousProducts);
+				for (long product : removedProducts) {
+					count(product, previousProducts, -1);
+				}
+				for (long product : products) {
+					if (Arrays.binarySearch(addedProducts, product) >= 0) {
+						count(product, products, 1);
+					} else {
+						count(product, removedProducts, -1);
+						count(product, addedProducts, 1);
+					}
+				}
+			}
+		}
+
+		private void count(final long sourceProduct, final long[] coPurchasedProducts, final int delta) {
+			if (coPurchasedProducts.length == 0 || partitionOf(sourceProduct) != index) {
+				return;
+			}
+			LongIntHashMap counts = coPurchaseCounts.get(sourceProduct);
+			if (counts == null) {
+				counts = new LongIntHashMap();
+				coPurchaseCounts.put(sourceProduct, counts);
+			}
+			for (long product : coPurchasedProducts) {
+				if (product != sourceProduct) {
+					counts.add(product, delta);
+				}
+			}
+			if (counts.size() == 0) {
+				coPurchaseCounts.remove(sourceProduct);
+			}
+			changedProducts.put(sourceProduct, Boolean.TRUE);
+		}
+
+		void takeChangedRecommendations(final int maxRecommendations, final boolean recomputeAll,
+				final Map<Long, List<Long>> changedRecommendations) {
+			if (recomputeAll) {
+				for (int slot = 0; slot < coPurchaseCounts.capacity(); slot++) {
+					if (coPurchaseCounts.valueAt(slot) != null) {
+						changedProducts.put(coPurchaseCounts.keyAt(slot), Boolean.TRUE);
+					}
+				}
+				for (int slot = 0; slot < recommendations.capacity(); slot++) {
+					if (recommendations.valueAt(slot) != null) {
+						changedProducts.put(recommendations.keyAt(slot), Boolean.TRUE);
+					}
+				}
+			}
+			for (int slot = 0; slot < changedProducts.capacity(); slot++) {
+				if (changedProducts.valueAt(slot) != null) {
+					takeChangedRecommendations(changedProducts.keyAt(slot), maxRecommendations, changedRecommendations);
+				}
+			}
+			changedProducts = new LongObjectHashMap<Boolean>();
+		}
+
+		private void takeChangedRecommendations(final long sourceProduct, final int maxRecommendations,
+				final Map<Long, List<Long>> changedRecommendations) {
+			final long[] newRecommendations = topRecommendations(coPurchaseCounts.get(sourceProduct), maxRecommendations);
+			long[] previousRecommendations = recommendations.get(sourceProduct);
+			if (previousRecommendations == null) {
+				previousRecommendations = NO_PRODUCTS;
+			}
+			if (Arrays.equals(previousRecommendations, newRecommendations)) {
+				return;
+			}
+			final List<Long> recommendedProducts = new ArrayList<Long>(newRecommendations.length);
+			for (long product : newRecommendations) {
+				recommendedProducts.add(product);
+			}
+			changedRecommendations.put(sourceProduct, recommendedProducts);
+			if (newRecommendations.length == 0) {
+				recommendations.remove(sourceProduct);
+			} else {
+				recommendations.put(sourceProduct, newRecommendations);
+			}
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.service.catalog.impl;
+
+/**
+ * A map of <code>long</code> keys to <code>int</code> values held in primitive arrays with open addressing, so that neither keys
+ * nor values are boxed. Keys whose value drops to zero are removed, which makes the map suitable for counting.
+ * <p>
+ * The slots of the map can be walked with {@link #capacity()}, {@link #isUsed(int)}, {@link #keyAt(int)} and {@link #valueAt(int)}.
+ * Not thread safe.
+ */
+final class LongIntHashMap {
+
+	private static final int MIN_CAPACITY = 4;
+
+	private static final int LOAD_FACTOR_DIVISOR = 4;
+
+	private static final int LOAD_FACTOR_MULTIPLIER = 3;
+
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private long[] keys;
+
+	private int[] values;
+
+	private boolean[] used;
+
+	private int size;
+
+	private int resizeThreshold;
+
+	/**
+	 * Creates an empty map.
+	 */
+	LongIntHashMap() {
+		allocate(MIN_CAPACITY);
+	}
+
+	/**
+	 * Gets the value of a key.
+	 *
+	 * @param key the key
+	 * @return the value, or zero if the key is not in the map
+	 */
+	int get(final long key) {
+		final int slot = find(key);
+		if (used[slot]) {
+			return values[slot];
+		}
+		return 0;
+	}
+
+	/**
+	 * Adds to the value of a key, removing the key if its value becomes zero.
+	 *
+	 * @param key the key
+	 * @param delta the amount to add
+	 * @return the new value
+	 */
+	int add(final long key, final int delta) {
+		final int slot = find(key);
+		if (used[slot]) {
+			final int value = values[slot] + delta;
+			if (value == 0) {
+				removeSlot(slot);
+			} else {
+				values[slot] = value;
+			}
+			return value;
+		}
+		if (delta != 0) {
+			insert(slot, key, delta);
+		}
+		return delta;
+	}
+
+	/**
+	 * @return the number of keys
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of slots
+	 */
+	int capacity() {
+		return keys.length;
+	}
+
+	/**
+	 * @param slot the slot index
+	 * @return true if the slot holds a key
+	 */
+	boolean isUsed(final int slot) {
+		return used[slot];
+	}
+
+	/**
+	 * @param slot the index of a used slot
+	 * @return the key in the slot
+	 */
+	long keyAt(final int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 * @param slot the index of a used slot
+	 * @return the value in the slot
+	 */
+	int valueAt(final int slot) {
+		return values[slot];
+	}
+
+	private int find(final long key) {
+		final int mask = keys.length - 1;
+		int slot = hash(key) & mask;
+		while (used[slot] && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void insert(final int slot, final long key, final int value) {
+		keys[slot] = key;
+		values[slot] = value;
+		used[slot] = true;
+		size++;
+		if (size > resizeThreshold) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	/**
+	 * Empties a slot and moves back the keys probed past it, so that lookups never need to skip removed keys.
+	 */
+	private void removeSlot(final int removedSlot) {
+		final int mask = keys.length - 1;
+		int gap = removedSlot;
+		int slot = (gap + 1) & mask;
+		while (used[slot]) {
+			final int home = hash(keys[slot]) & mask;
+			if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+				keys[gap] = keys[slot];
+				values[gap] = values[slot];
+				gap = slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		used[gap] = false;
+		size--;
+	}
+
+	private void rehash(final int capacity) {
+		final long[] oldKeys = keys;
+		final int[] oldValues = values;
+		final boolean[] oldUsed = used;
+		allocate(capacity);
+		for (int slot = 0; slot < oldKeys.length; slot++) {
+			if (oldUsed[slot]) {
+				final int newSlot = find(oldKeys[slot]);
+				keys[newSlot] = oldKeys[slot];
+				values[newSlot] = oldValues[slot];
+				used[newSlot] = true;
+			}
+		}
+	}
+
+	private void allocate(final int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+		resizeThreshold = capacity / LOAD_FACTOR_DIVISOR * LOAD_FACTOR_MULTIPLIER;
+	}
+
+	/**
+	 * Spreads the bits of a key, since uids are mostly sequential.
+	 *
+	 * @param key the key
+	 * @return the hash of the key
+	 */
+	static int hash(final long key) {
+		final long mixed = key * HASH_MULTIPLIER;
+		return (int) (mixed ^ (mixed >>> Integer.SIZE));
+	}
+}
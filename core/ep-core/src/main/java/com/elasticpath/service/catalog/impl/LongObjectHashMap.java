@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.service.catalog.impl;
+
+/**
+ * A map of <code>long</code> keys to non-null values held in arrays with open addressing, so that keys are not boxed. Hashing is
+ * the same as {@link LongIntHashMap}'s.
+ * <p>
+ * The slots of the map can be walked with {@link #capacity()}, {@link #keyAt(int)} and {@link #valueAt(int)}, a slot being empty
+ * when its value is null. Not thread safe.
+ *
+ * @param <V> the type of the values
+ */
+final class LongObjectHashMap<V> {
+
+	private static final int MIN_CAPACITY = 4;
+
+	private static final int LOAD_FACTOR_DIVISOR = 4;
+
+	private static final int LOAD_FACTOR_MULTIPLIER = 3;
+
+	private long[] keys;
+
+	private Object[] values;
+
+	private int size;
+
+	private int resizeThreshold;
+
+	/**
+	 * Creates an empty map.
+	 */
+	LongObjectHashMap() {
+		allocate(MIN_CAPACITY);
+	}
+
+	/**
+	 * Gets the value of a key.
+	 *
+	 * @param key the key
+	 * @return the value, or null if the key is not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	V get(final long key) {
+		return (V) values[find(key)];
+	}
+
+	/**
+	 * Puts the value of a key.
+	 *
+	 * @param key the key
+	 * @param value the value, not null
+	 */
+	void put(final long key, final V value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Null values are not supported");
+		}
+		final int slot = find(key);
+		if (values[slot] != null) {
+			values[slot] = value;
+			return;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		size++;
+		if (size > resizeThreshold) {
+			rehash(keys.length * 2);
+		}
+	}
+
+	/**
+	 * Removes a key, moving back the keys probed past it so that lookups never need to skip removed keys.
+	 *
+	 * @param key the key
+	 * @return the value that was removed, or null if the key was not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	V remove(final long key) {
+		final int removedSlot = find(key);
+		final V removed = (V) values[removedSlot];
+		if (removed == null) {
+			return null;
+		}
+		final int mask = keys.length - 1;
+		int gap = removedSlot;
+		int slot = (gap + 1) & mask;
+		while (values[slot] != null) {
+			final int home = LongIntHashMap.hash(keys[slot]) & mask;
+			if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+				keys[gap] = keys[slot];
+				values[gap] = values[slot];
+				gap = slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		values[gap] = null;
+		size--;
+		return removed;
+	}
+
+	/**
+	 * @return the number of keys
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of slots
+	 */
+	int capacity() {
+		return keys.length;
+	}
+
+	/**
+	 * @param slot the index of a slot whose value is not null
+	 * @return the key in the slot
+	 */
+	long keyAt(final int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 * @param slot the slot index
+	 * @return the value in the slot, or null if the slot is empty
+	 */
+	@SuppressWarnings("unchecked")
+	V valueAt(final int slot) {
+		return (V) values[slot];
+	}
+
+	private int find(final long key) {
+		final int mask = keys.length - 1;
+		int slot = LongIntHashMap.hash(key) & mask;
+		while (values[slot] != null && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash(final int capacity) {
+		final long[] oldKeys = keys;
+		final Object[] oldValues = values;
+		allocate(capacity);
+		for (int slot = 0; slot < oldKeys.length; slot++) {
+			if (oldValues[slot] != null) {
+				final int newSlot = find(oldKeys[slot]);
+				keys[newSlot] = oldKeys[slot];
+				values[newSlot] = oldValues[slot];
+			}
+		}
+	}
+
+	private void allocate(final int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		resizeThreshold = capacity / LOAD_FACTOR_DIVISOR * LOAD_FACTOR_MULTIPLIER;
+	}
+}
@@ -5,6 +5,7 @@ package com.elasticpath.service.catalog.impl;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
@@ -13,8 +14,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.elasticpath.commons.constants.ContextIdNames;
 import com.elasticpath.domain.catalog.Catalog;
@@ -28,6 +36,10 @@ import com.elasticpath.service.catalog.ProductRecommendationService;
 import com.elasticpath.service.catalog.ProductService;
 import com.elasticpath.service.impl.AbstractEpPersistenceServiceImpl;
 import com.elasticpath.service.misc.TimeService;
+import com.elasticpath.service.query.CriteriaBuilder;
+import com.elasticpath.service.query.QueryService;
+import com.elasticpath.service.query.ResultType;
+import com.elasticpath.service.query.relations.ProductRelation;
 import com.elasticpath.settings.SettingsReader;
 import com.elasticpath.service.store.StoreService;
 
@@ -70,6 +82,14 @@ import com.elasticpath.service.store.StoreService;
  * All other recommendations (denoted by the bracketed values) show that the
  * ordering of equally popular recommendations is undefined. 
  * </p>
+ * <p>
+ * With incremental recommendations enabled the co-purchases of each store are kept in a {@link CoPurchaseRecommendationEngine}
+ * between runs. After the first run of a store only the customers whose orders changed since the previous run, or whose orders
+ * entered or left the order history window, are read again, and only the products whose recommendations changed are updated. The
+ * engine of a store is discarded if its update fails, so that the next run starts again from the whole order history. Within a
+ * transaction the updated engine is only kept once the transaction commits, so that it never counts purchases whose recommendations
+ * were rolled back.
+ * </p>
  */
 public class ProductRecommendationServiceImpl extends AbstractEpPersistenceServiceImpl implements ProductRecommendationService {
 
@@ -82,6 +102,10 @@ public class ProductRecommendationServiceImpl extends AbstractEpPersistenceServi
 	/** Setting this value as the history months or max recommendations disables the product recommendation feature. */
 	private static final int DISABLE_VALUE = -1;
 
+	private static final int DEFAULT_BATCH_SIZE = 500;
+
+	private static final String PLACEHOLDER_FOR_LIST = "list";
+
 	private ProductService productService;
 	
 	private ProductAssociationService productAssociationService;
@@ -93,6 +117,16 @@ public class ProductRecommendationServiceImpl extends AbstractEpPersistenceServi
 	private TimeService timeService;
 
 	private FetchGroupLoadTuner fetchGroupLoadTuner;
+
+	private QueryService<Product> productQueryService;
+
+	private boolean incrementalRecommendations;
+
+	private int threadCount = 1;
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	private final Map<String, StoreRecommendations> storeRecommendations = new ConcurrentHashMap<String, StoreRecommendations>();
 	
 	/**
 	 * Get the max number of days of order history to use in computing the recommendations for the store
@@ -125,9 +159,13 @@ public class ProductRecommendationServiceImpl extends AbstractEpPersistenceServi
 		LOG.info("Start product recommendation quartz job at: " + new Date(startTime));
 		
 		final List<Store> allStores = getStoreService().findAllCompleteStores();
-		for (Store store : allStores) {
-			if (isProductRecommendationEnabled(store)) {
-				updateProductRecommendations(store);
+		if (incrementalRecommendations) {
+			updateRecommendationsIncrementally(allStores);
+		} else {
+			for (Store store : allStores) {
+				if (isProductRecommendationEnabled(store)) {
+					updateProductRecommendations(store);
+				}
 			}
 		}
 		
@@ -164,6 +202,133 @@ public class ProductRecommendationServiceImpl extends AbstractEpPersistenceServi
 		updateProductRecommendations(productToRecommendationsMap, catalog);
 	}
 	
+	private void updateRecommendationsIncrementally(final List<Store> stores) {
+		ExecutorService executor = null;
+		if (threadCount > 1) {
+			executor = createExecutor();
+		}
+		try {
+			for (Store store : stores) {
+				if (isProductRecommendationEnabled(store)) {
+					updateProductRecommendationsIncrementally(store, executor);
+				} else {
+					storeRecommendations.remove(store.getCode());
+				}
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Updates the product recommendations of a store from the orders that changed since the previous update, or from the whole order
+	 * history on the first update of the store.
+	 *
+	 * @param store the store in which the product recommendations should be updated
+	 * @param executor the executor counting co-purchases in parallel, or null to count them in the calling thread
+	 */
+	protected void updateProductRecommendationsIncrementally(final Store store, final ExecutorService executor) {
+		final long startTime = System.currentTimeMillis();
+		final Catalog catalog = store.getCatalog();
+		if (catalog == null) {
+			LOG.error("Store: " + store.getCode() + " does not have associated catalog");
+			return;
+		}
+
+		final Date updateDate = timeService.getCurrentTime();
+		final Date historyStartDate = getOrderHistoryStartingDate(store);
+		final StoreRecommendations previousUpdate = storeRecommendations.remove(store.getCode());
+		final CoPurchaseRecommendationEngine engine;
+		if (previousUpdate == null) {
+			engine = new CoPurchaseRecommendationEngine(threadCount);
+			engine.replacePurchases(Collections.<Long>emptyList(), getPersistenceEngine().<Object[]>retrieveByNamedQuery(
+					"CUSTOMER_PRODUCTS_PURCHASED", historyStartDate, store.getCode()));
+		} else {
+			engine = previousUpdate.getEngine();
+			replaceChangedPurchases(engine, store.getCode(), previousUpdate, historyStartDate);
+		}
+		final int changedCustomers = engine.getPendingChangeCount();
+		engine.countPendingChanges(executor);
+		final Map<Long, List<Long>> changedRecommendations = engine.takeChangedRecommendations(getMaxRecommendations(store.getCode()));
+		updateChangedRecommendations(changedRecommendations, catalog);
+		publishStoreRecommendations(store.getCode(), new StoreRecommendations(engine, historyStartDate, updateDate));
+
+		LOG.info("Store: " + store.getCode() + " updated the recommendations of " + changedRecommendations.size() + " products from "
+				+ changedCustomers + " changed of " + engine.getCustomerCount() + " customers in (ms): "
+				+ (System.currentTimeMillis() - startTime));
+	}
+
+	/**
+	 * Keeps the updated co-purchases of a store for its next update once the recommendations computed from them are committed.
+	 */
+	private void publishStoreRecommendations(final String storeCode, final StoreRecommendations recommendations) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			storeRecommendations.put(storeCode, recommendations);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+			@Override
+			public void afterCommit() {
+				storeRecommendations.put(storeCode, recommendations);
+			}
+		});
+	}
+
+	/**
+	 * Replaces the purchases of the customers whose orders were modified since the previous update, and of the customers with
+	 * orders created between the previous and the new start of the order history.
+	 */
+	private void replaceChangedPurchases(final CoPurchaseRecommendationEngine engine, final String storeCode,
+			final StoreRecommendations previousUpdate, final Date historyStartDate) {
+		final Set<Long> customerUids = new HashSet<Long>();
+		customerUids.addAll(getPersistenceEngine().<Long>retrieveByNamedQuery("CUSTOMER_UIDS_WITH_ORDERS_MODIFIED_SINCE",
+				previousUpdate.getUpdateDate(), storeCode));
+		Date shiftStartDate = previousUpdate.getHistoryStartDate();
+		Date shiftEndDate = historyStartDate;
+		if (shiftEndDate.before(shiftStartDate)) {
+			shiftStartDate = historyStartDate;
+			shiftEndDate = previousUpdate.getHistoryStartDate();
+		}
+		customerUids.addAll(getPersistenceEngine().<Long>retrieveByNamedQuery("CUSTOMER_UIDS_WITH_ORDERS_CREATED_BETWEEN",
+				shiftStartDate, shiftEndDate, storeCode));
+
+		final List<Long> customerUidList = new ArrayList<Long>(customerUids);
+		for (int start = 0; start < customerUidList.size(); start += batchSize) {
+			final List<Long> batch = customerUidList.subList(start, Math.min(start + batchSize, customerUidList.size()));
+			engine.replacePurchases(batch, getPersistenceEngine().<Object[], Long>retrieveByNamedQueryWithList(
+					"CUSTOMER_PRODUCTS_PURCHASED_BY_CUSTOMER_UIDS", PLACEHOLDER_FOR_LIST, batch, historyStartDate, storeCode));
+		}
+	}
+
+	/**
+	 * Updates the product associations of products whose recommendations changed, loading the source products in batches.
+	 *
+	 * @param changedRecommendations the new recommendations by source product uid
+	 * @param catalog the catalog in which the recommendations should be updated
+	 */
+	protected void updateChangedRecommendations(final Map<Long, List<Long>> changedRecommendations, final Catalog catalog) {
+		final List<Long> sourceProductUids = new ArrayList<Long>(changedRecommendations.keySet());
+		for (int start = 0; start < sourceProductUids.size(); start += batchSize) {
+			final List<Long> batch = sourceProductUids.subList(start, Math.min(start + batchSize, sourceProductUids.size()));
+			final List<Product> sourceProducts = findProducts(batch);
+			if (LOG.isInfoEnabled() && sourceProducts.size() < batch.size()) {
+				LOG.info((batch.size() - sourceProducts.size()) + " source products do not exist any more. Skipping updating their recommendations.");
+			}
+			for (Product sourceProduct : sourceProducts) {
+				updateProductAssociations(sourceProduct, changedRecommendations.get(sourceProduct.getUidPk()), catalog);
+			}
+		}
+	}
+
+	private List<Product> findProducts(final List<Long> productUids) {
+		return productQueryService.query(CriteriaBuilder.criteriaFor(Product.class)
+				.with(ProductRelation.having().uids(productUids))
+				.usingLoadTuner(fetchGroupLoadTuner)
+				.returning(ResultType.ENTITY)).getResults();
+	}
+
 	/**
 	 * @param store store
 	 * @return true if product recommendations are disabled, false if not.
@@ -265,6 +430,34 @@ public class ProductRecommendationServiceImpl extends AbstractEpPersistenceServi
 		
 		deleteObsoleteRecommendations(sourceProduct, newRecommendations, catalog);
 	}
+
+	/**
+	 * Updates a products set of Product Associations by removing the recommendation associations that no longer exist and adding any new
+	 * ones, loading the products of the new associations together.
+	 *
+	 * @param sourceProduct the source product for the recommendations
+	 * @param recommendedProductUids the uids of the recommended products, none to remove all the recommendations
+	 * @param catalog the catalog where the recommendations exist
+	 */
+	protected void updateProductAssociations(final Product sourceProduct, final List<Long> recommendedProductUids, final Catalog catalog) {
+		if (recommendedProductUids.isEmpty()) {
+			getPersistenceEngine().executeNamedQuery("DELETE_PRODUCTASSOCIATIONS_BY_SOURCE_PRODUCT_IN_CATALOG",
+					sourceProduct.getUidPk(), catalog.getUidPk(), ProductAssociation.RECOMMENDATION);
+			return;
+		}
+
+		final List<Long> newProductUids = new ArrayList<Long>(recommendedProductUids);
+		newProductUids.removeAll(getPersistenceEngine().retrieveByNamedQueryWithList("FILTER_EXISTING_PRODUCTASSOCIATIONS_IN_CATALOG",
+				PLACEHOLDER_FOR_LIST, recommendedProductUids, sourceProduct.getUidPk(), catalog.getUidPk(), ProductAssociation.RECOMMENDATION));
+		if (!newProductUids.isEmpty()) {
+			for (Product targetProduct : findProducts(newProductUids)) {
+				getProductAssociationService().add(createProductAssociation(sourceProduct, targetProduct, catalog));
+			}
+		}
+
+		getPersistenceEngine().executeNamedQueryWithList("DELETE_OBSOLETE_PRODUCTASSOCIATIONS", PLACEHOLDER_FOR_LIST, recommendedProductUids,
+				sourceProduct.getUidPk(), catalog.getUidPk(), ProductAssociation.RECOMMENDATION);
+	}
 	
 	/**
 	 * Deletes all existing product recommendations that are not in the new set of product recommendations. 
@@ -337,12 +530,23 @@ public class ProductRecommendationServiceImpl extends AbstractEpPersistenceServi
 	 * @return the newly-created ProductAssociation
 	 */
 	protected ProductAssociation createProductAssociation(final Product sourceProduct, final long recommendedProductUid, final Catalog catalog) {
+		return createProductAssociation(sourceProduct, productService.getTuned(recommendedProductUid, fetchGroupLoadTuner), catalog);
+	}
+
+	/**
+	 * Creates a new ProductAssociation for a product recommendation.
+	 *
+	 * @param sourceProduct the source product for the new association
+	 * @param recommendedTargetProduct the recommended product
+	 * @param catalog the catalog where the recommendations exist
+	 * @return the newly-created ProductAssociation
+	 */
+	protected ProductAssociation createProductAssociation(final Product sourceProduct, final Product recommendedTargetProduct,
+			final Catalog catalog) {
 		
 		final ProductAssociation productAssociation = getBean(ContextIdNames.PRODUCT_ASSOCIATION);
 		productAssociation.setAssociationType(ProductAssociation.RECOMMENDATION);
 		
-		final Product recommendedTargetProduct = productService.getTuned(recommendedProductUid, fetchGroupLoadTuner);
-		
 		productAssociation.setSourceProduct(sourceProduct);
 		productAssociation.setTargetProduct(recommendedTargetProduct);
 		productAssociation.setCatalog(catalog);
@@ -426,6 +630,55 @@ public class ProductRecommendationServiceImpl extends AbstractEpPersistenceServi
 		this.storeService = storeService;
 	}
 	
+	/**
+	 * Set the product query service, which loads the products of incrementally updated recommendations.
+	 *
+	 * @param productQueryService the product query service
+	 */
+	public void setProductQueryService(final QueryService<Product> productQueryService) {
+		this.productQueryService = productQueryService;
+	}
+
+	/**
+	 * Sets whether product recommendations are updated incrementally from the orders changed since the previous update.
+	 *
+	 * @param incrementalRecommendations true to update recommendations incrementally
+	 */
+	public void setIncrementalRecommendations(final boolean incrementalRecommendations) {
+		this.incrementalRecommendations = incrementalRecommendations;
+	}
+
+	/**
+	 * Sets the number of threads counting co-purchases when recommendations are updated incrementally.
+	 *
+	 * @param threadCount the number of threads
+	 */
+	public void setThreadCount(final int threadCount) {
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Sets the number of customers or products read together when recommendations are updated incrementally.
+	 *
+	 * @param batchSize the batch size
+	 */
+	public void setBatchSize(final int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	private ExecutorService createExecutor() {
+		return Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+			private final AtomicInteger threadNumber = new AtomicInteger();
+
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				final Thread thread = new Thread(runnable, "ProductRecommendation-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	
 	/***
 	 * @return the StoreService.
 	 */
@@ -460,6 +713,36 @@ public class ProductRecommendationServiceImpl extends AbstractEpPersistenceServi
 		throw new EpServiceException("This method is not used");
 	}
 
+	/**
+	 * The co-purchases of a store as of its last update.
+	 */
+	private static class StoreRecommendations {
+
+		private final CoPurchaseRecommendationEngine engine;
+
+		private final Date historyStartDate;
+
+		private final Date updateDate;
+
+		StoreRecommendations(final CoPurchaseRecommendationEngine engine, final Date historyStartDate, final Date updateDate) {
+			this.engine = engine;
+			this.historyStartDate = historyStartDate;
+			this.updateDate = updateDate;
+		}
+
+		CoPurchaseRecommendationEngine getEngine() {
+			return engine;
+		}
+
+		Date getHistoryStartDate() {
+			return historyStartDate;
+		}
+
+		Date getUpdateDate() {
+			return updateDate;
+		}
+	}
+
 	/**
 	 * Represents a set of product recommendations. The number of times a product recommendation is made is recorded and this class provides access
 	 * to a distinct collection of product recommendations, ordered by the number of occurrences, and limited by the <code>maxRecommendations</code>
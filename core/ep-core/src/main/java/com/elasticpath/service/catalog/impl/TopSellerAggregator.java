@@ -0,0 +1,238 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.service.catalog.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Aggregates the top selling products of every category in one pass over the sales counts of all products.
+ * <p>
+ * Every category keeps a bounded heap of its best selling distinct products in primitive arrays. The heaps of sub-categories are
+ * merged into their parents from the deepest categories up, which gives every category the top sellers of its whole sub-tree: a
+ * product among the top sellers of a sub-tree is always among the top sellers of the sub-category holding it. Products with the
+ * same sales count are ranked by UID, so that the result does not depend on the order of the sales.
+ */
+final class TopSellerAggregator {
+
+	private static final int CATEGORY_UID = 0;
+
+	private static final int PARENT_UID = 1;
+
+	private static final int NO_PARENT = -1;
+
+	private static final int UNKNOWN_CATEGORY = -1;
+
+	private static final Comparator<Object[]> TOP_SELLER_ORDER = new Comparator<Object[]>() {
+		@Override
+		public int compare(final Object[] topSeller1, final Object[] topSeller2) {
+			final int count1 = (Integer) topSeller1[0];
+			final int count2 = (Integer) topSeller2[0];
+			if (count1 != count2) {
+				return count2 - count1;
+			}
+			return ((Long) topSeller1[1]).compareTo((Long) topSeller2[1]);
+		}
+	};
+
+	private final int maxTopSellerCount;
+
+	private final long[] categoryUids;
+
+	private final int[] parents;
+
+	private final int[][] salesCounts;
+
+	private final long[][] productUids;
+
+	private final int[] sizes;
+
+	/**
+	 * Creates an aggregator for a category tree.
+	 *
+	 * @param maxTopSellerCount the number of top sellers kept per category
+	 * @param categories rows of category UID and parent category UID, or null for a root category
+	 */
+	TopSellerAggregator(final int maxTopSellerCount, final List<Object[]> categories) {
+		this.maxTopSellerCount = Math.max(0, maxTopSellerCount);
+		final int size = categories.size();
+		categoryUids = new long[size];
+		for (int i = 0; i < size; i++) {
+			categoryUids[i] = ((Number) categories.get(i)[CATEGORY_UID]).longValue();
+		}
+		Arrays.sort(categoryUids);
+		parents = new int[size];
+		Arrays.fill(parents, NO_PARENT);
+		for (Object[] category : categories) {
+			if (category[PARENT_UID] != null) {
+				// a parent outside the tree leaves the category a root, the same as UNKNOWN_CATEGORY equals NO_PARENT
+				parents[indexOf(((Number) category[CATEGORY_UID]).longValue())] = indexOf(((Number) category[PARENT_UID]).longValue());
+			}
+		}
+		salesCounts = new int[size][];
+		productUids = new long[size][];
+		sizes = new int[size];
+	}
+
+	/**
+	 * Adds the sales count of a product in a category. Categories outside the tree are ignored.
+	 *
+	 * @param categoryUid the UID of a category holding the product
+	 * @param productUid the product UID
+	 * @param salesCount the sales count of the product
+	 */
+	void addSales(final long categoryUid, final long productUid, final int salesCount) {
+		final int category = indexOf(categoryUid);
+		if (category != UNKNOWN_CATEGORY) {
+			offer(category, productUid, salesCount);
+		}
+	}
+
+	/**
+	 * Merges the top sellers of every category into its ancestors. Called once, after all the sales are added.
+	 */
+	void propagate() {
+		for (int category : deepestFirst()) {
+			final int parent = parents[category];
+			if (parent == NO_PARENT) {
+				continue;
+			}
+			for (int i = 0; i < sizes[category]; i++) {
+				offer(parent, productUids[category][i], salesCounts[category][i]);
+			}
+		}
+	}
+
+	/**
+	 * Gets the top sellers of a category, the best selling first.
+	 *
+	 * @param categoryUid the category UID
+	 * @return rows of sales count and product UID, the same as the top seller queries return
+	 */
+	List<Object[]> getTopSellers(final long categoryUid) {
+		final int category = indexOf(categoryUid);
+		if (category == UNKNOWN_CATEGORY || sizes[category] == 0) {
+			return Collections.emptyList();
+		}
+		final List<Object[]> topSellers = new ArrayList<Object[]>(sizes[category]);
+		for (int i = 0; i < sizes[category]; i++) {
+			topSellers.add(new Object[] { salesCounts[category][i], productUids[category][i] });
+		}
+		Collections.sort(topSellers, TOP_SELLER_ORDER);
+		return topSellers;
+	}
+
+	private int indexOf(final long categoryUid) {
+		final int category = Arrays.binarySearch(categoryUids, categoryUid);
+		if (category < 0) {
+			return UNKNOWN_CATEGORY;
+		}
+		return category;
+	}
+
+	/**
+	 * Orders the categories by depth, deepest first, so that every category comes before its parent. Depths are capped at the number
+	 * of categories, so that a parent cycle can not loop.
+	 */
+	private Integer[] deepestFirst() {
+		final int size = categoryUids.length;
+		final int[] depths = new int[size];
+		final Integer[] categories = new Integer[size];
+		for (int category = 0; category < size; category++) {
+			int depth = 0;
+			for (int parent = parents[category]; parent != NO_PARENT && depth < size; parent = parents[parent]) {
+				depth++;
+			}
+			depths[category] = depth;
+			categories[category] = category;
+		}
+		Arrays.sort(categories, new Comparator<Integer>() {
+			@Override
+			public int compare(final Integer category1, final Integer category2) {
+				return depths[category2] - depths[category1];
+			}
+		});
+		return categories;
+	}
+
+	/**
+	 * Offers a product to the heap of a category. The heap is a min-heap whose root is the worst of the kept top sellers, which is
+	 * replaced when a better product is offered to a full heap.
+	 */
+	private void offer(final int category, final long productUid, final int salesCount) {
+		if (maxTopSellerCount == 0) {
+			return;
+		}
+		if (salesCounts[category] == null) {
+			salesCounts[category] = new int[maxTopSellerCount];
+			productUids[category] = new long[maxTopSellerCount];
+		}
+		final int[] counts = salesCounts[category];
+		final long[] uids = productUids[category];
+		final int size = sizes[category];
+		for (int i = 0; i < size; i++) {
+			if (uids[i] == productUid) {
+				return;
+			}
+		}
+		if (size < maxTopSellerCount) {
+			counts[size] = salesCount;
+			uids[size] = productUid;
+			sizes[category]++;
+			siftUp(counts, uids, size);
+		} else if (isWorse(counts[0], uids[0], salesCount, productUid)) {
+			counts[0] = salesCount;
+			uids[0] = productUid;
+			siftDown(counts, uids, size);
+		}
+	}
+
+	private static void siftUp(final int[] counts, final long[] uids, final int start) {
+		int child = start;
+		while (child > 0) {
+			final int parent = (child - 1) / 2;
+			if (!isWorse(counts[child], uids[child], counts[parent], uids[parent])) {
+				return;
+			}
+			swap(counts, uids, child, parent);
+			child = parent;
+		}
+	}
+
+	private static void siftDown(final int[] counts, final long[] uids, final int size) {
+		int parent = 0;
+		while (true) {
+			final int left = 2 * parent + 1;
+			if (left >= size) {
+				return;
+			}
+			int worst = left;
+			final int right = left + 1;
+			if (right < size && isWorse(counts[right], uids[right], counts[left], uids[left])) {
+				worst = right;
+			}
+			if (!isWorse(counts[worst], uids[worst], counts[parent], uids[parent])) {
+				return;
+			}
+			swap(counts, uids, worst, parent);
+			parent = worst;
+		}
+	}
+
+	private static boolean isWorse(final int count1, final long uid1, final int count2, final long uid2) {
+		return count1 < count2 || (count1 == count2 && uid1 > uid2);
+	}
+
+	private static void swap(final int[] counts, final long[] uids, final int index1, final int index2) {
+		final int count = counts[index1];
+		counts[index1] = counts[index2];
+		counts[index2] = count;
+		final long uid = uids[index1];
+		uids[index1] = uids[index2];
+		uids[index2] = uid;
+	}
+}
@@ -61,10 +61,24 @@ public class TopSellerServiceImpl extends AbstractEpPersistenceServiceImpl imple
 
 	private static final String PLACEHOLDER_FOR_LIST = "list";
 
+	private static final int DEFAULT_BATCH_SIZE = 100;
+
+	private static final int SALES_PAGE_SIZE = 10000;
+
+	private static final int SALES_COUNT = 0;
+
+	private static final int PRODUCT_UID = 1;
+
+	private static final int CATEGORY_UID = 2;
+
 	private TimeService timeService;
 
 	private Collection<Long> affectedProductUids;
 
+	private boolean singlePassAggregation;
+
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
 	/**
 	 * Calculate the number of sales for a particular product and update its sales count. Also populate top sellers for each category and the whole
 	 * store.
@@ -147,26 +161,24 @@ public class TopSellerServiceImpl extends AbstractEpPersistenceServiceImpl imple
 	 */
 	@Override
 	public void updateTopSellersForCategories() {
+		if (singlePassAggregation) {
+			aggregateTopSellersForCategories();
+			return;
+		}
 		long startTime = System.currentTimeMillis();
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("Start updating top sellers for categories.");
 		}
+		final int maxTopSellerCount = getMaxTopSellerCount();
 		final List<Long> categoryUids = this.categoryService.findAvailableUids();
 		for (final Long categoryUid : categoryUids) {
 
 			List<Object[]> topSellingProductUids = this.findProductUidsTopSellerForCategory(categoryUid);
-			final List<Object[]> topSellingProducts = new ArrayList<Object[]>();
 			
 			// get only the first few to process
-			topSellingProductUids = topSellingProductUids.subList(0, Math.min(getMaxTopSellerCount(), topSellingProductUids.size()));
+			topSellingProductUids = topSellingProductUids.subList(0, Math.min(maxTopSellerCount, topSellingProductUids.size()));
 			
-			for (Object[] productData : topSellingProductUids) {
-				if (affectedProductUids != null && !affectedProductUids.contains(productData[1])) {
-					continue;
-				}
-				topSellingProducts.add(productData);
-			}
-			populateTopSellerCategory(categoryUid, topSellingProducts);
+			populateTopSellerCategory(categoryUid, filterAffectedProducts(topSellingProductUids));
 		}
 		
 		if (LOG.isDebugEnabled()) {
@@ -174,6 +186,79 @@ public class TopSellerServiceImpl extends AbstractEpPersistenceServiceImpl imple
 		}
 	}
 
+	/**
+	 * Populates the top sellers of all available categories from the sales counts of all products read once, instead of querying
+	 * the products of every category and its sub-categories. Products without sales are read as well, so that they fill out the
+	 * top sellers of categories with few selling products as the per-category queries do. Only top seller products that are new or
+	 * whose sales counts changed are written, and the top sellers of categories are read in batches.
+	 */
+	protected void aggregateTopSellersForCategories() {
+		final long startTime = System.currentTimeMillis();
+		final TopSellerAggregator aggregator = new TopSellerAggregator(getMaxTopSellerCount(),
+				getPersistenceEngine().<Object[]>retrieveByNamedQuery("CATEGORY_HIERARCHY_SELECT_ALL"));
+		int salesRows = 0;
+		List<Object[]> sales;
+		do {
+			sales = getPersistenceEngine().retrieveByNamedQuery("PRODUCT_SALES_COUNT_AND_CATEGORY_UID_SELECT_ALL", new Object[0], salesRows,
+					SALES_PAGE_SIZE);
+			for (Object[] sale : sales) {
+				aggregator.addSales(((Number) sale[CATEGORY_UID]).longValue(), ((Number) sale[PRODUCT_UID]).longValue(),
+						((Number) sale[SALES_COUNT]).intValue());
+			}
+			salesRows += sales.size();
+		} while (sales.size() == SALES_PAGE_SIZE);
+		aggregator.propagate();
+
+		final List<Long> categoryUids = this.categoryService.findAvailableUids();
+		int rowsWritten = 0;
+		for (int start = 0; start < categoryUids.size(); start += batchSize) {
+			rowsWritten += writeTopSellers(categoryUids.subList(start, Math.min(start + batchSize, categoryUids.size())), aggregator);
+		}
+		LOG.info("Aggregated the top sellers of " + categoryUids.size() + " categories from " + salesRows + " product sales, wrote "
+				+ rowsWritten + " top seller products in (ms): " + (System.currentTimeMillis() - startTime));
+	}
+
+	private int writeTopSellers(final List<Long> categoryUids, final TopSellerAggregator aggregator) {
+		final Map<Long, TopSeller> topSellers = new HashMap<Long, TopSeller>();
+		final List<TopSeller> existingTopSellers = getPersistenceEngine().retrieveByNamedQueryWithList("TOP_SELLER_SELECT_BY_CATEGORY_UIDS",
+				PLACEHOLDER_FOR_LIST, categoryUids);
+		for (TopSeller topSeller : existingTopSellers) {
+			topSellers.put(topSeller.getCategoryUid(), topSeller);
+		}
+
+		int rowsWritten = 0;
+		for (Long categoryUid : categoryUids) {
+			final List<Object[]> newTopSellers = filterAffectedProducts(aggregator.getTopSellers(categoryUid));
+			if (newTopSellers.isEmpty()) {
+				continue;
+			}
+			TopSeller topSeller = topSellers.get(categoryUid);
+			if (topSeller == null) {
+				topSeller = getBean(ContextIdNames.TOP_SELLER);
+				topSeller.setCategoryUid(categoryUid);
+			}
+			final int changedProducts = updateTopSellerProducts(topSeller, newTopSellers);
+			if (changedProducts > 0) {
+				saveOrUpdate(topSeller);
+				rowsWritten += changedProducts;
+			}
+		}
+		return rowsWritten;
+	}
+
+	private List<Object[]> filterAffectedProducts(final List<Object[]> topSellingProducts) {
+		if (affectedProductUids == null) {
+			return topSellingProducts;
+		}
+		final List<Object[]> affectedProducts = new ArrayList<Object[]>();
+		for (Object[] productData : topSellingProducts) {
+			if (affectedProductUids.contains(productData[1])) {
+				affectedProducts.add(productData);
+			}
+		}
+		return affectedProducts;
+	}
+
 	private List<Object[]> findProductUidsTopSellerForCategory(final long categoryUid) throws EpServiceException {
 		sanityCheck();
 		final List<Long> categoryUids = this.categoryService.findDescendantCategoryUids(categoryUid);
@@ -295,21 +380,35 @@ public class TopSellerServiceImpl extends AbstractEpPersistenceServiceImpl imple
 			return;
 		}
 		final TopSeller topSellerCategory = loadTopSellerCategory(categoryUid);
+		updateTopSellerProducts(topSellerCategory, newTopSellers);
+		saveOrUpdate(topSellerCategory);
+	}
 
+	/**
+	 * Adds or updates the given top-selling products in a TopSeller category.
+	 *
+	 * @param topSellerCategory the TopSeller category
+	 * @param newTopSellers list of top-selling products to be added/updated
+	 * @return the number of products that were added or whose sales count changed
+	 */
+	private int updateTopSellerProducts(final TopSeller topSellerCategory, final List<Object[]> newTopSellers) {
+		int changedProducts = 0;
 		for (final Object[] productData : newTopSellers) {
 			final int salesCount = Integer.parseInt(productData[0].toString());
 			long productUid = Long.parseLong(productData[1].toString());
-			if (topSellerCategory.getProductUids().contains(productUid)) {
-				topSellerCategory.getTopSellerProducts().get(productUid).setSalesCount(salesCount);
-			} else {
+			final TopSellerProduct existingProduct = topSellerCategory.getTopSellerProducts().get(productUid);
+			if (existingProduct == null) {
 				TopSellerProduct topSellerProduct = getBean(ContextIdNames.TOP_SELLER_PRODUCT);
 				topSellerProduct.setProductUid(productUid);
 				topSellerProduct.setSalesCount(salesCount);
-				topSellerCategory.getTopSellerProducts().put(topSellerProduct.getProductUid(), topSellerProduct);				
+				topSellerCategory.getTopSellerProducts().put(topSellerProduct.getProductUid(), topSellerProduct);
+				changedProducts++;
+			} else if (existingProduct.getSalesCount() != salesCount) {
+				existingProduct.setSalesCount(salesCount);
+				changedProducts++;
 			}
 		}
-		
-		saveOrUpdate(topSellerCategory);
+		return changedProducts;
 	}
 
 	/**
@@ -542,6 +641,25 @@ public class TopSellerServiceImpl extends AbstractEpPersistenceServiceImpl imple
 		this.timeService = timeService;
 	}
 
+	/**
+	 * Sets whether the top sellers of categories are aggregated in a single pass over the sales of all products, rather than
+	 * queried category by category.
+	 *
+	 * @param singlePassAggregation true to aggregate in a single pass
+	 */
+	public void setSinglePassAggregation(final boolean singlePassAggregation) {
+		this.singlePassAggregation = singlePassAggregation;
+	}
+
+	/**
+	 * Sets the number of categories whose top sellers are read and written together when aggregating in a single pass.
+	 *
+	 * @param batchSize the number of categories per batch
+	 */
+	public void setBatchSize(final int batchSize) {
+		this.batchSize = batchSize;
+	}
+
 	/**
 	 * @return the settingsReader
 	 */
@@ -0,0 +1,196 @@
+package com.elasticpath.service.pricing.datasource.impl;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.elasticpath.domain.pricing.BaseAmount;
+import com.elasticpath.domain.pricing.BaseAmountObjectType;
+
+/**
+ * An unmodifiable collection of {@link BaseAmount}s indexed by price list GUID, object type and object GUID, so that the base amounts
+ * of one object in one price list are found with a hash lookup instead of a scan of the whole collection. Object GUIDs are matched
+ * ignoring case, the way {@link com.elasticpath.service.pricing.BaseAmountFinder#filterBaseAmounts} matches them, and the base
+ * amounts of an object are held sorted by quantity.
+ */
+public class BaseAmountIndex extends AbstractCollection<BaseAmount> {
+
+	private static final int HASH_MULTIPLIER = 31;
+
+	private static final Comparator<BaseAmount> QUANTITY_ORDER = new Comparator<BaseAmount>() {
+		@Override
+		public int compare(final BaseAmount baseAmount1, final BaseAmount baseAmount2) {
+			return baseAmount1.getQuantity().compareTo(baseAmount2.getQuantity());
+		}
+	};
+
+	private final List<BaseAmount> baseAmounts;
+
+	private final Map<Key, List<BaseAmount>> tiers;
+
+	private final Set<String> objectTypes = new LinkedHashSet<String>();
+
+	/**
+	 * Indexes a collection of base amounts. Base amounts without a price list GUID, object type or object GUID are kept in the
+	 * collection but can not be found.
+	 *
+	 * @param baseAmounts the base amounts
+	 */
+	public BaseAmountIndex(final Collection<BaseAmount> baseAmounts) {
+		this.baseAmounts = Collections.unmodifiableList(new ArrayList<BaseAmount>(baseAmounts));
+		final Map<Key, List<BaseAmount>> tiersByKey = new HashMap<Key, List<BaseAmount>>(baseAmounts.size() * 2);
+		for (BaseAmount baseAmount : baseAmounts) {
+			if (baseAmount.getPriceListDescriptorGuid() == null || baseAmount.getObjectType() == null || baseAmount.getObjectGuid() == null) {
+				continue;
+			}
+			final Key key = new Key(baseAmount.getPriceListDescriptorGuid(), baseAmount.getObjectType(), baseAmount.getObjectGuid());
+			List<BaseAmount> keyTiers = tiersByKey.get(key);
+			if (keyTiers == null) {
+				keyTiers = new ArrayList<BaseAmount>(1);
+				tiersByKey.put(key, keyTiers);
+			}
+			keyTiers.add(baseAmount);
+			objectTypes.add(baseAmount.getObjectType());
+		}
+		for (Map.Entry<Key, List<BaseAmount>> entry : tiersByKey.entrySet()) {
+			final List<BaseAmount> keyTiers = entry.getValue();
+			if (keyTiers.size() > 1) {
+				Collections.sort(keyTiers, QUANTITY_ORDER);
+			}
+			entry.setValue(Collections.unmodifiableList(keyTiers));
+		}
+		this.tiers = tiersByKey;
+	}
+
+	/**
+	 * Gets an index of the given base amounts, indexing them only if they are not already indexed.
+	 *
+	 * @param baseAmounts the base amounts
+	 * @return the given collection if it is an index, otherwise a new index of it
+	 */
+	public static BaseAmountIndex of(final Collection<BaseAmount> baseAmounts) {
+		if (baseAmounts instanceof BaseAmountIndex) {
+			return (BaseAmountIndex) baseAmounts;
+		}
+		return new BaseAmountIndex(baseAmounts);
+	}
+
+	/**
+	 * Finds the base amounts of an object in a price list.
+	 *
+	 * @param plGuid the price list descriptor GUID
+	 * @param objectType the object type
+	 * @param objectGuid the product GUID or SKU code, matched ignoring case
+	 * @return an unmodifiable list of the base amounts sorted by quantity, empty if there are none
+	 */
+	public List<BaseAmount> find(final String plGuid, final BaseAmountObjectType objectType, final String objectGuid) {
+		return find(plGuid, objectType.getName(), objectGuid);
+	}
+
+	/**
+	 * Finds the base amounts of objects in price lists, matching object GUIDs exactly.
+	 *
+	 * @param plGuids the price list descriptor GUIDs
+	 * @param objectGuids the product GUIDs and SKU codes
+	 * @return the base amounts, each once
+	 */
+	List<BaseAmount> findAll(final Collection<String> plGuids, final Collection<String> objectGuids) {
+		final List<BaseAmount> result = new ArrayList<BaseAmount>();
+		final Set<String> uniqueObjectGuids = new LinkedHashSet<String>(objectGuids);
+		for (String plGuid : new LinkedHashSet<String>(plGuids)) {
+			for (String objectGuid : uniqueObjectGuids) {
+				for (String objectType : objectTypes) {
+					for (BaseAmount baseAmount : find(plGuid, objectType, objectGuid)) {
+						if (objectGuid.equals(baseAmount.getObjectGuid())) {
+							result.add(baseAmount);
+						}
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private List<BaseAmount> find(final String plGuid, final String objectType, final String objectGuid) {
+		if (plGuid == null || objectGuid == null) {
+			return Collections.emptyList();
+		}
+		final List<BaseAmount> keyTiers = tiers.get(new Key(plGuid, objectType, objectGuid));
+		if (keyTiers == null) {
+			return Collections.emptyList();
+		}
+		return keyTiers;
+	}
+
+	@Override
+	public Iterator<BaseAmount> iterator() {
+		return baseAmounts.iterator();
+	}
+
+	@Override
+	public int size() {
+		return baseAmounts.size();
+	}
+
+	/**
+	 * Maps a GUID to a form that is equal for two GUIDs exactly when they are equal ignoring case, comparing characters the way
+	 * {@link String#equalsIgnoreCase(String)} does.
+	 *
+	 * @param guid the GUID
+	 * @return the normalized GUID
+	 */
+	static String normalizeGuid(final String guid) {
+		final char[] chars = guid.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Key of the base amounts of one object in one price list.
+	 */
+	private static final class Key {
+
+		private final String plGuid;
+
+		private final String objectType;
+
+		private final String normalizedObjectGuid;
+
+		private final int hashCode;
+
+		Key(final String plGuid, final String objectType, final String objectGuid) {
+			this.plGuid = plGuid;
+			this.objectType = objectType;
+			this.normalizedObjectGuid = normalizeGuid(objectGuid);
+			this.hashCode = (plGuid.hashCode() * HASH_MULTIPLIER + objectType.hashCode()) * HASH_MULTIPLIER
+					+ normalizedObjectGuid.hashCode();
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) obj;
+			return normalizedObjectGuid.equals(other.normalizedObjectGuid) && plGuid.equals(other.plGuid) && objectType.equals(other.objectType);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
@@ -8,7 +8,7 @@ import com.elasticpath.service.pricing.datasource.BaseAmountDataSource;
 import com.elasticpath.service.pricing.datasource.BaseAmountDataSourceFactory;
 
 /**
- * A {@link BaseAmountDataSourceFactory} that creates {@link CollectionBaseAmountDataSource}, based on 
+ * A {@link BaseAmountDataSourceFactory} that creates {@link IndexedBaseAmountDataSource}, based on 
  * a collection of {@link com.elasticpath.domain.pricing.PriceListDescriptor} GUIDs and a collection of 
  * object (i.e. product, sku, etc.) GUIDs. 
  */
@@ -49,7 +49,7 @@ public class CollectionBaseAmountDataSourceFactory implements BaseAmountDataSour
 	public BaseAmountDataSource createDataSource(final BaseAmountDataSource backingDataSource) {
 		if (preparedDataSource == null) {
 			Collection<BaseAmount> baseAmounts = backingDataSource.getBaseAmounts(getPlGuids(), getObjectGuids());
-			preparedDataSource = new CollectionBaseAmountDataSource(baseAmounts);
+			preparedDataSource = new IndexedBaseAmountDataSource(baseAmounts);
 		}
 		return preparedDataSource;
 	}
@@ -0,0 +1,33 @@
+package com.elasticpath.service.pricing.datasource.impl;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.elasticpath.domain.pricing.BaseAmount;
+import com.elasticpath.service.pricing.datasource.BaseAmountDataSource;
+
+/**
+ * A {@link BaseAmountDataSource} that can be initialized with a collection of {@link BaseAmount}s, like
+ * {@link CollectionBaseAmountDataSource}, but indexes them once so that each query looks up the requested price lists and objects
+ * instead of scanning the whole collection. The results are themselves {@link BaseAmountIndex}es, so they can be filtered by
+ * {@link com.elasticpath.service.pricing.BaseAmountFinder} without another scan.
+ */
+public class IndexedBaseAmountDataSource implements BaseAmountDataSource {
+
+	private final BaseAmountIndex index;
+
+	/**
+	 * c'tor.
+	 *
+	 * @param baseAmounts the collection of base amounts. It will be used to answer the future queries.
+	 */
+	public IndexedBaseAmountDataSource(final Collection<BaseAmount> baseAmounts) {
+		this.index = BaseAmountIndex.of(baseAmounts);
+	}
+
+	@Override
+	public BaseAmountIndex getBaseAmounts(final List<String> plGuids, final List<String> objectGuids) {
+		return new BaseAmountIndex(index.findAll(plGuids, objectGuids));
+	}
+
+}
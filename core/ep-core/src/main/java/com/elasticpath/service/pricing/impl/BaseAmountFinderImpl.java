@@ -11,6 +11,7 @@ import com.elasticpath.domain.pricing.BaseAmount;
 import com.elasticpath.domain.pricing.BaseAmountObjectType;
 import com.elasticpath.service.pricing.BaseAmountFinder;
 import com.elasticpath.service.pricing.datasource.BaseAmountDataSource;
+import com.elasticpath.service.pricing.datasource.impl.BaseAmountIndex;
 
 /**
  * <code>BaseAmountFinderImpl</code> finds the base amounts related to different entities.
@@ -58,7 +59,8 @@ public class BaseAmountFinderImpl implements BaseAmountFinder {
 
 	private Collection<BaseAmount> getBaseAmounts(final List<String> plGuids, final List<String> objectGuids,
 			final BaseAmountDataSource baseAmountDataSource) {
-		return baseAmountDataSource.getBaseAmounts(plGuids, objectGuids);
+		// indexed once here, so that each of the lookups made by filterBaseAmounts for every price list in the stack is a hash lookup
+		return BaseAmountIndex.of(baseAmountDataSource.getBaseAmounts(plGuids, objectGuids));
 	}
 
 	@Override
@@ -67,6 +69,9 @@ public class BaseAmountFinderImpl implements BaseAmountFinder {
 		if (baseAmounts == null) {
 			return Collections.emptyList();
 		}
+		if (baseAmounts instanceof BaseAmountIndex) {
+			return ((BaseAmountIndex) baseAmounts).find(plGuid, objectType, guid);
+		}
 		List<BaseAmount> baseAmountsForGuid = new ArrayList<BaseAmount>();
 		for (BaseAmount baseAmount : baseAmounts) {
 			if (guid.equalsIgnoreCase(baseAmount.getObjectGuid()) && plGuid.equals(baseAmount.getPriceListDescriptorGuid())
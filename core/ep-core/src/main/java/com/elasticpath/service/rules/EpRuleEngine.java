@@ -49,4 +49,15 @@ public interface EpRuleEngine extends EpService {
 	 * @param shoppingCart the cart to which promotion rules are to be applied.
 	 */
 	void fireOrderPromotionSubtotalRules(final ShoppingCart shoppingCart);
+
+	/**
+	 * Executes both the cart item and the cart subtotal promotion rules on the specified shopping cart
+	 * in a single rule session. The cart item discount rules are fired first, then the given callback
+	 * brings the cart subtotal up to date before the subtotal discount rules are evaluated and fired.
+	 * 
+	 * @param shoppingCart the cart to which promotion rules are to be applied.
+	 * @param subtotalUpdater brings the cart subtotal up to date once the cart item discounts are applied;
+	 *        always run exactly once
+	 */
+	void fireAllOrderPromotionRules(final ShoppingCart shoppingCart, final Runnable subtotalUpdater);
 }
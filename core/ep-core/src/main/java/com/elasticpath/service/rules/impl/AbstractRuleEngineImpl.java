@@ -4,13 +4,17 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Currency;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.log4j.Logger;
+import org.drools.FactHandle;
 import org.drools.QueryResult;
 import org.drools.QueryResults;
 import org.drools.RuleBase;
@@ -23,7 +27,8 @@ import org.drools.impl.EnvironmentFactory;
 
 import com.elasticpath.commons.constants.ContextIdNames;
 import com.elasticpath.commons.util.SimpleCache;
-import com.elasticpath.cache.SimpleTimeoutCache;
+import com.elasticpath.cache.CacheLoader;
+import com.elasticpath.cache.ConcurrentTimeoutCache;
 import com.elasticpath.domain.catalog.Price;
 import com.elasticpath.domain.catalog.Product;
 import com.elasticpath.domain.discounts.Discount;
@@ -61,14 +66,25 @@ public abstract class AbstractRuleEngineImpl extends AbstractEpServiceImpl imple
 
 	private PromotionRuleDelegate promotionRuleDelegate;
 
+	private int cartSessionPoolSize;
+
+	private final ConcurrentMap<String, StatefulSessionPool> cartSessionPools = new ConcurrentHashMap<String, StatefulSessionPool>();
+
 	private static final Logger LOG = Logger.getLogger(AbstractRuleEngineImpl.class);
 
 	private static final int DEFAULT_CACHE_TIMEOUT = 300000;
 
 	private static final String SESSION_CONFIGURATION_ID = "SESSION_CONFIGURATION_ID";
 
-	private static SimpleTimeoutCache<String, SessionConfiguration> statefulSessionConfiguration = 
-		new SimpleTimeoutCache<String, SessionConfiguration>(DEFAULT_CACHE_TIMEOUT);
+	private static final ConcurrentTimeoutCache<String, SessionConfiguration> STATEFUL_SESSION_CONFIGURATION =
+		new ConcurrentTimeoutCache<String, SessionConfiguration>(DEFAULT_CACHE_TIMEOUT);
+
+	private static final CacheLoader<String, SessionConfiguration> SESSION_CONFIGURATION_LOADER =
+		new CacheLoader<String, SessionConfiguration>() {
+			public SessionConfiguration load(final String key) {
+				return new SessionConfiguration();
+			}
+		};
 
 	@Override
 	public void fireCatalogPromotionRules(final Collection<? extends Product> products, final Set<Long> ruleTracker, final Currency activeCurrency,
@@ -85,11 +101,7 @@ public abstract class AbstractRuleEngineImpl extends AbstractEpServiceImpl imple
 			return;
 		}
 
-		SessionConfiguration sessionConfiguration = statefulSessionConfiguration.get(SESSION_CONFIGURATION_ID);
-		if (sessionConfiguration == null) {
-			sessionConfiguration = new SessionConfiguration();
-			statefulSessionConfiguration.put(SESSION_CONFIGURATION_ID, sessionConfiguration);
-		}
+		SessionConfiguration sessionConfiguration = getSessionConfiguration();
 
 		StatefulSession workingMemory = getCatalogRuleBase(store).newStatefulSession(sessionConfiguration, EnvironmentFactory.newEnvironment());
 
@@ -141,35 +153,146 @@ public abstract class AbstractRuleEngineImpl extends AbstractEpServiceImpl imple
 		// check if the shopping cart has a store set
 		if (shoppingCart.getStore() != null && CollectionUtils.isNotEmpty(uidPks)) {
 
-			SessionConfiguration sessionConfiguration = statefulSessionConfiguration.get(SESSION_CONFIGURATION_ID);
-			if (sessionConfiguration == null) {
-				sessionConfiguration = new SessionConfiguration();
-				statefulSessionConfiguration.put(SESSION_CONFIGURATION_ID, sessionConfiguration);
-			}
-
-			StatefulSession workingMemory = getCartRuleBase(shoppingCart.getStore()).newStatefulSession(sessionConfiguration,
-					EnvironmentFactory.newEnvironment());
+			final StatefulSessionPool sessionPool = getCartSessionPool(shoppingCart.getStore());
+			final StatefulSession workingMemory = sessionPool.borrowSession();
+			boolean reusable = false;
 
 			try {
-				assertObject(workingMemory, promotionRuleDelegate);
-				assertObject(workingMemory, shoppingCart);
-				for (long ruleId : uidPks) {
-					assertObject(workingMemory, new ActiveRuleImpl(ruleId));
-				}
+				assertCartFacts(workingMemory, shoppingCart, uidPks);
 				workingMemory.setFocus(agendaGroup);
 				workingMemory.fireAllRules();
 				QueryResults queryResults = workingMemory.getQueryResults(RuleSet.QUERY_NAME);
 				applyDiscount(queryResults, createShoppingCartDiscountItemContainer(shoppingCart));
+				reusable = true;
 			} catch (IllegalArgumentException e) {
 				if (LOG.isDebugEnabled()) {
 					LOG.debug("Rule Engine could not get query results", e);
 				}
 			} finally {
-				workingMemory.dispose();
+				sessionPool.releaseSession(workingMemory, reusable);
 			}
 		}
 	}
 
+	/**
+	 * Executes both the cart item and the cart subtotal promotion rules on the specified shopping cart in a single rule session. The
+	 * cart item discount rules are fired first; the given callback then brings the cart's subtotal up to date, and the subtotal discount
+	 * rules are evaluated against the updated cart and fired. This has the same effect as calling {@link #fireOrderPromotionRules(ShoppingCart)},
+	 * the callback and {@link #fireOrderPromotionSubtotalRules(ShoppingCart)} in turn, without building the rule session twice.
+	 *
+	 * @param shoppingCart the cart to which promotion rules are to be applied
+	 * @param subtotalUpdater brings the cart subtotal up to date once the cart item discounts are applied; always run exactly once
+	 */
+	public void fireAllOrderPromotionRules(final ShoppingCart shoppingCart, final Runnable subtotalUpdater) {
+		if (shoppingCart == null) {
+			throw new IllegalArgumentException("Shopping cart cannot be null");
+		}
+
+		final List<Long> uidPks = evaluateApplicableRules(shoppingCart);
+		if (shoppingCart.getStore() == null || CollectionUtils.isEmpty(uidPks)) {
+			subtotalUpdater.run();
+			return;
+		}
+
+		final StatefulSessionPool sessionPool = getCartSessionPool(shoppingCart.getStore());
+		final StatefulSession workingMemory = sessionPool.borrowSession();
+		final DiscountItemContainer discountItemContainer = createShoppingCartDiscountItemContainer(shoppingCart);
+		boolean subtotalUpdated = false;
+		boolean reusable = false;
+
+		try {
+			final FactHandle cartHandle = assertCartFacts(workingMemory, shoppingCart, uidPks);
+			workingMemory.setFocus(RuleAction.DEFAULT_AGENDA_GROUP);
+			workingMemory.fireAllRules();
+			final Set<Discount> itemDiscounts = applyNewDiscounts(workingMemory, discountItemContainer,
+					Collections.newSetFromMap(new IdentityHashMap<Discount, Boolean>()));
+
+			subtotalUpdater.run();
+			subtotalUpdated = true;
+
+			// re-evaluate the conditions against the discounted cart; only the subtotal dependent group is fired
+			workingMemory.update(cartHandle, shoppingCart);
+			workingMemory.setFocus(RuleAction.SUBTOTAL_DEPENDENT_AGENDA_GROUP);
+			workingMemory.fireAllRules();
+			applyNewDiscounts(workingMemory, discountItemContainer, itemDiscounts);
+			reusable = true;
+		} catch (IllegalArgumentException e) {
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Rule Engine could not get query results", e);
+			}
+		} finally {
+			sessionPool.releaseSession(workingMemory, reusable);
+		}
+
+		if (!subtotalUpdated) {
+			subtotalUpdater.run();
+		}
+	}
+
+	private FactHandle assertCartFacts(final StatefulSession workingMemory, final ShoppingCart shoppingCart, final List<Long> uidPks) {
+		assertObject(workingMemory, promotionRuleDelegate);
+		final FactHandle cartHandle = workingMemory.insert(shoppingCart);
+		for (long ruleId : uidPks) {
+			assertObject(workingMemory, new ActiveRuleImpl(ruleId));
+		}
+		return cartHandle;
+	}
+
+	/**
+	 * Applies the discounts in working memory that have not been applied yet.
+	 *
+	 * @param workingMemory the working memory
+	 * @param discountItemContainer the discountItemContainer to apply discount
+	 * @param appliedDiscounts the discounts already applied, to which the newly applied discounts are added
+	 * @return the applied discounts
+	 */
+	private Set<Discount> applyNewDiscounts(final WorkingMemory workingMemory, final DiscountItemContainer discountItemContainer,
+			final Set<Discount> appliedDiscounts) {
+		final QueryResults queryResults = workingMemory.getQueryResults(RuleSet.QUERY_NAME);
+		if (queryResults == null) {
+			return appliedDiscounts;
+		}
+		for (Iterator<QueryResult> it = queryResults.iterator(); it.hasNext();) {
+			final Discount discount = (Discount) it.next().get(RuleSet.DISCOUNT_NAME);
+			if (appliedDiscounts.add(discount)) {
+				discount.apply(discountItemContainer);
+			}
+		}
+		return appliedDiscounts;
+	}
+
+	/**
+	 * Gets the session pool of the cart rule base of the given store, replacing the pool when the rule base has changed.
+	 *
+	 * @param store the store
+	 * @return the session pool
+	 */
+	protected StatefulSessionPool getCartSessionPool(final Store store) {
+		final RuleBase ruleBase = getCartRuleBase(store);
+		final StatefulSessionPool pool = cartSessionPools.get(store.getCode());
+		if (pool != null && pool.getRuleBase() == ruleBase) {
+			return pool;
+		}
+
+		final StatefulSessionPool newPool = new StatefulSessionPool(ruleBase, getSessionConfiguration(), cartSessionPoolSize);
+		if (pool == null) {
+			final StatefulSessionPool existingPool = cartSessionPools.putIfAbsent(store.getCode(), newPool);
+			if (existingPool != null) {
+				return existingPool;
+			}
+		} else if (cartSessionPools.replace(store.getCode(), pool, newPool)) {
+			pool.close();
+		} else {
+			// another thread replaced the pool first
+			return cartSessionPools.get(store.getCode());
+		}
+		return newPool;
+	}
+
+	private SessionConfiguration getSessionConfiguration() {
+		return STATEFUL_SESSION_CONFIGURATION.getOrLoad(SESSION_CONFIGURATION_ID, SESSION_CONFIGURATION_LOADER);
+	}
+
 	/**
 	 * Uses groovy engine to fire all who conditions that are applicable to rules.
 	 * 
@@ -304,6 +427,16 @@ public abstract class AbstractRuleEngineImpl extends AbstractEpServiceImpl imple
 		this.promotionRuleDelegate = promotionRuleDelegate;
 	}
 
+	/**
+	 * Sets the number of idle cart rule sessions kept for each store. Zero, the default, disposes of every session once the rules
+	 * have been fired.
+	 *
+	 * @param cartSessionPoolSize the maximum number of idle sessions per store
+	 */
+	public void setCartSessionPoolSize(final int cartSessionPoolSize) {
+		this.cartSessionPoolSize = cartSessionPoolSize;
+	}
+
 	/**
 	 * @return the rule service
 	 */
@@ -10,13 +10,24 @@ import java.io.StringReader;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.Logger;
 import org.drools.RuleBase;
@@ -45,6 +56,11 @@ import com.elasticpath.service.store.StoreService;
  * Exposes methods to compile the rule base and store them in the database. It also provides the
  * ability to read rules from the database. This rules engine is implemented using Drools Rules
  * 3.0.
+ * <p>
+ * Each rule base is loaded at most once at a time: concurrent requests for a rule base that is not
+ * loaded yet wait for a single load. {@link #precompileRuleBases()} loads the rule bases of all
+ * stores in parallel, and a {@link RuleBaseSnapshotStore}, when set, keeps the compiled rule bases
+ * on the local disk so that a restarted node does not have to compile them again.
  */
 public class DBCompilingRuleEngineImpl extends AbstractRuleEngineImpl implements RecompilingRuleEngine {
 
@@ -55,6 +71,12 @@ public class DBCompilingRuleEngineImpl extends AbstractRuleEngineImpl implements
 
 	/** File name of the properties file where the last update date is stored. */
 	private static final String UPDATE_PROP_FILE = "ruleUpdate";
+
+	private static final int DEFAULT_PRECOMPILE_THREAD_COUNT = 4;
+
+	private static final String CART_RULE_BASE_PREFIX = "cart-";
+
+	private static final String CATALOG_RULE_BASE_PREFIX = "catalog-";
 	
 	/**
 	 * Required date format for SOLR dates. Store single instance rather than create a new one all
@@ -76,7 +98,19 @@ public class DBCompilingRuleEngineImpl extends AbstractRuleEngineImpl implements
 
 	private final Map<String, RuleBase> cartRuleBaseMap = new ConcurrentHashMap<String, RuleBase>();
 
+	private final ConcurrentMap<String, FutureTask<RuleBase>> ruleBaseLoadsInFlight = new ConcurrentHashMap<String, FutureTask<RuleBase>>();
+
+	private final ConcurrentMap<String, Object> ruleBaseLocks = new ConcurrentHashMap<String, Object>();
+
 	private Properties configProps;
+
+	private RuleBaseSnapshotStore ruleBaseSnapshotStore;
+
+	private int precompileThreadCount = DEFAULT_PRECOMPILE_THREAD_COUNT;
+
+	private volatile long timeToFirstRuleBase = -1;
+
+	private volatile long timeToAllRuleBases = -1;
 	
 	/**
 	 * Default constructor.
@@ -88,28 +122,70 @@ public class DBCompilingRuleEngineImpl extends AbstractRuleEngineImpl implements
 	
 	@Override
 	protected RuleBase getCartRuleBase(final Store store) {
-		final RuleBase ruleBase;
-		if (cartRuleBaseMap.containsKey(store.getCode())) {
-			 ruleBase = cartRuleBaseMap.get(store.getCode());
-		} else {
-			ruleBase = readRuleBase(RuleScenarios.CART_SCENARIO, store);
-			cartRuleBaseMap.put(store.getCode(), ruleBase);
+		final RuleBase ruleBase = cartRuleBaseMap.get(store.getCode());
+		if (ruleBase == null) {
+			return loadRuleBase(RuleScenarios.CART_SCENARIO, store, cartRuleBaseMap);
 		}
 		return ruleBase;
 	}
 
 	@Override
 	protected RuleBase getCatalogRuleBase(final Store store) {
-		final RuleBase ruleBase;
-		if (catalogRuleBaseMap.containsKey(store.getCode())) {
-			 ruleBase = catalogRuleBaseMap.get(store.getCode());
-		} else {
-			ruleBase = readRuleBase(RuleScenarios.CATALOG_BROWSE_SCENARIO, store);
-			catalogRuleBaseMap.put(store.getCode(), ruleBase);
+		final RuleBase ruleBase = catalogRuleBaseMap.get(store.getCode());
+		if (ruleBase == null) {
+			return loadRuleBase(RuleScenarios.CATALOG_BROWSE_SCENARIO, store, catalogRuleBaseMap);
 		}
 		return ruleBase;
 	}
 
+	/**
+	 * Loads a rule base that is not cached yet and caches it. Concurrent callers asking for the same
+	 * rule base wait for a single load rather than each reading or compiling it.
+	 *
+	 * @param scenarioId the id of the scenario of the rule base
+	 * @param store the store of the rule base
+	 * @param ruleBases the cached rule bases of the scenario, keyed by store code
+	 * @return the rule base
+	 */
+	private RuleBase loadRuleBase(final int scenarioId, final Store store, final Map<String, RuleBase> ruleBases) {
+		final String key = scenarioId + ":" + store.getCode();
+		final FutureTask<RuleBase> newLoad = new FutureTask<RuleBase>(new Callable<RuleBase>() {
+			public RuleBase call() {
+				RuleBase ruleBase = ruleBases.get(store.getCode());
+				if (ruleBase == null) {
+					ruleBase = readRuleBase(scenarioId, store);
+					ruleBases.put(store.getCode(), ruleBase);
+				}
+				return ruleBase;
+			}
+		});
+
+		final FutureTask<RuleBase> load = ruleBaseLoadsInFlight.putIfAbsent(key, newLoad);
+		if (load == null) {
+			try {
+				newLoad.run();
+				return waitFor(newLoad);
+			} finally {
+				ruleBaseLoadsInFlight.remove(key, newLoad);
+			}
+		}
+		return waitFor(load);
+	}
+
+	private RuleBase waitFor(final Future<RuleBase> load) {
+		try {
+			return load.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new EpServiceException("Interrupted while waiting for a rule base to load.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new EpServiceException("Failed to readRuleBase.", e.getCause());
+		}
+	}
+
 	/**
 	 * Reads in a rule set from a file. This is a temporary method and will be replaced by a call
 	 * to service code that will get the rules from the DB.
@@ -118,6 +194,15 @@ public class DBCompilingRuleEngineImpl extends AbstractRuleEngineImpl implements
 	 * @return a RuleBase object corresponding to the rule set file.
 	 */
 	private RuleBase readRuleBase(final int scenarioId, final Store store) {
+		RuleSet ruleSet = null;
+		if (ruleBaseSnapshotStore != null) {
+			ruleSet = ruleSetService.findByScenarioId(scenarioId);
+			final RuleBase snapshot = ruleBaseSnapshotStore.read(getRuleBaseName(scenarioId, store), getRuleSetVersion(ruleSet));
+			if (snapshot != null) {
+				return snapshot;
+			}
+		}
+
 		EpRuleBase ruleBase = null;
 		switch (scenarioId) {
 		case RuleScenarios.CART_SCENARIO:
@@ -133,22 +218,59 @@ public class DBCompilingRuleEngineImpl extends AbstractRuleEngineImpl implements
 		}
 
 		if (ruleBase == null) {
-			RuleSet ruleSet = ruleSetService.findByScenarioId(scenarioId);
+			if (ruleSet == null) {
+				ruleSet = ruleSetService.findByScenarioId(scenarioId);
+			}
 			return recompileRuleBase(ruleSet, store);
 		}
-		
+
+		if (ruleBaseSnapshotStore != null) {
+			ruleBaseSnapshotStore.write(getRuleBaseName(scenarioId, store), getRuleSetVersion(ruleSet), ruleBase.getRuleBase());
+		}
 		return ruleBase.getRuleBase();
 	}
 
 	/**
-	 * Synchronized so we only try to recompile the rule base once at a time.   This may be able to be 
-	 * pushed down to {@code #storeRuleBase(RuleBase, RuleSet, Store, Catalog)} if it becomes an issue.
+	 * Gets the name of a rule base, unique among the rule bases of all scenarios. Catalog rule bases
+	 * are shared by all stores of the catalog, so they are named after the catalog.
+	 *
+	 * @param scenarioId the id of the scenario
+	 * @param store the store
+	 * @return the name of the rule base
+	 */
+	protected String getRuleBaseName(final int scenarioId, final Store store) {
+		if (scenarioId == RuleScenarios.CATALOG_BROWSE_SCENARIO) {
+			return CATALOG_RULE_BASE_PREFIX + store.getCatalog().getCode();
+		}
+		return CART_RULE_BASE_PREFIX + store.getCode();
+	}
+
+	private long getRuleSetVersion(final RuleSet ruleSet) {
+		if (ruleSet == null || ruleSet.getLastModifiedDate() == null) {
+			return 0L;
+		}
+		return ruleSet.getLastModifiedDate().getTime();
+	}
+
+	private Object getRuleBaseLock(final String ruleBaseName) {
+		final Object newLock = new Object();
+		final Object lock = ruleBaseLocks.putIfAbsent(ruleBaseName, newLock);
+		if (lock == null) {
+			return newLock;
+		}
+		return lock;
+	}
+
+	/**
+	 * Compiles the rule base of a rule set for a store and stores it. Rule bases of different stores
+	 * may be compiled in parallel; storing is synchronized on the rule base being stored, so only one
+	 * thread at a time saves a given rule base.
 	 * 
 	 * @param ruleSet rule set to compile
 	 * @param store store used to create rules
 	 * @return compiled ruleBase
 	 */
-	public synchronized RuleBase recompileRuleBase(final RuleSet ruleSet, final Store store) { //NOPMD
+	public RuleBase recompileRuleBase(final RuleSet ruleSet, final Store store) { //NOPMD
 		final String ruleCode = ruleSet.getRuleCode(store);
 		LOG.debug(ruleCode);
 		Reader source = new StringReader(ruleCode);
@@ -193,13 +315,19 @@ public class DBCompilingRuleEngineImpl extends AbstractRuleEngineImpl implements
 			throw new EpServiceException("Failed to readRuleBase.", e);
 		}
 		
-		if (ruleSet.getScenario() == RuleScenarios.CART_SCENARIO) {
-			storeRuleBase(ruleBase, ruleSet, store, null);
-		} else if (ruleSet.getScenario() == RuleScenarios.CATALOG_BROWSE_SCENARIO) {
-			storeRuleBase(ruleBase, ruleSet, null, store.getCatalog());
-		} else {
-			LOG.debug("Uknown rule scenario ID, assuming store based");
-			storeRuleBase(ruleBase, ruleSet, store, null);
+		final String ruleBaseName = getRuleBaseName(ruleSet.getScenario(), store);
+		synchronized (getRuleBaseLock(ruleBaseName)) {
+			if (ruleSet.getScenario() == RuleScenarios.CART_SCENARIO) {
+				storeRuleBase(ruleBase, ruleSet, store, null);
+			} else if (ruleSet.getScenario() == RuleScenarios.CATALOG_BROWSE_SCENARIO) {
+				storeRuleBase(ruleBase, ruleSet, null, store.getCatalog());
+			} else {
+				LOG.debug("Uknown rule scenario ID, assuming store based");
+				storeRuleBase(ruleBase, ruleSet, store, null);
+			}
+			if (ruleBaseSnapshotStore != null) {
+				ruleBaseSnapshotStore.write(ruleBaseName, getRuleSetVersion(ruleSet), ruleBase);
+			}
 		}
 		
 		LOG.info("Sucessfully re-compiled rule base for scenario " + ruleSet.getScenario());
@@ -291,6 +419,95 @@ public class DBCompilingRuleEngineImpl extends AbstractRuleEngineImpl implements
 		LOG.info("Recompile rule base quartz job completed in (ms): " + (System.currentTimeMillis() - startTime));
 	}
 	
+	/**
+	 * Loads the cart and catalog rule bases of all complete stores in parallel, so that the first
+	 * requests of a freshly started node do not wait for them. Failures, including failing to find
+	 * the stores, are logged and left for the first request of each rule base to retry, so that they
+	 * never fail the startup of the node. Meant to be called once the engine is configured,
+	 * typically as the Spring init method.
+	 */
+	public void precompileRuleBases() {
+		final long startTime = System.currentTimeMillis();
+		final List<Store> stores;
+		try {
+			stores = storeService.findAllCompleteStores();
+		} catch (RuntimeException e) {
+			LOG.error("Could not find the stores to precompile rule bases for, they will be loaded on first use.", e);
+			return;
+		}
+		final AtomicLong firstRuleBaseTime = new AtomicLong();
+
+		final ExecutorService executor = Executors.newFixedThreadPool(precompileThreadCount, new PrecompileThreadFactory());
+		try {
+			final List<Future<RuleBase>> loads = new ArrayList<Future<RuleBase>>();
+			for (final Store store : stores) {
+				loads.add(executor.submit(new Callable<RuleBase>() {
+					public RuleBase call() {
+						final RuleBase ruleBase = getCartRuleBase(store);
+						firstRuleBaseTime.compareAndSet(0, System.currentTimeMillis());
+						return ruleBase;
+					}
+				}));
+				loads.add(executor.submit(new Callable<RuleBase>() {
+					public RuleBase call() {
+						final RuleBase ruleBase = getCatalogRuleBase(store);
+						firstRuleBaseTime.compareAndSet(0, System.currentTimeMillis());
+						return ruleBase;
+					}
+				}));
+			}
+
+			for (final Future<RuleBase> load : loads) {
+				try {
+					waitFor(load);
+				} catch (RuntimeException e) {
+					LOG.error("Could not precompile a rule base, it will be loaded on first use.", e);
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		if (firstRuleBaseTime.get() > 0) {
+			timeToFirstRuleBase = firstRuleBaseTime.get() - startTime;
+		}
+		timeToAllRuleBases = System.currentTimeMillis() - startTime;
+		LOG.info("Precompiled rule bases of " + stores.size() + " stores. Time to first promotion rule base (ms): " + timeToFirstRuleBase
+				+ ", time to all rule bases (ms): " + timeToAllRuleBases);
+	}
+
+	/**
+	 * Gets the time it took {@link #precompileRuleBases()} to make the first rule base available.
+	 *
+	 * @return the time in milliseconds, or -1 if no rule base has been precompiled
+	 */
+	public long getTimeToFirstRuleBase() {
+		return timeToFirstRuleBase;
+	}
+
+	/**
+	 * Gets the time it took {@link #precompileRuleBases()} to load the rule bases of all stores.
+	 *
+	 * @return the time in milliseconds, or -1 if the rule bases have not been precompiled
+	 */
+	public long getTimeToAllRuleBases() {
+		return timeToAllRuleBases;
+	}
+
+	/**
+	 * Names the daemon threads precompiling rule bases.
+	 */
+	private static final class PrecompileThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger threadNumber = new AtomicInteger();
+
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, "RuleBasePrecompiler-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
 	/**
 	 * Stores the given {@link RuleBase} for later retrieval. If a rule base already exists,
 	 * updates the existing rule base. Generally either the {@code store} or {@code catalog}
@@ -376,4 +593,18 @@ public class DBCompilingRuleEngineImpl extends AbstractRuleEngineImpl implements
 	public void setRuleEngineConfigProps(final Properties props) {
 		this.configProps = props;
 	}
+
+	/**
+	 * @param ruleBaseSnapshotStore the store keeping compiled rule bases on the local disk, or null to keep none
+	 */
+	public void setRuleBaseSnapshotStore(final RuleBaseSnapshotStore ruleBaseSnapshotStore) {
+		this.ruleBaseSnapshotStore = ruleBaseSnapshotStore;
+	}
+
+	/**
+	 * @param precompileThreadCount the number of threads {@link #precompileRuleBases()} loads rule bases with
+	 */
+	public void setPrecompileThreadCount(final int precompileThreadCount) {
+		this.precompileThreadCount = precompileThreadCount;
+	}
 }
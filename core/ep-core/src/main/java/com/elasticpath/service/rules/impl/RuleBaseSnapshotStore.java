@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.service.rules.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.apache.log4j.Logger;
+import org.drools.RuleBase;
+
+import com.elasticpath.base.exception.EpSystemException;
+import com.elasticpath.domain.ElasticPath;
+import com.elasticpath.domain.rules.impl.EpRuleBaseImpl;
+
+/**
+ * Keeps compiled rule bases as snapshot files on the local disk, so that a restarted node can pick up its rule bases without compiling
+ * them or reading them from the database. Every snapshot carries a version, usually the last modified date of the rule set it was
+ * compiled from, and a snapshot is only handed out when its version is the one asked for.
+ * <p>
+ * Snapshots are written with the same externalized form as {@link EpRuleBaseImpl} uses in the database. A snapshot that cannot be
+ * read, for instance because it was written by a different version of Drools, is treated as missing.
+ */
+public class RuleBaseSnapshotStore {
+
+	private static final Logger LOG = Logger.getLogger(RuleBaseSnapshotStore.class);
+
+	/** Version of the snapshot file layout, bumped whenever the layout changes. */
+	private static final int SNAPSHOT_FORMAT = 1;
+
+	private static final String SNAPSHOT_SUFFIX = ".rulebase";
+
+	private static final String DEFAULT_SNAPSHOT_DIRECTORY = "/conf/rulebases";
+
+	private ElasticPath elasticPath;
+
+	private String snapshotDirectory;
+
+	/**
+	 * Reads the snapshot of a rule base.
+	 *
+	 * @param name the name of the rule base
+	 * @param version the version required
+	 * @return the rule base, or null if there is no readable snapshot of the required version
+	 */
+	public RuleBase read(final String name, final long version) {
+		final File snapshotFile = getSnapshotFile(name);
+		if (!snapshotFile.isFile()) {
+			return null;
+		}
+
+		DataInputStream input = null;
+		try {
+			input = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)));
+			if (input.readInt() != SNAPSHOT_FORMAT || input.readLong() != version) {
+				return null;
+			}
+			final byte[] externalizedRuleBase = new byte[input.readInt()];
+			input.readFully(externalizedRuleBase);
+			return EpRuleBaseImpl.ruleBaseFactory(externalizedRuleBase);
+		} catch (final IOException e) {
+			LOG.warn("Could not read rule base snapshot " + snapshotFile + ", ignoring it", e);
+		} catch (final EpSystemException e) {
+			LOG.warn("Could not read rule base snapshot " + snapshotFile + ", ignoring it", e);
+		} finally {
+			close(input);
+		}
+		return null;
+	}
+
+	/**
+	 * Writes the snapshot of a rule base, replacing any previous snapshot with the same name. The snapshot is written to a temporary
+	 * file first, so readers never see a partly written snapshot. Failures are logged, as the snapshot is only an optimization.
+	 *
+	 * @param name the name of the rule base
+	 * @param version the version of the rule base
+	 * @param ruleBase the rule base
+	 */
+	public void write(final String name, final long version, final RuleBase ruleBase) {
+		final File snapshotFile = getSnapshotFile(name);
+		File temporaryFile = null;
+		DataOutputStream output = null;
+		try {
+			final byte[] externalizedRuleBase = EpRuleBaseImpl.externalizeRuleBase(ruleBase);
+			final File directory = snapshotFile.getParentFile();
+			if (!directory.isDirectory() && !directory.mkdirs()) {
+				throw new IOException("Could not create directory " + directory);
+			}
+
+			temporaryFile = File.createTempFile(snapshotFile.getName(), null, directory);
+			output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)));
+			output.writeInt(SNAPSHOT_FORMAT);
+			output.writeLong(version);
+			output.writeInt(externalizedRuleBase.length);
+			output.write(externalizedRuleBase);
+			output.close();
+			output = null;
+
+			if (!temporaryFile.renameTo(snapshotFile) && !(snapshotFile.delete() && temporaryFile.renameTo(snapshotFile))) {
+				throw new IOException("Could not rename " + temporaryFile + " to " + snapshotFile);
+			}
+			temporaryFile = null;
+		} catch (final IOException e) {
+			LOG.warn("Could not write rule base snapshot " + snapshotFile, e);
+		} catch (final EpSystemException e) {
+			LOG.warn("Could not write rule base snapshot " + snapshotFile, e);
+		} finally {
+			close(output);
+			if (temporaryFile != null && !temporaryFile.delete()) {
+				LOG.debug("Could not delete " + temporaryFile);
+			}
+		}
+	}
+
+	/**
+	 * Gets the file holding the snapshot of the given rule base.
+	 *
+	 * @param name the name of the rule base
+	 * @return the snapshot file
+	 */
+	protected File getSnapshotFile(final String name) {
+		return new File(getSnapshotDirectory(), name.replaceAll("[^A-Za-z0-9_.-]", "_") + SNAPSHOT_SUFFIX);
+	}
+
+	private void close(final Closeable closeable) {
+		if (closeable != null) {
+			try {
+				closeable.close();
+			} catch (final IOException e) { //NOPMD -- AvoidEmptyCatchBlocks
+				// ignore exceptions on close
+			}
+		}
+	}
+
+	/**
+	 * Gets the directory holding the snapshots, by default {@code WEB-INF/conf/rulebases}.
+	 *
+	 * @return the snapshot directory
+	 */
+	public String getSnapshotDirectory() {
+		if (snapshotDirectory == null) {
+			snapshotDirectory = elasticPath.getWebInfPath().replace('\\', '/') + DEFAULT_SNAPSHOT_DIRECTORY;
+		}
+		return snapshotDirectory;
+	}
+
+	public void setSnapshotDirectory(final String snapshotDirectory) {
+		this.snapshotDirectory = snapshotDirectory;
+	}
+
+	public void setElasticPath(final ElasticPath elasticPath) {
+		this.elasticPath = elasticPath;
+	}
+}
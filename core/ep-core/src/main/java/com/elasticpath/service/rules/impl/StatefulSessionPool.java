@@ -0,0 +1,121 @@
+package com.elasticpath.service.rules.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.drools.FactHandle;
+import org.drools.RuleBase;
+import org.drools.SessionConfiguration;
+import org.drools.StatefulSession;
+import org.drools.impl.EnvironmentFactory;
+
+/**
+ * A bounded pool of Drools sessions of one {@link RuleBase}. Borrowing never blocks: when no idle session is available a new one is
+ * created, and sessions released while the pool already holds its maximum number of idle sessions are disposed. A released session is
+ * emptied of its facts and activations before it is handed out again, so that reusing it has the same effect as using a new session,
+ * without paying for building the session's node memories each time.
+ * <p>
+ * Sessions are used by one thread at a time; the pool itself is thread-safe.
+ */
+public class StatefulSessionPool {
+
+	private final RuleBase ruleBase;
+
+	private final SessionConfiguration sessionConfiguration;
+
+	private final int maxIdleSessions;
+
+	private final BlockingQueue<StatefulSession> idleSessions;
+
+	private volatile boolean closed;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param ruleBase the rule base to create sessions of
+	 * @param sessionConfiguration the configuration of the sessions
+	 * @param maxIdleSessions the maximum number of idle sessions to keep, zero to dispose of every session once it is released
+	 */
+	public StatefulSessionPool(final RuleBase ruleBase, final SessionConfiguration sessionConfiguration, final int maxIdleSessions) {
+		this.ruleBase = ruleBase;
+		this.sessionConfiguration = sessionConfiguration;
+		this.maxIdleSessions = maxIdleSessions;
+		this.idleSessions = new ArrayBlockingQueue<StatefulSession>(Math.max(1, maxIdleSessions));
+	}
+
+	/**
+	 * Borrows a session, creating one if there is no idle session.
+	 *
+	 * @return a session holding no facts
+	 */
+	public StatefulSession borrowSession() {
+		final StatefulSession session = idleSessions.poll();
+		if (session == null) {
+			return ruleBase.newStatefulSession(sessionConfiguration, EnvironmentFactory.newEnvironment());
+		}
+		return session;
+	}
+
+	/**
+	 * Returns a borrowed session to the pool. Sessions that were left in an unknown state, for instance because firing the rules failed,
+	 * should not be reused.
+	 *
+	 * @param session the session
+	 * @param reusable whether the session may be handed out again
+	 */
+	public void releaseSession(final StatefulSession session, final boolean reusable) {
+		if (!reusable || closed || maxIdleSessions == 0) {
+			session.dispose();
+			return;
+		}
+
+		reset(session);
+		if (!idleSessions.offer(session)) {
+			session.dispose();
+		}
+	}
+
+	/**
+	 * Disposes of the idle sessions. Sessions released after the pool is closed are disposed rather than kept.
+	 */
+	public void close() {
+		closed = true;
+		StatefulSession session = idleSessions.poll();
+		while (session != null) {
+			session.dispose();
+			session = idleSessions.poll();
+		}
+	}
+
+	/**
+	 * Retracts all facts from the session and clears its agenda.
+	 *
+	 * @param session the session
+	 */
+	protected void reset(final StatefulSession session) {
+		final List<FactHandle> factHandles = new ArrayList<FactHandle>();
+		for (final Iterator< ? > handleIterator = session.iterateFactHandles(); handleIterator.hasNext();) {
+			factHandles.add((FactHandle) handleIterator.next());
+		}
+		for (final FactHandle factHandle : factHandles) {
+			session.retract(factHandle);
+		}
+		session.clearAgenda();
+	}
+
+	public RuleBase getRuleBase() {
+		return ruleBase;
+	}
+
+	/**
+	 * Gets the number of idle sessions.
+	 *
+	 * @return the number of sessions ready to be borrowed
+	 */
+	public int getIdleSessionCount() {
+		return idleSessions.size();
+	}
+}
@@ -39,6 +39,25 @@ public interface IndexNotificationService extends EpPersistenceService {
 	 */
 	List<IndexNotification> findByIndexType(IndexType indexType);
 	
+	/**
+	 * Gets the oldest {@link IndexNotification}s for the given {@link IndexType}, in the order they were added.
+	 *
+	 * @param indexType the type of index
+	 * @param maxResults the maximum number of notifications to get
+	 * @return a list of at most maxResults {@link IndexNotification}s for the given {@link IndexType}
+	 * @throws com.elasticpath.base.exception.EpServiceException in case of any errors
+	 */
+	List<IndexNotification> findOldestByIndexType(IndexType indexType, int maxResults);
+
+	/**
+	 * Removes the given {@link IndexNotification}s in bulk.
+	 *
+	 * @param notifications the {@link IndexNotification}s to remove
+	 * @return the number of notifications removed
+	 * @throws com.elasticpath.base.exception.EpServiceException in case of any errors
+	 */
+	int removeAll(Collection<IndexNotification> notifications);
+
 	/**
 	 * Convenience method to send a notification about the given {@link UpdateType updateType} of
 	 * the UIDs affected by the given {@link SearchCriteria searchCriteria}. The update type
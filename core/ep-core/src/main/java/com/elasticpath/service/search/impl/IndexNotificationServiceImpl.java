@@ -1,5 +1,6 @@
 package com.elasticpath.service.search.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -69,6 +70,42 @@ public class IndexNotificationServiceImpl extends AbstractEpPersistenceServiceIm
 		return getPersistenceEngine().retrieveByNamedQuery("INDEXNOTIFY_FIND_BY_INDEX_TYPE", parameters);
 	}
 
+	/**
+	 * Gets the oldest {@link IndexNotification}s for the given {@link IndexType}, in the order they were added.
+	 *
+	 * @param indexType the type of index
+	 * @param maxResults the maximum number of notifications to get
+	 * @return a list of at most maxResults {@link IndexNotification}s for the given {@link IndexType}
+	 * @throws EpServiceException in case of any errors
+	 */
+	public List<IndexNotification> findOldestByIndexType(final IndexType indexType, final int maxResults) {
+		sanityCheck();
+		if (indexType == null) {
+			throw new EpServiceException("indexType cannot be null");
+		}
+		return getPersistenceEngine().retrieveByNamedQuery("INDEXNOTIFY_FIND_OLDEST_BY_INDEX_TYPE",
+				new Object[] { indexType.getIndexName() }, 0, maxResults);
+	}
+
+	/**
+	 * Removes the given {@link IndexNotification}s with bulk deletes rather than one delete per notification.
+	 *
+	 * @param notifications the {@link IndexNotification}s to remove
+	 * @return the number of notifications removed
+	 * @throws EpServiceException in case of any errors
+	 */
+	public int removeAll(final Collection<IndexNotification> notifications) {
+		sanityCheck();
+		if (notifications.isEmpty()) {
+			return 0;
+		}
+		final List<Long> notificationUids = new ArrayList<Long>(notifications.size());
+		for (IndexNotification notification : notifications) {
+			notificationUids.add(notification.getUidPk());
+		}
+		return getPersistenceEngine().executeNamedQueryWithList("INDEXNOTIFY_DELETE_BY_UIDS", "list", notificationUids);
+	}
+
 	/**
 	 * Finds a set of index notifications by index and update types.
 	 * 
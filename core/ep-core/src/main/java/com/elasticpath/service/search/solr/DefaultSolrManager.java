@@ -10,7 +10,9 @@ import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.CommonsHttpSolrServer;
+import org.apache.solr.client.solrj.request.CoreAdminRequest;
 import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CoreAdminParams.CoreAdminAction;
 
 import com.elasticpath.domain.misc.SearchConfig;
 import com.elasticpath.persistence.api.EpPersistenceException;
@@ -25,10 +27,15 @@ import com.elasticpath.service.search.SolrIndexConstantFactory;
  */
 public class DefaultSolrManager extends AbstractEpServiceImpl implements SolrManager {
 
+	/** Suffix of the name of the shadow core that an index is rebuilt into. */
+	private static final String REBUILD_CORE_SUFFIX = "_rebuild";
+
 	private SearchConfigFactory searchConfigFactory;
 
 	private final Map<IndexType, SolrHolder> solrServers = new HashMap<IndexType, SolrHolder>();
 
+	private final Map<IndexType, SolrServer> rebuildServers = new HashMap<IndexType, SolrServer>();
+
 	private SolrIndexConstantFactory solrIndexConstantFactory;
 
 	private SolrDocumentPublisherFactory solrDocumentPublisherFactory;
@@ -57,6 +64,33 @@ public class DefaultSolrManager extends AbstractEpServiceImpl implements SolrMan
 		return holder.server;
 	}
 
+	@Override
+	public SolrServer getRebuildServer(final IndexType indexType) throws EpPersistenceException {
+		synchronized (solrServers) {
+			SolrServer rebuildServer = rebuildServers.get(indexType);
+			if (rebuildServer == null) {
+				rebuildServer = createServer(indexType, getRebuildCoreName(indexType));
+				rebuildServers.put(indexType, rebuildServer);
+			}
+			return rebuildServer;
+		}
+	}
+
+	@Override
+	public void swapRebuildCore(final IndexType indexType) throws EpPersistenceException {
+		final CoreAdminRequest request = new CoreAdminRequest();
+		request.setAction(CoreAdminAction.SWAP);
+		request.setCoreName(indexType.getIndexName());
+		request.setOtherCoreName(getRebuildCoreName(indexType));
+		try {
+			request.process(createServer(indexType, ""));
+		} catch (SolrServerException e) {
+			throw new EpPersistenceException("SOLR Error -- swap rebuild core of " + indexType, e);
+		} catch (IOException e) {
+			throw new EpPersistenceException("IO Error -- swap rebuild core of " + indexType, e);
+		}
+	}
+
 	@Override
 	public SearchConfig getSearchConfig(final IndexType indexType) {
 		final String solrIndex = solrIndexConstantFactory.getSolrIndexConstant(indexType);
@@ -117,6 +151,7 @@ public class DefaultSolrManager extends AbstractEpServiceImpl implements SolrMan
 					break;
 				}
 			}
+			known = known || rebuildServers.containsValue(server);
 		}
 		if (!known) {
 			throw new EpPersistenceException("Unable to flush changes of an unmanaged SOLR server.");
@@ -167,13 +202,25 @@ public class DefaultSolrManager extends AbstractEpServiceImpl implements SolrMan
 	 * @throws EpServiceException in case of any errors
 	 */
 	protected SolrServer createServer(final IndexType indexType) {
-		String name = indexType.getIndexName();
-		String searchUrl = getSearchConfig(name).getSearchHost();
+		return createServer(indexType, indexType.getIndexName());
+	}
+
+	/**
+	 * Creates a HTTP SOLR server for a named core on the search host of an index type. An empty core name gives a server for the
+	 * search host itself, which is what core admin requests are sent to.
+	 *
+	 * @param indexType {@link IndexType} whose search host is used
+	 * @param coreName the name of the core
+	 * @return a HTTP SOLR server
+	 * @throws EpServiceException in case of any errors
+	 */
+	protected SolrServer createServer(final IndexType indexType, final String coreName) {
+		String searchUrl = getSearchConfig(indexType.getIndexName()).getSearchHost();
 		// check in case of user error
 		if (!searchUrl.endsWith("/")) {
 			searchUrl = searchUrl.concat("/");
 		}
-		searchUrl = searchUrl.concat(name);
+		searchUrl = searchUrl.concat(coreName);
 		try {
 			return new CommonsHttpSolrServer(searchUrl);
 		} catch (MalformedURLException e) {
@@ -181,6 +228,10 @@ public class DefaultSolrManager extends AbstractEpServiceImpl implements SolrMan
 		}
 	}
 
+	private String getRebuildCoreName(final IndexType indexType) {
+		return indexType.getIndexName() + REBUILD_CORE_SUFFIX;
+	}
+
 	protected SearchConfigFactory getSearchConfigFactory() {
 		return searchConfigFactory;
 	}
@@ -69,4 +69,23 @@ public interface SolrManager extends SolrProvider {
 	 * @return the associated publisher.
 	 */
 	SolrDocumentPublisher getDocumentPublisher(IndexType indexType);
+
+	/**
+	 * Gets the server of the shadow core that a full rebuild of the given index type can be written to while the live core keeps
+	 * serving searches. The shadow core is named after the index with a <code>_rebuild</code> suffix.
+	 *
+	 * @param indexType the {@link IndexType} being rebuilt
+	 * @return the Solr server of the shadow core
+	 * @throws EpPersistenceException in case of any errors
+	 */
+	SolrServer getRebuildServer(IndexType indexType) throws EpPersistenceException;
+
+	/**
+	 * Atomically swaps the live core of the given index type with its shadow core through the Solr core admin API, so that searches
+	 * against the live core see the rebuilt index. Changes to the shadow core must be committed first.
+	 *
+	 * @param indexType the {@link IndexType} that was rebuilt
+	 * @throws EpPersistenceException in case of any errors
+	 */
+	void swapRebuildCore(IndexType indexType) throws EpPersistenceException;
 }
\ No newline at end of file
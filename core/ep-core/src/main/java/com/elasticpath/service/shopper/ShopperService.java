@@ -34,6 +34,14 @@ public interface ShopperService {
      */
 	Shopper createAndSaveShopper(String storeCode);
 
+	/**
+	 * Create a {@link Shopper} without saving it, for a session which is only persisted once the shopper has something worth keeping.
+	 *
+	 * @param storeCode the storeCode.
+	 * @return the {@link Shopper} created
+	 */
+	Shopper createShopper(String storeCode);
+
 	/**
 	 * Get the shopper by uidPk.
 	 *
@@ -50,6 +58,14 @@ public interface ShopperService {
 	 */
 	Shopper save(Shopper shopper);
 
+	/**
+	 * Save the shopper if it has not been persisted yet, keeping the anonymous customer it holds.
+	 *
+	 * @param shopper the shopper to be saved
+	 * @return the saved shopper
+	 */
+	Shopper saveIfNotPersisted(Shopper shopper);
+
 	/**
 	 * Remove the shopper.
 	 *
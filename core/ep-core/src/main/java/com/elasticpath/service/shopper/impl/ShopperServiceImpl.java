@@ -81,13 +81,17 @@ public class ShopperServiceImpl implements ShopperService {
 
 	@Override
 	public Shopper createAndSaveShopper(final String storeCode) {
-		final ShopperMemento shopperMemento = createShopperMemento();
-		final Shopper shopper = createNewShopperFromMementoAndStore(shopperMemento, storeCode);
-		shopper.setShopperMemento(shopperDao.saveOrUpdate(shopperMemento));
+		final Shopper shopper = createShopper(storeCode);
+		shopper.setShopperMemento(shopperDao.saveOrUpdate(shopper.getShopperMemento()));
 
 		return shopper;
 	}
 
+	@Override
+	public Shopper createShopper(final String storeCode) {
+		return createNewShopperFromMementoAndStore(createShopperMemento(), storeCode);
+	}
+
 	@Override
 	public Shopper get(final long uid) {
 		final ShopperMemento retrievedShopperMemento = shopperDao.get(uid);
@@ -109,6 +113,20 @@ public class ShopperServiceImpl implements ShopperService {
 		return null;
 	}
 
+	@Override
+	public Shopper saveIfNotPersisted(final Shopper shopper) {
+		if (shopper == null || shopper.isPersisted()) {
+			return shopper;
+		}
+
+		// The memento drops an anonymous customer when it is persisted, but the shopper still needs it for the rest of the session.
+		final Customer customer = shopper.getCustomer();
+		save(shopper);
+		shopper.setCustomer(customer);
+
+		return shopper;
+	}
+
 	@Override
 	public void remove(final Shopper shopper) {
 		if ((shopper != null) && (shopper.isPersisted())) {
@@ -71,6 +71,7 @@ public class ShoppingCartServiceImpl extends AbstractEpPersistenceServiceImpl im
 	protected ShoppingCart saveOrUpdate(final ShoppingCart shoppingCart, final ShoppingCartMementoHolder mementoContainer) {
 		LOG.debug("saving shopping cart...");
 		configureLoadTuners();
+		saveShopperIfNotPersisted(shoppingCart);
 		try {
 			final ShoppingCartMemento shoppingCartMemento = mementoContainer.getShoppingCartMemento();
 			shoppingCartMemento.setStoreCode(shoppingCart.getStore().getCode());
@@ -103,6 +104,18 @@ public class ShoppingCartServiceImpl extends AbstractEpPersistenceServiceImpl im
 		return shoppingCart;
 	}
 
+	/**
+	 * Saves the shopper of an anonymous session whose persistence was deferred, since the cart references the shopper.
+	 */
+	private void saveShopperIfNotPersisted(final ShoppingCart shoppingCart) {
+		final Shopper shopper = shoppingCart.getShopper();
+		if (shopper != null && !shopper.isPersisted()) {
+			shopperService.saveIfNotPersisted(shopper);
+			// re-set the shopper so that the memento picks up its uid
+			shoppingCart.setShopper(shopper);
+		}
+	}
+
 	private void verifyShoppingCartInterfaces(final ShoppingCart shoppingCart) {
 		if (!(shoppingCart instanceof ShoppingCartMementoHolder)) {
 			throw new EpServiceException("ShoppingCart class " + shoppingCart.getClass() + " must implements ShoppingCartMementoHolder");
@@ -17,6 +17,7 @@ import com.elasticpath.domain.shopper.Shopper;
 import com.elasticpath.domain.shoppingcart.ShoppingItem;
 import com.elasticpath.domain.shoppingcart.WishList;
 import com.elasticpath.domain.store.Store;
+import com.elasticpath.service.shopper.ShopperService;
 import com.elasticpath.service.shoppingcart.WishListService;
 import com.elasticpath.service.shoppingcart.dao.WishListDao;
 import com.elasticpath.service.store.StoreService;
@@ -32,6 +33,8 @@ public class WishListServiceImpl implements WishListService {
 
 	private StoreService storeService;
 
+	private ShopperService shopperService;
+
 	@Override
 	public WishList createWishList(final Shopper shopper) {
 		final WishList wishList = beanFactory.getBean(ContextIdNames.WISH_LIST);
@@ -48,11 +51,24 @@ public class WishListServiceImpl implements WishListService {
 	@Override
 	public WishList save(final WishList wishList) {
 		if (wishList != null) {
+			saveShopperIfNotPersisted(wishList);
 			return wishListDao.saveOrUpdate(wishList);
 		}
 		return null;
 	}
 
+	/**
+	 * Saves the shopper of an anonymous session whose persistence was deferred, since the wish list references the shopper.
+	 */
+	private void saveShopperIfNotPersisted(final WishList wishList) {
+		final Shopper shopper = wishList.getShopper();
+		if (shopper != null && !shopper.isPersisted()) {
+			shopperService.saveIfNotPersisted(shopper);
+			// re-set the shopper so that the wish list picks up its uid
+			wishList.setShopper(shopper);
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
      *
@@ -174,4 +190,13 @@ public class WishListServiceImpl implements WishListService {
 	public void setStoreService(final StoreService storeService) {
 		this.storeService = storeService;
 	}
+
+	/**
+	 * Sets the shopper service.
+	 *
+	 * @param shopperService the shopper service
+	 */
+	public void setShopperService(final ShopperService shopperService) {
+		this.shopperService = shopperService;
+	}
 }
@@ -0,0 +1,108 @@
+package com.elasticpath.tags.service.impl;
+
+import java.text.ParseException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+import com.elasticpath.base.exception.EpServiceException;
+import com.elasticpath.tags.TagSet;
+import com.elasticpath.tags.domain.ConditionalExpression;
+import com.elasticpath.tags.service.ConditionEvaluatorService;
+
+/**
+ * ConditionalExpression evaluator that parses each condition string of the tag framework DSL once into an immutable
+ * {@link TagPredicate} tree and evaluates the tree directly against the tag set. No scripts are compiled, so evaluations
+ * neither load classes nor take locks.
+ * <p>
+ * Condition strings the parser does not support are evaluated by the fallback evaluator, which is normally the
+ * {@link GroovyConditionEvaluatorServiceImpl}.
+ */
+public class CompiledConditionEvaluatorServiceImpl implements ConditionEvaluatorService {
+
+	private static final Logger LOG = Logger.getLogger(CompiledConditionEvaluatorServiceImpl.class);
+
+	private static final int DEFAULT_MAX_CACHED_CONDITIONS = 10000;
+
+	/** Marks condition strings the parser does not support. */
+	private static final TagPredicate UNSUPPORTED = new TagPredicate() {
+		@Override
+		public boolean evaluate(final TagSet tags) {
+			throw new UnsupportedOperationException("Condition is evaluated by the fallback evaluator");
+		}
+	};
+
+	private final ConcurrentMap<String, TagPredicate> predicates = new ConcurrentHashMap<String, TagPredicate>();
+
+	private ConditionEvaluatorService fallbackEvaluatorService;
+
+	private int maxCachedConditions = DEFAULT_MAX_CACHED_CONDITIONS;
+
+	@Override
+	public boolean evaluateConditionOnTags(final TagSet tags, final ConditionalExpression condition) {
+		final TagPredicate predicate = getPredicate(condition.getConditionString());
+		if (predicate == UNSUPPORTED) {
+			return fallbackEvaluatorService.evaluateConditionOnTags(tags, condition);
+		}
+		try {
+			return predicate.evaluate(tags);
+		} catch (RuntimeException e) {
+			throw new EpServiceException("Exception evaluating condition \n"
+					+ condition.getConditionString()
+					+ "\n\tOn\n" + tags, e);
+		}
+	}
+
+	/**
+	 * Gets the parsed condition of a condition string, parsing it if it has not been parsed before.
+	 * Once the maximum number of conditions are cached, further condition strings are parsed on every evaluation.
+	 *
+	 * @param conditionString the condition string
+	 * @return the condition, or {@link #UNSUPPORTED} if the condition string should be evaluated by the fallback evaluator
+	 */
+	TagPredicate getPredicate(final String conditionString) {
+		if (StringUtils.isBlank(conditionString)) {
+			return TagPredicates.TRUE;
+		}
+		TagPredicate predicate = predicates.get(conditionString);
+		if (predicate == null) {
+			predicate = parse(conditionString);
+			if (predicates.size() < maxCachedConditions) {
+				predicates.putIfAbsent(conditionString, predicate);
+			}
+		}
+		return predicate;
+	}
+
+	private TagPredicate parse(final String conditionString) {
+		try {
+			return new ConditionDSLParser(conditionString).parse();
+		} catch (ParseException e) {
+			if (fallbackEvaluatorService == null) {
+				throw new EpServiceException("Cannot parse condition \n" + conditionString, e);
+			}
+			LOG.warn("Condition will be evaluated by " + fallbackEvaluatorService.getClass().getName() + ": " + e.getMessage());
+			return UNSUPPORTED;
+		}
+	}
+
+	/**
+	 * Sets the evaluator of condition strings that cannot be parsed. If none is set, such conditions fail to evaluate.
+	 *
+	 * @param fallbackEvaluatorService the fallback evaluator
+	 */
+	public void setFallbackEvaluatorService(final ConditionEvaluatorService fallbackEvaluatorService) {
+		this.fallbackEvaluatorService = fallbackEvaluatorService;
+	}
+
+	/**
+	 * Sets the maximum number of parsed condition strings to keep.
+	 *
+	 * @param maxCachedConditions the maximum number of conditions
+	 */
+	public void setMaxCachedConditions(final int maxCachedConditions) {
+		this.maxCachedConditions = maxCachedConditions;
+	}
+}
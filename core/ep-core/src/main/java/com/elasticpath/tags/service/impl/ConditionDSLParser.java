@@ -0,0 +1,287 @@
+package com.elasticpath.tags.service.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.elasticpath.tags.domain.LogicalOperatorType;
+
+/**
+ * Parses condition strings of the tag framework DSL into {@link TagPredicate} trees, without compiling them.
+ * <p>
+ * It accepts the DSL as {@link GroovyConditionDSLBuilderImpl} writes it: a closure holding a logical operator with child closures,
+ * or a single condition such as <code>{ location.contains 'US' }</code>. Values are quoted strings, <code>true</code>,
+ * <code>false</code> or number literals with the Groovy type suffixes, optionally in parentheses. Anything else, such as
+ * GString interpolation or several statements in a closure, is a {@link ParseException}.
+ * <p>
+ * A parser instance parses one condition string and is not thread safe.
+ */
+class ConditionDSLParser {
+
+	private static final String TRUE = "true";
+
+	private static final String FALSE = "false";
+
+	private final String conditionString;
+
+	private int position;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param conditionString the condition string to parse
+	 */
+	ConditionDSLParser(final String conditionString) {
+		this.conditionString = conditionString;
+	}
+
+	/**
+	 * Parses the condition string. An empty condition string is always true.
+	 *
+	 * @return the condition
+	 * @throws ParseException if the condition string is not in the supported DSL
+	 */
+	TagPredicate parse() throws ParseException {
+		if (StringUtils.isBlank(conditionString)) {
+			return TagPredicates.TRUE;
+		}
+		position = 0;
+		skipWhitespace();
+		final TagPredicate predicate = parseClosure();
+		skipWhitespace();
+		if (position < conditionString.length()) {
+			throw error("Unexpected text after the condition");
+		}
+		return predicate;
+	}
+
+	private TagPredicate parseClosure() throws ParseException {
+		expect('{');
+		skipWhitespace();
+		final TagPredicate predicate;
+		final String identifier = parseIdentifier();
+		skipWhitespace();
+		if (peek() == '.') {
+			position++;
+			predicate = parseTagCondition(identifier);
+		} else if (TRUE.equals(identifier)) {
+			predicate = TagPredicates.TRUE;
+		} else if (FALSE.equals(identifier)) {
+			predicate = TagPredicates.FALSE;
+		} else {
+			predicate = parseLogicalOperator(identifier);
+		}
+		skipWhitespace();
+		expect('}');
+		return predicate;
+	}
+
+	private TagPredicate parseLogicalOperator(final String operatorName) throws ParseException {
+		final LogicalOperatorType operatorType;
+		try {
+			operatorType = LogicalOperatorType.valueOf(operatorName);
+		} catch (IllegalArgumentException e) {
+			throw error("Unknown logical operator " + operatorName);
+		}
+		final List<TagPredicate> children = new ArrayList<TagPredicate>();
+		while (peek() == '{') {
+			children.add(parseClosure());
+			skipWhitespace();
+		}
+		return TagPredicates.logical(operatorType, children);
+	}
+
+	private TagPredicate parseTagCondition(final String tagKey) throws ParseException {
+		final String operatorName = parseIdentifier();
+		skipWhitespace();
+		final Object value;
+		if (peek() == '(') {
+			position++;
+			skipWhitespace();
+			value = parseValue(true);
+			skipWhitespace();
+			expect(')');
+		} else {
+			value = parseValue(false);
+		}
+		return TagPredicates.tagCondition(tagKey, operatorName, value);
+	}
+
+	private Object parseValue(final boolean allowNegative) throws ParseException {
+		final char first = peek();
+		if (first == '\'' || first == '"') {
+			return parseString(first);
+		}
+		if (Character.isDigit(first) || (first == '-' && allowNegative)) {
+			return parseNumber();
+		}
+		final String identifier = parseIdentifier();
+		if (TRUE.equals(identifier) || FALSE.equals(identifier)) {
+			return Boolean.valueOf(identifier);
+		}
+		throw error("Unsupported value " + identifier);
+	}
+
+	private String parseString(final char quote) throws ParseException {
+		position++;
+		final StringBuilder value = new StringBuilder();
+		while (position < conditionString.length()) {
+			char character = conditionString.charAt(position++);
+			if (character == quote) {
+				return value.toString();
+			}
+			if (character == '$' && quote == '"') {
+				throw error("GString interpolation is not supported");
+			}
+			if (character == '\\') {
+				character = parseEscapedCharacter();
+			}
+			value.append(character);
+		}
+		throw error("Unterminated string");
+	}
+
+	private char parseEscapedCharacter() throws ParseException {
+		if (position >= conditionString.length()) {
+			throw error("Unterminated string");
+		}
+		final char escaped = conditionString.charAt(position++);
+		switch (escaped) {
+		case 'n':
+			return '\n';
+		case 't':
+			return '\t';
+		case 'r':
+			return '\r';
+		case '\\':
+		case '\'':
+		case '"':
+		case '$':
+			return escaped;
+		default:
+			throw error("Unsupported escape \\" + escaped);
+		}
+	}
+
+	/**
+	 * Parses a number literal the way Groovy types it: the suffixes i, L, G, F and D give Integer, Long, BigInteger or BigDecimal,
+	 * Float and Double; without a suffix a decimal is a BigDecimal and an integer is the smallest of Integer, Long and BigInteger
+	 * that holds it.
+	 *
+	 * @return the number
+	 * @throws ParseException if the literal is not a number
+	 */
+	private Number parseNumber() throws ParseException {
+		final int start = position;
+		if (peek() == '-') {
+			position++;
+		}
+		skipDigits();
+		boolean decimal = false;
+		if (peek() == '.' && position + 1 < conditionString.length() && Character.isDigit(conditionString.charAt(position + 1))) {
+			decimal = true;
+			position++;
+			skipDigits();
+		}
+		final String digits = conditionString.substring(start, position);
+		if (digits.length() == 0 || "-".equals(digits)) {
+			throw error("Number expected");
+		}
+		final char suffix = Character.toUpperCase(peek());
+		if (Character.isLetter(suffix)) {
+			position++;
+		}
+		try {
+			return toNumber(digits, decimal, suffix);
+		} catch (NumberFormatException e) {
+			throw error("Invalid number " + digits);
+		}
+	}
+
+	private Number toNumber(final String digits, final boolean decimal, final char suffix) throws ParseException {
+		switch (suffix) {
+		case 'I':
+			return Integer.valueOf(digits);
+		case 'L':
+			return Long.valueOf(digits);
+		case 'F':
+			return Float.valueOf(digits);
+		case 'D':
+			return Double.valueOf(digits);
+		case 'G':
+			if (decimal) {
+				return new BigDecimal(digits);
+			}
+			return new BigInteger(digits);
+		default:
+			if (Character.isLetter(suffix)) {
+				throw error("Unsupported number suffix " + suffix);
+			}
+			return toUnsuffixedNumber(digits, decimal);
+		}
+	}
+
+	private Number toUnsuffixedNumber(final String digits, final boolean decimal) {
+		if (decimal) {
+			return new BigDecimal(digits);
+		}
+		final BigInteger value = new BigInteger(digits);
+		if (value.bitLength() < Integer.SIZE) {
+			return Integer.valueOf(value.intValue());
+		}
+		if (value.bitLength() < Long.SIZE) {
+			return Long.valueOf(value.longValue());
+		}
+		return value;
+	}
+
+	private void skipDigits() {
+		while (Character.isDigit(peek())) {
+			position++;
+		}
+	}
+
+	private String parseIdentifier() throws ParseException {
+		final int start = position;
+		if (!Character.isJavaIdentifierStart(peek())) {
+			throw error("Identifier expected");
+		}
+		while (position < conditionString.length() && Character.isJavaIdentifierPart(conditionString.charAt(position))) {
+			position++;
+		}
+		return conditionString.substring(start, position);
+	}
+
+	private void skipWhitespace() {
+		while (Character.isWhitespace(peek())) {
+			position++;
+		}
+	}
+
+	/**
+	 * Gets the character at the current position.
+	 *
+	 * @return the character, or 0 at the end of the condition string
+	 */
+	private char peek() {
+		if (position < conditionString.length()) {
+			return conditionString.charAt(position);
+		}
+		return 0;
+	}
+
+	private void expect(final char expected) throws ParseException {
+		if (peek() != expected) {
+			throw error("'" + expected + "' expected");
+		}
+		position++;
+	}
+
+	private ParseException error(final String message) {
+		return new ParseException(message + " at position " + position + " of condition " + conditionString, position);
+	}
+}
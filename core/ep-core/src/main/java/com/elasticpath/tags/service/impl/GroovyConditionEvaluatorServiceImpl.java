@@ -10,8 +10,8 @@ import java.util.concurrent.FutureTask;
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 
-import com.elasticpath.cache.SimpleTimeoutCache;
 import com.elasticpath.base.exception.EpServiceException;
+import com.elasticpath.cache.CacheLoader;
 import com.elasticpath.tags.Tag;
 import com.elasticpath.tags.TagSet;
 import com.elasticpath.tags.domain.ConditionalExpression;
@@ -28,8 +28,19 @@ public class GroovyConditionEvaluatorServiceImpl implements ConditionEvaluatorSe
 	private static final Logger LOG = Logger.getLogger(GroovyConditionEvaluatorServiceImpl.class);
 	private final GroovyExpressionBuilder expressionBuilder = new GroovyExpressionBuilder();
 	private static final long DEFAULT_CACHE_TIMEOUT = 60000;
-	private final SimpleTimeoutCache<String, FutureTask<Script>> scriptCache
-		= new GroovyScriptTimeoutCache(DEFAULT_CACHE_TIMEOUT);
+	private final GroovyScriptTimeoutCache scriptCache = new GroovyScriptTimeoutCache(DEFAULT_CACHE_TIMEOUT);
+
+	private final CacheLoader<String, FutureTask<Script>> scriptCompiler = new CacheLoader<String, FutureTask<Script>>() {
+		public FutureTask<Script> load(final String conditionString) {
+			final FutureTask<Script> compilationTask = new FutureTask<Script>(new Callable<Script>() {
+				public Script call() {
+					return new GroovyShell().parse(expressionBuilder.buildExpression(conditionString));
+				}
+			});
+			compilationTask.run();
+			return compilationTask;
+		}
+	};
 
 	/**
      * Initialize the groovy environment by loading the groovy 
@@ -82,26 +93,8 @@ public class GroovyConditionEvaluatorServiceImpl implements ConditionEvaluatorSe
 		return compilationTask.get();
 	}
 
-	private FutureTask<Script> getScriptCompilationTaskAtomic(final ConditionalExpression condition) throws Exception {
-		boolean newlyCreated = false;
-		FutureTask<Script> compilationTask;
-		synchronized (scriptCache) {
-			compilationTask = scriptCache.get(condition.getConditionString());
-
-			if (compilationTask == null) {
-				newlyCreated = true;
-				compilationTask = new FutureTask<Script>(new Callable<Script>() {
-					public Script call() {
-						return new GroovyShell().parse(expressionBuilder.buildExpression(condition.getConditionString()));
-					}
-				});
-				scriptCache.put(condition.getConditionString(), compilationTask);
-			}
-		}
-		if (newlyCreated) {
-			compilationTask.run();
-		}
-		return compilationTask;
+	private FutureTask<Script> getScriptCompilationTaskAtomic(final ConditionalExpression condition) {
+		return scriptCache.getOrLoad(condition.getConditionString(), scriptCompiler);
 	}
 	
 	/**
@@ -0,0 +1,18 @@
+package com.elasticpath.tags.service.impl;
+
+import com.elasticpath.tags.TagSet;
+
+/**
+ * A condition of the tag framework DSL, parsed into an immutable tree that is evaluated against tag sets.
+ * Implementations are safe to share between threads.
+ */
+interface TagPredicate {
+
+	/**
+	 * Evaluates the condition against the given tags.
+	 *
+	 * @param tags the tags to evaluate against
+	 * @return true if the tags satisfy the condition
+	 */
+	boolean evaluate(TagSet tags);
+}
@@ -0,0 +1,387 @@
+package com.elasticpath.tags.service.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.List;
+
+import com.elasticpath.tags.Tag;
+import com.elasticpath.tags.TagSet;
+import com.elasticpath.tags.domain.LogicalOperatorType;
+
+/**
+ * The nodes of a parsed tag framework condition. They evaluate the conditions the same way the Groovy
+ * <code>com.elasticpath.tags.engine</code> classes do:
+ * <ul>
+ * <li>a condition on a tag that is not in the tag set is false, whatever its operator;</li>
+ * <li>a condition with an operator the DSL does not define is false;</li>
+ * <li>comparisons of numbers are numeric across number types, <code>equalTo</code> uses <code>equals()</code>.</li>
+ * </ul>
+ * A tag without a value ranks below every value, as Groovy orders null, so it satisfies <code>lessThan</code> and
+ * <code>lessThanOrEqualTo</code> conditions. It also satisfies <code>notEqualTo</code> and <code>notIncludes</code> conditions, since no
+ * value equals or includes anything, and no other condition. Groovy fails on <code>notIncludes</code> instead, and on the other string
+ * operators as well.
+ */
+final class TagPredicates {
+
+	/** The condition of an empty condition string, which every tag set satisfies. */
+	static final TagPredicate TRUE = new ConstantPredicate(true);
+
+	/** A condition which no tag set satisfies. */
+	static final TagPredicate FALSE = new ConstantPredicate(false);
+
+	private TagPredicates() {
+		// static factory methods only
+	}
+
+	/**
+	 * Creates a logical operator over child conditions.
+	 *
+	 * @param operatorType AND or OR
+	 * @param children the child conditions
+	 * @return the logical condition
+	 */
+	static TagPredicate logical(final LogicalOperatorType operatorType, final List<TagPredicate> children) {
+		final TagPredicate[] childArray = children.toArray(new TagPredicate[children.size()]);
+		if (operatorType == LogicalOperatorType.OR) {
+			return new OrPredicate(childArray);
+		}
+		return new AndPredicate(childArray);
+	}
+
+	/**
+	 * Creates a condition on the value of one tag.
+	 *
+	 * @param tagKey the tag definition key
+	 * @param operatorName the name of the operator, such as <code>lessThan</code>
+	 * @param value the value to compare the tag value with
+	 * @return the tag condition
+	 */
+	static TagPredicate tagCondition(final String tagKey, final String operatorName, final Object value) {
+		final Operator operator = Operator.forName(operatorName);
+		if (operator == null) {
+			return FALSE;
+		}
+		return new TagConditionPredicate(tagKey, operator, value);
+	}
+
+	/**
+	 * Compares two values the way Groovy's relational operators do: numbers by their numeric value whatever their type,
+	 * other values with <code>compareTo()</code>.
+	 *
+	 * @param left the tag value
+	 * @param right the condition value
+	 * @return a negative number, zero or a positive number as the tag value is less than, equal to or greater than the condition value
+	 */
+	@SuppressWarnings("unchecked")
+	static int compare(final Object left, final Object right) {
+		if (left instanceof Number && right instanceof Number) {
+			return compareNumbers((Number) left, (Number) right);
+		}
+		if (left instanceof Comparable && right != null && left.getClass().isInstance(right)) {
+			return ((Comparable<Object>) left).compareTo(right);
+		}
+		throw new IllegalArgumentException("Cannot compare " + left + " with " + right);
+	}
+
+	private static int compareNumbers(final Number left, final Number right) {
+		if (isFloatingPoint(left) || isFloatingPoint(right)) {
+			return Double.compare(left.doubleValue(), right.doubleValue());
+		}
+		if (left instanceof BigDecimal || right instanceof BigDecimal) {
+			return toBigDecimal(left).compareTo(toBigDecimal(right));
+		}
+		if (left instanceof BigInteger || right instanceof BigInteger) {
+			return toBigInteger(left).compareTo(toBigInteger(right));
+		}
+		final long leftValue = left.longValue();
+		final long rightValue = right.longValue();
+		if (leftValue < rightValue) {
+			return -1;
+		}
+		if (leftValue == rightValue) {
+			return 0;
+		}
+		return 1;
+	}
+
+	private static boolean isFloatingPoint(final Number number) {
+		return number instanceof Double || number instanceof Float;
+	}
+
+	private static BigDecimal toBigDecimal(final Number number) {
+		if (number instanceof BigDecimal) {
+			return (BigDecimal) number;
+		}
+		if (number instanceof BigInteger) {
+			return new BigDecimal((BigInteger) number);
+		}
+		return BigDecimal.valueOf(number.longValue());
+	}
+
+	private static BigInteger toBigInteger(final Number number) {
+		if (number instanceof BigInteger) {
+			return (BigInteger) number;
+		}
+		return BigInteger.valueOf(number.longValue());
+	}
+
+	private static String asString(final Object value) {
+		if (value instanceof String) {
+			return (String) value;
+		}
+		throw new IllegalArgumentException("Expected a string but was " + value);
+	}
+
+	/**
+	 * The operators of the DSL.
+	 */
+	enum Operator {
+		/** Less than. */
+		LESS_THAN("lessThan") {
+			@Override
+			boolean apply(final Object tagValue, final Object value) {
+				return compare(tagValue, value) < 0;
+			}
+
+			@Override
+			boolean applyToNoValue(final Object value) {
+				return value != null;
+			}
+		},
+		/** Greater than. */
+		GREATER_THAN("greaterThan") {
+			@Override
+			boolean apply(final Object tagValue, final Object value) {
+				return compare(tagValue, value) > 0;
+			}
+		},
+		/** Less than or equal to. */
+		LESS_THAN_OR_EQUAL_TO("lessThanOrEqualTo") {
+			@Override
+			boolean apply(final Object tagValue, final Object value) {
+				return compare(tagValue, value) <= 0;
+			}
+
+			@Override
+			boolean applyToNoValue(final Object value) {
+				return value != null;
+			}
+		},
+		/** Greater than or equal to. */
+		GREATER_THAN_OR_EQUAL_TO("greaterThanOrEqualTo") {
+			@Override
+			boolean apply(final Object tagValue, final Object value) {
+				return compare(tagValue, value) >= 0;
+			}
+		},
+		/** Equal to, as <code>equals()</code> says. */
+		EQUAL_TO("equalTo") {
+			@Override
+			boolean apply(final Object tagValue, final Object value) {
+				return tagValue.equals(value);
+			}
+		},
+		/** Not equal to. */
+		NOT_EQUAL_TO("notEqualTo") {
+			@Override
+			boolean apply(final Object tagValue, final Object value) {
+				return !tagValue.equals(value);
+			}
+
+			@Override
+			boolean applyToNoValue(final Object value) {
+				return value != null;
+			}
+		},
+		/** String or collection includes. */
+		INCLUDES("includes") {
+			@Override
+			boolean apply(final Object tagValue, final Object value) {
+				if (tagValue instanceof Collection< ? >) {
+					return ((Collection< ? >) tagValue).contains(value);
+				}
+				return asString(tagValue).contains(asString(value));
+			}
+		},
+		/** String or collection does not include. */
+		NOT_INCLUDES("notIncludes") {
+			@Override
+			boolean apply(final Object tagValue, final Object value) {
+				return !INCLUDES.apply(tagValue, value);
+			}
+
+			@Override
+			boolean applyToNoValue(final Object value) {
+				return true;
+			}
+		},
+		/** Same as includes. */
+		CONTAINS("contains") {
+			@Override
+			boolean apply(final Object tagValue, final Object value) {
+				return INCLUDES.apply(tagValue, value);
+			}
+		},
+		/** String equals ignoring case. */
+		EQUALS_IGNORE_CASE("equalsIgnoreCase") {
+			@Override
+			boolean apply(final Object tagValue, final Object value) {
+				return asString(tagValue).equalsIgnoreCase(asString(value));
+			}
+		},
+		/** String does not equal ignoring case. */
+		NOT_EQUALS_IGNORE_CASE("notEqualsIgnoreCase") {
+			@Override
+			boolean apply(final Object tagValue, final Object value) {
+				return !EQUALS_IGNORE_CASE.apply(tagValue, value);
+			}
+		},
+		/** String includes ignoring case. */
+		INCLUDES_IGNORE_CASE("includesIgnoreCase") {
+			@Override
+			boolean apply(final Object tagValue, final Object value) {
+				return asString(tagValue).toLowerCase().contains(asString(value).toLowerCase());
+			}
+		},
+		/** String does not include ignoring case. */
+		NOT_INCLUDES_IGNORE_CASE("notIncludesIgnoreCase") {
+			@Override
+			boolean apply(final Object tagValue, final Object value) {
+				return !INCLUDES_IGNORE_CASE.apply(tagValue, value);
+			}
+		};
+
+		private final String operatorName;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param operatorName the name of the operator in the DSL
+		 */
+		private Operator(final String operatorName) {
+			this.operatorName = operatorName;
+		}
+
+		/**
+		 * Applies the operator.
+		 *
+		 * @param tagValue the tag value, never null
+		 * @param value the condition value
+		 * @return true if the tag value satisfies the operator
+		 */
+		abstract boolean apply(Object tagValue, Object value);
+
+		/**
+		 * Applies the operator to a tag without a value. By default a tag without a value satisfies no operator.
+		 *
+		 * @param value the condition value
+		 * @return true if a tag without a value satisfies the operator
+		 */
+		boolean applyToNoValue(final Object value) {
+			return false;
+		}
+
+		/**
+		 * Finds an operator by its name in the DSL.
+		 *
+		 * @param operatorName the name
+		 * @return the operator, or null if the DSL does not define it
+		 */
+		static Operator forName(final String operatorName) {
+			for (Operator operator : values()) {
+				if (operator.operatorName.equals(operatorName)) {
+					return operator;
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * A condition that always has the same result.
+	 */
+	private static final class ConstantPredicate implements TagPredicate {
+		private final boolean result;
+
+		ConstantPredicate(final boolean result) {
+			this.result = result;
+		}
+
+		@Override
+		public boolean evaluate(final TagSet tags) {
+			return result;
+		}
+	}
+
+	/**
+	 * AND of child conditions. AND of no conditions is true.
+	 */
+	private static final class AndPredicate implements TagPredicate {
+		private final TagPredicate[] children;
+
+		AndPredicate(final TagPredicate[] children) {
+			this.children = children;
+		}
+
+		@Override
+		public boolean evaluate(final TagSet tags) {
+			for (TagPredicate child : children) {
+				if (!child.evaluate(tags)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * OR of child conditions. OR of no conditions is false.
+	 */
+	private static final class OrPredicate implements TagPredicate {
+		private final TagPredicate[] children;
+
+		OrPredicate(final TagPredicate[] children) {
+			this.children = children;
+		}
+
+		@Override
+		public boolean evaluate(final TagSet tags) {
+			for (TagPredicate child : children) {
+				if (child.evaluate(tags)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * A condition on the value of one tag.
+	 */
+	private static final class TagConditionPredicate implements TagPredicate {
+		private final String tagKey;
+
+		private final Operator operator;
+
+		private final Object value;
+
+		TagConditionPredicate(final String tagKey, final Operator operator, final Object value) {
+			this.tagKey = tagKey;
+			this.operator = operator;
+			this.value = value;
+		}
+
+		@Override
+		public boolean evaluate(final TagSet tags) {
+			final Tag tag = tags.getTagValue(tagKey);
+			if (tag == null) {
+				return false;
+			}
+			if (tag.getValue() == null) {
+				return operator.applyToNoValue(value);
+			}
+			return operator.apply(tag.getValue(), value);
+		}
+	}
+}
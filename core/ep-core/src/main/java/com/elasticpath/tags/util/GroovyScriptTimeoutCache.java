@@ -8,14 +8,14 @@ import java.util.concurrent.FutureTask;
 import org.apache.log4j.Logger;
 import org.codehaus.groovy.runtime.InvokerHelper;
 
-import com.elasticpath.cache.SimpleTimeoutCache;
+import com.elasticpath.cache.ConcurrentTimeoutCache;
 
 /**
- * Simple timeout cache implementation for groovy scripts.  When the script is removed from the cache
+ * Timeout cache implementation for groovy scripts.  When the script is removed from the cache
  * the Class generated for this script is unloaded from memory to prevent a memory leak.
  */
 public class GroovyScriptTimeoutCache extends 
-	SimpleTimeoutCache<String, FutureTask<Script>> {
+	ConcurrentTimeoutCache<String, FutureTask<Script>> {
 
 	private static final Logger LOG = Logger.getLogger(GroovyScriptTimeoutCache.class);
 	
@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.common.pricing.service.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Currency;
+
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.elasticpath.commons.beanframework.BeanFactory;
+import com.elasticpath.commons.constants.ContextIdNames;
+import com.elasticpath.domain.pricing.PriceListAssignment;
+import com.elasticpath.domain.pricing.impl.PriceListAssignmentImpl;
+import com.elasticpath.domain.pricing.impl.PriceListDescriptorImpl;
+import com.elasticpath.domain.pricing.impl.PriceListStackImpl;
+import com.elasticpath.domain.sellingcontext.impl.SellingContextImpl;
+import com.elasticpath.service.pricing.PriceListAssignmentService;
+import com.elasticpath.tags.Tag;
+import com.elasticpath.tags.TagSet;
+import com.elasticpath.tags.domain.Condition;
+import com.elasticpath.tags.domain.ConditionalExpression;
+import com.elasticpath.tags.domain.LogicalOperator;
+import com.elasticpath.tags.domain.LogicalOperatorType;
+import com.elasticpath.tags.domain.TagDictionary;
+import com.elasticpath.tags.domain.impl.ConditionalExpressionImpl;
+import com.elasticpath.tags.domain.impl.TagDefinitionImpl;
+import com.elasticpath.tags.service.ConditionDSLBuilder;
+import com.elasticpath.tags.service.ConditionEvaluatorService;
+import com.elasticpath.test.BeanFactoryExpectationsFactory;
+
+/**
+ * Test {@link CachingPLAStackLookupStrategy}.
+ */
+public class CachingPLAStackLookupStrategyTest {
+
+	private static final String CATALOG_CODE = "CATALOG";
+
+	private static final String SEGMENT_TAG = "CUSTOMER_SEGMENT";
+
+	private static final String SEGMENT_CONDITION = "{ AND { CUSTOMER_SEGMENT.equalTo 'gold' } }";
+
+	private static final String GOLD_PRICE_LIST = "GOLD_PL";
+
+	private static final String DEFAULT_PRICE_LIST = "DEFAULT_PL";
+
+	private static final Currency CURRENCY = Currency.getInstance("CAD");
+
+	@Rule
+	public final JUnitRuleMockery context = new JUnitRuleMockery();
+
+	private final BeanFactory beanFactory = context.mock(BeanFactory.class);
+
+	private final PriceListAssignmentService priceListAssignmentService = context.mock(PriceListAssignmentService.class);
+
+	private final ConditionEvaluatorService conditionEvaluatorService = context.mock(ConditionEvaluatorService.class);
+
+	private final ConditionDSLBuilder conditionDSLBuilder = context.mock(ConditionDSLBuilder.class);
+
+	private BeanFactoryExpectationsFactory expectationsFactory;
+
+	private CachingPLAStackLookupStrategy strategy;
+
+	private ConditionalExpression segmentCondition;
+
+	/**
+	 * Set up a catalog with a default price list and a price list for gold customers.
+	 */
+	@Before
+	public void setUp() {
+		expectationsFactory = new BeanFactoryExpectationsFactory(context, beanFactory);
+		expectationsFactory.allowingBeanFactoryGetBean(ContextIdNames.PRICE_LIST_STACK, PriceListStackImpl.class);
+
+		segmentCondition = new ConditionalExpressionImpl();
+		segmentCondition.setGuid("SEGMENT_CONDITION");
+		segmentCondition.setConditionString(SEGMENT_CONDITION);
+		final SellingContextImpl sellingContext = new SellingContextImpl();
+		sellingContext.setCondition(TagDictionary.DICTIONARY_PLA_SHOPPER_GUID, segmentCondition);
+
+		final PriceListAssignment goldAssignment = createAssignment("GOLD_PLA", 1, GOLD_PRICE_LIST);
+		goldAssignment.setSellingContext(sellingContext);
+		final PriceListAssignment defaultAssignment = createAssignment("DEFAULT_PLA", 2, DEFAULT_PRICE_LIST);
+
+		final TagDefinitionImpl segmentTag = new TagDefinitionImpl();
+		segmentTag.setGuid(SEGMENT_TAG);
+		final LogicalOperator segmentTree = new LogicalOperator(LogicalOperatorType.AND);
+		segmentTree.addCondition(new Condition(segmentTag, "equalTo", "gold"));
+
+		context.checking(new Expectations() { {
+			oneOf(priceListAssignmentService).listByCatalogAndCurrencyCode(CATALOG_CODE, CURRENCY.getCurrencyCode(), true);
+			will(returnValue(Arrays.asList(defaultAssignment, goldAssignment)));
+			allowing(conditionDSLBuilder).getLogicalOperationTree(SEGMENT_CONDITION);
+			will(returnValue(segmentTree));
+		} });
+
+		strategy = new CachingPLAStackLookupStrategy();
+		strategy.setBeanFactory(beanFactory);
+		strategy.setPriceListAssignmentService(priceListAssignmentService);
+		strategy.setConditionEvaluatorService(conditionEvaluatorService);
+		strategy.setConditionDSLBuilder(conditionDSLBuilder);
+	}
+
+	@After
+	public void tearDown() {
+		expectationsFactory.close();
+	}
+
+	/**
+	 * Test that tag sets which only differ on tags no condition refers to share the cached assignments, and that the assignments
+	 * are read once.
+	 */
+	@Test
+	public void testTagSetsWithSameSignatureShareCachedStack() {
+		final TagSet goldShopper = createTagSet("gold", "en");
+		final TagSet otherGoldShopper = createTagSet("gold", "fr");
+		final TagSet silverShopper = createTagSet("silver", "en");
+		context.checking(new Expectations() { {
+			oneOf(conditionEvaluatorService).evaluateConditionOnTags(goldShopper, segmentCondition);
+			will(returnValue(true));
+			oneOf(conditionEvaluatorService).evaluateConditionOnTags(silverShopper, segmentCondition);
+			will(returnValue(false));
+		} });
+
+		assertEquals(Arrays.asList(GOLD_PRICE_LIST, DEFAULT_PRICE_LIST),
+				strategy.getPriceListStack(CATALOG_CODE, CURRENCY, goldShopper).getPriceListStack());
+		assertEquals(Arrays.asList(GOLD_PRICE_LIST, DEFAULT_PRICE_LIST),
+				strategy.getPriceListStack(CATALOG_CODE, CURRENCY, otherGoldShopper).getPriceListStack());
+		assertEquals(Collections.singletonList(DEFAULT_PRICE_LIST),
+				strategy.getPriceListStack(CATALOG_CODE, CURRENCY, silverShopper).getPriceListStack());
+
+		assertEquals(1, strategy.getHitCount());
+		assertEquals(2, strategy.getMissCount());
+		assertEquals(1, strategy.getRebuildCount());
+	}
+
+	private PriceListAssignment createAssignment(final String guid, final int priority, final String priceListGuid) {
+		final PriceListDescriptorImpl priceList = new PriceListDescriptorImpl();
+		priceList.setGuid(priceListGuid);
+		final PriceListAssignment assignment = new PriceListAssignmentImpl();
+		assignment.setGuid(guid);
+		assignment.setPriority(priority);
+		assignment.setPriceListDescriptor(priceList);
+		return assignment;
+	}
+
+	private TagSet createTagSet(final String segment, final String locale) {
+		final TagSet tagSet = new TagSet();
+		tagSet.addTag(SEGMENT_TAG, new Tag(segment));
+		tagSet.addTag("SELECTED_LOCALE", new Tag(locale));
+		return tagSet;
+	}
+}
@@ -54,7 +54,6 @@ import com.elasticpath.domain.skuconfiguration.SkuOptionValue;
 import com.elasticpath.domain.skuconfiguration.impl.JpaAdaptorOfSkuOptionValueImpl;
 import com.elasticpath.domain.skuconfiguration.impl.SkuOptionImpl;
 import com.elasticpath.domain.skuconfiguration.impl.SkuOptionValueImpl;
-import com.elasticpath.inventory.InventoryKey;
 import com.elasticpath.inventory.dao.InventoryDao;
 import com.elasticpath.inventory.dao.InventoryJournalDao;
 import com.elasticpath.inventory.domain.Inventory;
@@ -205,8 +204,8 @@ public class ProductSkuImplTest {
         	exactly(expectedMapCalls).of(inventoryDao).getInventoryMap(inventoryMap.keySet(), WAREHOUSE_UID);
         	will(returnValue(inventoryMap));
         	
-        	allowing(inventoryJournalDao).getRollup(with(any(InventoryKey.class)));
-        	will(returnValue(new InventoryJournalRollupImpl()));
+        	allowing(inventoryJournalDao).getRollups(inventoryMap.keySet(), WAREHOUSE_UID);
+        	will(returnValue(Collections.singletonMap(productSkuImpl.getSkuCode(), new InventoryJournalRollupImpl())));
         	
         	allowing(product).getAvailabilityCriteria(); will(returnValue(AvailabilityCriteria.AVAILABLE_WHEN_IN_STOCK));
         } });
@@ -28,9 +28,12 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hamcrest.Matchers;
 import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -158,6 +161,7 @@ public class ShoppingCartImplTest extends AbstractCatalogDataTestCase {
 	private TaxCalculationService taxCalculationService;
 	private TaxCalculationResult taxCalculationResult;
 	private StoreService storeService;
+	private int subtotalUpdates;
 
 	/**
 	 * Prepare for tests.
@@ -224,6 +228,14 @@ public class ShoppingCartImplTest extends AbstractCatalogDataTestCase {
 		final EpRuleEngine ruleEngine = context.mock(EpRuleEngine.class);
 		context.checking(new Expectations() {
 			{
+				allowing(ruleEngine).fireAllOrderPromotionRules(with(any(ShoppingCart.class)), with(any(Runnable.class)));
+				will(new CustomAction("run the subtotal updater") {
+					public Object invoke(final Invocation invocation) throws Throwable {
+						((Runnable) invocation.getParameter(1)).run();
+						subtotalUpdates++;
+						return null;
+					}
+				});
 				allowing(ruleEngine);
 			}
 		});
@@ -396,6 +408,35 @@ public class ShoppingCartImplTest extends AbstractCatalogDataTestCase {
 		assertEquals(cartItems, shoppingCart.getCartItems());
 	}
 
+	/**
+	 * Test that firing the rules runs the subtotal callback once, which recalculates the taxes once before the subtotal rules are fired,
+	 * and that the taxes are then recalculated once more for the final totals.
+	 */
+	@Test
+	public void testFireRulesRecalculatesTaxesOnceForTheSubtotalRules() {
+		final AtomicInteger taxRecalculations = new AtomicInteger();
+		shoppingCart = new ShoppingCartImpl() {
+			private static final long serialVersionUID = 4117396128620554521L;
+
+			@Override
+			protected void updateTaxCalculationResult() {
+				taxRecalculations.incrementAndGet();
+				super.updateTaxCalculationResult();
+			}
+		};
+		initializeShoppingCart(shoppingCart);
+		shoppingCart.setTaxCalculationService(taxCalculationService);
+		addCartItemsTo(shoppingCart);
+		taxRecalculations.set(0);
+		subtotalUpdates = 0;
+
+		shoppingCart.fireRules();
+
+		assertEquals("The subtotal callback should be run once", 1, subtotalUpdates);
+		assertEquals("The taxes should be recalculated once by the subtotal callback and once for the final totals",
+				2, taxRecalculations.get());
+	}
+
 	/**
 	 * Test clearing the shopping cart.
 	 */
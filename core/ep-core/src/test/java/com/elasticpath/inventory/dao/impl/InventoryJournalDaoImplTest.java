@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.inventory.dao.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.elasticpath.inventory.strategy.InventoryJournalRollup;
+import com.elasticpath.inventory.strategy.impl.InventoryJournalRollupImpl;
+import com.elasticpath.persistence.api.PersistenceEngine;
+
+/**
+ * Test {@link InventoryJournalDaoImpl}.
+ */
+public class InventoryJournalDaoImplTest {
+
+	private static final String SUM_DELTAS_QUERY = "INVENTORY_JOURNAL_SUM_DELTAS_BY_SKUCODES_AND_WAREHOUSE_UID";
+
+	private static final long WAREHOUSE_UID = 7L;
+
+	/** More sku codes than fit in one list parameter, which the persistence engine splits into several queries. */
+	private static final int MANY_SKU_COUNT = 1200;
+
+	private static final int ALLOCATED_DELTA = 3;
+
+	private static final int ON_HAND_DELTA = -5;
+
+	@Rule
+	public final JUnitRuleMockery context = new JUnitRuleMockery();
+
+	private final PersistenceEngine persistenceEngine = context.mock(PersistenceEngine.class);
+
+	private InventoryJournalDaoImpl dao;
+
+	/**
+	 * Create the DAO.
+	 */
+	@Before
+	public void setUp() {
+		dao = new InventoryJournalDaoImpl();
+		dao.setPersistenceEngine(persistenceEngine);
+	}
+
+	/**
+	 * Test that no query is run for an empty set of skus.
+	 */
+	@Test
+	public void testGetRollupsOfNoSkus() {
+		assertTrue(dao.getRollups(Collections.<String>emptySet(), WAREHOUSE_UID).isEmpty());
+	}
+
+	/**
+	 * Test that the rollups of all skus are summed with a single call, and that skus without journal rows get a zero rollup.
+	 */
+	@Test
+	public void testGetRollupsSumsAllSkusInOneCall() {
+		final Set<String> skuCodes = new HashSet<String>(Arrays.asList("SKU1", "SKU2"));
+		context.checking(new Expectations() { {
+			oneOf(persistenceEngine).retrieveByNamedQueryWithList(SUM_DELTAS_QUERY, "list", new ArrayList<String>(skuCodes), WAREHOUSE_UID);
+			will(returnValue(Collections.singletonList(new InventoryJournalRollupImpl("SKU1", WAREHOUSE_UID, ALLOCATED_DELTA, ON_HAND_DELTA))));
+		} });
+
+		final Map<String, InventoryJournalRollup> rollups = dao.getRollups(skuCodes, WAREHOUSE_UID);
+
+		assertEquals(2, rollups.size());
+		assertRollup(rollups.get("SKU1"), "SKU1", ALLOCATED_DELTA, ON_HAND_DELTA);
+		assertRollup(rollups.get("SKU2"), "SKU2", 0, 0);
+	}
+
+	/**
+	 * Test that more skus than fit in one list parameter are passed to the persistence engine in one call, and that the rollups of every
+	 * chunk it queried are returned.
+	 */
+	@Test
+	public void testGetRollupsOfMoreSkusThanFitInOneListParameter() {
+		final Set<String> skuCodes = new HashSet<String>();
+		final List<InventoryJournalRollup> rows = new ArrayList<InventoryJournalRollup>();
+		for (int i = 0; i < MANY_SKU_COUNT; i++) {
+			skuCodes.add("SKU" + i);
+			if (i % 2 == 0) {
+				rows.add(new InventoryJournalRollupImpl("SKU" + i, WAREHOUSE_UID, ALLOCATED_DELTA, ON_HAND_DELTA));
+			}
+		}
+		context.checking(new Expectations() { {
+			oneOf(persistenceEngine).retrieveByNamedQueryWithList(SUM_DELTAS_QUERY, "list", new ArrayList<String>(skuCodes), WAREHOUSE_UID);
+			will(returnValue(rows));
+		} });
+
+		final Map<String, InventoryJournalRollup> rollups = dao.getRollups(skuCodes, WAREHOUSE_UID);
+
+		assertEquals(MANY_SKU_COUNT, rollups.size());
+		assertRollup(rollups.get("SKU0"), "SKU0", ALLOCATED_DELTA, ON_HAND_DELTA);
+		assertRollup(rollups.get("SKU" + (MANY_SKU_COUNT - 2)), "SKU" + (MANY_SKU_COUNT - 2), ALLOCATED_DELTA, ON_HAND_DELTA);
+		assertRollup(rollups.get("SKU" + (MANY_SKU_COUNT - 1)), "SKU" + (MANY_SKU_COUNT - 1), 0, 0);
+	}
+
+	private void assertRollup(final InventoryJournalRollup rollup, final String skuCode, final int allocatedDelta, final int onHandDelta) {
+		assertEquals(skuCode, rollup.getInventoryKey().getSkuCode());
+		assertEquals(WAREHOUSE_UID, rollup.getInventoryKey().getWarehouseUid());
+		assertEquals(allocatedDelta, rollup.getAllocatedQuantityDelta());
+		assertEquals(onHandDelta, rollup.getQuantityOnHandDelta());
+	}
+}
@@ -0,0 +1,152 @@
+package com.elasticpath.inventory.strategy.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.OptimisticLockException;
+
+import org.apache.log4j.Level;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.orm.jpa.JpaOptimisticLockingFailureException;
+
+import com.elasticpath.inventory.InventoryKey;
+import com.elasticpath.inventory.log.impl.InventoryLogContext;
+import com.elasticpath.inventory.log.impl.InventoryLogSupport;
+import com.elasticpath.inventory.strategy.InventoryJournalRollupService;
+
+/**
+ * Test {@link InventoryJournalRollupJobImpl}.
+ */
+public class InventoryJournalRollupJobImplTest {
+
+	private static final int KEY_COUNT = 20;
+
+	private static final long WAREHOUSE_UID = 1L;
+
+	private final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+
+	private final List<InventoryKey> keys = new ArrayList<InventoryKey>();
+
+	private InventoryJournalRollupJobImpl job;
+
+	/**
+	 * Create the job with keys to roll up.
+	 */
+	@Before
+	public void setUp() {
+		for (int i = 0; i < KEY_COUNT; i++) {
+			keys.add(new InventoryKey("sku" + i, WAREHOUSE_UID));
+		}
+		job = new InventoryJournalRollupJobImpl();
+		job.setInventoryLogSupport(new InventoryLogSupport() {
+			@Override
+			public void log(final Level level, final String message, final InventoryLogContext logContext) {
+				messages.add(message);
+			}
+		});
+		job.setRetryBackoff(1L);
+	}
+
+	/**
+	 * Test that every key is rolled up exactly once.
+	 */
+	@Test
+	public void testRollsUpEveryKeyOnce() {
+		final ContendedRollupService service = new ContendedRollupService(0);
+		job.setInventoryJournalRollupService(service);
+		job.rollup();
+
+		assertEquals(KEY_COUNT, service.getRolledUpKeys().size());
+		for (InventoryKey key : keys) {
+			assertEquals(Integer.valueOf(1), service.getRolledUpKeys().get(key));
+		}
+		assertStatistics("RolledUpKeys=" + KEY_COUNT + ", SkippedKeys=0");
+	}
+
+	/**
+	 * Test that contended keys do not stop the rollup of the other keys, and are rolled up when retried.
+	 */
+	@Test
+	public void testRetriesContendedKeys() {
+		final ContendedRollupService service = new ContendedRollupService(2);
+		job.setInventoryJournalRollupService(service);
+		job.rollup();
+
+		assertEquals(KEY_COUNT, service.getRolledUpKeys().size());
+		assertStatistics("RolledUpKeys=" + KEY_COUNT + ", SkippedKeys=0");
+	}
+
+	/**
+	 * Test that keys still contended after the last retry are skipped.
+	 */
+	@Test
+	public void testSkipsKeysContendedAfterLastRetry() {
+		final ContendedRollupService service = new ContendedRollupService(2);
+		job.setInventoryJournalRollupService(service);
+		job.setMaxRetries(1);
+		job.rollup();
+
+		assertEquals(KEY_COUNT / 2, service.getRolledUpKeys().size());
+		assertTrue(messages.contains(InventoryLogContext.ROLLUP_SKIPPED_MSG));
+		assertStatistics("RolledUpKeys=" + KEY_COUNT / 2 + ", SkippedKeys=" + KEY_COUNT / 2);
+	}
+
+	private void assertStatistics(final String expected) {
+		for (String message : messages) {
+			if (message.startsWith(InventoryLogContext.ROLLUP_STATISTICS_MSG)) {
+				assertTrue(message, message.contains(expected));
+				return;
+			}
+		}
+		throw new AssertionError("No rollup statistics were logged: " + messages);
+	}
+
+	/**
+	 * Rollup service failing the first rollups of every second key with an optimistic lock failure.
+	 */
+	private class ContendedRollupService implements InventoryJournalRollupService {
+
+		private final int contendedAttempts;
+
+		private final Map<InventoryKey, Integer> attempts = new HashMap<InventoryKey, Integer>();
+
+		private final Map<InventoryKey, Integer> rolledUpKeys = new HashMap<InventoryKey, Integer>();
+
+		ContendedRollupService(final int contendedAttempts) {
+			this.contendedAttempts = contendedAttempts;
+		}
+
+		@Override
+		public List<InventoryKey> getAllInventoryKeys() {
+			return keys;
+		}
+
+		@Override
+		public synchronized void processRollup(final InventoryKey inventoryKey) {
+			int attempt = 1;
+			if (attempts.containsKey(inventoryKey)) {
+				attempt = attempts.get(inventoryKey) + 1;
+			}
+			attempts.put(inventoryKey, attempt);
+			if (keys.indexOf(inventoryKey) % 2 == 1 && attempt <= contendedAttempts) {
+				throw new JpaOptimisticLockingFailureException(new OptimisticLockException("contended " + inventoryKey));
+			}
+			Integer count = rolledUpKeys.get(inventoryKey);
+			if (count == null) {
+				count = 0;
+			}
+			rolledUpKeys.put(inventoryKey, count + 1);
+		}
+
+		public synchronized Map<InventoryKey, Integer> getRolledUpKeys() {
+			return rolledUpKeys;
+		}
+	}
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.inventory.strategy.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.elasticpath.inventory.InventoryDto;
+import com.elasticpath.inventory.InventoryKey;
+import com.elasticpath.inventory.dao.InventoryDao;
+import com.elasticpath.inventory.dao.InventoryJournalDao;
+import com.elasticpath.inventory.domain.Inventory;
+import com.elasticpath.inventory.domain.impl.InventoryImpl;
+import com.elasticpath.inventory.strategy.InventoryJournalRollup;
+
+/**
+ * Test {@link JournalingInventoryStrategy}.
+ */
+public class JournalingInventoryStrategyTest {
+
+	private static final long WAREHOUSE_1 = 1L;
+
+	private static final long WAREHOUSE_2 = 2L;
+
+	private static final int ON_HAND = 10;
+
+	private static final int ALLOCATED = 4;
+
+	private static final int ON_HAND_DELTA = -3;
+
+	private static final int ALLOCATED_DELTA = 2;
+
+	@Rule
+	public final JUnitRuleMockery context = new JUnitRuleMockery();
+
+	private final InventoryDao inventoryDao = context.mock(InventoryDao.class);
+
+	private final InventoryJournalDao inventoryJournalDao = context.mock(InventoryJournalDao.class);
+
+	private JournalingInventoryStrategy strategy;
+
+	/**
+	 * Create the strategy.
+	 */
+	@Before
+	public void setUp() {
+		strategy = new JournalingInventoryStrategy();
+		strategy.setInventoryDao(inventoryDao);
+		strategy.setInventoryJournalDao(inventoryJournalDao);
+	}
+
+	/**
+	 * Test that the inventories of many keys are read with one inventory query and one rollup query per warehouse, and include
+	 * their rollups.
+	 */
+	@Test
+	public void testGetInventoriesRollsUpEachWarehouseInOneQuery() {
+		final InventoryKey sku1InWarehouse1 = new InventoryKey("SKU1", WAREHOUSE_1);
+		final InventoryKey sku2InWarehouse1 = new InventoryKey("SKU2", WAREHOUSE_1);
+		final InventoryKey sku1InWarehouse2 = new InventoryKey("SKU1", WAREHOUSE_2);
+
+		final Map<String, Inventory> warehouse1Inventories = createInventoryMap(WAREHOUSE_1, "SKU1", "SKU2");
+		final Map<String, Inventory> warehouse2Inventories = createInventoryMap(WAREHOUSE_2, "SKU1");
+		final Map<String, InventoryJournalRollup> warehouse1Rollups = new HashMap<String, InventoryJournalRollup>();
+		warehouse1Rollups.put("SKU1", new InventoryJournalRollupImpl("SKU1", WAREHOUSE_1, ALLOCATED_DELTA, ON_HAND_DELTA));
+		warehouse1Rollups.put("SKU2", new InventoryJournalRollupImpl("SKU2", WAREHOUSE_1, 0L, 0L));
+		final Map<String, InventoryJournalRollup> warehouse2Rollups = Collections.<String, InventoryJournalRollup>singletonMap(
+				"SKU1", new InventoryJournalRollupImpl("SKU1", WAREHOUSE_2, 0L, ON_HAND_DELTA));
+
+		context.checking(new Expectations() { {
+			oneOf(inventoryDao).getInventoryMap(new HashSet<String>(Arrays.asList("SKU1", "SKU2")), WAREHOUSE_1);
+			will(returnValue(warehouse1Inventories));
+			oneOf(inventoryJournalDao).getRollups(warehouse1Inventories.keySet(), WAREHOUSE_1);
+			will(returnValue(warehouse1Rollups));
+			oneOf(inventoryDao).getInventoryMap(Collections.singleton("SKU1"), WAREHOUSE_2);
+			will(returnValue(warehouse2Inventories));
+			oneOf(inventoryJournalDao).getRollups(warehouse2Inventories.keySet(), WAREHOUSE_2);
+			will(returnValue(warehouse2Rollups));
+		} });
+
+		final Set<InventoryKey> keys = new HashSet<InventoryKey>(Arrays.asList(sku1InWarehouse1, sku2InWarehouse1, sku1InWarehouse2));
+		final Map<InventoryKey, InventoryDto> inventories = strategy.getInventories(keys);
+
+		assertEquals(keys, inventories.keySet());
+		assertQuantities(inventories.get(sku1InWarehouse1), ON_HAND + ON_HAND_DELTA, ALLOCATED + ALLOCATED_DELTA);
+		assertQuantities(inventories.get(sku2InWarehouse1), ON_HAND, ALLOCATED);
+		assertQuantities(inventories.get(sku1InWarehouse2), ON_HAND + ON_HAND_DELTA, ALLOCATED);
+	}
+
+	/**
+	 * Test that the inventories of skus in a warehouse are rolled up with a single query.
+	 */
+	@Test
+	public void testGetInventoriesForSkusInWarehouseRollsUpInOneQuery() {
+		final Set<String> skuCodes = new HashSet<String>(Arrays.asList("SKU1", "SKU2"));
+		final Map<String, Inventory> inventoryMap = createInventoryMap(WAREHOUSE_1, "SKU1", "SKU2");
+		final Map<String, InventoryJournalRollup> rollups = new HashMap<String, InventoryJournalRollup>();
+		rollups.put("SKU1", new InventoryJournalRollupImpl("SKU1", WAREHOUSE_1, 0L, 0L));
+		rollups.put("SKU2", new InventoryJournalRollupImpl("SKU2", WAREHOUSE_1, ALLOCATED_DELTA, ON_HAND_DELTA));
+
+		context.checking(new Expectations() { {
+			oneOf(inventoryDao).getInventoryMap(skuCodes, WAREHOUSE_1);
+			will(returnValue(inventoryMap));
+			oneOf(inventoryJournalDao).getRollups(inventoryMap.keySet(), WAREHOUSE_1);
+			will(returnValue(rollups));
+		} });
+
+		final Map<String, InventoryDto> inventories = strategy.getInventoriesForSkusInWarehouse(skuCodes, WAREHOUSE_1);
+
+		assertEquals(skuCodes, inventories.keySet());
+		assertQuantities(inventories.get("SKU1"), ON_HAND, ALLOCATED);
+		assertQuantities(inventories.get("SKU2"), ON_HAND + ON_HAND_DELTA, ALLOCATED + ALLOCATED_DELTA);
+	}
+
+	private Map<String, Inventory> createInventoryMap(final long warehouseUid, final String... skuCodes) {
+		final Map<String, Inventory> inventories = new HashMap<String, Inventory>();
+		for (String skuCode : skuCodes) {
+			final InventoryImpl inventory = new InventoryImpl();
+			inventory.setSkuCode(skuCode);
+			inventory.setWarehouseUid(warehouseUid);
+			inventory.setQuantityOnHand(ON_HAND);
+			inventory.setAllocatedQuantity(ALLOCATED);
+			inventories.put(skuCode, inventory);
+		}
+		return inventories;
+	}
+
+	private void assertQuantities(final InventoryDto inventory, final int quantityOnHand, final int allocatedQuantity) {
+		assertEquals(quantityOnHand, inventory.getQuantityOnHand());
+		assertEquals(allocatedQuantity, inventory.getAllocatedQuantity());
+	}
+}
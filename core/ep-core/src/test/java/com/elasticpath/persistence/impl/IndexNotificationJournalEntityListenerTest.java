@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.persistence.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collections;
+
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.elasticpath.commons.beanframework.BeanFactory;
+import com.elasticpath.commons.constants.ContextIdNames;
+import com.elasticpath.domain.catalog.impl.ProductImpl;
+import com.elasticpath.domain.catalog.impl.ProductSkuImpl;
+import com.elasticpath.domain.search.IndexNotification;
+import com.elasticpath.domain.search.IndexNotification.AffectedEntityType;
+import com.elasticpath.domain.search.UpdateType;
+import com.elasticpath.domain.search.impl.IndexNotificationImpl;
+import com.elasticpath.persistence.api.PersistenceEngine;
+import com.elasticpath.persistence.openjpa.ChangeType;
+import com.elasticpath.service.search.IndexType;
+import com.elasticpath.test.BeanFactoryExpectationsFactory;
+
+/**
+ * Test {@link IndexNotificationJournalEntityListener}.
+ */
+public class IndexNotificationJournalEntityListenerTest {
+
+	private static final long PRODUCT_UID = 42L;
+
+	@Rule
+	public final JUnitRuleMockery context = new JUnitRuleMockery();
+
+	private final BeanFactory beanFactory = context.mock(BeanFactory.class);
+
+	private final PersistenceEngine persistenceEngine = context.mock(PersistenceEngine.class);
+
+	private BeanFactoryExpectationsFactory expectationsFactory;
+
+	private IndexNotificationJournalEntityListener listener;
+
+	private IndexNotification notification;
+
+	/**
+	 * Set up a listener journalling the changes of products.
+	 */
+	@Before
+	public void setUp() {
+		notification = new IndexNotificationImpl();
+		expectationsFactory = new BeanFactoryExpectationsFactory(context, beanFactory);
+		expectationsFactory.allowingBeanFactoryGetBean(ContextIdNames.INDEX_NOTIFICATION, notification);
+		expectationsFactory.allowingBeanFactoryGetBean(ContextIdNames.PERSISTENCE_ENGINE, persistenceEngine);
+
+		listener = new IndexNotificationJournalEntityListener();
+		listener.setBeanFactory(beanFactory);
+		listener.setJournalledClasses(Collections.singletonMap(ProductImpl.class.getName(), IndexType.PRODUCT.getIndexName()));
+	}
+
+	@After
+	public void tearDown() {
+		expectationsFactory.close();
+	}
+
+	/**
+	 * Test that saving a journalled entity journals an update of it.
+	 */
+	@Test
+	public void testSaveJournalsUpdate() {
+		context.checking(new Expectations() { {
+			oneOf(persistenceEngine).save(notification);
+		} });
+
+		listener.endSingleOperation(createProduct(), ChangeType.UPDATE);
+
+		assertNotification(UpdateType.UPDATE);
+	}
+
+	/**
+	 * Test that deleting a journalled entity journals its deletion.
+	 */
+	@Test
+	public void testDeleteJournalsDelete() {
+		context.checking(new Expectations() { {
+			oneOf(persistenceEngine).save(notification);
+		} });
+
+		listener.endSingleOperation(createProduct(), ChangeType.DELETE);
+
+		assertNotification(UpdateType.DELETE);
+	}
+
+	/**
+	 * Test that entities which are not journalled, or which have no uid yet, are ignored.
+	 */
+	@Test
+	public void testUnjournalledAndUnpersistedEntitiesAreIgnored() {
+		final ProductSkuImpl sku = new ProductSkuImpl();
+		sku.setUidPk(PRODUCT_UID);
+		context.checking(new Expectations() { {
+			never(persistenceEngine).save(notification);
+		} });
+
+		listener.endSingleOperation(sku, ChangeType.UPDATE);
+		listener.endSingleOperation(new ProductImpl(), ChangeType.UPDATE);
+		listener.endSingleOperation(null, ChangeType.UPDATE);
+	}
+
+	private ProductImpl createProduct() {
+		final ProductImpl product = new ProductImpl();
+		product.setUidPk(PRODUCT_UID);
+		return product;
+	}
+
+	private void assertNotification(final UpdateType updateType) {
+		assertEquals(IndexType.PRODUCT, notification.getIndexType());
+		assertEquals(Long.valueOf(PRODUCT_UID), notification.getAffectedUid());
+		assertEquals(AffectedEntityType.SINGLE_UNIT, notification.getAffectedEntityType());
+		assertEquals(updateType, notification.getUpdateType());
+	}
+}
@@ -396,8 +396,8 @@ public class ProductInventoryShoppingServiceImplTest {
 		ProductInventoryShoppingServiceImpl service = new ProductInventoryShoppingServiceImpl();
 		context.checking(new Expectations() { {
 				allowing(inventoryDao).getInventoryMap(with(Collections.<String>emptySet()), with(any(Long.class)));
-	        	allowing(inventoryJournalDao).getRollup(with(any(InventoryKey.class)));
-	        	will(returnValue(new InventoryJournalRollupImpl()));
+	        	allowing(inventoryJournalDao).getRollups(with(Collections.<String>emptySet()), with(any(Long.class)));
+	        	will(returnValue(Collections.emptyMap()));
 			} });
 
 		final Store store = setUpStore();
@@ -449,8 +449,8 @@ public class ProductInventoryShoppingServiceImplTest {
 		final InventoryJournalDao inventoryJournalDao = context.mock(InventoryJournalDao.class);
 		context.checking(new Expectations() { {
 				allowing(inventoryDao).getInventoryMap(with(skuCodes), with(any(Long.class)));
-	        	allowing(inventoryJournalDao).getRollup(with(any(InventoryKey.class)));
-	        	will(returnValue(new InventoryJournalRollupImpl()));
+	        	allowing(inventoryJournalDao).getRollups(with(Collections.<String>emptySet()), with(any(Long.class)));
+	        	will(returnValue(Collections.emptyMap()));
 			} });
 
 		final Store store = setUpStore();
@@ -0,0 +1,255 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.service.catalog.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.elasticpath.persistence.api.EpPersistenceException;
+import com.elasticpath.persistence.api.PersistenceEngine;
+import com.elasticpath.service.misc.TimeService;
+
+/**
+ * Test that {@link CategoryHierarchyCache} loads, refreshes and rebuilds the category hierarchies of catalogs.
+ */
+public class CategoryHierarchyCacheTest {
+
+	private static final long CATALOG = 1L;
+
+	private static final long OTHER_CATALOG = 2L;
+
+	private static final long ROOT = 10L;
+
+	private static final long CHILD = 11L;
+
+	private static final long NEW_CHILD = 12L;
+
+	private static final long OTHER_ROOT = 20L;
+
+	private static final long UNKNOWN = 99L;
+
+	private static final long CHANGE_CHECK_INTERVAL = 200L;
+
+	private static final Date LOAD_DATE = new Date(1000000L);
+
+	private static final Date FIRST_CHECK_DATE = new Date(LOAD_DATE.getTime() + 1000L);
+
+	private static final Date SECOND_CHECK_DATE = new Date(FIRST_CHECK_DATE.getTime() + 1000L);
+
+	private static final String LIST = "list";
+
+	private static final String SELECT_BY_CATALOG_UIDS = "CATEGORY_HIERARCHY_SELECT_BY_CATALOG_UIDS";
+
+	private static final String CODES_SELECT_BY_CATALOG_UIDS = "CATEGORY_HIERARCHY_CODES_SELECT_BY_CATALOG_UIDS";
+
+	@Rule
+	public final JUnitRuleMockery context = new JUnitRuleMockery();
+
+	private final PersistenceEngine persistenceEngine = context.mock(PersistenceEngine.class);
+
+	private final TimeService timeService = context.mock(TimeService.class);
+
+	private CategoryHierarchyCache cache;
+
+	/**
+	 * Set up a cache of a catalog with a root and a child, and of a catalog with a root only.
+	 */
+	@Before
+	public void setUp() {
+		cache = new CategoryHierarchyCache();
+		cache.setPersistenceEngine(persistenceEngine);
+		cache.setTimeService(timeService);
+
+		context.checking(new Expectations() { {
+			oneOf(persistenceEngine).retrieveByNamedQuery("CATEGORY_HIERARCHY_SELECT_ALL");
+			will(returnValue(Arrays.asList(category(ROOT, null, CATALOG), category(CHILD, ROOT, CATALOG),
+					category(OTHER_ROOT, null, OTHER_CATALOG))));
+			oneOf(persistenceEngine).retrieveByNamedQuery("CATEGORY_HIERARCHY_CODES_SELECT_ALL");
+			will(returnValue(Arrays.asList(code(ROOT), code(CHILD), code(OTHER_ROOT))));
+		} });
+	}
+
+	/**
+	 * Clear the transaction synchronization a test may have left.
+	 */
+	@After
+	public void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	/**
+	 * Test that the hierarchies of all catalogs are loaded once, on first use.
+	 */
+	@Test
+	public void testHierarchiesAreLoadedOnFirstUse() {
+		allowLoadDate();
+
+		assertEquals(CATALOG, cache.findIndexForCategory(CHILD).getCatalogUid());
+		assertTrue(cache.findIndexForCategory(CHILD).isDescendant(CHILD, ROOT));
+		assertEquals(OTHER_CATALOG, cache.findIndexForCategory(OTHER_ROOT).getCatalogUid());
+		assertNull("Unknown categories should be left to the database", cache.findIndexForCategory(UNKNOWN));
+	}
+
+	/**
+	 * Test that an invalidated catalog is rebuilt alone on its next use.
+	 */
+	@Test
+	public void testInvalidatedCatalogIsRebuiltAlone() {
+		allowLoadDate();
+		cache.findIndexForCategory(ROOT);
+		expectRebuild(CATALOG);
+
+		cache.invalidateCatalog(CATALOG);
+
+		assertTrue(cache.findIndexForCategory(NEW_CHILD).isDescendant(NEW_CHILD, ROOT));
+		assertEquals(OTHER_CATALOG, cache.findIndexForCategory(OTHER_ROOT).getCatalogUid());
+	}
+
+	/**
+	 * Test that a catalog invalidated within a transaction is only rebuilt once the transaction commits.
+	 */
+	@Test
+	public void testInvalidationWaitsForCommit() {
+		allowLoadDate();
+		cache.findIndexForCategory(ROOT);
+
+		TransactionSynchronizationManager.initSynchronization();
+		cache.invalidateCatalog(CATALOG);
+		assertNull("The catalog should not be rebuilt before the change is committed", cache.findIndexForCategory(NEW_CHILD));
+
+		expectRebuild(CATALOG);
+		final List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		TransactionSynchronizationManager.clearSynchronization();
+		for (TransactionSynchronization synchronization : synchronizations) {
+			synchronization.afterCommit();
+		}
+
+		assertEquals(CATALOG, cache.findIndexForCategory(NEW_CHILD).getCatalogUid());
+	}
+
+	/**
+	 * Test that refreshing categories rebuilds the catalogs of known categories, and of unknown categories as found in the database.
+	 */
+	@Test
+	public void testRefreshedCategoriesRebuildTheirCatalogs() {
+		allowLoadDate();
+		cache.findIndexForCategory(ROOT);
+
+		expectRebuild(CATALOG);
+		cache.refreshCategories(Collections.singletonList(CHILD));
+		assertEquals(CATALOG, cache.findIndexForCategory(NEW_CHILD).getCatalogUid());
+
+		context.checking(new Expectations() { {
+			oneOf(persistenceEngine).retrieveByNamedQueryWithList("CATEGORY_CATALOG_UIDS_SELECT_BY_UIDS", LIST, Arrays.asList(UNKNOWN));
+			will(returnValue(Arrays.asList(OTHER_CATALOG)));
+			oneOf(persistenceEngine).retrieveByNamedQueryWithList(SELECT_BY_CATALOG_UIDS, LIST, Arrays.asList(OTHER_CATALOG));
+			will(returnValue(Arrays.asList(category(OTHER_ROOT, null, OTHER_CATALOG), category(UNKNOWN, OTHER_ROOT, OTHER_CATALOG))));
+			oneOf(persistenceEngine).retrieveByNamedQueryWithList(CODES_SELECT_BY_CATALOG_UIDS, LIST, Arrays.asList(OTHER_CATALOG));
+			will(returnValue(Arrays.asList(code(OTHER_ROOT), code(UNKNOWN))));
+		} });
+		cache.refreshCategories(Collections.singletonList(UNKNOWN));
+		assertEquals(OTHER_CATALOG, cache.findIndexForCategory(UNKNOWN).getCatalogUid());
+	}
+
+	/**
+	 * Test that a catalog that cannot be rebuilt is left to the database while the other catalogs keep their hierarchies.
+	 */
+	@Test
+	public void testCatalogFailingToRebuildIsLeftToTheDatabase() {
+		allowLoadDate();
+		cache.findIndexForCategory(ROOT);
+		context.checking(new Expectations() { {
+			oneOf(persistenceEngine).retrieveByNamedQueryWithList(SELECT_BY_CATALOG_UIDS, LIST, Arrays.asList(CATALOG));
+			will(throwException(new EpPersistenceException("database unavailable")));
+		} });
+
+		cache.invalidateCatalog(CATALOG);
+
+		assertNull(cache.findIndexForCategory(CHILD));
+		assertEquals(OTHER_CATALOG, cache.findIndexForCategory(OTHER_ROOT).getCatalogUid());
+	}
+
+	/**
+	 * Test that categories changed elsewhere are looked for once the check interval elapsed, from one interval before the previous
+	 * check, and that their catalogs are rebuilt.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for a check
+	 */
+	@Test
+	public void testChangesAreLookedForFromOneIntervalBeforeThePreviousCheck() throws InterruptedException {
+		cache.setChangeCheckInterval(CHANGE_CHECK_INTERVAL);
+		context.checking(new Expectations() { {
+			allowing(timeService).getCurrentTime();
+			will(onConsecutiveCalls(returnValue(LOAD_DATE), returnValue(FIRST_CHECK_DATE), returnValue(SECOND_CHECK_DATE)));
+		} });
+		cache.findIndexForCategory(ROOT);
+
+		context.checking(new Expectations() { {
+			oneOf(persistenceEngine).retrieveByNamedQuery("CATEGORY_UIDS_SELECT_BY_MODIFIED_DATE",
+					new Date(LOAD_DATE.getTime() - CHANGE_CHECK_INTERVAL));
+			will(returnValue(Arrays.asList(CHILD)));
+			oneOf(persistenceEngine).retrieveByNamedQuery("CATEGORY_UIDS_SELECT_BY_DELETED_DATE",
+					new Date(LOAD_DATE.getTime() - CHANGE_CHECK_INTERVAL));
+			will(returnValue(Collections.emptyList()));
+		} });
+		expectRebuild(CATALOG);
+		Thread.sleep(CHANGE_CHECK_INTERVAL + 1);
+		assertEquals(CATALOG, cache.findIndexForCategory(NEW_CHILD).getCatalogUid());
+
+		context.checking(new Expectations() { {
+			oneOf(persistenceEngine).retrieveByNamedQuery("CATEGORY_UIDS_SELECT_BY_MODIFIED_DATE",
+					new Date(FIRST_CHECK_DATE.getTime() - CHANGE_CHECK_INTERVAL));
+			will(returnValue(Collections.emptyList()));
+			oneOf(persistenceEngine).retrieveByNamedQuery("CATEGORY_UIDS_SELECT_BY_DELETED_DATE",
+					new Date(FIRST_CHECK_DATE.getTime() - CHANGE_CHECK_INTERVAL));
+			will(returnValue(Collections.emptyList()));
+		} });
+		Thread.sleep(CHANGE_CHECK_INTERVAL + 1);
+		assertEquals(OTHER_CATALOG, cache.findIndexForCategory(OTHER_ROOT).getCatalogUid());
+	}
+
+	private void allowLoadDate() {
+		context.checking(new Expectations() { {
+			allowing(timeService).getCurrentTime(); will(returnValue(LOAD_DATE));
+		} });
+	}
+
+	/**
+	 * Expects a catalog to be rebuilt once, with a new child under its root.
+	 */
+	private void expectRebuild(final long catalogUid) {
+		context.checking(new Expectations() { {
+			oneOf(persistenceEngine).retrieveByNamedQueryWithList(SELECT_BY_CATALOG_UIDS, LIST, Arrays.asList(catalogUid));
+			will(returnValue(Arrays.asList(category(ROOT, null, catalogUid), category(CHILD, ROOT, catalogUid),
+					category(NEW_CHILD, ROOT, catalogUid))));
+			oneOf(persistenceEngine).retrieveByNamedQueryWithList(CODES_SELECT_BY_CATALOG_UIDS, LIST, Arrays.asList(catalogUid));
+			will(returnValue(Arrays.asList(code(ROOT), code(CHILD), code(NEW_CHILD))));
+		} });
+	}
+
+	private static Object[] category(final long uid, final Long parentUid, final long catalogUid) {
+		return new Object[] { uid, parentUid, catalogUid };
+	}
+
+	private static Object[] code(final long uid) {
+		return new Object[] { uid, "code" + uid };
+	}
+}
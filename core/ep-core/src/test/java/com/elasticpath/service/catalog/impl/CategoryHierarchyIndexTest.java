@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.service.catalog.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test {@link CategoryHierarchyIndex} and the building of indexes by {@link CategoryHierarchyCache}.
+ */
+public class CategoryHierarchyIndexTest {
+
+	private static final long CATALOG_UID = 10L;
+
+	private static final long OTHER_CATALOG_UID = 20L;
+
+	private static final long ROOT = 100L;
+
+	private static final long CHILD = 50L;
+
+	private static final long LINKED_CHILD = 300L;
+
+	private static final long GRANDCHILD = 200L;
+
+	private static final long SIBLING = 70L;
+
+	private static final long OTHER_ROOT = 5L;
+
+	private static final long UNKNOWN = 999L;
+
+	private static final long OTHER_CATALOG_ROOT = 1000L;
+
+	private CategoryHierarchyIndex index;
+
+	/**
+	 * Build a catalog with a master root, a master and a linked child under it, a grandchild under the linked child and a second root.
+	 */
+	@Before
+	public void setUp() {
+		index = new CategoryHierarchyIndex.Builder(CATALOG_UID)
+				.addCategory(GRANDCHILD, LINKED_CHILD, "grandchild")
+				.addCategory(CHILD, ROOT, "child")
+				.addCategory(ROOT, 0L, "root")
+				.addCategory(LINKED_CHILD, ROOT, null)
+				.addCategory(SIBLING, CHILD, "sibling")
+				.addCategory(OTHER_ROOT, 0L, "otherRoot")
+				.build();
+	}
+
+	/**
+	 * Test that the descendants of a category are all the categories below it and no others.
+	 */
+	@Test
+	public void testDescendants() {
+		assertEquals(Arrays.asList(CHILD, SIBLING, LINKED_CHILD, GRANDCHILD), asList(index.getDescendantUids(ROOT)));
+		assertEquals(Arrays.asList(GRANDCHILD), asList(index.getDescendantUids(LINKED_CHILD)));
+		assertEquals(0, index.getDescendantUids(GRANDCHILD).length);
+		assertEquals(0, index.getDescendantUids(OTHER_ROOT).length);
+	}
+
+	/**
+	 * Test the interval check of descendants, which is neither reflexive nor symmetric.
+	 */
+	@Test
+	public void testIsDescendant() {
+		assertTrue(index.isDescendant(GRANDCHILD, ROOT));
+		assertTrue(index.isDescendant(GRANDCHILD, LINKED_CHILD));
+		assertFalse(index.isDescendant(ROOT, GRANDCHILD));
+		assertFalse(index.isDescendant(ROOT, ROOT));
+		assertFalse(index.isDescendant(GRANDCHILD, CHILD));
+		assertFalse(index.isDescendant(SIBLING, OTHER_ROOT));
+		assertFalse(index.isDescendant(UNKNOWN, ROOT));
+	}
+
+	/**
+	 * Test that ancestors are listed parent first, and that the ancestor codes leave out linked categories.
+	 */
+	@Test
+	public void testAncestors() {
+		assertArrayEquals(new long[] { LINKED_CHILD, ROOT }, index.getAncestorUids(GRANDCHILD));
+		assertEquals(0, index.getAncestorUids(ROOT).length);
+		assertEquals(ROOT, index.getParentUid(LINKED_CHILD));
+		assertEquals(0L, index.getParentUid(OTHER_ROOT));
+
+		assertEquals(new HashSet<String>(Arrays.asList("root")), index.getAncestorCodes(GRANDCHILD));
+		assertEquals(new HashSet<String>(Arrays.asList("root", "child")), index.getAncestorCodes(SIBLING));
+		assertTrue(index.getAncestorCodes(ROOT).isEmpty());
+	}
+
+	/**
+	 * Test that lookups of categories that are not in the index are rejected.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownCategoryIsRejected() {
+		assertFalse(index.contains(UNKNOWN));
+		index.getDescendantUids(UNKNOWN);
+	}
+
+	/**
+	 * Test that categories whose parents form a cycle are rejected rather than looping.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testCycleIsRejected() {
+		new CategoryHierarchyIndex.Builder(CATALOG_UID)
+				.addCategory(ROOT, 0L, "root")
+				.addCategory(CHILD, GRANDCHILD, "child")
+				.addCategory(GRANDCHILD, CHILD, "grandchild")
+				.build();
+	}
+
+	/**
+	 * Test that more categories than the initial capacity of the builder can be added, in a single deep branch.
+	 */
+	@Test
+	public void testDeepTree() {
+		final int depth = 1000;
+		final CategoryHierarchyIndex.Builder builder = new CategoryHierarchyIndex.Builder(CATALOG_UID);
+		for (long uid = 1; uid <= depth; uid++) {
+			builder.addCategory(uid, uid - 1, "c" + uid);
+		}
+		final CategoryHierarchyIndex deepIndex = builder.build();
+		assertEquals(depth, deepIndex.size());
+		assertEquals(depth - 1, deepIndex.getDescendantUids(1L).length);
+		assertEquals(depth - 1, deepIndex.getAncestorUids(depth).length);
+		assertTrue(deepIndex.isDescendant(depth, 1L));
+	}
+
+	/**
+	 * Test that query rows are split into one index per catalog, and that a catalog that does not form a tree is left out.
+	 */
+	@Test
+	public void testBuildIndexes() {
+		final List<Object[]> categories = new ArrayList<Object[]>();
+		categories.add(new Object[] { ROOT, null, CATALOG_UID });
+		categories.add(new Object[] { LINKED_CHILD, ROOT, CATALOG_UID });
+		categories.add(new Object[] { OTHER_CATALOG_ROOT, null, OTHER_CATALOG_UID });
+		categories.add(new Object[] { UNKNOWN, GRANDCHILD, OTHER_CATALOG_UID });
+		final List<Object[]> codes = new ArrayList<Object[]>();
+		codes.add(new Object[] { ROOT, "root" });
+
+		final Map<Long, CategoryHierarchyIndex> indexes = CategoryHierarchyCache.buildIndexes(categories, codes);
+		assertEquals(1, indexes.size());
+		final CategoryHierarchyIndex catalogIndex = indexes.get(CATALOG_UID);
+		assertTrue(catalogIndex.isDescendant(LINKED_CHILD, ROOT));
+		assertEquals(new HashSet<String>(Arrays.asList("root")), catalogIndex.getAncestorCodes(LINKED_CHILD));
+	}
+
+	private static List<Long> asList(final long[] uids) {
+		final List<Long> list = new ArrayList<Long>(uids.length);
+		for (long uid : uids) {
+			list.add(uid);
+		}
+		return list;
+	}
+}
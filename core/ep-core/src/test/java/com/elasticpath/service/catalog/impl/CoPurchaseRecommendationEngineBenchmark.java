@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.service.catalog.impl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Benchmark of {@link CoPurchaseRecommendationEngine} counting a synthetic order history from scratch and updating it after a small
+ * share of customers changed their purchases. It is not a test, so that it does not slow down every build; run its main method to
+ * log the durations.
+ */
+public final class CoPurchaseRecommendationEngineBenchmark {
+
+	private static final Logger LOG = Logger.getLogger(CoPurchaseRecommendationEngineBenchmark.class);
+
+	private static final int CUSTOMER_COUNT = 50000;
+
+	private static final int PRODUCT_COUNT = 5000;
+
+	private CoPurchaseRecommendationEngineBenchmark() {
+		// run from main
+	}
+
+	/**
+	 * Runs the benchmark. The updated recommendations must match recommendations computed from scratch.
+	 *
+	 * @param args ignored
+	 */
+	public static void main(final String[] args) {
+		final Random random = new Random(CoPurchaseRecommendationEngineTest.SEED);
+		final List<Object[]> purchases = CoPurchaseRecommendationEngineTest.createPurchases(random, CUSTOMER_COUNT, PRODUCT_COUNT);
+		final int purchaseCount = purchases.size();
+		final ExecutorService executor = Executors.newFixedThreadPool(CoPurchaseRecommendationEngineTest.PARTITION_COUNT);
+		try {
+			long start = System.currentTimeMillis();
+			final CoPurchaseRecommendationEngine engine = new CoPurchaseRecommendationEngine(CoPurchaseRecommendationEngineTest.PARTITION_COUNT);
+			engine.replacePurchases(Collections.<Long>emptyList(), purchases);
+			engine.countPendingChanges(executor);
+			final Map<Long, List<Long>> recommendations = engine.takeChangedRecommendations(CoPurchaseRecommendationEngineTest.MAX_RECOMMENDATIONS);
+			final long fullMillis = System.currentTimeMillis() - start;
+
+			final Set<Long> changedCustomers = CoPurchaseRecommendationEngineTest.chooseCustomers(random, CUSTOMER_COUNT);
+			final List<Object[]> changedPurchases = CoPurchaseRecommendationEngineTest.changePurchases(random, purchases, changedCustomers,
+					PRODUCT_COUNT);
+			start = System.currentTimeMillis();
+			engine.replacePurchases(changedCustomers, changedPurchases);
+			engine.countPendingChanges(executor);
+			final Map<Long, List<Long>> changedRecommendations = engine.takeChangedRecommendations(
+					CoPurchaseRecommendationEngineTest.MAX_RECOMMENDATIONS);
+			final long incrementalMillis = System.currentTimeMillis() - start;
+
+			LOG.info("Counted " + purchaseCount + " purchases of " + CUSTOMER_COUNT + " customers in " + fullMillis
+					+ " ms, updated " + changedRecommendations.size() + " recommendations of " + changedCustomers.size() + " changed customers in "
+					+ incrementalMillis + " ms");
+			recommendations.putAll(changedRecommendations);
+			CoPurchaseRecommendationEngineTest.removeEmptyRecommendations(recommendations);
+			if (!CoPurchaseRecommendationEngineTest.computeRecommendations(purchases).equals(recommendations)) {
+				throw new IllegalStateException("Incrementally updated recommendations differ from recommendations computed from scratch");
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -0,0 +1,266 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.service.catalog.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+/**
+ * Test {@link CoPurchaseRecommendationEngine} against recommendations computed from scratch. The synthetic order history helpers are
+ * shared with {@link CoPurchaseRecommendationEngineBenchmark}.
+ */
+public class CoPurchaseRecommendationEngineTest {
+
+	static final int MAX_RECOMMENDATIONS = 4;
+
+	static final int PARTITION_COUNT = 4;
+
+	static final long SEED = 42L;
+
+	private static final int CUSTOMER_COUNT = 2000;
+
+	private static final int PRODUCT_COUNT = 300;
+
+	private static final int MAX_PURCHASES_PER_CUSTOMER = 8;
+
+	private static final int CHANGED_CUSTOMERS_PERCENT = 2;
+
+	private static final int PERCENT = 100;
+
+	private static final int CUSTOMERS = 3;
+
+	private static final int RECOMMENDED_PRODUCTS = 4;
+
+	private static final int RECOMMENDED_PRODUCTS_AT_MOST_ONE = 3;
+
+	private static final long CUSTOMER1 = 100L;
+
+	private static final long CUSTOMER2 = 101L;
+
+	private static final long CUSTOMER3 = 102L;
+
+	private static final long PRODUCT1 = 1000L;
+
+	private static final long PRODUCT2 = 1001L;
+
+	private static final long PRODUCT3 = 1002L;
+
+	private static final long PRODUCT4 = 1003L;
+
+	/**
+	 * Test that products bought by more customers together are recommended first, ties ranked by uid, and that repeated purchases
+	 * count once.
+	 */
+	@Test
+	public void testRecommendationsAreRankedByCoPurchases() {
+		final CoPurchaseRecommendationEngine engine = new CoPurchaseRecommendationEngine(1);
+		engine.replacePurchases(Collections.<Long>emptyList(), Arrays.asList(
+				purchase(CUSTOMER1, PRODUCT1), purchase(CUSTOMER1, PRODUCT3), purchase(CUSTOMER1, PRODUCT3), purchase(CUSTOMER1, PRODUCT4),
+				purchase(CUSTOMER2, PRODUCT1), purchase(CUSTOMER2, PRODUCT4), purchase(CUSTOMER2, PRODUCT2),
+				purchase(CUSTOMER3, PRODUCT3)));
+		engine.countPendingChanges(null);
+
+		final Map<Long, List<Long>> recommendations = engine.takeChangedRecommendations(MAX_RECOMMENDATIONS);
+		assertEquals(Arrays.asList(PRODUCT4, PRODUCT2, PRODUCT3), recommendations.get(PRODUCT1));
+		assertEquals(Arrays.asList(PRODUCT1, PRODUCT4), recommendations.get(PRODUCT3));
+		assertEquals(RECOMMENDED_PRODUCTS, recommendations.size());
+		assertEquals(CUSTOMERS, engine.getCustomerCount());
+	}
+
+	/**
+	 * Test that only recommendations that changed are taken, and that customers without purchases any more take their co-purchases
+	 * with them.
+	 */
+	@Test
+	public void testOnlyChangedRecommendationsAreTaken() {
+		final CoPurchaseRecommendationEngine engine = new CoPurchaseRecommendationEngine(1);
+		final List<Object[]> customer2Purchases = Arrays.asList(
+				purchase(CUSTOMER2, PRODUCT2), purchase(CUSTOMER2, PRODUCT3), purchase(CUSTOMER2, PRODUCT4));
+		final List<Object[]> purchases = new ArrayList<Object[]>(customer2Purchases);
+		purchases.add(purchase(CUSTOMER1, PRODUCT1));
+		purchases.add(purchase(CUSTOMER1, PRODUCT2));
+		engine.replacePurchases(Collections.<Long>emptyList(), purchases);
+		engine.countPendingChanges(null);
+		assertEquals(RECOMMENDED_PRODUCTS, engine.takeChangedRecommendations(MAX_RECOMMENDATIONS).size());
+
+		engine.replacePurchases(Arrays.asList(CUSTOMER1, CUSTOMER2), customer2Purchases);
+		assertEquals(1, engine.getPendingChangeCount());
+		engine.countPendingChanges(null);
+		final Map<Long, List<Long>> changedRecommendations = engine.takeChangedRecommendations(MAX_RECOMMENDATIONS);
+		assertEquals(new HashSet<Long>(Arrays.asList(PRODUCT1, PRODUCT2)), changedRecommendations.keySet());
+		assertTrue(changedRecommendations.get(PRODUCT1).isEmpty());
+		assertEquals(Arrays.asList(PRODUCT3, PRODUCT4), changedRecommendations.get(PRODUCT2));
+
+		assertTrue(engine.takeChangedRecommendations(MAX_RECOMMENDATIONS).isEmpty());
+		assertEquals(RECOMMENDED_PRODUCTS_AT_MOST_ONE, engine.takeChangedRecommendations(1).size());
+	}
+
+	/**
+	 * Test that recommendations updated incrementally, counted in parallel partitions, are the same as recommendations computed from
+	 * scratch for the final purchases.
+	 */
+	@Test
+	public void testIncrementalUpdatesMatchRecommendationsFromScratch() {
+		final Random random = new Random(SEED);
+		final List<Object[]> purchases = createPurchases(random, CUSTOMER_COUNT, PRODUCT_COUNT);
+		final ExecutorService executor = Executors.newFixedThreadPool(PARTITION_COUNT);
+		try {
+			final CoPurchaseRecommendationEngine engine = new CoPurchaseRecommendationEngine(PARTITION_COUNT);
+			engine.replacePurchases(Collections.<Long>emptyList(), purchases);
+			engine.countPendingChanges(executor);
+			final Map<Long, List<Long>> recommendations = engine.takeChangedRecommendations(MAX_RECOMMENDATIONS);
+			assertEquals(computeRecommendations(purchases), recommendations);
+
+			final Set<Long> changedCustomers = chooseCustomers(random, CUSTOMER_COUNT);
+			engine.replacePurchases(changedCustomers, changePurchases(random, purchases, changedCustomers, PRODUCT_COUNT));
+			engine.countPendingChanges(executor);
+			recommendations.putAll(engine.takeChangedRecommendations(MAX_RECOMMENDATIONS));
+			removeEmptyRecommendations(recommendations);
+			assertEquals(computeRecommendations(purchases), recommendations);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static Object[] purchase(final long customerUid, final long productUid) {
+		return new Object[] { customerUid, productUid };
+	}
+
+	/**
+	 * Creates the purchases of the given number of customers, who bought one to a few products each.
+	 */
+	static List<Object[]> createPurchases(final Random random, final int customerCount, final int productCount) {
+		final List<Object[]> purchases = new ArrayList<Object[]>();
+		for (long customer = 0; customer < customerCount; customer++) {
+			addPurchases(random, purchases, customer, productCount);
+		}
+		return purchases;
+	}
+
+	/**
+	 * Adds products to customers, skewed towards low product uids the way a few products sell best.
+	 */
+	private static void addPurchases(final Random random, final List<Object[]> purchases, final long customer, final int productCount) {
+		final int purchaseCount = 1 + random.nextInt(MAX_PURCHASES_PER_CUSTOMER);
+		for (int i = 0; i < purchaseCount; i++) {
+			purchases.add(purchase(customer, (long) (productCount * random.nextDouble() * random.nextDouble())));
+		}
+	}
+
+	/**
+	 * Chooses a small share of the given number of customers to change their purchases.
+	 */
+	static Set<Long> chooseCustomers(final Random random, final int customerCount) {
+		final Set<Long> customers = new HashSet<Long>();
+		for (long customer = 0; customer < customerCount; customer++) {
+			if (random.nextInt(PERCENT) < CHANGED_CUSTOMERS_PERCENT) {
+				customers.add(customer);
+			}
+		}
+		return customers;
+	}
+
+	/**
+	 * Keeps some of the purchases of the given customers and adds new ones to some of them, leaving others with no purchases.
+	 *
+	 * @return the new purchases of the given customers
+	 */
+	static List<Object[]> changePurchases(final Random random, final List<Object[]> purchases, final Set<Long> changedCustomers,
+			final int productCount) {
+		final List<Object[]> changedPurchases = new ArrayList<Object[]>();
+		final List<Object[]> unchangedPurchases = new ArrayList<Object[]>();
+		for (Object[] purchase : purchases) {
+			if (!changedCustomers.contains(purchase[0])) {
+				unchangedPurchases.add(purchase);
+			} else if (random.nextBoolean()) {
+				changedPurchases.add(purchase);
+			}
+		}
+		for (Long customer : changedCustomers) {
+			if (random.nextBoolean()) {
+				addPurchases(random, changedPurchases, customer, productCount);
+			}
+		}
+		purchases.clear();
+		purchases.addAll(unchangedPurchases);
+		purchases.addAll(changedPurchases);
+		return changedPurchases;
+	}
+
+	/**
+	 * Computes recommendations from scratch with boxed maps, ranking products by co-purchases and then by uid.
+	 */
+	static Map<Long, List<Long>> computeRecommendations(final List<Object[]> purchases) {
+		final Map<Long, Set<Long>> customerProducts = new HashMap<Long, Set<Long>>();
+		for (Object[] purchase : purchases) {
+			Set<Long> products = customerProducts.get(purchase[0]);
+			if (products == null) {
+				products = new HashSet<Long>();
+				customerProducts.put((Long) purchase[0], products);
+			}
+			products.add((Long) purchase[1]);
+		}
+
+		final Map<Long, Map<Long, Integer>> coPurchaseCounts = new HashMap<Long, Map<Long, Integer>>();
+		for (Set<Long> products : customerProducts.values()) {
+			for (Long product : products) {
+				for (Long coPurchasedProduct : products) {
+					if (!product.equals(coPurchasedProduct)) {
+						Map<Long, Integer> counts = coPurchaseCounts.get(product);
+						if (counts == null) {
+							counts = new HashMap<Long, Integer>();
+							coPurchaseCounts.put(product, counts);
+						}
+						final Integer count = counts.get(coPurchasedProduct);
+						if (count == null) {
+							counts.put(coPurchasedProduct, 1);
+						} else {
+							counts.put(coPurchasedProduct, count + 1);
+						}
+					}
+				}
+			}
+		}
+
+		final Map<Long, List<Long>> recommendations = new HashMap<Long, List<Long>>();
+		for (Map.Entry<Long, Map<Long, Integer>> entry : coPurchaseCounts.entrySet()) {
+			final Map<Long, Integer> counts = entry.getValue();
+			final List<Long> products = new ArrayList<Long>(counts.keySet());
+			Collections.sort(products, new Comparator<Long>() {
+				@Override
+				public int compare(final Long product1, final Long product2) {
+					final int countOrder = counts.get(product2).compareTo(counts.get(product1));
+					if (countOrder != 0) {
+						return countOrder;
+					}
+					return product1.compareTo(product2);
+				}
+			});
+			recommendations.put(entry.getKey(), new ArrayList<Long>(products.subList(0, Math.min(MAX_RECOMMENDATIONS, products.size()))));
+		}
+		return recommendations;
+	}
+
+	/**
+	 * Removes the products left with no recommendations, which recommendations computed from scratch do not contain.
+	 */
+	static void removeEmptyRecommendations(final Map<Long, List<Long>> recommendations) {
+		recommendations.values().removeAll(Collections.singleton(Collections.<Long>emptyList()));
+	}
+}
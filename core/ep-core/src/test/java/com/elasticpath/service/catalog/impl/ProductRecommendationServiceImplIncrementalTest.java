@@ -0,0 +1,340 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.service.catalog.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.action.CustomAction;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.elasticpath.domain.catalog.Catalog;
+import com.elasticpath.domain.catalog.Product;
+import com.elasticpath.domain.catalog.impl.ProductImpl;
+import com.elasticpath.domain.store.Store;
+import com.elasticpath.persistence.api.PersistenceEngine;
+import com.elasticpath.service.misc.TimeService;
+import com.elasticpath.service.query.IdentifierType;
+import com.elasticpath.service.query.QueryCriteria;
+import com.elasticpath.service.query.QueryService;
+import com.elasticpath.service.query.Relation;
+import com.elasticpath.service.query.impl.QueryResultImpl;
+import com.elasticpath.service.store.StoreService;
+
+/**
+ * Test that {@link ProductRecommendationServiceImpl} updates recommendations incrementally from the customers whose orders changed.
+ */
+public class ProductRecommendationServiceImplIncrementalTest {
+
+	private static final String STORE_CODE = "STORE";
+
+	private static final long CATALOG_UID = 7L;
+
+	private static final int BATCH_SIZE = 2;
+
+	private static final int MAX_RECOMMENDATIONS = 4;
+
+	private static final int HISTORY_DAYS = 30;
+
+	private static final Long CUSTOMER1 = 100L;
+
+	private static final Long CUSTOMER2 = 101L;
+
+	private static final Long CUSTOMER3 = 102L;
+
+	private static final Long CUSTOMER4 = 103L;
+
+	private static final Long PRODUCT1 = 1000L;
+
+	private static final Long PRODUCT2 = 1001L;
+
+	private static final Long PRODUCT3 = 1002L;
+
+	private static final Long PRODUCT4 = 1003L;
+
+	private static final Long PRODUCT5 = 1004L;
+
+	private static final Long PRODUCT6 = 1005L;
+
+	private static final String CUSTOMER_PRODUCTS_PURCHASED = "CUSTOMER_PRODUCTS_PURCHASED";
+
+	private static final String MODIFIED_SINCE = "CUSTOMER_UIDS_WITH_ORDERS_MODIFIED_SINCE";
+
+	private static final String CREATED_BETWEEN = "CUSTOMER_UIDS_WITH_ORDERS_CREATED_BETWEEN";
+
+	@Rule
+	public final JUnitRuleMockery context = new JUnitRuleMockery();
+
+	private final PersistenceEngine persistenceEngine = context.mock(PersistenceEngine.class);
+
+	private final StoreService storeService = context.mock(StoreService.class);
+
+	private final TimeService timeService = context.mock(TimeService.class);
+
+	@SuppressWarnings("unchecked")
+	private final QueryService<Product> productQueryService = context.mock(QueryService.class);
+
+	private final Store store = context.mock(Store.class);
+
+	private final Catalog catalog = context.mock(Catalog.class);
+
+	/** The products bought by each customer, as read by the purchase queries. */
+	private final Map<Long, List<Long>> orderHistory = new HashMap<Long, List<Long>>();
+
+	/** The recommended products each source product was updated with, empty when all its recommendations were deleted. */
+	private final Map<Long, List<Long>> updatedRecommendations = new HashMap<Long, List<Long>>();
+
+	private final List<Collection<Long>> customerBatches = new ArrayList<Collection<Long>>();
+
+	private final List<Collection<Long>> productBatches = new ArrayList<Collection<Long>>();
+
+	private final List<Long> changedCustomers = new ArrayList<Long>();
+
+	private int fullHistoryReads;
+
+	private Date now = new Date();
+
+	private ProductRecommendationServiceImpl service;
+
+	/**
+	 * Set up an incrementally updating service reading a fake order history.
+	 */
+	@Before
+	public void setUp() {
+		service = new ProductRecommendationServiceImpl() {
+			@Override
+			int getMaxOrderHistoryDays(final String storeCode) {
+				return HISTORY_DAYS;
+			}
+			@Override
+			int getMaxRecommendations(final String storeCode) {
+				return MAX_RECOMMENDATIONS;
+			}
+		};
+		service.setPersistenceEngine(persistenceEngine);
+		service.setStoreService(storeService);
+		service.setTimeService(timeService);
+		service.setProductQueryService(productQueryService);
+		service.setIncrementalRecommendations(true);
+		service.setBatchSize(BATCH_SIZE);
+
+		context.checking(new Expectations() { {
+			allowing(store).getCode(); will(returnValue(STORE_CODE));
+			allowing(store).getCatalog(); will(returnValue(catalog));
+			allowing(catalog).getUidPk(); will(returnValue(CATALOG_UID));
+			allowing(catalog).getCode(); will(returnValue("CATALOG"));
+			allowing(storeService).findAllCompleteStores(); will(returnValue(Collections.singletonList(store)));
+			allowing(timeService).getCurrentTime(); will(new CustomAction("current time") {
+				public Object invoke(final Invocation invocation) {
+					return now;
+				}
+			});
+
+			allowing(persistenceEngine).retrieveByNamedQuery(with(equal(CUSTOMER_PRODUCTS_PURCHASED)), with(any(Object[].class)));
+			will(new CustomAction("read the whole order history") {
+				public Object invoke(final Invocation invocation) {
+					fullHistoryReads++;
+					return readPurchases(orderHistory.keySet());
+				}
+			});
+			allowing(persistenceEngine).retrieveByNamedQuery(with(equal(CREATED_BETWEEN)), with(any(Object[].class)));
+			will(returnValue(Collections.emptyList()));
+			allowing(persistenceEngine).retrieveByNamedQueryWithList(with(equal("CUSTOMER_PRODUCTS_PURCHASED_BY_CUSTOMER_UIDS")),
+					with(equal("list")), with(any(Collection.class)), with(any(Object[].class)));
+			will(new CustomAction("read the orders of customers") {
+				@SuppressWarnings("unchecked")
+				public Object invoke(final Invocation invocation) {
+					final Collection<Long> customers = new ArrayList<Long>((Collection<Long>) invocation.getParameter(2));
+					customerBatches.add(customers);
+					return readPurchases(customers);
+				}
+			});
+
+			allowing(productQueryService).query(with(any(QueryCriteria.class)));
+			will(new CustomAction("load products") {
+				public Object invoke(final Invocation invocation) {
+					return loadProducts((QueryCriteria<?>) invocation.getParameter(0));
+				}
+			});
+			allowing(persistenceEngine).retrieveByNamedQueryWithList(with(equal("FILTER_EXISTING_PRODUCTASSOCIATIONS_IN_CATALOG")),
+					with(equal("list")), with(any(Collection.class)), with(any(Object[].class)));
+			will(new CustomAction("all recommendations exist") {
+				public Object invoke(final Invocation invocation) {
+					return new ArrayList<Object>((Collection<?>) invocation.getParameter(2));
+				}
+			});
+			allowing(persistenceEngine).executeNamedQueryWithList(with(equal("DELETE_OBSOLETE_PRODUCTASSOCIATIONS")),
+					with(equal("list")), with(any(Collection.class)), with(any(Object[].class)));
+			will(new CustomAction("delete obsolete recommendations") {
+				@SuppressWarnings("unchecked")
+				public Object invoke(final Invocation invocation) {
+					final Object[] parameters = (Object[]) invocation.getParameter(3);
+					updatedRecommendations.put((Long) parameters[0], new ArrayList<Long>((Collection<Long>) invocation.getParameter(2)));
+					return 0;
+				}
+			});
+			allowing(persistenceEngine).executeNamedQuery(with(equal("DELETE_PRODUCTASSOCIATIONS_BY_SOURCE_PRODUCT_IN_CATALOG")),
+					with(any(Object[].class)));
+			will(new CustomAction("delete all recommendations") {
+				public Object invoke(final Invocation invocation) {
+					final Object[] parameters = (Object[]) invocation.getParameter(1);
+					updatedRecommendations.put((Long) parameters[0], Collections.<Long>emptyList());
+					return 0;
+				}
+			});
+		} });
+	}
+
+	/**
+	 * Clear the transaction synchronization a test may have left.
+	 */
+	@After
+	public void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	/**
+	 * Test that the first update reads the whole order history, and that the next update reads only the changed customers in batches
+	 * and updates only the products whose recommendations changed, deleting all the recommendations of a product left with none.
+	 */
+	@Test
+	public void testIncrementalUpdateReadsChangedCustomersInBatches() {
+		buy(CUSTOMER1, PRODUCT1, PRODUCT2);
+		buy(CUSTOMER2, PRODUCT1, PRODUCT3);
+		buy(CUSTOMER4, PRODUCT5, PRODUCT6);
+		final Date firstUpdate = now;
+		service.updateRecommendations();
+
+		assertEquals(1, fullHistoryReads);
+		final Map<Long, List<Long>> expected = new HashMap<Long, List<Long>>();
+		expected.put(PRODUCT1, Arrays.asList(PRODUCT2, PRODUCT3));
+		expected.put(PRODUCT2, Arrays.asList(PRODUCT1));
+		expected.put(PRODUCT3, Arrays.asList(PRODUCT1));
+		expected.put(PRODUCT5, Arrays.asList(PRODUCT6));
+		expected.put(PRODUCT6, Arrays.asList(PRODUCT5));
+		assertEquals(expected, updatedRecommendations);
+		assertBatches(expected.keySet(), productBatches);
+
+		orderHistory.remove(CUSTOMER2);
+		buy(CUSTOMER3, PRODUCT2, PRODUCT4);
+		changedCustomers.addAll(Arrays.asList(CUSTOMER1, CUSTOMER2, CUSTOMER3));
+		updatedRecommendations.clear();
+		productBatches.clear();
+		now = new Date(firstUpdate.getTime() + 1);
+		context.checking(new Expectations() { {
+			oneOf(persistenceEngine).retrieveByNamedQuery(MODIFIED_SINCE, firstUpdate, STORE_CODE);
+			will(returnValue(changedCustomers));
+		} });
+		service.updateRecommendations();
+
+		assertEquals("The whole order history should be read only once", 1, fullHistoryReads);
+		assertBatches(new HashSet<Long>(changedCustomers), customerBatches);
+		expected.clear();
+		expected.put(PRODUCT1, Arrays.asList(PRODUCT2));
+		expected.put(PRODUCT2, Arrays.asList(PRODUCT1, PRODUCT4));
+		expected.put(PRODUCT3, Collections.<Long>emptyList());
+		expected.put(PRODUCT4, Arrays.asList(PRODUCT2));
+		assertEquals(expected, updatedRecommendations);
+		assertBatches(expected.keySet(), productBatches);
+	}
+
+	/**
+	 * Test that the co-purchases of an update are kept for the next update only once its transaction commits.
+	 */
+	@Test
+	public void testCoPurchasesAreKeptOnlyAfterCommit() {
+		buy(CUSTOMER1, PRODUCT1, PRODUCT2);
+		context.checking(new Expectations() { {
+			oneOf(persistenceEngine).retrieveByNamedQuery(with(equal(MODIFIED_SINCE)), with(any(Object[].class)));
+			will(returnValue(Collections.emptyList()));
+		} });
+
+		TransactionSynchronizationManager.initSynchronization();
+		service.updateRecommendations();
+		completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+		TransactionSynchronizationManager.initSynchronization();
+		service.updateRecommendations();
+		assertEquals("A rolled back update should be redone from the whole order history", 2, fullHistoryReads);
+		completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+		service.updateRecommendations();
+		assertEquals("A committed update should be continued incrementally", 2, fullHistoryReads);
+	}
+
+	private void buy(final Long customer, final Long... products) {
+		orderHistory.put(customer, Arrays.asList(products));
+	}
+
+	private List<Object[]> readPurchases(final Collection<Long> customers) {
+		final List<Object[]> purchases = new ArrayList<Object[]>();
+		for (Long customer : customers) {
+			if (orderHistory.containsKey(customer)) {
+				for (Long product : orderHistory.get(customer)) {
+					purchases.add(new Object[] { customer, product });
+				}
+			}
+		}
+		return purchases;
+	}
+
+	@SuppressWarnings("unchecked")
+	private QueryResultImpl<Product> loadProducts(final QueryCriteria<?> criteria) {
+		final List<Product> products = new ArrayList<Product>();
+		for (Relation<?> relation : criteria.getRelations()) {
+			final Collection<Long> uids = new ArrayList<Long>((Collection<Long>) relation.getValuesForIdentifier(IdentifierType.UID));
+			productBatches.add(uids);
+			for (Long uid : uids) {
+				final ProductImpl product = new ProductImpl();
+				product.setUidPk(uid);
+				products.add(product);
+			}
+		}
+		final QueryResultImpl<Product> result = new QueryResultImpl<Product>();
+		result.setResults(products);
+		return result;
+	}
+
+	private void assertBatches(final Set<Long> expected, final List<Collection<Long>> batches) {
+		final Set<Long> batched = new HashSet<Long>();
+		for (Collection<Long> batch : batches) {
+			assertTrue("Batch " + batch + " is larger than " + BATCH_SIZE, batch.size() <= BATCH_SIZE);
+			batched.addAll(batch);
+		}
+		assertEquals(expected, batched);
+		assertEquals((expected.size() + BATCH_SIZE - 1) / BATCH_SIZE, batches.size());
+	}
+
+	private void completeTransaction(final int status) {
+		final List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		TransactionSynchronizationManager.clearSynchronization();
+		for (TransactionSynchronization synchronization : synchronizations) {
+			if (status == TransactionSynchronization.STATUS_COMMITTED) {
+				synchronization.afterCommit();
+			}
+			synchronization.afterCompletion(status);
+		}
+	}
+}
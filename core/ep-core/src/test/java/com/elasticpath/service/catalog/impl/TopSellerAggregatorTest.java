@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.service.catalog.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test {@link TopSellerAggregator}.
+ */
+public class TopSellerAggregatorTest {
+
+	private static final int MAX_TOP_SELLER_COUNT = 3;
+
+	private static final long ROOT = 1L;
+
+	private static final long CHILD = 2L;
+
+	private static final long GRANDCHILD = 3L;
+
+	private static final long SIBLING = 4L;
+
+	private static final long UNKNOWN = 99L;
+
+	private static final long PRODUCT_A = 10L;
+
+	private static final long PRODUCT_B = 20L;
+
+	private static final long PRODUCT_C = 30L;
+
+	private static final long PRODUCT_D = 40L;
+
+	private static final int NO_SALES = 0;
+
+	private static final int FEW_SALES = 5;
+
+	private static final int SOME_SALES = 7;
+
+	private static final int MANY_SALES = 9;
+
+	private TopSellerAggregator aggregator;
+
+	/**
+	 * Build a tree of a root with two children, one of which has a grandchild.
+	 */
+	@Before
+	public void setUp() {
+		final List<Object[]> categories = new ArrayList<Object[]>();
+		categories.add(new Object[] { GRANDCHILD, CHILD });
+		categories.add(new Object[] { ROOT, null });
+		categories.add(new Object[] { SIBLING, ROOT });
+		categories.add(new Object[] { CHILD, ROOT });
+		aggregator = new TopSellerAggregator(MAX_TOP_SELLER_COUNT, categories);
+	}
+
+	/**
+	 * Test that the sales of a category count towards all its ancestors, and that a product in two sub-categories counts once.
+	 */
+	@Test
+	public void testSalesArePropagatedToAncestors() {
+		aggregator.addSales(GRANDCHILD, PRODUCT_A, MANY_SALES);
+		aggregator.addSales(SIBLING, PRODUCT_A, MANY_SALES);
+		aggregator.addSales(SIBLING, PRODUCT_B, FEW_SALES);
+		aggregator.propagate();
+
+		assertTopSellers(aggregator.getTopSellers(GRANDCHILD), PRODUCT_A);
+		assertTopSellers(aggregator.getTopSellers(CHILD), PRODUCT_A);
+		assertTopSellers(aggregator.getTopSellers(ROOT), PRODUCT_A, PRODUCT_B);
+		assertEquals(MANY_SALES, aggregator.getTopSellers(ROOT).get(0)[0]);
+	}
+
+	/**
+	 * Test that only the best selling products are kept, products with the same sales count ranked by uid.
+	 */
+	@Test
+	public void testTopSellersAreBounded() {
+		aggregator.addSales(GRANDCHILD, PRODUCT_D, SOME_SALES);
+		aggregator.addSales(GRANDCHILD, PRODUCT_A, FEW_SALES);
+		aggregator.addSales(SIBLING, PRODUCT_C, MANY_SALES);
+		aggregator.addSales(SIBLING, PRODUCT_B, SOME_SALES);
+		aggregator.propagate();
+
+		assertTopSellers(aggregator.getTopSellers(ROOT), PRODUCT_C, PRODUCT_B, PRODUCT_D);
+		assertTopSellers(aggregator.getTopSellers(CHILD), PRODUCT_D, PRODUCT_A);
+	}
+
+	/**
+	 * Test that products without sales fill out the top sellers of a category with fewer selling products than the maximum.
+	 */
+	@Test
+	public void testProductsWithoutSalesFillOutTopSellers() {
+		aggregator.addSales(GRANDCHILD, PRODUCT_B, NO_SALES);
+		aggregator.addSales(SIBLING, PRODUCT_C, MANY_SALES);
+		aggregator.addSales(SIBLING, PRODUCT_A, NO_SALES);
+		aggregator.propagate();
+
+		assertTopSellers(aggregator.getTopSellers(ROOT), PRODUCT_C, PRODUCT_A, PRODUCT_B);
+		assertTopSellers(aggregator.getTopSellers(CHILD), PRODUCT_B);
+		assertEquals(NO_SALES, aggregator.getTopSellers(CHILD).get(0)[0]);
+	}
+
+	/**
+	 * Test that sales in categories outside the tree are ignored and that such categories have no top sellers.
+	 */
+	@Test
+	public void testUnknownCategoryIsIgnored() {
+		aggregator.addSales(UNKNOWN, PRODUCT_A, MANY_SALES);
+		aggregator.propagate();
+
+		assertTrue(aggregator.getTopSellers(UNKNOWN).isEmpty());
+		assertTrue(aggregator.getTopSellers(ROOT).isEmpty());
+	}
+
+	private static void assertTopSellers(final List<Object[]> topSellers, final long... expectedProductUids) {
+		assertEquals(expectedProductUids.length, topSellers.size());
+		for (int i = 0; i < expectedProductUids.length; i++) {
+			assertEquals(expectedProductUids[i], topSellers.get(i)[1]);
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package com.elasticpath.service.pricing.datasource.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.elasticpath.domain.pricing.BaseAmount;
+import com.elasticpath.domain.pricing.BaseAmountObjectType;
+import com.elasticpath.domain.pricing.impl.BaseAmountImpl;
+import com.elasticpath.service.pricing.impl.BaseAmountFinderImpl;
+
+/**
+ * Test {@link BaseAmountIndex} and {@link IndexedBaseAmountDataSource}.
+ */
+public class BaseAmountIndexTest {
+
+	private static final String PL1 = "PL1";
+
+	private static final String PL2 = "PL2";
+
+	private static final String PRODUCT = "PRODUCT_GUID";
+
+	private static final String SKU = "SKU_CODE";
+
+	private static final String SKU_TYPE = BaseAmountObjectType.SKU.getName();
+
+	private static final String PRODUCT_TYPE = BaseAmountObjectType.PRODUCT.getName();
+
+	private static final int SKU_COUNT = 50;
+
+	private static final int PRICE_LIST_COUNT = 10;
+
+	private static final int TIER_COUNT = 3;
+
+	private final List<BaseAmount> baseAmounts = new ArrayList<BaseAmount>();
+
+	private BaseAmount skuTier1;
+
+	private BaseAmount skuTier5;
+
+	private BaseAmount productTier1;
+
+	private BaseAmount otherPriceListTier1;
+
+	/**
+	 * Create base amounts of a product and its sku in two price lists, with the sku tiers out of quantity order.
+	 */
+	@Before
+	public void setUp() {
+		skuTier5 = createBaseAmount(SKU, SKU_TYPE, "5", PL1);
+		skuTier1 = createBaseAmount(SKU, SKU_TYPE, "1", PL1);
+		productTier1 = createBaseAmount(PRODUCT, PRODUCT_TYPE, "1", PL1);
+		otherPriceListTier1 = createBaseAmount(SKU, SKU_TYPE, "1", PL2);
+		baseAmounts.addAll(Arrays.asList(skuTier5, skuTier1, productTier1, otherPriceListTier1));
+	}
+
+	private BaseAmount createBaseAmount(final String objectGuid, final String objectType, final String quantity, final String plGuid) {
+		return new BaseAmountImpl(objectGuid + quantity + plGuid, objectGuid, objectType, new BigDecimal(quantity), BigDecimal.ONE, null, plGuid);
+	}
+
+	/**
+	 * Test that the base amounts of an object are found by price list, type and object GUID ignoring case, sorted by quantity.
+	 */
+	@Test
+	public void testFindsTiersSortedByQuantity() {
+		final BaseAmountIndex index = new BaseAmountIndex(baseAmounts);
+		assertEquals(baseAmounts.size(), index.size());
+		assertEquals(Arrays.asList(skuTier1, skuTier5), index.find(PL1, BaseAmountObjectType.SKU, SKU));
+		assertEquals(Arrays.asList(skuTier1, skuTier5), index.find(PL1, BaseAmountObjectType.SKU, "sku_code"));
+		assertEquals(Arrays.asList(otherPriceListTier1), index.find(PL2, BaseAmountObjectType.SKU, SKU));
+		assertTrue(index.find(PL1, BaseAmountObjectType.PRODUCT, SKU).isEmpty());
+		assertTrue(index.find("PL3", BaseAmountObjectType.SKU, SKU).isEmpty());
+		assertSame(index, BaseAmountIndex.of(index));
+	}
+
+	/**
+	 * Test that the data source matches object GUIDs exactly and returns each base amount once, like
+	 * {@link CollectionBaseAmountDataSource}.
+	 */
+	@Test
+	public void testDataSourceMatchesCollectionDataSource() {
+		final List<String> plGuids = Arrays.asList(PL1, PL1);
+		final List<String> objectGuids = Arrays.asList(SKU, PRODUCT, PRODUCT, "sku_code");
+		assertEquals(new HashSet<BaseAmount>(new CollectionBaseAmountDataSource(baseAmounts).getBaseAmounts(plGuids, objectGuids)),
+				new HashSet<BaseAmount>(new IndexedBaseAmountDataSource(baseAmounts).getBaseAmounts(plGuids, objectGuids)));
+		assertEquals(TIER_COUNT, new IndexedBaseAmountDataSource(baseAmounts).getBaseAmounts(plGuids, objectGuids).size());
+	}
+
+	/**
+	 * Test that the finder gives the same results for an index as for a plain collection, for every sku of a product with 50 skus
+	 * priced in 10 price lists.
+	 */
+	@Test
+	public void testFinderFiltersIndexLikeCollection() {
+		final List<BaseAmount> productBaseAmounts = new ArrayList<BaseAmount>();
+		for (int priceList = 0; priceList < PRICE_LIST_COUNT; priceList++) {
+			productBaseAmounts.add(createBaseAmount(PRODUCT, PRODUCT_TYPE, "1", "PL" + priceList));
+			for (int sku = 0; sku < SKU_COUNT; sku++) {
+				for (int tier = TIER_COUNT; tier > 0; tier--) {
+					productBaseAmounts.add(createBaseAmount(SKU + sku, SKU_TYPE, String.valueOf(tier), "PL" + priceList));
+				}
+			}
+		}
+		final BaseAmountIndex index = new BaseAmountIndex(productBaseAmounts);
+		final BaseAmountFinderImpl finder = new BaseAmountFinderImpl();
+		for (int priceList = 0; priceList < PRICE_LIST_COUNT; priceList++) {
+			for (int sku = 0; sku < SKU_COUNT; sku++) {
+				final List<BaseAmount> expected = finder.filterBaseAmounts(productBaseAmounts, "PL" + priceList, BaseAmountObjectType.SKU, SKU + sku);
+				assertEquals(TIER_COUNT, expected.size());
+				assertEquals(new HashSet<BaseAmount>(expected),
+						new HashSet<BaseAmount>(finder.filterBaseAmounts(index, "PL" + priceList, BaseAmountObjectType.SKU, SKU + sku)));
+			}
+			assertEquals(1, finder.filterBaseAmounts(index, "PL" + priceList, BaseAmountObjectType.PRODUCT, PRODUCT).size());
+		}
+	}
+
+	/**
+	 * Test that GUIDs are normalized to the same form exactly when they are equal ignoring case.
+	 */
+	@Test
+	public void testNormalizeGuid() {
+		assertEquals(BaseAmountIndex.normalizeGuid("Sku-1"), BaseAmountIndex.normalizeGuid("SKU-1"));
+		assertTrue("\u0131".equalsIgnoreCase("i"));
+		assertEquals(BaseAmountIndex.normalizeGuid("\u0131"), BaseAmountIndex.normalizeGuid("i"));
+	}
+}
@@ -1,20 +1,28 @@
 package com.elasticpath.service.rules.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import java.io.FileNotFoundException;
+import java.util.Date;
 
+import org.drools.RuleBase;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.legacy.ClassImposteriser;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import com.elasticpath.domain.rules.RuleScenarios;
 import com.elasticpath.domain.rules.RuleSet;
 import com.elasticpath.domain.store.Store;
 import com.elasticpath.persistence.PropertiesDao;
 import com.elasticpath.persistence.api.EpPersistenceException;
+import com.elasticpath.service.rules.RuleSetService;
 import com.elasticpath.service.rules.RulesPackageCompilationException;
+import com.elasticpath.service.store.StoreService;
 
 /**
  * Test case for {@link DBCompilingRuleEngineImpl}.
@@ -26,7 +34,11 @@ public class DBCompilingRuleEngineImplTest {
 	private PropertiesDao mockPropertiesDao;
 	
 	@Rule
-	public final JUnitRuleMockery context = new JUnitRuleMockery();
+	public final JUnitRuleMockery context = new JUnitRuleMockery() {
+		{
+			setImposteriser(ClassImposteriser.INSTANCE);
+		}
+	};
 
 	/**
 	 * Prepares for tests.
@@ -82,4 +94,56 @@ public class DBCompilingRuleEngineImplTest {
 		});
 		ruleEngine.recompileRuleBase(ruleset, store);
 	}
+
+	/**
+	 * Test that a rule base snapshot of the current rule set version is used instead of reading or compiling the rule base, and that
+	 * the rule base is only loaded once.
+	 */
+	@Test
+	public void testCartRuleBaseIsLoadedFromSnapshot() {
+		final RuleSetService ruleSetService = context.mock(RuleSetService.class);
+		final RuleBaseSnapshotStore snapshotStore = context.mock(RuleBaseSnapshotStore.class);
+		final RuleSet ruleSet = context.mock(RuleSet.class);
+		final Store store = context.mock(Store.class);
+		final RuleBase ruleBase = context.mock(RuleBase.class);
+		final Date lastModifiedDate = new Date();
+		ruleEngine.setRuleSetService(ruleSetService);
+		ruleEngine.setRuleBaseSnapshotStore(snapshotStore);
+
+		context.checking(new Expectations() {
+			{
+				allowing(store).getCode();
+				will(returnValue("store"));
+				allowing(ruleSet).getLastModifiedDate();
+				will(returnValue(lastModifiedDate));
+
+				oneOf(ruleSetService).findByScenarioId(RuleScenarios.CART_SCENARIO);
+				will(returnValue(ruleSet));
+				oneOf(snapshotStore).read("cart-store", lastModifiedDate.getTime());
+				will(returnValue(ruleBase));
+			}
+		});
+
+		assertSame(ruleBase, ruleEngine.getCartRuleBase(store));
+		assertSame("the rule base should be cached", ruleBase, ruleEngine.getCartRuleBase(store));
+	}
+
+	/**
+	 * Test that failing to find the stores whose rule bases to precompile does not fail the engine's initialization, and leaves the
+	 * rule bases to be loaded on first use.
+	 */
+	@Test
+	public void testPrecompileSurvivesStoreLookupFailure() {
+		final StoreService storeService = context.mock(StoreService.class);
+		ruleEngine.setStoreService(storeService);
+		context.checking(new Expectations() {
+			{
+				oneOf(storeService).findAllCompleteStores();
+				will(throwException(new EpPersistenceException("database unavailable")));
+			}
+		});
+
+		ruleEngine.precompileRuleBases();
+		assertEquals("No rule base should have been precompiled", -1L, ruleEngine.getTimeToAllRuleBases());
+	}
 }
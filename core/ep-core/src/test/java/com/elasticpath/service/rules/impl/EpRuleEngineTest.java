@@ -4,6 +4,7 @@
 package com.elasticpath.service.rules.impl;
 
 import static org.hamcrest.Matchers.anyOf;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
@@ -19,6 +20,8 @@ import java.util.Set;
 
 import com.elasticpath.domain.catalog.impl.ProductImpl;
 import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
 import org.junit.Test;
 
 import com.elasticpath.commons.constants.ContextIdNames;
@@ -151,6 +154,13 @@ public class EpRuleEngineTest extends AbstractCatalogDataTestCase {
 			{
 				allowing(mockRuleEngine).fireOrderPromotionRules(with(any(ShoppingCart.class)));
 				allowing(mockRuleEngine).fireOrderPromotionSubtotalRules(with(any(ShoppingCart.class)));
+				allowing(mockRuleEngine).fireAllOrderPromotionRules(with(any(ShoppingCart.class)), with(any(Runnable.class)));
+				will(new CustomAction("run the subtotal updater") {
+					public Object invoke(final Invocation invocation) throws Throwable {
+						((Runnable) invocation.getParameter(1)).run();
+						return null;
+					}
+				});
 				allowing(sellingContext).isSatisfied(
 						with(any(ConditionEvaluatorService.class)), with(any(TagSet.class)), with(any(String[].class)));
 				will(returnValue(true));
@@ -366,6 +376,42 @@ public class EpRuleEngineTest extends AbstractCatalogDataTestCase {
 		ruleEngine.fireOrderPromotionRules(shoppingCart);
 	}
 
+	/**
+	 * Test that both agenda groups are fired in one session pass, updating the subtotal exactly once in between.
+	 */
+	@Test
+	public void testFireAllShoppingCartRulesInOnePass() {
+		ShoppingCart shoppingCart = getShoppingCart();
+
+		ruleEngine.setRuleSetService(createMockRuleSetService(getEmptyRuleSet(), createShoppingCartRuleSet()));
+		ruleEngine.setCartSessionPoolSize(1);
+		final PromotionRuleDelegate mockDelegate = createMockDelegate();
+		final Runnable subtotalUpdater = context.mock(Runnable.class);
+		context.checking(new Expectations() {
+			{
+				atLeast(1).of(mockDelegate).cartSubtotalAtLeast(with(any(ShoppingCart.class)), with(any(String.class)), with(any(String.class)));
+				will(returnValue(true));
+
+				atLeast(1).of(mockDelegate).cartCurrencyMatches(with(any(ShoppingCart.class)), with(any(String.class)));
+				will(returnValue(true));
+
+				allowing(mockDelegate).calculateAvailableDiscountQuantity(
+						with(any(ShoppingCart.class)), with(any(long.class)), with(any(int.class)));
+				will(returnValue(1));
+
+				exactly(2).of(subtotalUpdater).run();
+			}
+		});
+
+		ruleEngine.setPromotionRuleDelegate(mockDelegate);
+
+		ruleEngine.fireAllOrderPromotionRules(shoppingCart, subtotalUpdater);
+		assertEquals("the session should be back in the pool", 1, ruleEngine.getCartSessionPool(shoppingCart.getStore()).getIdleSessionCount());
+
+		// a second pass reuses the pooled session
+		ruleEngine.fireAllOrderPromotionRules(shoppingCart, subtotalUpdater);
+	}
+
 	/**
 	 * Tests execution of the following rule on the rule engine: When a cart contains SKU x, apply a discount to items of category y.
 	 */
@@ -0,0 +1,60 @@
+package com.elasticpath.service.rules.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.drools.RuleBase;
+import org.drools.RuleBaseFactory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test {@link RuleBaseSnapshotStore}.
+ */
+public class RuleBaseSnapshotStoreTest {
+
+	private static final String NAME = "cart-store";
+
+	private static final long VERSION = 1234L;
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private RuleBaseSnapshotStore snapshotStore;
+
+	/**
+	 * Set up a snapshot store in a temporary directory.
+	 */
+	@Before
+	public void setUp() {
+		snapshotStore = new RuleBaseSnapshotStore();
+		snapshotStore.setSnapshotDirectory(folder.getRoot().getPath() + "/rulebases");
+	}
+
+	/**
+	 * Test that a written snapshot is read back when the same version is asked for.
+	 */
+	@Test
+	public void testSnapshotIsReadBackForSameVersion() {
+		final RuleBase ruleBase = RuleBaseFactory.newRuleBase();
+		snapshotStore.write(NAME, VERSION, ruleBase);
+
+		final RuleBase snapshot = snapshotStore.read(NAME, VERSION);
+		assertNotNull(snapshot);
+		assertEquals(ruleBase.getPackages().length, snapshot.getPackages().length);
+	}
+
+	/**
+	 * Test that a snapshot of another version or a missing snapshot is not handed out.
+	 */
+	@Test
+	public void testSnapshotOfOtherVersionIsIgnored() {
+		assertNull(snapshotStore.read(NAME, VERSION));
+
+		snapshotStore.write(NAME, VERSION, RuleBaseFactory.newRuleBase());
+		assertNull(snapshotStore.read(NAME, VERSION + 1));
+	}
+}
@@ -0,0 +1,113 @@
+package com.elasticpath.service.rules.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.drools.FactHandle;
+import org.drools.RuleBase;
+import org.drools.SessionConfiguration;
+import org.drools.StatefulSession;
+import org.drools.runtime.Environment;
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Test {@link StatefulSessionPool}.
+ */
+public class StatefulSessionPoolTest {
+
+	private static final int CREATED_SESSIONS = 3;
+
+	@Rule
+	public final JUnitRuleMockery context = new JUnitRuleMockery() {
+		{
+			setImposteriser(ClassImposteriser.INSTANCE);
+		}
+	};
+
+	private RuleBase ruleBase;
+
+	private SessionConfiguration sessionConfiguration;
+
+	/**
+	 * Set up the mocks.
+	 */
+	@Before
+	public void setUp() {
+		ruleBase = context.mock(RuleBase.class);
+		sessionConfiguration = context.mock(SessionConfiguration.class);
+	}
+
+	/**
+	 * Test that a released session is emptied and handed out again.
+	 */
+	@Test
+	public void testReleasedSessionIsResetAndReused() {
+		final StatefulSession session = context.mock(StatefulSession.class);
+		final FactHandle factHandle = context.mock(FactHandle.class);
+		final StatefulSessionPool pool = new StatefulSessionPool(ruleBase, sessionConfiguration, 1);
+
+		context.checking(new Expectations() {
+			{
+				oneOf(ruleBase).newStatefulSession(with(sessionConfiguration), with(any(Environment.class)));
+				will(returnValue(session));
+
+				oneOf(session).iterateFactHandles();
+				will(returnValue(Arrays.asList(factHandle).iterator()));
+				oneOf(session).retract(factHandle);
+				oneOf(session).clearAgenda();
+			}
+		});
+
+		assertSame(session, pool.borrowSession());
+		pool.releaseSession(session, true);
+		assertEquals(1, pool.getIdleSessionCount());
+		assertSame("the idle session should be reused", session, pool.borrowSession());
+	}
+
+	/**
+	 * Test that sessions are disposed when they may not be reused or the pool is full.
+	 */
+	@Test
+	public void testSessionsBeyondPoolSizeAreDisposed() {
+		final StatefulSession first = context.mock(StatefulSession.class, "first");
+		final StatefulSession second = context.mock(StatefulSession.class, "second");
+		final StatefulSession failed = context.mock(StatefulSession.class, "failed");
+		final StatefulSessionPool pool = new StatefulSessionPool(ruleBase, sessionConfiguration, 1);
+
+		context.checking(new Expectations() {
+			{
+				exactly(CREATED_SESSIONS).of(ruleBase).newStatefulSession(with(sessionConfiguration), with(any(Environment.class)));
+				will(onConsecutiveCalls(returnValue(first), returnValue(second), returnValue(failed)));
+
+				allowing(first).iterateFactHandles();
+				will(returnValue(Arrays.asList().iterator()));
+				allowing(first).clearAgenda();
+				allowing(second).iterateFactHandles();
+				will(returnValue(Arrays.asList().iterator()));
+				allowing(second).clearAgenda();
+
+				oneOf(second).dispose();
+				oneOf(failed).dispose();
+				oneOf(first).dispose();
+			}
+		});
+
+		pool.borrowSession();
+		pool.borrowSession();
+		pool.borrowSession();
+		pool.releaseSession(first, true);
+		pool.releaseSession(second, true);
+		pool.releaseSession(failed, false);
+		assertEquals(1, pool.getIdleSessionCount());
+
+		pool.close();
+		assertEquals(0, pool.getIdleSessionCount());
+	}
+}
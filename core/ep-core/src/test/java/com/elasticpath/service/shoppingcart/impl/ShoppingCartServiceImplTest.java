@@ -13,9 +13,12 @@ import java.util.Collections;
 import java.util.Date;
 
 import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.lib.action.CustomAction;
 import org.junit.Test;
 
 import com.elasticpath.commons.constants.ContextIdNames;
+import com.elasticpath.domain.shopper.Shopper;
 import com.elasticpath.domain.shopper.impl.ShopperImpl;
 import com.elasticpath.domain.shopper.impl.ShopperMementoImpl;
 import com.elasticpath.domain.shoppingcart.ShoppingCart;
@@ -38,6 +41,8 @@ public class ShoppingCartServiceImplTest extends AbstractEPServiceTestCase {
 
 	public static final String GUID = "guid";
 
+	private static final long DEFERRED_SHOPPER_UID = 2L;
+
 	private ShoppingCartServiceImpl shoppingCartServiceImpl;
 	private StoreImpl store;
 	private StoreService storeService;
@@ -121,6 +126,50 @@ public class ShoppingCartServiceImplTest extends AbstractEPServiceTestCase {
 		assertEquals("New memento has store code", store.getCode(), updatedShoppingCartMemento.getStoreCode());
 	}
 
+	/**
+	 * Test that saving the cart of a shopper whose persistence was deferred saves the shopper first, and that the cart references it.
+	 */
+	@Test
+	public void testSaveOrUpdateSavesDeferredShopper() {
+		final ShoppingCartImpl cart = new ShoppingCartImpl() {
+			private static final long serialVersionUID = -2216375914405146128L;
+
+			@Override
+			public void fireRules() {
+				// no-op
+			}
+		};
+		cart.setStore(store);
+		cart.setShoppingCartMemento(new ShoppingCartMementoImpl());
+		final Shopper deferredShopper = TestShopperFactory.getInstance().createNewShopperWithMemento();
+		cart.setShopper(deferredShopper);
+
+		context.checking(new Expectations() {
+			{
+				allowing(storeService).findStoreWithCode(store.getCode()); will(returnValue(store));
+
+				oneOf(shopperService).saveIfNotPersisted(deferredShopper);
+				will(new CustomAction("persist shopper") {
+					@Override
+					public Object invoke(final Invocation invocation) throws Throwable {
+						deferredShopper.setUidPk(DEFERRED_SHOPPER_UID);
+						return deferredShopper;
+					}
+				});
+
+				oneOf(getMockPersistenceEngine()).saveOrUpdate(with(same(cart.getShoppingCartMemento())));
+				will(returnValue(cart.getShoppingCartMemento()));
+
+				atLeast(1).of(getMockFetchPlanHelper()).configureLoadTuner(with(aNull(LoadTuner.class)));
+				oneOf(getMockFetchPlanHelper()).clearFetchPlan();
+			}
+		});
+
+		shoppingCartServiceImpl.saveOrUpdate(cart);
+		assertEquals("Cart memento references the saved shopper", DEFERRED_SHOPPER_UID,
+				((ShoppingCartMementoImpl) cart.getShoppingCartMemento()).getShopperUid());
+	}
+
 	/**
 	 * Test method for 'com.elasticpath.service.impl.ShoppingCartServiceImpl.update(ShoppingCart)'.
 	 */
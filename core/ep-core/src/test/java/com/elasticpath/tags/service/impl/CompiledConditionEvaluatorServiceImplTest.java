@@ -0,0 +1,216 @@
+package com.elasticpath.tags.service.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.elasticpath.base.exception.EpServiceException;
+import com.elasticpath.tags.Tag;
+import com.elasticpath.tags.TagSet;
+import com.elasticpath.tags.domain.ConditionalExpression;
+import com.elasticpath.tags.domain.impl.ConditionalExpressionImpl;
+import com.elasticpath.tags.service.ConditionEvaluatorService;
+
+/**
+ * Test {@link CompiledConditionEvaluatorServiceImpl} evaluates conditions as {@link GroovyConditionEvaluatorServiceImpl} does.
+ */
+public class CompiledConditionEvaluatorServiceImplTest {
+
+	private static final Logger LOG = Logger.getLogger(CompiledConditionEvaluatorServiceImplTest.class);
+
+	private static final int TIMED_ROUNDS = 2000;
+
+	private static final long NANOS_PER_MICRO = 1000L;
+
+	private static final int AGE_SIXTY_FIVE = 65;
+
+	private static final int AGE_FORTY = 40;
+
+	private static final long SHOPPING_START_TIME = 1300000000000L;
+
+	/** Condition strings as the condition builder writes them. */
+	private static final String[] CONDITION_STRINGS = {
+		"",
+		"{ AND { AND  { REFERRING_URL.includesIgnoreCase 'google' } } }",
+		"{ AND { AND { CUSTOMER_AGE_YEARS.greaterThan (65i) }  }  } ",
+		"{ AND { AND { CUSTOMER_AGE_YEARS.greaterThanOrEqualTo (65i) } } }",
+		"{ AND { AND { CUSTOMER_GENDER.equalTo 'F' }  }  } ",
+		"{ AND { CUSTOMER_AGE_YEARS.lessThan (50i) }  { CUSTOMER_GENDER.equalTo 'F' }  } ",
+		"{ AND { CART_SUBTOTAL.equalTo (-100.0G) }  } ",
+		"{ AND { CART_SUBTOTAL.greaterThan (1000.0G) }  } ",
+		"{ AND { SHOPPING_START_TIME.greaterThan (1199178731000L) }  { SHOPPING_START_TIME.lessThan (1325404800000L) }  } ",
+		"{ AND { AND { SEARCH_TERMS.includes 'one' }  }  { AND { SEARCH_TERMS.includes 'two' }  }  }",
+		"{ OR { AND { CUSTOMER_GENDER.equalTo 'M' }  { REFERRING_URL.notIncludes 'google' } }  { CUSTOMER_AGE_YEARS.lessThanOrEqualTo (40i) } }",
+		"{ AND { CUSTOMER_GENDER.notEqualsIgnoreCase 'm' }  { CUSTOMER_GENDER.is 'F' } }",
+		"{ OR { SELLING_CHANNEL.equalTo 'SNAPITUP' }  { SELLING_CHANNEL.equalTo 'SNAPITUPUK' } }"
+	};
+
+	private CompiledConditionEvaluatorServiceImpl compiledEvaluator;
+
+	private GroovyConditionEvaluatorServiceImpl groovyEvaluator;
+
+	private List<TagSet> tagSets;
+
+	/**
+	 * Set up the evaluators and a few shoppers' tag sets.
+	 */
+	@Before
+	public void setUp() {
+		groovyEvaluator = new GroovyConditionEvaluatorServiceImpl();
+		compiledEvaluator = new CompiledConditionEvaluatorServiceImpl();
+		compiledEvaluator.setFallbackEvaluatorService(groovyEvaluator);
+
+		tagSets = new ArrayList<TagSet>();
+		tagSets.add(new TagSet());
+		tagSets.add(createTagSet("F", AGE_SIXTY_FIVE, "http://www.google.com/search", new BigDecimal("-100.0")));
+		tagSets.add(createTagSet("M", AGE_FORTY, "http://www.example.com", new BigDecimal("1000.01")));
+	}
+
+	private TagSet createTagSet(final String gender, final int age, final String referringUrl, final BigDecimal cartSubtotal) {
+		final TagSet tagSet = new TagSet();
+		tagSet.addTag("CUSTOMER_GENDER", new Tag(gender));
+		tagSet.addTag("CUSTOMER_AGE_YEARS", new Tag(age));
+		tagSet.addTag("REFERRING_URL", new Tag(referringUrl));
+		tagSet.addTag("CART_SUBTOTAL", new Tag(cartSubtotal));
+		tagSet.addTag("SHOPPING_START_TIME", new Tag(SHOPPING_START_TIME));
+		tagSet.addTag("SEARCH_TERMS", new Tag("two,one"));
+		tagSet.addTag("SELLING_CHANNEL", new Tag("SNAPITUP"));
+		return tagSet;
+	}
+
+	private ConditionalExpression createCondition(final String conditionString) {
+		final ConditionalExpression condition = new ConditionalExpressionImpl();
+		condition.setConditionString(conditionString);
+		return condition;
+	}
+
+	/**
+	 * Test that every condition evaluates the same as with Groovy on every tag set.
+	 */
+	@Test
+	public void testEvaluatesAsGroovyDoes() {
+		for (String conditionString : CONDITION_STRINGS) {
+			final ConditionalExpression condition = createCondition(conditionString);
+			for (TagSet tagSet : tagSets) {
+				assertEquals(conditionString + " on " + tagSet,
+						groovyEvaluator.evaluateConditionOnTags(tagSet, condition),
+						compiledEvaluator.evaluateConditionOnTags(tagSet, condition));
+			}
+		}
+	}
+
+	/**
+	 * Test that a tag without a value satisfies notEqualTo, lessThan and lessThanOrEqualTo and no other comparison, as with Groovy,
+	 * and that it satisfies notIncludes, on which Groovy fails.
+	 */
+	@Test
+	public void testTagWithoutValue() {
+		final TagSet tagSet = new TagSet();
+		tagSet.addTag("CUSTOMER_GENDER", new Tag(null));
+		tagSet.addTag("REFERRING_URL", new Tag(null));
+
+		for (String conditionString : new String[] {
+				"{ CUSTOMER_GENDER.notEqualTo 'F' }",
+				"{ CUSTOMER_GENDER.equalTo 'F' }",
+				"{ CUSTOMER_GENDER.lessThan 'F' }",
+				"{ CUSTOMER_GENDER.lessThanOrEqualTo 'F' }",
+				"{ CUSTOMER_GENDER.greaterThan 'F' }",
+				"{ CUSTOMER_GENDER.greaterThanOrEqualTo 'F' }",
+				"{ OR { CUSTOMER_GENDER.notEqualTo 'M' }  { CUSTOMER_AGE_YEARS.lessThan (50i) } }" }) {
+			final ConditionalExpression condition = createCondition(conditionString);
+			assertEquals(conditionString, groovyEvaluator.evaluateConditionOnTags(tagSet, condition),
+					compiledEvaluator.evaluateConditionOnTags(tagSet, condition));
+		}
+		assertTrue(compiledEvaluator.evaluateConditionOnTags(tagSet, createCondition("{ CUSTOMER_GENDER.notEqualTo 'F' }")));
+		assertTrue(compiledEvaluator.evaluateConditionOnTags(tagSet, createCondition("{ CUSTOMER_GENDER.lessThan 'F' }")));
+		assertTrue(compiledEvaluator.evaluateConditionOnTags(tagSet, createCondition("{ CUSTOMER_GENDER.lessThanOrEqualTo 'F' }")));
+		assertTrue(compiledEvaluator.evaluateConditionOnTags(tagSet, createCondition("{ REFERRING_URL.notIncludes 'google' }")));
+		assertFalse(compiledEvaluator.evaluateConditionOnTags(tagSet, createCondition("{ REFERRING_URL.includes 'google' }")));
+	}
+
+	/**
+	 * Test that numbers of different types are compared by value, while equalTo uses equals().
+	 */
+	@Test
+	public void testNumberComparisons() {
+		final TagSet tagSet = tagSets.get(1);
+		assertTrue(compiledEvaluator.evaluateConditionOnTags(tagSet, createCondition("{ CUSTOMER_AGE_YEARS.lessThan (65.5G) }")));
+		assertTrue(compiledEvaluator.evaluateConditionOnTags(tagSet, createCondition("{ CUSTOMER_AGE_YEARS.greaterThan (64.9f) }")));
+		assertTrue(compiledEvaluator.evaluateConditionOnTags(tagSet, createCondition("{ CUSTOMER_AGE_YEARS.equalTo 65 }")));
+		assertFalse(compiledEvaluator.evaluateConditionOnTags(tagSet, createCondition("{ CUSTOMER_AGE_YEARS.equalTo (65L) }")));
+	}
+
+	/**
+	 * Test that a condition string the parser does not support is evaluated by the fallback evaluator.
+	 */
+	@Test
+	public void testUnsupportedConditionIsEvaluatedByFallback() {
+		final ConditionalExpression condition = createCondition("{ AND({ CUSTOMER_GENDER.equalTo 'F' }) }");
+		assertTrue(compiledEvaluator.evaluateConditionOnTags(tagSets.get(1), condition));
+		assertFalse(compiledEvaluator.evaluateConditionOnTags(tagSets.get(2), condition));
+	}
+
+	/**
+	 * Test that a condition that cannot be evaluated on the tag values fails as with Groovy.
+	 */
+	@Test(expected = EpServiceException.class)
+	public void testIncomparableValuesFail() {
+		compiledEvaluator.evaluateConditionOnTags(tagSets.get(1), createCondition("{ CUSTOMER_GENDER.lessThan (5i) }"));
+	}
+
+	/**
+	 * Test that a condition string is parsed once.
+	 */
+	@Test
+	public void testConditionIsParsedOnce() {
+		final String conditionString = CONDITION_STRINGS[1];
+		assertTrue(compiledEvaluator.getPredicate(conditionString) == compiledEvaluator.getPredicate(conditionString));
+	}
+
+	/**
+	 * Compares the evaluation times of both evaluators on the condition strings, once both are warmed up.
+	 */
+	@Test
+	public void testCompareEvaluationTimes() {
+		final List<ConditionalExpression> conditions = new ArrayList<ConditionalExpression>();
+		for (String conditionString : CONDITION_STRINGS) {
+			conditions.add(createCondition(conditionString));
+		}
+		countMatches(groovyEvaluator, conditions, 1);
+		countMatches(compiledEvaluator, conditions, 1);
+
+		long start = System.nanoTime();
+		final int groovyMatches = countMatches(groovyEvaluator, conditions, TIMED_ROUNDS);
+		final long groovyNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		final int compiledMatches = countMatches(compiledEvaluator, conditions, TIMED_ROUNDS);
+		final long compiledNanos = System.nanoTime() - start;
+
+		final long evaluations = (long) TIMED_ROUNDS * conditions.size() * tagSets.size();
+		LOG.info("Evaluated " + evaluations + " conditions in " + groovyNanos / NANOS_PER_MICRO + " us with Groovy and in "
+				+ compiledNanos / NANOS_PER_MICRO + " us compiled");
+		assertEquals(groovyMatches, compiledMatches);
+	}
+
+	private int countMatches(final ConditionEvaluatorService evaluator, final List<ConditionalExpression> conditions, final int rounds) {
+		int matches = 0;
+		for (int round = 0; round < rounds; round++) {
+			for (ConditionalExpression condition : conditions) {
+				for (TagSet tagSet : tagSets) {
+					if (evaluator.evaluateConditionOnTags(tagSet, condition)) {
+						matches++;
+					}
+				}
+			}
+		}
+		return matches;
+	}
+}
@@ -13,6 +13,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
@@ -66,12 +67,16 @@ public class JpaPersistenceEngineImpl implements JpaPersistenceEngine, JpaPersis
 	private static final int EXPRESSION_ESTIMATE_LENGTH = 8;
 	private static final int MAX_ALLOW_EXPRESSIONS_IN_QUERY = 900;
 	private static final String NAMED_PARAMETER_PREFIX = ":";
+	private static final int[] LIST_PARAMETER_BUCKET_SIZES = new int[] { 1, 8, 32, 128, 512 };
+	private static final int MAX_LIST_PARAMETER_BUCKET_SIZE = LIST_PARAMETER_BUCKET_SIZES[LIST_PARAMETER_BUCKET_SIZES.length - 1];
 
 	private EntityManager entityManager;
 	
 	private PersistenceSessionFactory sessionFactory;
 
 	private PlatformTransactionManager txManager;
+
+	private boolean bindListParameters = true;
 	
 	private final JpaListener jpaListener = new JpaListener();
 	
@@ -347,16 +352,21 @@ public class JpaPersistenceEngineImpl implements JpaPersistenceEngine, JpaPersis
 			final Collection<E> values, final Object[] parameters, final int firstResult, final int maxResults)
 		throws EpPersistenceException {
 		try {
-			OpenJPAQuery jpaQuery = OpenJPAPersistence.cast(entityManager).createQuery(query);
-			String valuesList = getInParameterValues(values);
-			if (StringUtils.isEmpty(valuesList)) {
-				valuesList = "''";
+			Query newQuery;
+			if (isBindable(values)) {
+				newQuery = createQueryWithBoundList(entityManager, query, listParameterName, new ArrayList<E>(values), parameters);
+			} else {
+				OpenJPAQuery jpaQuery = OpenJPAPersistence.cast(entityManager).createQuery(query);
+				String valuesList = getInParameterValues(values);
+				if (StringUtils.isEmpty(valuesList)) {
+					valuesList = "''";
+				}
+				newQuery = insertListIntoQuery(jpaQuery, listParameterName, valuesList);
+				setQueryParameters(newQuery, parameters);
 			}
-			Query newQuery = insertListIntoQuery(jpaQuery, listParameterName, valuesList);
 			newQuery.setFirstResult(firstResult);
 			newQuery.setMaxResults(maxResults);
 			newQuery.setHint("openjpa.hint.OracleSelectHint", "/*+ first_rows(" + maxResults + ") */");
-			setQueryParameters(newQuery, parameters);
 			return getResults(newQuery);
 		} catch (final DataAccessException e) {
 			throw new EpPersistenceException(CAUGHT_AN_EXCEPTION, e);
@@ -411,13 +421,21 @@ public class JpaPersistenceEngineImpl implements JpaPersistenceEngine, JpaPersis
 			PersistenceSession newSession = sessionFactory.createPersistenceSession();
 			newEntityManager = ((JpaPersistenceSession) newSession).getEntityManager();
 
+			final List<T> result = new ArrayList<T>();
+			if (bindListParameters) {
+				for (List<E> chunk : chunkCollection(query, listParameterName, values)) {
+					Query newQuery = createQueryWithBoundList(newEntityManager, query, listParameterName, chunk, parameters);
+					result.addAll(JpaPersistenceEngineImpl.<T> getResults(newQuery));
+				}
+				return result;
+			}
+
 			int parameterCount = 0;
 			if (parameters != null) {
 				parameterCount = parameters.length;
 			}
 
-			List<String> listParameters = splitCollection(values, parameterCount);
-			final List<T> result = new ArrayList<T>();
+			List<String> listParameters = splitCollection(query, listParameterName, values, parameterCount);
 			for (String listParameter : listParameters) {
 				OpenJPAQuery jpaQuery = OpenJPAPersistence.cast(newEntityManager.createQuery(query));
 				Query newQuery = insertListIntoQuery(jpaQuery, listParameterName, listParameter);
@@ -868,12 +886,34 @@ public class JpaPersistenceEngineImpl implements JpaPersistenceEngine, JpaPersis
 		if (LOG.isDebugEnabled()) {
 			LOG.debug(LOG_NAMED_QUERY + queryName);
 		}
-		OpenJPAQuery query = OpenJPAPersistence.cast(entityManager).createNamedQuery(queryName);
-		for (String listParameterName : parameterValuesMap.keySet()) {
-			final Collection<E> values = parameterValuesMap.get(listParameterName);
+		boolean bindable = true;
+		for (Collection<E> values : parameterValuesMap.values()) {
 			if (values == null || values.isEmpty()) {
 				return Collections.emptyList();
 			}
+			bindable &= isBindable(values);
+		}
+		if (bindable) {
+			String queryString = getQueryForNamedQuery(queryName).getQueryString();
+			final List<List<E>> valueLists = new ArrayList<List<E>>();
+			int position = 1;
+			for (Entry<String, Collection<E>> entry : parameterValuesMap.entrySet()) {
+				final int bucketSize = getBucketSize(entry.getValue().size());
+				queryString = replaceListParameter(queryString, entry.getKey(), getListParameterPlaceholders(position, bucketSize));
+				valueLists.add(new ArrayList<E>(entry.getValue()));
+				position += bucketSize;
+			}
+			final Query query = entityManager.createQuery(queryString);
+			position = 1;
+			for (List<E> values : valueLists) {
+				position = setListParameters(query, position, values);
+			}
+			return getResults(query);
+		}
+
+		OpenJPAQuery query = OpenJPAPersistence.cast(entityManager).createNamedQuery(queryName);
+		for (String listParameterName : parameterValuesMap.keySet()) {
+			final Collection<E> values = parameterValuesMap.get(listParameterName);
 			final String parameterValue = getInParameterValues(values);
 			query = OpenJPAPersistence.cast(
 						insertListIntoQuery(query, listParameterName, parameterValue)
@@ -918,15 +958,25 @@ public class JpaPersistenceEngineImpl implements JpaPersistenceEngine, JpaPersis
 			LOG.debug(LOG_NAMED_QUERY + queryName);
 		}
 
+		if (bindListParameters) {
+			final String queryString = getQueryForNamedQuery(queryName).getQueryString();
+			final List<T> result = new ArrayList<T>();
+			for (List<E> chunk : chunkCollection(queryString, listParameterName, values)) {
+				Query newQuery = createQueryWithBoundList(entityManager, queryString, listParameterName, chunk, parameters);
+				result.addAll(JpaPersistenceEngineImpl.<T> getResults(newQuery));
+			}
+			return result;
+		}
+
 		int parameterCount = 0;
 		if (parameters != null) {
 			parameterCount = parameters.length;
 		}
 
-		List<String> listParameters = splitCollection(values, parameterCount);
+		final OpenJPAQuery query = OpenJPAPersistence.cast(entityManager).createNamedQuery(queryName);
+		List<String> listParameters = splitCollection(query.getQueryString(), listParameterName, values, parameterCount);
 		final List<T> result = new ArrayList<T>();
 		for (String listParameter : listParameters) {
-			OpenJPAQuery query = OpenJPAPersistence.cast(entityManager).createNamedQuery(queryName);
 			Query newQuery = insertListIntoQuery(query, listParameterName, listParameter);
 			setQueryParameters(newQuery, parameters);
 			result.addAll(JpaPersistenceEngineImpl.<T> getResults(newQuery));
@@ -954,15 +1004,25 @@ public class JpaPersistenceEngineImpl implements JpaPersistenceEngine, JpaPersis
 			LOG.debug(LOG_NAMED_QUERY + queryName);
 		}
 
+		if (bindListParameters) {
+			final String queryString = getQueryForNamedQuery(queryName).getQueryString();
+			final List<Object[]> result = new ArrayList<Object[]>();
+			for (List<?> chunk : chunkCollection(queryString, listParameterName, values)) {
+				Query newQuery = createQueryWithBoundList(entityManager, queryString, listParameterName, chunk, parameters);
+				result.addAll(JpaPersistenceEngineImpl.<Object[]> getResults(newQuery));
+			}
+			return result;
+		}
+
 		int parameterCount = 0;
 		if (parameters != null) {
 			parameterCount = parameters.length;
 		}
 
-		List<String> listParameters = splitCollection(values, parameterCount);
+		final OpenJPAQuery query = OpenJPAPersistence.cast(entityManager).createNamedQuery(queryName);
+		List<String> listParameters = splitCollection(query.getQueryString(), listParameterName, values, parameterCount);
 		final List<Object[]> result = new ArrayList<Object[]>();
 		for (String listParameter : listParameters) {
-			OpenJPAQuery query = OpenJPAPersistence.cast(entityManager).createNamedQuery(queryName);
 			Query newQuery = insertListIntoQuery(query, listParameterName, listParameter);
 			setQueryParameters(newQuery, parameters);
 			result.addAll(JpaPersistenceEngineImpl.<Object[]> getResults(newQuery));
@@ -989,15 +1049,21 @@ public class JpaPersistenceEngineImpl implements JpaPersistenceEngine, JpaPersis
 			 final Object[] parameters, final int firstResult, final int maxResults)
 			throws EpPersistenceException {
 		try {
-			OpenJPAQuery query = OpenJPAPersistence.cast(entityManager).createNamedQuery(queryName);
-			String valuesList = getInParameterValues(values);
-			if (StringUtils.isEmpty(valuesList)) {
-				valuesList = "''";
+			Query newQuery;
+			if (isBindable(values)) {
+				final String queryString = getQueryForNamedQuery(queryName).getQueryString();
+				newQuery = createQueryWithBoundList(entityManager, queryString, listParameterName, new ArrayList<Object>(values), parameters);
+			} else {
+				OpenJPAQuery query = OpenJPAPersistence.cast(entityManager).createNamedQuery(queryName);
+				String valuesList = getInParameterValues(values);
+				if (StringUtils.isEmpty(valuesList)) {
+					valuesList = "''";
+				}
+				newQuery = insertListIntoQuery(query, listParameterName, valuesList);
+				setQueryParameters(newQuery, parameters);
 			}
-			Query newQuery = insertListIntoQuery(query, listParameterName, valuesList);
 			newQuery.setFirstResult(firstResult);
 			newQuery.setMaxResults(maxResults);
-			setQueryParameters(newQuery, parameters);
 			return getResults(newQuery);
 		} catch (final DataAccessException e) {
 			throw new EpPersistenceException(CAUGHT_AN_EXCEPTION, e);
@@ -1020,14 +1086,29 @@ public class JpaPersistenceEngineImpl implements JpaPersistenceEngine, JpaPersis
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("executing named query: " + queryName);
 		}
-		List<String> listParameters = splitCollection(values, 0);
+		if (bindListParameters) {
+			final OpenJPAQuery query = getQueryForNamedQuery(queryName);
+			final ChangeType changeType = getChangeTypeFor(query);
+			int result = 0;
+			for (List<E> chunk : chunkCollection(query.getQueryString(), listParameterName, values)) {
+				Query newQuery = createQueryWithBoundList(entityManager, query.getQueryString(), listParameterName, chunk, parameters);
+				beginBulkOperation(queryName, query, parameters, changeType);
+				try {
+					result += newQuery.executeUpdate();
+				} finally {
+					endBulkOperation(changeType);
+				}
+			}
+			return result;
+		}
+		final OpenJPAQuery query = OpenJPAPersistence.cast(entityManager).createNamedQuery(queryName);
+		final ChangeType changeType = getChangeTypeFor(query);
+		List<String> listParameters = splitCollection(query.getQueryString(), listParameterName, values, 0);
 		int result = 0;
 		for (String listParameter : listParameters) {
-			OpenJPAQuery query = OpenJPAPersistence.cast(entityManager).createNamedQuery(queryName);
 			Query newQuery = insertListIntoQuery(query, listParameterName, listParameter);
 			setQueryParameters(newQuery, parameters);
 			
-			ChangeType changeType = getChangeTypeFor(query);
 			beginBulkOperation(queryName, query, parameters, changeType);
 			try {
 				result += newQuery.executeUpdate();
@@ -1047,17 +1128,189 @@ public class JpaPersistenceEngineImpl implements JpaPersistenceEngine, JpaPersis
 	 * @return the query
 	 */
 	protected Query insertListIntoQuery(final OpenJPAQuery query, final String listParameterName, final String listParameter) {
-		StringBuilder queryString = new StringBuilder(query.getQueryString());
+		return entityManager.createQuery(replaceListParameter(query.getQueryString(), listParameterName, listParameter));
+	}
+
+	private String replaceListParameter(final String query, final String listParameterName, final String listParameter) {
+		StringBuilder queryString = new StringBuilder(query);
 		String stringToReplace = NAMED_PARAMETER_PREFIX + listParameterName;
 		if (queryString.indexOf(stringToReplace) == -1) {
 			throw new IllegalArgumentException("Parameter " + listParameterName + " does not exist as a named parameter in ["
-												+ query.getQueryString() + "]");
+												+ query + "]");
 		}		
 		queryString.replace(queryString.indexOf(stringToReplace), queryString.indexOf(stringToReplace) + stringToReplace.length(), listParameter);
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("Recreating query as " + queryString.toString());
 		}
-		return entityManager.createQuery(queryString.toString());
+		return queryString.toString();
+	}
+
+	/**
+	 * Creates a query whose list parameter is replaced by positional parameters bound to the given values. The positional
+	 * parameters follow the other parameters, and their number is padded to a bucket size by repeating the last value,
+	 * so that lists of similar sizes share one query string in the query compilation and prepared statement caches.
+	 *
+	 * @param manager the entity manager to create the query with
+	 * @param queryString the JPQL query
+	 * @param listParameterName the name of the parameter for the list values
+	 * @param values the list values, no more than the largest bucket size unless the query excludes them
+	 * @param parameters the other parameters of the query
+	 * @return the query with all parameters set
+	 */
+	protected Query createQueryWithBoundList(final EntityManager manager, final String queryString, final String listParameterName,
+			final List<?> values, final Object[] parameters) {
+		int firstPosition = 1;
+		if (parameters != null) {
+			firstPosition += parameters.length;
+		}
+		final String placeholders = getListParameterPlaceholders(firstPosition, getListParameterCount(values.size()));
+		final Query query = manager.createQuery(replaceListParameter(queryString, listParameterName, placeholders));
+		setQueryParameters(query, parameters);
+		setListParameters(query, firstPosition, values);
+		return query;
+	}
+
+	/**
+	 * Gets the comma delimited positional parameters standing in for a list parameter.
+	 *
+	 * @param firstPosition the position of the first parameter
+	 * @param count the number of parameters
+	 * @return the positional parameters, such as ?2,?3,?4
+	 */
+	protected String getListParameterPlaceholders(final int firstPosition, final int count) {
+		final StringBuilder placeholders = new StringBuilder(count * EXPRESSION_ESTIMATE_LENGTH);
+		for (int position = firstPosition; position < firstPosition + count; position++) {
+			placeholders.append('?').append(position).append(',');
+		}
+		placeholders.setLength(placeholders.length() - 1);
+		return placeholders.toString();
+	}
+
+	/**
+	 * Binds list values to positional parameters, padded to the bucket size of the list by repeating the last value. Lists larger
+	 * than the largest bucket are not padded.
+	 *
+	 * @param query the query
+	 * @param firstPosition the position of the first list parameter
+	 * @param values the values
+	 * @return the position following the last list parameter
+	 */
+	private int setListParameters(final Query query, final int firstPosition, final List<?> values) {
+		final int bucketSize = getListParameterCount(values.size());
+		final Object lastValue = values.get(values.size() - 1);
+		for (int i = 0; i < bucketSize; i++) {
+			if (i < values.size()) {
+				query.setParameter(firstPosition + i, values.get(i));
+			} else {
+				query.setParameter(firstPosition + i, lastValue);
+			}
+		}
+		return firstPosition + bucketSize;
+	}
+
+	/**
+	 * Gets the number of positional parameters a list of values is bound to: the smallest bucket size holding them, or the number of
+	 * values if no bucket holds them.
+	 *
+	 * @param valueCount the number of values
+	 * @return the number of positional parameters
+	 */
+	private static int getListParameterCount(final int valueCount) {
+		if (valueCount > MAX_LIST_PARAMETER_BUCKET_SIZE) {
+			return valueCount;
+		}
+		return getBucketSize(valueCount);
+	}
+
+	/**
+	 * Gets the smallest bucket size holding a list of values.
+	 *
+	 * @param valueCount the number of values
+	 * @return the bucket size
+	 * @throws IllegalArgumentException if the values do not fit the largest bucket
+	 */
+	protected static int getBucketSize(final int valueCount) {
+		for (int bucketSize : LIST_PARAMETER_BUCKET_SIZES) {
+			if (valueCount <= bucketSize) {
+				return bucketSize;
+			}
+		}
+		throw new IllegalArgumentException(valueCount + " list values do not fit the largest bucket of " + MAX_LIST_PARAMETER_BUCKET_SIZE);
+	}
+
+	/**
+	 * Splits a collection of list values into chunks that fit the largest bucket size.
+	 *
+	 * @param <E> the type of values
+	 * @param values the collection of values
+	 * @return the chunks, none if the collection is empty
+	 */
+	protected <E> List<List<E>> chunkCollection(final Collection<E> values) {
+		final List<List<E>> chunks = new ArrayList<List<E>>();
+		List<E> chunk = null;
+		for (E value : values) {
+			if (chunk == null || chunk.size() == MAX_LIST_PARAMETER_BUCKET_SIZE) {
+				chunk = new ArrayList<E>(Math.min(MAX_LIST_PARAMETER_BUCKET_SIZE, values.size()));
+				chunks.add(chunk);
+			}
+			chunk.add(value);
+		}
+		return chunks;
+	}
+
+	/**
+	 * Splits a collection of list values into chunks that fit the largest bucket size, unless the query excludes the values with
+	 * <code>NOT IN</code>. Running such a query once per chunk would exclude the values of one chunk at a time, so it gets a single
+	 * chunk holding all the values.
+	 *
+	 * @param <E> the type of values
+	 * @param queryString the JPQL query
+	 * @param listParameterName the name of the parameter for the list values
+	 * @param values the collection of values
+	 * @return the chunks, none if the collection is empty
+	 */
+	protected <E> List<List<E>> chunkCollection(final String queryString, final String listParameterName, final Collection<E> values) {
+		if (values.size() > MAX_LIST_PARAMETER_BUCKET_SIZE && isExcludedList(queryString, listParameterName)) {
+			final List<List<E>> chunks = new ArrayList<List<E>>(1);
+			chunks.add(new ArrayList<E>(values));
+			return chunks;
+		}
+		return chunkCollection(values);
+	}
+
+	/**
+	 * Splits a collection of values into strings of suitable length, unless the query excludes the values with <code>NOT IN</code>,
+	 * in which case all the values are written into a single string.
+	 *
+	 * @param <T> the type of object
+	 * @param queryString the JPQL query
+	 * @param listParameterName the name of the parameter for the list values
+	 * @param values the collection of values
+	 * @param parameterCount the number of other parameters to consider
+	 * @return the list of value strings
+	 */
+	protected <T> List<String> splitCollection(final String queryString, final String listParameterName, final Collection<T> values,
+			final int parameterCount) {
+		if (isExcludedList(queryString, listParameterName)) {
+			return splitCollection(values, parameterCount, Integer.MAX_VALUE);
+		}
+		return splitCollection(values, parameterCount);
+	}
+
+	/**
+	 * Checks whether a query excludes the values of a list parameter, as in <code>NOT IN (:list)</code>.
+	 *
+	 * @param queryString the JPQL query
+	 * @param listParameterName the name of the parameter for the list values
+	 * @return true if the list parameter follows <code>NOT IN</code>
+	 */
+	static boolean isExcludedList(final String queryString, final String listParameterName) {
+		return Pattern.compile("\\bNOT\\s+IN\\s*\\(\\s*" + Pattern.quote(NAMED_PARAMETER_PREFIX + listParameterName) + "\\b",
+				Pattern.CASE_INSENSITIVE).matcher(queryString).find();
+	}
+
+	private boolean isBindable(final Collection<?> values) {
+		return bindListParameters && !values.isEmpty() && values.size() <= MAX_LIST_PARAMETER_BUCKET_SIZE;
 	}
 
 	/**
@@ -1069,10 +1322,14 @@ public class JpaPersistenceEngineImpl implements JpaPersistenceEngine, JpaPersis
 	 * @return the list of value strings
 	 */
 	protected <T> List<String> splitCollection(final Collection<T> values, final int parameterCount) { 
+		return splitCollection(values, parameterCount, MAX_ALLOW_EXPRESSIONS_IN_QUERY);
+	}
+
+	private <T> List<String> splitCollection(final Collection<T> values, final int parameterCount, final int maxExpressions) {
 		// Try to get the most appropriate buffer size to avoid buffer expanding.
 		int bufferSize;
-		if (values.size() > MAX_ALLOW_EXPRESSIONS_IN_QUERY - parameterCount) {
-			bufferSize = MAX_ALLOW_EXPRESSIONS_IN_QUERY * EXPRESSION_ESTIMATE_LENGTH;
+		if (values.size() > maxExpressions - parameterCount) {
+			bufferSize = Math.min(maxExpressions, values.size()) * EXPRESSION_ESTIMATE_LENGTH;
 		} else {
 			bufferSize = values.size() * EXPRESSION_ESTIMATE_LENGTH;
 		}
@@ -1088,7 +1345,7 @@ public class JpaPersistenceEngineImpl implements JpaPersistenceEngine, JpaPersis
 			} else {
 				sbf.append(value).append(',');
 			}
-			if (cursor >= MAX_ALLOW_EXPRESSIONS_IN_QUERY) {
+			if (cursor >= maxExpressions) {
 				sbf.deleteCharAt(sbf.length() - 1);
 				result.add(sbf.toString());
 				sbf.delete(0, sbf.length());
@@ -1161,6 +1418,17 @@ public class JpaPersistenceEngineImpl implements JpaPersistenceEngine, JpaPersis
 		this.txManager = txManager;
 	}
 
+	/**
+	 * Sets whether the values of list parameters are bound as query parameters, padded to a few bucket sizes, rather than
+	 * written into the query string. Bound lists let the query compilation and prepared statement caches reuse queries.
+	 * Queries with a row range that exceed the largest bucket size still have their values written into the query string.
+	 *
+	 * @param bindListParameters true to bind list parameters
+	 */
+	public void setBindListParameters(final boolean bindListParameters) {
+		this.bindListParameters = bindListParameters;
+	}
+
 	@Override
 	public void evictObjectFromCache(final Persistable object) {
 		OpenJPAEntityManagerFactory oemf = getOpenJPAEntityManagerFactory();
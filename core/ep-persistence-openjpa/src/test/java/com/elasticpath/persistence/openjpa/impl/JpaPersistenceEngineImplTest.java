@@ -4,6 +4,8 @@
 package com.elasticpath.persistence.openjpa.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 
 import java.util.ArrayList;
@@ -529,6 +531,115 @@ public class JpaPersistenceEngineImplTest {
 		persistenceEngine.insertListIntoQuery(query, LIST_PARAMETER_NAME, parameters);
 	}
 
+
+	/**
+	 * Test that list values are bound after the other parameters, and padded to the bucket size with the last value.
+	 */
+	@Test
+	public final void testRetrieveByNamedQueryWithListBindsPaddedValues() {
+		final String queryString = "SELECT so FROM SomeObjectImpl so WHERE so.uidPk in (:list) AND so.field = ?1";
+		final OpenJPAQuery namedQuery = context.mock(OpenJPAQuery.class, "namedQuery");
+		final Query query = context.mock(Query.class);
+		final List<Long> values = new ArrayList<Long>();
+		final Long uidPk2 = 1001L;
+		values.add(UIDPK);
+		values.add(uidPk2);
+		final int lastPosition = 9;
+		context.checking(new Expectations() {
+			{
+				oneOf(entityManager).createNamedQuery(NAMED_QUERY); will(Expectations.returnValue(namedQuery));
+				oneOf(namedQuery).getQueryString(); will(Expectations.returnValue(queryString));
+				oneOf(entityManager).createQuery("SELECT so FROM SomeObjectImpl so WHERE so.uidPk in (?2,?3,?4,?5,?6,?7,?8,?9) AND so.field = ?1");
+				will(Expectations.returnValue(query));
+				oneOf(query).setParameter(1, SOME_PARAMETER);
+				oneOf(query).setParameter(2, UIDPK);
+				for (int position = 3; position <= lastPosition; position++) {
+					oneOf(query).setParameter(position, uidPk2);
+				}
+				oneOf(query).getResultList(); will(Expectations.returnValue(Collections.emptyList()));
+			}
+		});
+		persistenceEngine.retrieveByNamedQueryWithList(NAMED_QUERY, LIST_PARAMETER_NAME, values, SOME_PARAMETER);
+	}
+
+	/**
+	 * Test that a query excluding more values than the largest bucket holds with NOT IN is run once with all the values, since
+	 * running it once per chunk would delete the rows excluded by the other chunks.
+	 */
+	@Test
+	public final void testExecuteNamedQueryWithLargeExcludedListIsNotChunked() {
+		final String queryString = "DELETE FROM SomeObjectImpl so WHERE so.field = ?1 AND so.uidPk NOT IN(:list)";
+		final OpenJPAQuery namedQuery = context.mock(OpenJPAQuery.class, "namedQuery");
+		final Query query = context.mock(Query.class);
+		final int valueCount = 513;
+		final int rowsDeleted = 7;
+		final List<Long> values = new ArrayList<Long>();
+		final StringBuilder placeholders = new StringBuilder();
+		for (int i = 0; i < valueCount; i++) {
+			values.add(UIDPK + i);
+			placeholders.append('?').append(i + 2).append(',');
+		}
+		placeholders.setLength(placeholders.length() - 1);
+
+		context.checking(new Expectations() {
+			{
+				oneOf(entityManager).createNamedQuery(NAMED_QUERY); will(Expectations.returnValue(namedQuery));
+				allowing(namedQuery).getQueryString(); will(Expectations.returnValue(queryString));
+				allowing(namedQuery).getOperation(); will(Expectations.returnValue(QueryOperationType.DELETE));
+				oneOf(entityManager).createQuery("DELETE FROM SomeObjectImpl so WHERE so.field = ?1 AND so.uidPk NOT IN(" + placeholders + ")");
+				will(Expectations.returnValue(query));
+				oneOf(query).setParameter(1, SOME_PARAMETER);
+				for (int i = 0; i < valueCount; i++) {
+					oneOf(query).setParameter(i + 2, values.get(i));
+				}
+				oneOf(query).executeUpdate(); will(Expectations.returnValue(rowsDeleted));
+			}
+		});
+		assertEquals(rowsDeleted, persistenceEngine.executeNamedQueryWithList(NAMED_QUERY, LIST_PARAMETER_NAME, values, SOME_PARAMETER));
+	}
+
+	/**
+	 * Test that list parameters following NOT IN are recognized as excluded, and other list parameters are not.
+	 */
+	@Test
+	public final void testIsExcludedList() {
+		assertTrue(JpaPersistenceEngineImpl.isExcludedList("SELECT so FROM SomeObjectImpl so WHERE so.uidPk not in ( :list )", LIST_PARAMETER_NAME));
+		assertFalse(JpaPersistenceEngineImpl.isExcludedList("SELECT so FROM SomeObjectImpl so WHERE so.uidPk IN (:list)", LIST_PARAMETER_NAME));
+		assertFalse(JpaPersistenceEngineImpl.isExcludedList("SELECT so FROM SomeObjectImpl so WHERE so.uidPk NOT IN (:list2) AND so.code IN (:list)",
+				LIST_PARAMETER_NAME));
+	}
+
+	/**
+	 * Test that lists are padded to the smallest bucket holding them.
+	 */
+	@Test
+	public final void testGetBucketSize() {
+		final int eight = 8;
+		final int thirtyTwo = 32;
+		final int largest = 512;
+		assertEquals(1, JpaPersistenceEngineImpl.getBucketSize(1));
+		assertEquals(eight, JpaPersistenceEngineImpl.getBucketSize(2));
+		assertEquals(eight, JpaPersistenceEngineImpl.getBucketSize(eight));
+		assertEquals(thirtyTwo, JpaPersistenceEngineImpl.getBucketSize(eight + 1));
+		assertEquals(largest, JpaPersistenceEngineImpl.getBucketSize(largest));
+	}
+
+	/**
+	 * Test that collections larger than the largest bucket are split into chunks that fit it.
+	 */
+	@Test
+	public final void testChunkCollection() {
+		final int largest = 512;
+		final List<Long> values = new ArrayList<Long>();
+		for (long l = 0; l <= largest; l++) {
+			values.add(l);
+		}
+		List<List<Long>> chunks = persistenceEngine.chunkCollection(values);
+		assertEquals("The collection should be split into 2 chunks", 2, chunks.size());
+		assertEquals(largest, chunks.get(0).size());
+		assertEquals(1, chunks.get(1).size());
+		assertEquals("An empty collection has no chunks", 0, persistenceEngine.chunkCollection(Collections.emptyList()).size());
+	}
 	
 	/**
 	 * Test that splitting a large collection (i.e. > 900 parameters) creates the correct number of
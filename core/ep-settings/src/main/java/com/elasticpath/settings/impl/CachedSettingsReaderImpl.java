@@ -8,6 +8,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -38,8 +40,7 @@ public class CachedSettingsReaderImpl implements SettingsReader, DisposableBean
 	private static final Logger LOG = Logger.getLogger(CachedSettingsReaderImpl.class);
 
 	// Strategy cannot change during program execution
-	private static final Map<String, ImmutablePair<String, SettingRefreshStrategy>> SETTING_DATA =
-			new HashMap<String, ImmutablePair<String, SettingRefreshStrategy>>();
+	private static final ConcurrentMap<String, SettingLookup> SETTING_DATA = new ConcurrentHashMap<String, SettingLookup>();
 
 	private Map<String, SettingRefreshStrategy> refreshStrategies = new HashMap<String, SettingRefreshStrategy>();
 
@@ -54,8 +55,7 @@ public class CachedSettingsReaderImpl implements SettingsReader, DisposableBean
 		if (LOG.isTraceEnabled()) {
 			LOG.debug("Getting " + path + ":" + context);
 		}
-		final SettingRefreshStrategy strategy = getRefreshStrategy(path);
-		return new ImmutableSettingValue(strategy.retrieveSetting(path, context, SETTING_DATA.get(path).getLeft()));
+		return retrieveSettingLookup(path).getValue(context);
 	}
 
 	@Override
@@ -63,16 +63,15 @@ public class CachedSettingsReaderImpl implements SettingsReader, DisposableBean
 		if (LOG.isTraceEnabled()) {
 			LOG.debug("Getting " + path);
 		}
-		final SettingRefreshStrategy strategy = getRefreshStrategy(path);
-		return new ImmutableSettingValue(strategy.retrieveSetting(path, SETTING_DATA.get(path).getLeft()));
+		return retrieveSettingLookup(path).getValue();
 	}
 
 	@Override
 	public Set<SettingValue> getSettingValues(final String path, final String... contexts) {
-		final SettingRefreshStrategy strategy = getRefreshStrategy(path);
+		final SettingLookup lookup = retrieveSettingLookup(path);
 		final Set<SettingValue> settingValues = new HashSet<SettingValue>();
 		for (final String context : contexts) {
-			settingValues.add(new ImmutableSettingValue(strategy.retrieveSetting(path, context, SETTING_DATA.get(path).getLeft())));
+			settingValues.add(lookup.getValue(context));
 		}
 		return settingValues;
 	}
@@ -85,16 +84,18 @@ public class CachedSettingsReaderImpl implements SettingsReader, DisposableBean
 	 * @return the refresh strategy for the specified setting
 	 */
 	protected SettingRefreshStrategy getRefreshStrategy(final String path) {
-		return retrieveSettingData(path).getRight();
+		return retrieveSettingLookup(path).getStrategy();
 	}
 
 	/**
-	 * @param path the setting definition path to get the setting data for
-	 * @return the cached setting data
+	 * Gets the lookup handle for the given setting path, creating it from the setting definition's metadata the first time the path is used.
+	 *
+	 * @param path the setting definition path to get the lookup handle for
+	 * @return the cached lookup handle
 	 */
-	protected ImmutablePair<String, SettingRefreshStrategy> retrieveSettingData(final String path) {
-		ImmutablePair<String, SettingRefreshStrategy> settingData = SETTING_DATA.get(path);
-		if (settingData == null) {
+	protected SettingLookup retrieveSettingLookup(final String path) {
+		SettingLookup lookup = SETTING_DATA.get(path);
+		if (lookup == null) {
 			// NOTE: If you change the strategy in a setting's metadata, the changes will not be picked up here until the application is restarted
 			final SettingDefinition settingDef = getSettingsService().getSettingDefinition(path);
 			final SettingMetadata refreshStrategyMetadata = settingDef.getMetadata().get(getRefreshStrategyKey());
@@ -109,10 +110,13 @@ public class CachedSettingsReaderImpl implements SettingsReader, DisposableBean
 			if (strategy == null) {
 				strategy = getDefaultRefreshStrategy();
 			}
-			settingData = new ImmutablePair<String, SettingRefreshStrategy>(refreshStrategyParams, strategy);
-			SETTING_DATA.put(path, settingData);
+			lookup = new SettingLookup(path, refreshStrategyParams, strategy);
+			final SettingLookup existingLookup = SETTING_DATA.putIfAbsent(path, lookup);
+			if (existingLookup != null) {
+				lookup = existingLookup;
+			}
 		}
-		return settingData;
+		return lookup;
 	}
 
 	/**
@@ -158,10 +162,87 @@ public class CachedSettingsReaderImpl implements SettingsReader, DisposableBean
 		return refreshStrategyKey;
 	}
 
+	/**
+	 * Precompiled lookup handle for a single setting path. Holds the refresh strategy and its parameters, which are resolved from the
+	 * setting definition once, and remembers the immutable wrapper last returned for each context so that repeated lookups of a value the
+	 * strategy has cached return the same wrapper instead of allocating a new one.
+	 */
+	protected static final class SettingLookup {
+
+		private final String path;
+
+		private final String params;
+
+		private final SettingRefreshStrategy strategy;
+
+		private final ConcurrentMap<String, ImmutableSettingValue> valuesByContext = new ConcurrentHashMap<String, ImmutableSettingValue>();
+
+		private volatile ImmutableSettingValue contextlessValue;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param path the setting path
+		 * @param params the refresh strategy parameters, may be null
+		 * @param strategy the refresh strategy for the setting
+		 */
+		public SettingLookup(final String path, final String params, final SettingRefreshStrategy strategy) {
+			this.path = path;
+			this.params = params;
+			this.strategy = strategy;
+		}
+
+		/**
+		 * Gets the setting value for the given context through the refresh strategy.
+		 *
+		 * @param context the setting context
+		 * @return an immutable view of the setting value
+		 */
+		public SettingValue getValue(final String context) {
+			final SettingValue value = strategy.retrieveSetting(path, context, params);
+			if (context == null || value == null) {
+				return new ImmutableSettingValue(value);
+			}
+			ImmutableSettingValue wrapper = valuesByContext.get(context);
+			if (wrapper == null || !wrapper.wraps(value)) {
+				wrapper = new ImmutableSettingValue(value);
+				valuesByContext.put(context, wrapper);
+			}
+			return wrapper;
+		}
+
+		/**
+		 * Gets the context-less setting value through the refresh strategy.
+		 *
+		 * @return an immutable view of the setting value
+		 */
+		public SettingValue getValue() {
+			final SettingValue value = strategy.retrieveSetting(path, params);
+			ImmutableSettingValue wrapper = contextlessValue;
+			if (wrapper == null || !wrapper.wraps(value)) {
+				wrapper = new ImmutableSettingValue(value);
+				contextlessValue = wrapper;
+			}
+			return wrapper;
+		}
+
+		public String getPath() {
+			return path;
+		}
+
+		public String getParams() {
+			return params;
+		}
+
+		public SettingRefreshStrategy getStrategy() {
+			return strategy;
+		}
+	}
+
 	/**
 	 * An immutable decorator for a {@link SettingValue} object.
 	 */
-	protected class ImmutableSettingValue implements SettingValue {
+	protected static class ImmutableSettingValue implements SettingValue {
 
 		private static final long serialVersionUID = 1L;
 
@@ -179,6 +260,16 @@ public class CachedSettingsReaderImpl implements SettingsReader, DisposableBean
 			this.delegate = delegate;
 		}
 
+		/**
+		 * Checks whether this wrapper decorates the given instance.
+		 *
+		 * @param value the setting value to check
+		 * @return true if <code>value</code> is the decorated instance
+		 */
+		boolean wraps(final SettingValue value) {
+			return delegate == value;
+		}
+
 		@SuppressWarnings("PMD.BooleanGetMethodName")
 		@Override
 		public boolean getBooleanValue() {
@@ -350,7 +441,7 @@ public class CachedSettingsReaderImpl implements SettingsReader, DisposableBean
 		SETTING_DATA.clear();
 	}
 
-	static Map<String, ImmutablePair<String, SettingRefreshStrategy>> getSettingData() {
+	static Map<String, SettingLookup> getSettingData() {
 		return SETTING_DATA;
 	}
 }
@@ -3,8 +3,8 @@
  */
 package com.elasticpath.settings.refreshstrategy.impl;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.elasticpath.settings.SettingsReader;
 import com.elasticpath.settings.refreshstrategy.SettingRefreshStrategy;
@@ -17,7 +17,7 @@ public class ApplicationLifetimeRefreshStrategyImpl implements SettingRefreshStr
 
 	private SettingsReader settingsReader;
 
-	private static Map<String, SettingValue> cacheMap = new HashMap<String, SettingValue>();
+	private static Map<String, SettingValue> cacheMap = new ConcurrentHashMap<String, SettingValue>();
 
 	/**
 	 * Retrieve the setting value for the given path and context from the timeout cache.
@@ -28,12 +28,15 @@ public class ApplicationLifetimeRefreshStrategyImpl implements SettingRefreshStr
 	 * @return the setting value
 	 */
 	public SettingValue retrieveSetting(final String path, final String context, final String params) {
-		SettingValue value = getCache().get(path + context);
+		final String key = SettingCacheKeys.compositeKey(path, context);
+		SettingValue value = getCache().get(key);
 
 		// put the setting in the timeout cache
 		if (value == null) {
 			value = getSettingsReader().getSettingValue(path, context);
-			getCache().put(path + context, value);
+			if (value != null) {
+				getCache().put(key, value);
+			}
 		}
 
 		return value;
@@ -52,7 +55,9 @@ public class ApplicationLifetimeRefreshStrategyImpl implements SettingRefreshStr
 		// put the setting in the timeout cache
 		if (value == null) {
 			value = getSettingsReader().getSettingValue(path);
-			getCache().put(path, value);
+			if (value != null) {
+				getCache().put(path, value);
+			}
 		}
 
 		return value;
@@ -3,7 +3,7 @@
  */
 package com.elasticpath.settings.refreshstrategy.impl;
 
-import com.elasticpath.cache.SimpleTimeoutCache;
+import com.elasticpath.cache.ConcurrentTimeoutCache;
 import com.elasticpath.settings.SettingsReader;
 import com.elasticpath.settings.domain.SettingValue;
 import com.elasticpath.settings.refreshstrategy.SettingRefreshStrategy;
@@ -11,6 +11,8 @@ import org.apache.commons.lang.StringUtils;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Timeout cache type implementation of <code>SettingRefreshStrategy</code>.
@@ -21,8 +23,12 @@ public class IntervalRefreshStrategyImpl implements SettingRefreshStrategy {
 	
 	private String timeoutParamKey;
 
-	private static Map<String, SimpleTimeoutCache<String, SettingValue>> timeoutCacheMap
-		= new HashMap<String, SimpleTimeoutCache<String, SettingValue>>();
+	private static final ConcurrentMap<String, ConcurrentTimeoutCache<String, SettingValue>> TIMEOUT_CACHE_MAP
+		= new ConcurrentHashMap<String, ConcurrentTimeoutCache<String, SettingValue>>();
+
+	/** The timeout caches keyed by the raw refresh strategy parameters, so the parameters are only parsed once. */
+	private final ConcurrentMap<String, ConcurrentTimeoutCache<String, SettingValue>> cacheByParams
+		= new ConcurrentHashMap<String, ConcurrentTimeoutCache<String, SettingValue>>();
 
 	/**
 	 * Retrieve the setting value for the given path and context from the timeout cache.
@@ -33,15 +39,15 @@ public class IntervalRefreshStrategyImpl implements SettingRefreshStrategy {
 	 * @return the setting value
 	 */
 	public SettingValue retrieveSetting(final String path, final String context, final String params) {
-		Map<String, String> parameters = parseParameters(params);
-		SimpleTimeoutCache<String, SettingValue> timedCache = getCache(parameters);
+		final ConcurrentTimeoutCache<String, SettingValue> timedCache = getCacheForParams(params);
+		final String key = SettingCacheKeys.compositeKey(path, context);
 
-		SettingValue value = timedCache.get(path + context);
+		SettingValue value = timedCache.get(key);
 
 		// put the setting in the timeout cache
 		if (value == null) {
 			value = getSettingsReader().getSettingValue(path, context);
-			timedCache.put(path + context, value);
+			timedCache.put(key, value);
 		}
 
 		return value;
@@ -55,8 +61,7 @@ public class IntervalRefreshStrategyImpl implements SettingRefreshStrategy {
 	 * @return the setting value
 	 */
 	public SettingValue retrieveSetting(final String path, final String params) {
-		Map<String, String> parameters = parseParameters(params);
-		SimpleTimeoutCache<String, SettingValue> timedCache = getCache(parameters);
+		final ConcurrentTimeoutCache<String, SettingValue> timedCache = getCacheForParams(params);
 		SettingValue value = timedCache.get(path);
 
 		// put the setting in the timeout cache
@@ -68,6 +73,22 @@ public class IntervalRefreshStrategyImpl implements SettingRefreshStrategy {
 		return value;
 	}
 
+	/**
+	 * Gets the timeout cache for the given raw refresh strategy parameters. The parameters are parsed the first time they are seen only.
+	 *
+	 * @param params the refresh strategy parameters
+	 * @return the cache
+	 */
+	protected ConcurrentTimeoutCache<String, SettingValue> getCacheForParams(final String params) {
+		final String paramsKey = StringUtils.defaultString(params);
+		ConcurrentTimeoutCache<String, SettingValue> timedCache = cacheByParams.get(paramsKey);
+		if (timedCache == null) {
+			timedCache = getCache(parseParameters(params));
+			cacheByParams.putIfAbsent(paramsKey, timedCache);
+		}
+		return timedCache;
+	}
+
 	/**
 	 * <p>
 	 * Builds a map of timeout caches with different intervals.
@@ -79,12 +100,15 @@ public class IntervalRefreshStrategyImpl implements SettingRefreshStrategy {
 	 * @param parameters the refresh strategy parameters
 	 * @return the cache
 	 */
-	protected SimpleTimeoutCache<String, SettingValue> getCache(final Map<String, String> parameters) {
+	protected ConcurrentTimeoutCache<String, SettingValue> getCache(final Map<String, String> parameters) {
 		final String timeoutCacheParam = parameters.get(getTimeoutParamKey());
-		SimpleTimeoutCache<String, SettingValue> timedCache = timeoutCacheMap.get(timeoutCacheParam);
+		ConcurrentTimeoutCache<String, SettingValue> timedCache = TIMEOUT_CACHE_MAP.get(timeoutCacheParam);
 		if (timedCache == null) {
-			timedCache = new SimpleTimeoutCache<String, SettingValue>(getIntervalFromSetting(timeoutCacheParam));
-			timeoutCacheMap.put(timeoutCacheParam, timedCache);
+			timedCache = new ConcurrentTimeoutCache<String, SettingValue>(getIntervalFromSetting(timeoutCacheParam));
+			final ConcurrentTimeoutCache<String, SettingValue> existingCache = TIMEOUT_CACHE_MAP.putIfAbsent(timeoutCacheParam, timedCache);
+			if (existingCache != null) {
+				timedCache = existingCache;
+			}
 		}
 		return timedCache;
 	}
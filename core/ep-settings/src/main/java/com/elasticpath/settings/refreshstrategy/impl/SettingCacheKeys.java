@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.settings.refreshstrategy.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns the composite <code>path + context</code> keys used by the caching refresh strategies, so that looking up a setting that has
+ * been read before does not build a new key string. The set of paths and contexts is small and fixed (setting definitions and store
+ * codes), so the interned keys are never released.
+ */
+final class SettingCacheKeys {
+
+	private static final ConcurrentMap<String, ConcurrentMap<String, String>> KEYS_BY_PATH =
+		new ConcurrentHashMap<String, ConcurrentMap<String, String>>();
+
+	private SettingCacheKeys() {
+		// static utility class
+	}
+
+	/**
+	 * Gets the cache key for the given setting path and context.
+	 *
+	 * @param path the setting path
+	 * @param context the setting context
+	 * @return the key, equal to <code>path + context</code>
+	 */
+	static String compositeKey(final String path, final String context) {
+		if (path == null || context == null) {
+			return path + context;
+		}
+
+		ConcurrentMap<String, String> keysByContext = KEYS_BY_PATH.get(path);
+		if (keysByContext == null) {
+			keysByContext = new ConcurrentHashMap<String, String>();
+			final ConcurrentMap<String, String> existingKeys = KEYS_BY_PATH.putIfAbsent(path, keysByContext);
+			if (existingKeys != null) {
+				keysByContext = existingKeys;
+			}
+		}
+
+		String key = keysByContext.get(context);
+		if (key == null) {
+			key = path + context;
+			final String existingKey = keysByContext.putIfAbsent(context, key);
+			if (existingKey != null) {
+				key = existingKey;
+			}
+		}
+		return key;
+	}
+}
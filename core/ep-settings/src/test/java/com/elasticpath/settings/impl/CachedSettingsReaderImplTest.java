@@ -5,6 +5,8 @@ package com.elasticpath.settings.impl;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.HashMap;
@@ -175,6 +177,34 @@ public class CachedSettingsReaderImplTest {
 		}
 	}
 
+	/**
+	 * Test that repeated lookups of a value the refresh strategy has cached return the same immutable wrapper, and that a new wrapper is
+	 * returned once the strategy hands back a different value.
+	 */
+	@Test
+	public void testRepeatedLookupReusesWrapper() {
+		final String settingPath = "COMMERCE/Store/theme4";
+		final SettingValue value = context.mock(SettingValue.class, "value");
+		final SettingValue refreshedValue = context.mock(SettingValue.class, "refreshedValue");
+
+		context.checking(new Expectations() {
+			{
+				oneOf(reader).getSettingDefinition(with(same(settingPath)));
+				will(returnValue(definition));
+
+				exactly(3).of(refreshStrategy).retrieveSetting(with(same(settingPath)), with(same("SNAPITUP")), with(any(String.class)));
+				will(onConsecutiveCalls(returnValue(value), returnValue(value), returnValue(refreshedValue)));
+			}
+		});
+
+		final SettingValue first = cachedSettingsReader.getSettingValue(settingPath, "SNAPITUP");
+		final SettingValue second = cachedSettingsReader.getSettingValue(settingPath, "SNAPITUP");
+		final SettingValue third = cachedSettingsReader.getSettingValue(settingPath, "SNAPITUP");
+
+		assertSame("The same strategy value should be wrapped only once", first, second);
+		assertNotSame("A refreshed strategy value should get a new wrapper", second, third);
+	}
+
 	/**
 	 * Test that the static setting data map is cleared when {@link CachedSettingsReaderImpl#destroy()} is called.
 	 * 
@@ -182,7 +212,7 @@ public class CachedSettingsReaderImplTest {
 	 */
 	@Test
 	public void testSettingDataMapClearedOnDestroy() throws Exception {
-		CachedSettingsReaderImpl.getSettingData().put("key", null);
+		CachedSettingsReaderImpl.getSettingData().put("key", new CachedSettingsReaderImpl.SettingLookup("key", null, refreshStrategy));
 		assertFalse("Setting data map should have one entry", CachedSettingsReaderImpl.getSettingData().isEmpty());
 		CachedSettingsReaderImpl cachedSettingsReader = new CachedSettingsReaderImpl();
 		cachedSettingsReader.destroy();
@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.settings.refreshstrategy.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Test that {@link SettingCacheKeys} builds the same keys the refresh strategies used to concatenate, and interns them.
+ */
+public class SettingCacheKeysTest {
+
+	private static final String PATH = "COMMERCE/STORE/theme";
+
+	private static final String CONTEXT = "SNAPITUP";
+
+	/**
+	 * Test that the key equals the concatenation of path and context.
+	 */
+	@Test
+	public void testKeyEqualsConcatenation() {
+		assertEquals(PATH + CONTEXT, SettingCacheKeys.compositeKey(PATH, CONTEXT));
+	}
+
+	/**
+	 * Test that repeated calls return the same key instance.
+	 */
+	@Test
+	public void testKeyIsInterned() {
+		final String context = new StringBuilder("SNAPITUP").append("UK").toString();
+		assertSame(SettingCacheKeys.compositeKey(PATH, context), SettingCacheKeys.compositeKey(PATH, "SNAPITUPUK"));
+	}
+
+	/**
+	 * Test that a null context behaves like the string concatenation it replaces.
+	 */
+	@Test
+	public void testNullContext() {
+		assertEquals(PATH + null, SettingCacheKeys.compositeKey(PATH, null));
+	}
+}
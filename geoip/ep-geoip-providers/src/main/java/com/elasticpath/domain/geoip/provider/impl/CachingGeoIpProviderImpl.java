@@ -0,0 +1,83 @@
+package com.elasticpath.domain.geoip.provider.impl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.elasticpath.domain.geoip.location.GeoIpLocation;
+import com.elasticpath.domain.geoip.provider.GeoIpProvider;
+
+/**
+ * GeoIP provider that keeps the most recently resolved locations of another provider, so that a remote provider is
+ * called once per address rather than once per session. The cache holds at most the configured number of addresses and
+ * drops the least recently used one when full. Addresses the provider could not resolve are not cached.
+ */
+public class CachingGeoIpProviderImpl extends AbstractGeoIpProviderImpl {
+
+	private static final int DEFAULT_MAX_ENTRIES = 1000;
+
+	private static final float LOAD_FACTOR = 0.75f;
+
+	private GeoIpProvider provider;
+
+	private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+	private Map<String, GeoIpLocation> locations = createCache(DEFAULT_MAX_ENTRIES);
+
+	@Override
+	public GeoIpLocation resolveIPAddress(final String ipAddress) {
+		GeoIpLocation location;
+		synchronized (locations) {
+			location = locations.get(ipAddress);
+		}
+		if (location == null) {
+			location = provider.resolveIPAddress(ipAddress);
+			if (location == null) {
+				return null;
+			}
+			synchronized (locations) {
+				locations.put(ipAddress, GeoIpLocations.copyOf(location));
+			}
+			return location;
+		}
+		return GeoIpLocations.copyOf(location);
+	}
+
+	private static Map<String, GeoIpLocation> createCache(final int maxEntries) {
+		return new LinkedHashMap<String, GeoIpLocation>(maxEntries, LOAD_FACTOR, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, GeoIpLocation> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Sets the provider whose locations are cached.
+	 *
+	 * @param provider the provider
+	 */
+	public void setProvider(final GeoIpProvider provider) {
+		this.provider = provider;
+	}
+
+	/**
+	 * Sets the maximum number of addresses to keep.
+	 *
+	 * @param maxEntries the maximum number of addresses
+	 */
+	public void setMaxEntries(final int maxEntries) {
+		this.maxEntries = maxEntries;
+		this.locations = createCache(maxEntries);
+	}
+
+	/**
+	 * Gets the maximum number of addresses to keep.
+	 *
+	 * @return the maximum number of addresses
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+}
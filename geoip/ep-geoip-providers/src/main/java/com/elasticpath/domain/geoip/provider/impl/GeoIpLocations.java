@@ -0,0 +1,48 @@
+package com.elasticpath.domain.geoip.provider.impl;
+
+import com.elasticpath.domain.geoip.location.GeoIpLocation;
+import com.elasticpath.domain.geoip.location.impl.GeoIpLocationImpl;
+
+/**
+ * Helpers for the locations providers hand out. Callers may set fields of a resolved location, such as its IP address,
+ * so providers that share locations between lookups hand out copies.
+ */
+final class GeoIpLocations {
+
+	private GeoIpLocations() {
+		// static helpers only
+	}
+
+	/**
+	 * Copies a location.
+	 *
+	 * @param location the location to copy, may be null
+	 * @return a new location with the same fields, or null if the location is null
+	 */
+	static GeoIpLocation copyOf(final GeoIpLocation location) {
+		if (location == null) {
+			return null;
+		}
+		final GeoIpLocation copy = new GeoIpLocationImpl();
+		copy.setAsnNumber(location.getAsnNumber());
+		copy.setCarrierName(location.getCarrierName());
+		copy.setCity(location.getCity());
+		copy.setConnectionSpeed(location.getConnectionSpeed());
+		copy.setConnectionType(location.getConnectionType());
+		copy.setContinent(location.getContinent());
+		copy.setCountryCode(location.getCountryCode());
+		copy.setIpAddress(location.getIpAddress());
+		copy.setIpRoutingType(location.getIpRoutingType());
+		copy.setLatitude(location.getLatitude());
+		copy.setLongitude(location.getLongitude());
+		copy.setPhoneNumber(location.getPhoneNumber());
+		copy.setRegion(location.getRegion());
+		copy.setRegisteredOrganization(location.getRegisteredOrganization());
+		copy.setSecondLevelDomain(location.getSecondLevelDomain());
+		copy.setState(location.getState());
+		copy.setGmtTimeZone(location.getGmtTimeZone());
+		copy.setTopLevelDomain(location.getTopLevelDomain());
+		copy.setZipCode(location.getZipCode());
+		return copy;
+	}
+}
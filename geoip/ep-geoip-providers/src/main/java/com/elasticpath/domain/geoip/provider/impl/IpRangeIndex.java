@@ -0,0 +1,208 @@
+package com.elasticpath.domain.geoip.provider.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.elasticpath.domain.geoip.location.GeoIpLocation;
+
+/**
+ * An immutable index of IPv4 address ranges to locations.
+ * <p>
+ * The ranges are held in sorted primitive arrays, and a lookup is a binary search over them that allocates nothing.
+ * Addresses are stored as ints with the sign bit flipped, so that signed comparisons order them as unsigned addresses.
+ * Ranges sharing a location share one {@link GeoIpLocation}.
+ */
+public final class IpRangeIndex {
+
+	/** An index without ranges. */
+	public static final IpRangeIndex EMPTY = new IpRangeIndex(new int[0], new int[0], new int[0], new GeoIpLocation[0]);
+
+	/** Returned by {@link #parseAddress(String)} for strings that are not IPv4 addresses. */
+	public static final long INVALID_ADDRESS = -1L;
+
+	private static final int OCTETS = 4;
+
+	private static final int MAX_OCTET = 255;
+
+	private static final int BITS_PER_OCTET = 8;
+
+	private static final int RADIX = 10;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final int[] rangeStarts;
+
+	private final int[] rangeEnds;
+
+	private final int[] locationIndexes;
+
+	private final GeoIpLocation[] locations;
+
+	private IpRangeIndex(final int[] rangeStarts, final int[] rangeEnds, final int[] locationIndexes, final GeoIpLocation[] locations) {
+		this.rangeStarts = rangeStarts;
+		this.rangeEnds = rangeEnds;
+		this.locationIndexes = locationIndexes;
+		this.locations = locations;
+	}
+
+	/**
+	 * Finds the location of an address.
+	 *
+	 * @param address the address, as returned by {@link #parseAddress(String)}
+	 * @return the location of the range holding the address, or null if no range holds it
+	 */
+	public GeoIpLocation find(final long address) {
+		if (address < 0) {
+			return null;
+		}
+		final int key = toKey(address);
+		int low = 0;
+		int high = rangeStarts.length - 1;
+		while (low <= high) {
+			final int middle = (low + high) >>> 1;
+			if (rangeStarts[middle] <= key) {
+				low = middle + 1;
+			} else {
+				high = middle - 1;
+			}
+		}
+		// high is now the last range starting at or before the address
+		if (high < 0 || key > rangeEnds[high]) {
+			return null;
+		}
+		return locations[locationIndexes[high]];
+	}
+
+	/**
+	 * Gets the number of ranges.
+	 *
+	 * @return the number of ranges
+	 */
+	public int getRangeCount() {
+		return rangeStarts.length;
+	}
+
+	/**
+	 * Gets the number of distinct locations.
+	 *
+	 * @return the number of locations
+	 */
+	public int getLocationCount() {
+		return locations.length;
+	}
+
+	/**
+	 * Parses a dotted IPv4 address without allocating.
+	 *
+	 * @param ipAddress the address, such as 10.10.2.1
+	 * @return the address as an unsigned 32 bit number, or {@link #INVALID_ADDRESS} if the string is not an IPv4 address
+	 */
+	public static long parseAddress(final String ipAddress) {
+		if (ipAddress == null) {
+			return INVALID_ADDRESS;
+		}
+		long address = 0;
+		int octet = 0;
+		int digits = 0;
+		int octets = 0;
+		for (int i = 0; i < ipAddress.length(); i++) {
+			final char character = ipAddress.charAt(i);
+			if (character == '.') {
+				octets++;
+				if (digits == 0 || octets == OCTETS) {
+					return INVALID_ADDRESS;
+				}
+				address = (address << BITS_PER_OCTET) | octet;
+				octet = 0;
+				digits = 0;
+			} else {
+				final int digit = Character.digit(character, RADIX);
+				if (digit < 0) {
+					return INVALID_ADDRESS;
+				}
+				octet = octet * RADIX + digit;
+				if (octet > MAX_OCTET) {
+					return INVALID_ADDRESS;
+				}
+				digits++;
+			}
+		}
+		if (digits == 0 || octets != OCTETS - 1) {
+			return INVALID_ADDRESS;
+		}
+		return (address << BITS_PER_OCTET) | octet;
+	}
+
+	private static int toKey(final long address) {
+		return (int) address ^ Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Builds an index from ranges added in ascending order.
+	 */
+	public static class Builder {
+
+		private int[] rangeStarts = new int[INITIAL_CAPACITY];
+
+		private int[] rangeEnds = new int[INITIAL_CAPACITY];
+
+		private int[] locationIndexes = new int[INITIAL_CAPACITY];
+
+		private int rangeCount;
+
+		private final List<GeoIpLocation> locations = new ArrayList<GeoIpLocation>();
+
+		/**
+		 * Adds a location that ranges can then refer to.
+		 *
+		 * @param location the location
+		 * @return the index of the location
+		 */
+		public int addLocation(final GeoIpLocation location) {
+			locations.add(location);
+			return locations.size() - 1;
+		}
+
+		/**
+		 * Adds a range. Ranges must be added in ascending order and must not overlap.
+		 *
+		 * @param startAddress the first address of the range, as returned by {@link IpRangeIndex#parseAddress(String)}
+		 * @param endAddress the last address of the range
+		 * @param locationIndex the index of the location of the range, as returned by {@link #addLocation(GeoIpLocation)}
+		 * @throws IllegalArgumentException if the range is invalid, out of order or overlaps the previous range
+		 */
+		public void addRange(final long startAddress, final long endAddress, final int locationIndex) {
+			if (startAddress < 0 || endAddress < startAddress) {
+				throw new IllegalArgumentException("Invalid range " + startAddress + "-" + endAddress);
+			}
+			if (locationIndex < 0 || locationIndex >= locations.size()) {
+				throw new IllegalArgumentException("Unknown location " + locationIndex);
+			}
+			final int startKey = toKey(startAddress);
+			if (rangeCount > 0 && startKey <= rangeEnds[rangeCount - 1]) {
+				throw new IllegalArgumentException("Range starting at " + startAddress + " is out of order or overlaps the previous range");
+			}
+			if (rangeCount == rangeStarts.length) {
+				final int capacity = rangeCount * 2;
+				rangeStarts = Arrays.copyOf(rangeStarts, capacity);
+				rangeEnds = Arrays.copyOf(rangeEnds, capacity);
+				locationIndexes = Arrays.copyOf(locationIndexes, capacity);
+			}
+			rangeStarts[rangeCount] = startKey;
+			rangeEnds[rangeCount] = toKey(endAddress);
+			locationIndexes[rangeCount] = locationIndex;
+			rangeCount++;
+		}
+
+		/**
+		 * Builds the index.
+		 *
+		 * @return the index
+		 */
+		public IpRangeIndex build() {
+			return new IpRangeIndex(Arrays.copyOf(rangeStarts, rangeCount), Arrays.copyOf(rangeEnds, rangeCount),
+					Arrays.copyOf(locationIndexes, rangeCount), locations.toArray(new GeoIpLocation[locations.size()]));
+		}
+	}
+}
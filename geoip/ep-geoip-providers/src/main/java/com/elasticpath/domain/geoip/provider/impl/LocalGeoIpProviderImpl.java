@@ -0,0 +1,278 @@
+package com.elasticpath.domain.geoip.provider.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+import com.elasticpath.domain.geoip.location.GeoIpLocation;
+import com.elasticpath.domain.geoip.location.impl.GeoIpLocationImpl;
+import com.elasticpath.domain.geoip.provider.GeoIpProvider;
+
+/**
+ * GeoIP provider resolving IPv4 addresses in-process from a dataset file of address ranges, without network calls.
+ * <p>
+ * The dataset is a UTF-8 CSV file with one range per line, in ascending order and without overlaps:
+ * <pre>
+ * startIp,endIp,countryCode,region,state,city,zipCode,continent,gmtTimeZone,latitude,longitude,
+ *   connectionType,connectionSpeed,ipRoutingType,carrierName,topLevelDomain,secondLevelDomain
+ * </pre>
+ * Fields are not quoted, trailing fields may be left out, empty fields are null, and lines starting with # are comments.
+ * <p>
+ * The dataset is loaded into an {@link IpRangeIndex}. When the file changes it is loaded again in the background and
+ * the new index replaces the old one, so lookups never wait for a reload. A dataset that cannot be loaded is logged
+ * and the previous index is kept. Addresses the index cannot resolve, including IPv6 addresses, are resolved by the
+ * fallback provider if one is set.
+ */
+public class LocalGeoIpProviderImpl extends AbstractGeoIpProviderImpl {
+
+	private static final Logger LOG = Logger.getLogger(LocalGeoIpProviderImpl.class);
+
+	private static final long DEFAULT_RELOAD_CHECK_INTERVAL = 60000L;
+
+	private static final String COMMENT_PREFIX = "#";
+
+	private static final String FIELD_SEPARATOR = ",";
+
+	private static final String ENCODING = "UTF-8";
+
+	private static final int COUNTRY_CODE = 2;
+
+	private static final int REGION = 3;
+
+	private static final int STATE = 4;
+
+	private static final int CITY = 5;
+
+	private static final int ZIP_CODE = 6;
+
+	private static final int CONTINENT = 7;
+
+	private static final int GMT_TIME_ZONE = 8;
+
+	private static final int LATITUDE = 9;
+
+	private static final int LONGITUDE = 10;
+
+	private static final int CONNECTION_TYPE = 11;
+
+	private static final int CONNECTION_SPEED = 12;
+
+	private static final int IP_ROUTING_TYPE = 13;
+
+	private static final int CARRIER_NAME = 14;
+
+	private static final int TOP_LEVEL_DOMAIN = 15;
+
+	private static final int SECOND_LEVEL_DOMAIN = 16;
+
+	private volatile IpRangeIndex index = IpRangeIndex.EMPTY;
+
+	private volatile long loadedLastModified;
+
+	private String datasetFile;
+
+	private long reloadCheckInterval = DEFAULT_RELOAD_CHECK_INTERVAL;
+
+	private GeoIpProvider fallbackProvider;
+
+	private ScheduledExecutorService reloadScheduler;
+
+	/**
+	 * Loads the dataset and starts checking it for changes.
+	 */
+	public void init() {
+		reloadIfModified();
+		if (reloadCheckInterval > 0) {
+			reloadScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				public Thread newThread(final Runnable runnable) {
+					final Thread thread = new Thread(runnable, "GeoIpDatasetReloader");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			reloadScheduler.scheduleWithFixedDelay(new Runnable() {
+				public void run() {
+					reloadIfModified();
+				}
+			}, reloadCheckInterval, reloadCheckInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops checking the dataset for changes.
+	 */
+	public void destroy() {
+		if (reloadScheduler != null) {
+			reloadScheduler.shutdownNow();
+		}
+	}
+
+	@Override
+	public GeoIpLocation resolveIPAddress(final String ipAddress) {
+		final GeoIpLocation location = index.find(IpRangeIndex.parseAddress(ipAddress));
+		if (location != null) {
+			return GeoIpLocations.copyOf(location);
+		}
+		if (fallbackProvider != null) {
+			return fallbackProvider.resolveIPAddress(ipAddress);
+		}
+		return null;
+	}
+
+	/**
+	 * Loads the dataset if the file has changed since it was last loaded.
+	 */
+	void reloadIfModified() {
+		final File file = new File(datasetFile);
+		final long lastModified = file.lastModified();
+		if (lastModified == 0L) {
+			LOG.error("GeoIP dataset " + file.getAbsolutePath() + " does not exist");
+			return;
+		}
+		if (lastModified == loadedLastModified) {
+			return;
+		}
+		// a dataset that fails to load is only reported again once it changes
+		loadedLastModified = lastModified;
+		try {
+			final long start = System.currentTimeMillis();
+			final IpRangeIndex newIndex = readDataset(file);
+			index = newIndex;
+			LOG.info("Loaded GeoIP dataset " + file.getAbsolutePath() + " with " + newIndex.getRangeCount() + " ranges of "
+					+ newIndex.getLocationCount() + " locations in " + (System.currentTimeMillis() - start) + " ms");
+		} catch (IOException e) {
+			LOG.error("Could not read GeoIP dataset " + file.getAbsolutePath() + ", keeping the previous dataset", e);
+		} catch (IllegalArgumentException e) {
+			LOG.error("Invalid GeoIP dataset " + file.getAbsolutePath() + ", keeping the previous dataset", e);
+		}
+	}
+
+	private IpRangeIndex readDataset(final File file) throws IOException {
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+		try {
+			return readDataset(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Reads a dataset into an index. Ranges with the same location fields share one location.
+	 *
+	 * @param reader the dataset
+	 * @return the index
+	 * @throws IOException if the dataset could not be read
+	 * @throws IllegalArgumentException if a line of the dataset is invalid
+	 */
+	static IpRangeIndex readDataset(final BufferedReader reader) throws IOException {
+		final IpRangeIndex.Builder builder = new IpRangeIndex.Builder();
+		final Map<String, Integer> locationIndexes = new HashMap<String, Integer>();
+		int lineNumber = 0;
+		String line = reader.readLine();
+		while (line != null) {
+			lineNumber++;
+			if (StringUtils.isNotBlank(line) && !line.startsWith(COMMENT_PREFIX)) {
+				try {
+					addRange(builder, locationIndexes, line);
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+				}
+			}
+			line = reader.readLine();
+		}
+		return builder.build();
+	}
+
+	private static void addRange(final IpRangeIndex.Builder builder, final Map<String, Integer> locationIndexes, final String line) {
+		final String[] fields = line.split(FIELD_SEPARATOR, -1);
+		if (fields.length <= COUNTRY_CODE) {
+			throw new IllegalArgumentException("A range needs a start address, an end address and a location");
+		}
+		final long startAddress = parseRangeAddress(fields[0]);
+		final long endAddress = parseRangeAddress(fields[1]);
+
+		final String locationKey = line.substring(fields[0].length() + fields[1].length() + 2);
+		Integer locationIndex = locationIndexes.get(locationKey);
+		if (locationIndex == null) {
+			locationIndex = builder.addLocation(createLocation(fields));
+			locationIndexes.put(locationKey, locationIndex);
+		}
+		builder.addRange(startAddress, endAddress, locationIndex);
+	}
+
+	private static long parseRangeAddress(final String field) {
+		final long address = IpRangeIndex.parseAddress(field.trim());
+		if (address == IpRangeIndex.INVALID_ADDRESS) {
+			throw new IllegalArgumentException("Invalid IPv4 address " + field);
+		}
+		return address;
+	}
+
+	private static GeoIpLocation createLocation(final String[] fields) {
+		final GeoIpLocation location = new GeoIpLocationImpl();
+		location.setCountryCode(getField(fields, COUNTRY_CODE));
+		location.setRegion(getField(fields, REGION));
+		location.setState(getField(fields, STATE));
+		location.setCity(getField(fields, CITY));
+		location.setZipCode(getField(fields, ZIP_CODE));
+		location.setContinent(getField(fields, CONTINENT));
+		final String gmtTimeZone = getField(fields, GMT_TIME_ZONE);
+		if (gmtTimeZone != null) {
+			location.setGmtTimeZone(Float.valueOf(gmtTimeZone));
+		}
+		location.setLatitude(getField(fields, LATITUDE));
+		location.setLongitude(getField(fields, LONGITUDE));
+		location.setConnectionType(getField(fields, CONNECTION_TYPE));
+		location.setConnectionSpeed(getField(fields, CONNECTION_SPEED));
+		location.setIpRoutingType(getField(fields, IP_ROUTING_TYPE));
+		location.setCarrierName(getField(fields, CARRIER_NAME));
+		location.setTopLevelDomain(getField(fields, TOP_LEVEL_DOMAIN));
+		location.setSecondLevelDomain(getField(fields, SECOND_LEVEL_DOMAIN));
+		return location;
+	}
+
+	private static String getField(final String[] fields, final int fieldIndex) {
+		if (fieldIndex >= fields.length) {
+			return null;
+		}
+		return StringUtils.trimToNull(fields[fieldIndex]);
+	}
+
+	/**
+	 * Sets the path of the dataset file.
+	 *
+	 * @param datasetFile the dataset file
+	 */
+	public void setDatasetFile(final String datasetFile) {
+		this.datasetFile = datasetFile;
+	}
+
+	/**
+	 * Sets how often the dataset file is checked for changes. Zero turns off reloading.
+	 *
+	 * @param reloadCheckInterval the interval in milliseconds
+	 */
+	public void setReloadCheckInterval(final long reloadCheckInterval) {
+		this.reloadCheckInterval = reloadCheckInterval;
+	}
+
+	/**
+	 * Sets the provider of the addresses the dataset does not hold.
+	 *
+	 * @param fallbackProvider the fallback provider, or null to resolve such addresses to no location
+	 */
+	public void setFallbackProvider(final GeoIpProvider fallbackProvider) {
+		this.fallbackProvider = fallbackProvider;
+	}
+}
@@ -0,0 +1,192 @@
+package com.elasticpath.domain.geoip.provider.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.Writer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.elasticpath.domain.geoip.location.GeoIpLocation;
+import com.elasticpath.domain.geoip.location.impl.GeoIpLocationImpl;
+
+/**
+ * Test {@link LocalGeoIpProviderImpl}.
+ */
+public class LocalGeoIpProviderImplTest {
+
+	private static final String DATASET = "# startIp,endIp,countryCode,region,state,city\n"
+			+ "10.10.2.0,10.10.2.255,CA,BC,BC,Vancouver\n"
+			+ "12.68.78.0,12.68.78.127,RU,moscow,russia,Moscow\n"
+			+ "\n"
+			+ "200.1.1.0,255.255.255.255,CA,BC,BC,Vancouver\n";
+
+	private static final String UPDATED_DATASET = "10.10.2.0,10.10.2.255,US,NY,NY,New York\n";
+
+	private static final long ONE_SECOND = 1000L;
+
+	private static final int THREE_RANGES = 3;
+
+	private static final int THREE_CALLS = 3;
+
+	private static final String VANCOUVER_ADDRESS = "10.10.2.1";
+
+	private File datasetFile;
+
+	private LocalGeoIpProviderImpl provider;
+
+	/**
+	 * Write the dataset and create the provider.
+	 *
+	 * @throws IOException if the dataset could not be written
+	 */
+	@Before
+	public void setUp() throws IOException {
+		datasetFile = File.createTempFile("ip-ranges", ".csv");
+		writeDataset(DATASET);
+		provider = new LocalGeoIpProviderImpl();
+		provider.setDatasetFile(datasetFile.getPath());
+		provider.setReloadCheckInterval(0);
+		provider.init();
+	}
+
+	/**
+	 * Delete the dataset.
+	 */
+	@After
+	public void tearDown() {
+		provider.destroy();
+		datasetFile.delete();
+	}
+
+	private void writeDataset(final String dataset) throws IOException {
+		final Writer writer = new OutputStreamWriter(new FileOutputStream(datasetFile), "UTF-8");
+		try {
+			writer.write(dataset);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Test that addresses resolve to the range holding them, including the first and last addresses of ranges.
+	 */
+	@Test
+	public void testResolvesAddressesInRanges() {
+		assertEquals("Vancouver", provider.resolveIPAddress("10.10.2.0").getCity());
+		assertEquals("Vancouver", provider.resolveIPAddress("10.10.2.255").getCity());
+		assertEquals("Moscow", provider.resolveIPAddress("12.68.78.1").getCity());
+		assertEquals("addresses above 128.0.0.0 should compare as unsigned", "CA", provider.resolveIPAddress("255.255.255.255").getCountryCode());
+		assertNull("gaps between ranges should not resolve", provider.resolveIPAddress("12.68.78.128"));
+		assertNull(provider.resolveIPAddress("9.255.255.255"));
+		assertNull(provider.resolveIPAddress("::1"));
+	}
+
+	/**
+	 * Test that every lookup gets its own copy of a location, which ranges with the same location share in the index.
+	 *
+	 * @throws IOException if the dataset could not be read
+	 */
+	@Test
+	public void testLocationsAreSharedInTheIndexAndCopiedOnLookup() throws IOException {
+		final IpRangeIndex index = LocalGeoIpProviderImpl.readDataset(new BufferedReader(new StringReader(DATASET)));
+		assertEquals(THREE_RANGES, index.getRangeCount());
+		assertEquals(2, index.getLocationCount());
+
+		final GeoIpLocation location = provider.resolveIPAddress(VANCOUVER_ADDRESS);
+		location.setIpAddress(VANCOUVER_ADDRESS);
+		assertNotSame(location, provider.resolveIPAddress(VANCOUVER_ADDRESS));
+		assertNull(provider.resolveIPAddress(VANCOUVER_ADDRESS).getIpAddress());
+	}
+
+	/**
+	 * Test that addresses are parsed as unsigned numbers, and that strings that are not IPv4 addresses are rejected.
+	 */
+	@Test
+	public void testParseAddress() {
+		assertEquals(0xFFFFFFFFL, IpRangeIndex.parseAddress("255.255.255.255"));
+		assertEquals(IpRangeIndex.INVALID_ADDRESS, IpRangeIndex.parseAddress("256.1.1.1"));
+		assertEquals(IpRangeIndex.INVALID_ADDRESS, IpRangeIndex.parseAddress("1.1.1"));
+		assertEquals(IpRangeIndex.INVALID_ADDRESS, IpRangeIndex.parseAddress("1..1.1"));
+		assertEquals(IpRangeIndex.INVALID_ADDRESS, IpRangeIndex.parseAddress("1.1.1.1.1"));
+	}
+
+	/**
+	 * Test that ranges out of order are rejected.
+	 *
+	 * @throws IOException if the dataset could not be read
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void testOverlappingRangesAreRejected() throws IOException {
+		LocalGeoIpProviderImpl.readDataset(new BufferedReader(new StringReader(DATASET + "200.1.1.1,200.1.1.2,CA\n")));
+	}
+
+	/**
+	 * Test that a changed dataset replaces the loaded one, and that an invalid one does not.
+	 *
+	 * @throws IOException if the dataset could not be written
+	 */
+	@Test
+	public void testReloadsChangedDataset() throws IOException {
+		writeDataset(UPDATED_DATASET);
+		datasetFile.setLastModified(datasetFile.lastModified() + ONE_SECOND);
+		provider.reloadIfModified();
+		assertEquals("New York", provider.resolveIPAddress(VANCOUVER_ADDRESS).getCity());
+		assertNull(provider.resolveIPAddress("12.68.78.1"));
+
+		writeDataset("not a dataset\n");
+		datasetFile.setLastModified(datasetFile.lastModified() + ONE_SECOND);
+		provider.reloadIfModified();
+		assertEquals("New York", provider.resolveIPAddress(VANCOUVER_ADDRESS).getCity());
+	}
+
+	/**
+	 * Test that addresses outside the dataset are resolved by the fallback provider, whose locations are cached.
+	 */
+	@Test
+	public void testFallsBackToCachedProvider() {
+		final CountingProvider remoteProvider = new CountingProvider();
+		final CachingGeoIpProviderImpl cachingProvider = new CachingGeoIpProviderImpl();
+		cachingProvider.setProvider(remoteProvider);
+		cachingProvider.setMaxEntries(1);
+		provider.setFallbackProvider(cachingProvider);
+
+		assertEquals("Remote", provider.resolveIPAddress("1.2.3.4").getCity());
+		assertEquals("Remote", provider.resolveIPAddress("1.2.3.4").getCity());
+		assertEquals(1, remoteProvider.getCalls());
+		assertEquals("Vancouver", provider.resolveIPAddress(VANCOUVER_ADDRESS).getCity());
+		assertEquals(1, remoteProvider.getCalls());
+
+		provider.resolveIPAddress("1.2.3.5");
+		provider.resolveIPAddress("1.2.3.4");
+		assertEquals("the cache should only hold one address", THREE_CALLS, remoteProvider.getCalls());
+	}
+
+	/**
+	 * A remote provider counting its calls.
+	 */
+	private static class CountingProvider extends AbstractGeoIpProviderImpl {
+		private int calls;
+
+		@Override
+		public GeoIpLocation resolveIPAddress(final String ipAddress) {
+			calls++;
+			final GeoIpLocation location = new GeoIpLocationImpl();
+			location.setCity("Remote");
+			return location;
+		}
+
+		public int getCalls() {
+			return calls;
+		}
+	}
+}
@@ -22,6 +22,19 @@ import com.elasticpath.persistence.api.LoadTuner;
  */
 public interface CachingService {
 
+	/**
+	 * Starts caching reference data for the import job about to run, preloading it in bulk. Only call this for jobs which do not modify
+	 * the cached reference data themselves, and call {@link #stopCaching()} once the job is done. Jobs running at the same time share
+	 * the cached data.
+	 */
+	void startCaching();
+
+	/**
+	 * Stops caching for an import job. Once no job caches any more, reports how many lookups of each type of reference data were served
+	 * from the cache and drops the cached data; lookups go to the database again until caching is started.
+	 */
+	void stopCaching();
+
 	/**
 	 * Finds Product Type by given name.
 	 * 
@@ -1,7 +1,12 @@
 package com.elasticpath.importexport.common.caching.impl;
 
+import java.util.Arrays;
 import java.util.List;
 
+import org.apache.log4j.Logger;
+
+import com.elasticpath.base.exception.EpServiceException;
+
 import com.elasticpath.domain.attribute.Attribute;
 import com.elasticpath.domain.catalog.Brand;
 import com.elasticpath.domain.catalog.Catalog;
@@ -16,6 +21,7 @@ import com.elasticpath.domain.store.Store;
 import com.elasticpath.domain.store.Warehouse;
 import com.elasticpath.domain.tax.TaxCode;
 import com.elasticpath.importexport.common.caching.CachingService;
+import com.elasticpath.importexport.common.util.Message;
 import com.elasticpath.persistence.api.LoadTuner;
 import com.elasticpath.persistence.dao.ProductBundleDao;
 import com.elasticpath.persistence.dao.ProductDao;
@@ -32,12 +38,55 @@ import com.elasticpath.service.store.WarehouseService;
 import com.elasticpath.service.tax.TaxCodeService;
 
 /**
- * The simple implementation of the <code>CachingService</code> interface.
+ * The implementation of the <code>CachingService</code> interface.
+ * <p>
+ * While caching is started, reference data (catalogs, brands, tax codes, product types, attributes, sku options, category types,
+ * warehouses and stores) is looked up once per code and then served from bounded in-memory caches; most of it is loaded in bulk when
+ * caching starts. Products, skus, bundles and categories are always looked up with the EP services, as are all entities while caching
+ * is stopped.
  * <p>
- * This implementation does not provide any caching strategy, it only uses existent EP services for finding necessary entities.
+ * The service is shared by all import jobs and their import threads. Jobs running at the same time share the caches, which are dropped
+ * once the last of them stops caching, and are emptied again before the next job preloads them.
  */
 public class CachingServiceImpl implements CachingService {
 
+	private static final Logger LOG = Logger.getLogger(CachingServiceImpl.class);
+
+	private static final int DEFAULT_MAX_ENTRIES_PER_TYPE = 10000;
+
+	private static final String ALL_WAREHOUSES = "all";
+
+	private static final int PERCENT = 100;
+
+	private volatile boolean cachingStarted;
+
+	private int cachingJobs;
+
+	private final ReferenceDataCache<Catalog> catalogCache = new ReferenceDataCache<Catalog>("catalogs", DEFAULT_MAX_ENTRIES_PER_TYPE);
+
+	private final ReferenceDataCache<Brand> brandCache = new ReferenceDataCache<Brand>("brands", DEFAULT_MAX_ENTRIES_PER_TYPE);
+
+	private final ReferenceDataCache<TaxCode> taxCodeCache = new ReferenceDataCache<TaxCode>("tax codes", DEFAULT_MAX_ENTRIES_PER_TYPE);
+
+	private final ReferenceDataCache<ProductType> productTypeCache =
+		new ReferenceDataCache<ProductType>("product types", DEFAULT_MAX_ENTRIES_PER_TYPE);
+
+	private final ReferenceDataCache<Attribute> attributeCache = new ReferenceDataCache<Attribute>("attributes", DEFAULT_MAX_ENTRIES_PER_TYPE);
+
+	private final ReferenceDataCache<SkuOption> skuOptionCache = new ReferenceDataCache<SkuOption>("sku options", DEFAULT_MAX_ENTRIES_PER_TYPE);
+
+	private final ReferenceDataCache<CategoryType> categoryTypeCache =
+		new ReferenceDataCache<CategoryType>("category types", DEFAULT_MAX_ENTRIES_PER_TYPE);
+
+	private final ReferenceDataCache<Warehouse> warehouseCache = new ReferenceDataCache<Warehouse>("warehouses", DEFAULT_MAX_ENTRIES_PER_TYPE);
+
+	private final ReferenceDataCache<List<Warehouse>> warehouseListCache = new ReferenceDataCache<List<Warehouse>>("warehouse lists", 1);
+
+	private final ReferenceDataCache<Store> storeCache = new ReferenceDataCache<Store>("stores", DEFAULT_MAX_ENTRIES_PER_TYPE);
+
+	private final List<ReferenceDataCache< ? >> caches = Arrays.<ReferenceDataCache< ? >>asList(catalogCache, brandCache, taxCodeCache,
+			productTypeCache, attributeCache, skuOptionCache, categoryTypeCache, warehouseCache, warehouseListCache, storeCache);
+
 	private CategoryService categoryService;
 
 	private CatalogService catalogService;
@@ -64,9 +113,102 @@ public class CachingServiceImpl implements CachingService {
 	
 	private StoreService storeService;
 
+	/**
+	 * Starts caching for an import job. The first job to start caching empties the caches, in case an entity was cached by a lookup
+	 * which raced with the previous stop, and preloads them; the jobs started while it runs share its caches.
+	 */
+	@Override
+	public synchronized void startCaching() {
+		if (cachingJobs++ > 0) {
+			return;
+		}
+
+		for (final ReferenceDataCache< ? > cache : caches) {
+			cache.clear();
+		}
+		try {
+			preloadReferenceData();
+		} catch (EpServiceException exception) {
+			LOG.warn("Could not preload reference data, it will be cached as it is looked up", exception);
+		}
+		cachingStarted = true;
+	}
+
+	/**
+	 * Loads the reference data which is cheap to load in bulk into the caches. Product types and category types are cached as they are
+	 * looked up, since their lookups load more than their bulk queries do.
+	 */
+	protected void preloadReferenceData() {
+		for (final Catalog catalog : catalogService.findAllCatalogs()) {
+			catalogCache.put(catalog.getCode(), catalog);
+		}
+		for (final Brand brand : brandService.list()) {
+			brandCache.put(brand.getCode(), brand);
+		}
+		for (final TaxCode taxCode : taxCodeService.list()) {
+			taxCodeCache.put(taxCode.getCode(), taxCode);
+		}
+		for (final Attribute attribute : attributeService.list()) {
+			attributeCache.put(attribute.getKey(), attribute);
+		}
+		for (final SkuOption skuOption : skuOptionService.list()) {
+			skuOptionCache.put(skuOption.getOptionKey(), skuOption);
+		}
+		final List<Warehouse> warehouses = warehouseService.findAllWarehouses();
+		for (final Warehouse warehouse : warehouses) {
+			warehouseCache.put(warehouse.getCode(), warehouse);
+		}
+		warehouseListCache.put(ALL_WAREHOUSES, warehouses);
+		for (final Store store : storeService.findAllStores()) {
+			storeCache.put(store.getCode(), store);
+		}
+	}
+
+	/**
+	 * Stops caching for an import job. Caching goes on until the last of the jobs which started it stops it, which reports the cache
+	 * statistics and drops the cached data.
+	 */
+	@Override
+	public synchronized void stopCaching() {
+		if (cachingJobs == 0) {
+			return;
+		}
+		if (--cachingJobs > 0) {
+			return;
+		}
+		cachingStarted = false;
+
+		for (final ReferenceDataCache< ? > cache : caches) {
+			final long lookups = cache.getLookups();
+			if (lookups > 0) {
+				LOG.info(new Message("IE-30409", cache.getName(), String.valueOf(cache.getHits()), String.valueOf(lookups),
+						String.valueOf(cache.getHits() * PERCENT / lookups)));
+			}
+			cache.clear();
+		}
+	}
+
+	private <T> T getCached(final ReferenceDataCache<T> cache, final String key) {
+		if (cachingStarted) {
+			return cache.get(key);
+		}
+		return null;
+	}
+
+	private <T> T cache(final ReferenceDataCache<T> cache, final String key, final T value) {
+		if (cachingStarted) {
+			cache.put(key, value);
+		}
+		return value;
+	}
+
 	@Override
 	public Brand findBrandByCode(final String code) {
-		return brandService.findByCode(code);
+		final Brand brand = getCached(brandCache, code);
+		if (brand != null) {
+			return brand;
+		}
+		return cache(brandCache, code, brandService.findByCode(code));
 	}
 
 	@Override
@@ -123,17 +265,29 @@ public class CachingServiceImpl implements CachingService {
 
 	@Override
 	public ProductType findProductTypeByName(final String type) {
-		return productTypeDao.findProductTypeWithAttributes(type);
+		final ProductType productType = getCached(productTypeCache, type);
+		if (productType != null) {
+			return productType;
+		}
+		return cache(productTypeCache, type, productTypeDao.findProductTypeWithAttributes(type));
 	}
 
 	@Override
 	public TaxCode findTaxCodeByCode(final String code) {
-		return taxCodeService.findByCode(code);
+		final TaxCode taxCode = getCached(taxCodeCache, code);
+		if (taxCode != null) {
+			return taxCode;
+		}
+		return cache(taxCodeCache, code, taxCodeService.findByCode(code));
 	}
 
 	@Override
 	public Catalog findCatalogByCode(final String catalogCode) {
-		return catalogService.findByCode(catalogCode);
+		final Catalog catalog = getCached(catalogCache, catalogCode);
+		if (catalog != null) {
+			return catalog;
+		}
+		return cache(catalogCache, catalogCode, catalogService.findByCode(catalogCode));
 	}
 
 	/**
@@ -150,23 +304,39 @@ public class CachingServiceImpl implements CachingService {
 
 	@Override
 	public Warehouse findWarehouseByCode(final String code) {
-		return warehouseService.findByCode(code);
+		final Warehouse warehouse = getCached(warehouseCache, code);
+		if (warehouse != null) {
+			return warehouse;
+		}
+		return cache(warehouseCache, code, warehouseService.findByCode(code));
 	}
 
 	@Override
 	public List<Warehouse> findAllWarehouses() {
+		final List<Warehouse> warehouses = getCached(warehouseListCache, ALL_WAREHOUSES);
+		if (warehouses != null) {
+			return warehouses;
+		}
 		// TODO: need that all warehouses have code and uid.
-		return warehouseService.findAllWarehouses();
+		return cache(warehouseListCache, ALL_WAREHOUSES, warehouseService.findAllWarehouses());
 	}
 
 	@Override
 	public Attribute findAttribiteByKey(final String key) {
-		return attributeService.findByKey(key);
+		final Attribute attribute = getCached(attributeCache, key);
+		if (attribute != null) {
+			return attribute;
+		}
+		return cache(attributeCache, key, attributeService.findByKey(key));
 	}
 
 	@Override
 	public SkuOption findSkuOptionByKey(final String key) {
-		return skuOptionService.findByKey(key);
+		final SkuOption skuOption = getCached(skuOptionCache, key);
+		if (skuOption != null) {
+			return skuOption;
+		}
+		return cache(skuOptionCache, key, skuOptionService.findByKey(key));
 	}
 	
 	@Override
@@ -176,12 +346,20 @@ public class CachingServiceImpl implements CachingService {
 	
 	@Override
 	public CategoryType findCategoryTypeByName(final String typeName) {
-		return categoryTypeService.findCategoryType(typeName);
+		final CategoryType categoryType = getCached(categoryTypeCache, typeName);
+		if (categoryType != null) {
+			return categoryType;
+		}
+		return cache(categoryTypeCache, typeName, categoryTypeService.findCategoryType(typeName));
 	}
 	
 	@Override
 	public Store findStoreByCode(final String storeCode) {
-		return storeService.findStoreWithCode(storeCode);
+		final Store store = getCached(storeCache, storeCode);
+		if (store != null) {
+			return store;
+		}
+		return cache(storeCache, storeCode, storeService.findStoreWithCode(storeCode));
 	}
 	
 	/**
@@ -382,6 +560,19 @@ public class CachingServiceImpl implements CachingService {
 		this.storeService = storeService;
 	}
 
+	/**
+	 * Sets the maximum number of entities cached per type of reference data.
+	 *
+	 * @param maxEntriesPerType the maximum number of entries of each cache
+	 */
+	public void setMaxEntriesPerType(final int maxEntriesPerType) {
+		for (final ReferenceDataCache< ? > cache : caches) {
+			if (cache != warehouseListCache) {
+				cache.setMaxEntries(maxEntriesPerType);
+			}
+		}
+	}
+
 	/**
 	 * @param productBundleDao the productBundleDao to set
 	 */
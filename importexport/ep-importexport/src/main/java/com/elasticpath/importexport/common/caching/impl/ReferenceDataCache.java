@@ -0,0 +1,117 @@
+package com.elasticpath.importexport.common.caching.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded cache of one type of reference data, keyed by code, which counts how many lookups it could serve.
+ * <p>
+ * Only entities that exist are cached, so an entity imported after it was first looked up for is found on the next lookup. Once the
+ * cache holds its maximum number of entries further entities are not cached, and lookups for them go to the database.
+ *
+ * @param <T> the type of the cached entities
+ */
+public class ReferenceDataCache<T> {
+
+	private final String name;
+
+	private volatile int maxEntries;
+
+	private final ConcurrentMap<String, T> entries = new ConcurrentHashMap<String, T>();
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name the name of the cached type, used in statistics
+	 * @param maxEntries the maximum number of entries
+	 */
+	public ReferenceDataCache(final String name, final int maxEntries) {
+		this.name = name;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Looks up an entity, counting the lookup as a hit or a miss.
+	 *
+	 * @param key the code of the entity
+	 * @return the cached entity, or null if it is not cached
+	 */
+	public T get(final String key) {
+		if (key == null) {
+			return null;
+		}
+		final T value = entries.get(key);
+		if (value == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return value;
+	}
+
+	/**
+	 * Caches an entity, unless it is null or the cache is full.
+	 *
+	 * @param key the code of the entity
+	 * @param value the entity
+	 */
+	public void put(final String key, final T value) {
+		if (key != null && value != null && entries.size() < maxEntries) {
+			entries.put(key, value);
+		}
+	}
+
+	/**
+	 * Drops all entries and resets the statistics.
+	 */
+	public void clear() {
+		entries.clear();
+		hits.set(0);
+		misses.set(0);
+	}
+
+	/**
+	 * Sets the maximum number of entries. Entries already cached are kept.
+	 *
+	 * @param maxEntries the maximum number of entries
+	 */
+	public void setMaxEntries(final int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the number of entries.
+	 *
+	 * @return the number of cached entities
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Gets the number of lookups served from the cache since it was last cleared.
+	 *
+	 * @return the number of hits
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of lookups since the cache was last cleared.
+	 *
+	 * @return the number of lookups
+	 */
+	public long getLookups() {
+		return hits.get() + misses.get();
+	}
+}
@@ -16,7 +16,8 @@ import com.elasticpath.importexport.common.util.Timer;
 import com.elasticpath.importexport.common.util.Timer.Time;
 
 /**
- * The simple implementation of <code>Summary</code> interface that provides all basic operations.
+ * The simple implementation of <code>Summary</code> interface that provides all basic operations. The summary is synchronized, so that
+ * the threads of a parallel import can report to it.
  */
 public class SummaryImpl implements SummaryLogger {
 
@@ -41,7 +42,7 @@ public class SummaryImpl implements SummaryLogger {
 	 * 
 	 * @param failure string which describes a failure
 	 */
-	public void addFailure(final Message failure) {
+	public synchronized void addFailure(final Message failure) {
 		failures.add(failure);
 		if (failure.isJobTypeFailure()) {
 			addToCounter(failure.getJobType(), -1);
@@ -53,7 +54,7 @@ public class SummaryImpl implements SummaryLogger {
 
 	 * @param warning string which describes a warning
 	 */
-	public void addWarning(final Message warning) {
+	public synchronized void addWarning(final Message warning) {
 		warnings.add(warning);
 	}
 	
@@ -62,7 +63,7 @@ public class SummaryImpl implements SummaryLogger {
 	 * 
 	 * @param comment string which describes a comment
 	 */
-	public void addComment(final Message comment) {
+	public synchronized void addComment(final Message comment) {
 		comments.add(comment);
 	}
 	
@@ -71,13 +72,13 @@ public class SummaryImpl implements SummaryLogger {
 	 * 
 	 * @param counter JobType defines counters.
 	 */
-	public void addToCounter(final JobType counter) {		
+	public synchronized void addToCounter(final JobType counter) {		
 		Integer count = getCount(counter);	
 		this.objectCounters.put(counter, ++count);
 	}
 	
 	@Override
-	public void addToCounter(final JobType counter, final int qty) {
+	public synchronized void addToCounter(final JobType counter, final int qty) {
 		Integer count = getCount(counter);
 		this.objectCounters.put(counter, count + qty);
 	}
@@ -106,7 +107,7 @@ public class SummaryImpl implements SummaryLogger {
 	 *
 	 * @return int Total Number Of Objects
 	 */
-	public int sumAllCounters() {
+	public synchronized int sumAllCounters() {
 		int totalNumberOfObjects = 0;
 
 		Iterator<Integer> iterator = objectCounters.values().iterator();
@@ -119,22 +120,22 @@ public class SummaryImpl implements SummaryLogger {
 	}
 
 	@Override
-	public List<Message> getFailures() {
+	public synchronized List<Message> getFailures() {
 		return new ArrayList<Message>(failures);
 	}
 
 	@Override
-	public List<Message> getWarnings() {
+	public synchronized List<Message> getWarnings() {
 		return new ArrayList<Message>(warnings);
 	}
 	
 	@Override
-	public List<Message> getComments() {
+	public synchronized List<Message> getComments() {
 		return new ArrayList<Message>(comments);
 	}
 
 	@Override
-	public Map<JobType, Integer> getCounters() {
+	public synchronized Map<JobType, Integer> getCounters() {
 		return objectCounters;
 	}
 
@@ -144,27 +145,27 @@ public class SummaryImpl implements SummaryLogger {
 	}
 
 	@Override
-	public void addFailedDtos(final List<Dto> commitUnitDtos) {
+	public synchronized void addFailedDtos(final List<Dto> commitUnitDtos) {
 		failedDtos.addAll(commitUnitDtos);
 	}
 
 	@Override
-	public List<Dto> getFailedDtos() {
+	public synchronized List<Dto> getFailedDtos() {
 		return Collections.unmodifiableList(failedDtos);
 	}
 
 	@Override
-	public void clearFailedDtos() {
+	public synchronized void clearFailedDtos() {
 		failedDtos.clear();
 	}
 
 	@Override
-	public void addAddedToChangeSetCount(final int count) {
+	public synchronized void addAddedToChangeSetCount(final int count) {
 		this.addedToChangeSetCount += count;
 	}
 
 	@Override
-	public int getAddedToChangeSetCount() {
+	public synchronized int getAddedToChangeSetCount() {
 		return this.addedToChangeSetCount;
 	}
 }
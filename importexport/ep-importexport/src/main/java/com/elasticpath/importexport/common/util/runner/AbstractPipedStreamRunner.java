@@ -16,6 +16,11 @@ import com.elasticpath.importexport.common.exception.runtime.EngineRuntimeExcept
 public abstract class AbstractPipedStreamRunner implements Runnable, PipedStreamRunner {
 	
 	private static final Logger LOG = Logger.getLogger(AbstractPipedStreamRunner.class);
+
+	/*
+	 * Size of the pipe buffer, large enough for the writing thread to run ahead of the reading thread.
+	 */
+	private static final int PIPE_SIZE = 65536;
 	
 	/*
 	 * Output stream is used by some job processing chain link to fill data into.
@@ -33,7 +38,7 @@ public abstract class AbstractPipedStreamRunner implements Runnable, PipedStream
 	public AbstractPipedStreamRunner() {
 		try {
 			pipeOut = new PipedOutputStream();
-			pipeIn = new PipedInputStream(pipeOut);
+			pipeIn = new PipedInputStream(pipeOut, PIPE_SIZE);
 		} catch (IOException e) {
 			throw new EngineRuntimeException("IE-40300", e);
 		}
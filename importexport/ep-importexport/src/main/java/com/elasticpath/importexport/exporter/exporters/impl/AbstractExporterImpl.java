@@ -1,5 +1,6 @@
 package com.elasticpath.importexport.exporter.exporters.impl;
 
+import java.io.BufferedOutputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
@@ -55,8 +56,16 @@ public abstract class AbstractExporterImpl<DOMAIN extends Persistable, DTO exten
 
 	private static final int DEFAULT_CHUNK_SIZE = 10;
 
+	private static final int DEFAULT_MAX_CHUNK_SIZE = 200;
+
+	private static final int OUTPUT_BUFFER_SIZE = 65536;
+
+	private static final long MILLIS_PER_SECOND = 1000L;
+
 	private int defaultChunkSize = DEFAULT_CHUNK_SIZE;
 
+	private int maxChunkSize = DEFAULT_MAX_CHUNK_SIZE;
+
 	/**
 	 * Initialize exporter with services, search criteria and other using export context.
 	 * 
@@ -139,6 +148,25 @@ public abstract class AbstractExporterImpl<DOMAIN extends Persistable, DTO exten
 		this.defaultChunkSize = chunkSize;
 	}
 
+	/**
+	 * Gets the maximum chunk size. Objects are found in chunks of the chunk size at first, and the chunks grow up to the maximum chunk
+	 * size as long as finding objects succeeds.
+	 *
+	 * @return the maximum chunk size
+	 */
+	public int getMaxChunkSize() {
+		return Math.max(maxChunkSize, getChunkSize());
+	}
+
+	/**
+	 * Sets the maximum chunk size for export operation.
+	 *
+	 * @param maxChunkSize the maximum chunk size
+	 */
+	public void setMaxChunkSize(final int maxChunkSize) {
+		this.maxChunkSize = maxChunkSize;
+	}
+
 	/**
 	 * Finds the list of domain objects by IDs (uids or guids).
 	 * 
@@ -194,16 +222,22 @@ public abstract class AbstractExporterImpl<DOMAIN extends Persistable, DTO exten
 
 	/**
 	 * Actual export processing.
-	 * 
+	 * <p>
+	 * Objects are found in chunks which double in size, up to the maximum chunk size, while finding objects succeeds. When a chunk
+	 * larger than the chunk size fails, it is found again in chunks of the chunk size, so that a failure only loses the objects of one
+	 * such chunk. Objects are marshalled into a buffer, which is written to the output stream in large blocks.
+	 *
 	 * @param output output stream to serialize objects into
 	 */
 	protected void processExport(final OutputStream output) {
 		PrintStream printer = null;
 		String tagName = null;
+		int count = 0;
+		final long startTime = System.currentTimeMillis();
 		try {
-			printer = new PrintStream(output);
+			final OutputStream bufferedOutput = new BufferedOutputStream(output, OUTPUT_BUFFER_SIZE);
+			printer = new PrintStream(bufferedOutput);
 
-			int count = 0;
 			tagName = getJobType().getTagName();
 			printer.println(XML_ENCODING_HEADER);
 			printer.print("<" + tagName + ">");
@@ -212,23 +246,30 @@ public abstract class AbstractExporterImpl<DOMAIN extends Persistable, DTO exten
 			removeDuplicatesFromExportableIDs(listExportedUids);
 
 			int index = 0;
+			int chunkSize = getChunkSize();
 			while (index < listExportedUids.size()) {
-				List<SEARCHID> subList = new ArrayList<SEARCHID>(getSubList(listExportedUids, index, getChunkSize()));
+				List<SEARCHID> subList = new ArrayList<SEARCHID>(getSubList(listExportedUids, index, chunkSize));
 
-				index += Math.min(getChunkSize(), listExportedUids.size() - index);
+				index += subList.size();
 
 				// extract objects
-				List<DOMAIN> exportObjects = Collections.emptyList();
-				try {
-					exportObjects = findByIDs(subList);
-					addDependencies(exportObjects, context.getDependencyRegistry());
-				} catch (RuntimeException e) {
-					LOG.error(new Message("IE-20500", e, getJobType().toString(), subList.toString()));
+				List<DOMAIN> exportObjects;
+				if (subList.size() > getChunkSize()) {
+					exportObjects = findChunk(subList, false);
+					if (exportObjects == null) {
+						exportObjects = findChunksOfChunkSize(subList);
+						chunkSize = getChunkSize();
+					} else {
+						chunkSize = Math.min(chunkSize * 2, getMaxChunkSize());
+					}
+				} else {
+					exportObjects = findChunk(subList, true);
+					chunkSize = Math.min(chunkSize * 2, getMaxChunkSize());
 				}
 
 				// adapt and marshal objects
 				for (DOMAIN object : exportObjects) {
-					if (exportObject(object, output)) {
+					if (exportObject(object, printer)) {
 						count++;
 					}
 				}
@@ -237,12 +278,59 @@ public abstract class AbstractExporterImpl<DOMAIN extends Persistable, DTO exten
 		} finally {
 			if (printer != null && tagName != null) {
 				printer.print("</" + tagName + ">");
+				printer.flush();
 				LOG.info("Finish export objects");
+				reportThroughput(count, System.currentTimeMillis() - startTime);
 			}
 			exportFinished = true;
 		}
 	}
 
+	/**
+	 * Finds the objects of a chunk of IDs and adds their dependencies.
+	 *
+	 * @param subList the IDs
+	 * @param reportFailure whether to report a failure to find the objects
+	 * @return the objects, an empty list if they could not be found and the failure was reported, or null if it was not reported
+	 */
+	private List<DOMAIN> findChunk(final List<SEARCHID> subList, final boolean reportFailure) {
+		try {
+			final List<DOMAIN> exportObjects = findByIDs(subList);
+			addDependencies(exportObjects, context.getDependencyRegistry());
+			return exportObjects;
+		} catch (RuntimeException e) {
+			if (reportFailure) {
+				LOG.error(new Message("IE-20500", e, getJobType().toString(), subList.toString()));
+				return Collections.emptyList();
+			}
+			LOG.debug("Could not find " + subList.size() + " objects at once, finding them in smaller chunks", e);
+			return null;
+		}
+	}
+
+	private List<DOMAIN> findChunksOfChunkSize(final List<SEARCHID> subList) {
+		final List<DOMAIN> exportObjects = new ArrayList<DOMAIN>(subList.size());
+		for (int index = 0; index < subList.size(); index += getChunkSize()) {
+			exportObjects.addAll(findChunk(new ArrayList<SEARCHID>(getSubList(subList, index, getChunkSize())), true));
+		}
+		return exportObjects;
+	}
+
+	/**
+	 * Reports the number of objects exported per second.
+	 *
+	 * @param count the number of objects exported
+	 * @param elapsedMillis the time the export took
+	 */
+	private void reportThroughput(final int count, final long elapsedMillis) {
+		long objectsPerSecond = count * MILLIS_PER_SECOND;
+		if (elapsedMillis > 0) {
+			objectsPerSecond /= elapsedMillis;
+		}
+		LOG.info(new Message("IE-20502", getJobType().toString(), String.valueOf(count), String.valueOf(elapsedMillis),
+				String.valueOf(objectsPerSecond)));
+	}
+
 	private <T extends Persistable, K extends Dto, J extends Dto> void exportDependentObject(
 			final DependentExporter<T, K, J> dependentExporter,
 			final DOMAIN object, final J objectDto) {
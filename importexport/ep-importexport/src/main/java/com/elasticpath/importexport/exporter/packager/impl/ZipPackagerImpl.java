@@ -1,5 +1,6 @@
 package com.elasticpath.importexport.exporter.packager.impl;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashSet;
@@ -19,7 +20,7 @@ public class ZipPackagerImpl extends AbstractPackagerImpl {
 	
 	private static final Logger LOG = Logger.getLogger(ZipPackagerImpl.class);
 	
-	private static final int BUFFER_SIZE = 1024;
+	private static final int BUFFER_SIZE = 65536;
 
 	private ZipOutputStream zipOutput;
 	private Set<String> entries;
@@ -34,7 +35,7 @@ public class ZipPackagerImpl extends AbstractPackagerImpl {
 			throw new ExportRuntimeException("IE-20200");
 		}
 		
-		zipOutput = new ZipOutputStream(deliveryMethod.deliver(packageName));
+		zipOutput = new ZipOutputStream(new BufferedOutputStream(deliveryMethod.deliver(packageName), BUFFER_SIZE));
 		entries = new HashSet<String>();
 	}
 	
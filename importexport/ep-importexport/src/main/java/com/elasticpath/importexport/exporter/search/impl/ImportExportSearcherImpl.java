@@ -1,5 +1,6 @@
 package com.elasticpath.importexport.exporter.search.impl;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -7,15 +8,20 @@ import com.elasticpath.importexport.exporter.configuration.search.SearchConfigur
 import com.elasticpath.importexport.exporter.search.ImportExportSearcher;
 import com.elasticpath.ql.parser.EPQueryType;
 import com.elasticpath.search.searchengine.EpQLSearchEngine;
-import com.elasticpath.search.searchengine.EpQlSearchResult;
+import com.elasticpath.search.searchengine.EpQlSearchResultIterator;
 
 /**
- * Default implementation of <code>ImportExportSearcher</code>.
+ * Default implementation of <code>ImportExportSearcher</code>. Results are searched for a page at a time, so that large exports do not
+ * need a response with all results from the index.
  */
 public class ImportExportSearcherImpl implements ImportExportSearcher {
 
+	private static final int DEFAULT_PAGE_SIZE = 1000;
+
 	private EpQLSearchEngine epQLSearchEngine;
 
+	private int pageSize = DEFAULT_PAGE_SIZE;
+
 	@Override
 	public List<Long> searchUids(final SearchConfiguration config, final EPQueryType epQueryType) {
 		return search(config, epQueryType);
@@ -37,11 +43,15 @@ public class ImportExportSearcherImpl implements ImportExportSearcher {
 			return Collections.emptyList();
 		}
 
-		final EpQlSearchResult<T> searchResult = epQLSearchEngine.search(epQlQuery);
-		if (!searchResult.getEpQueryType().equals(epQueryType)) {
+		final EpQlSearchResultIterator<T> searchResults = epQLSearchEngine.searchIterator(epQlQuery, pageSize);
+		if (!searchResults.getEpQueryType().equals(epQueryType)) {
 			return Collections.emptyList();
 		}
-		return searchResult.getSearchResults();
+		final List<T> results = new ArrayList<T>();
+		while (searchResults.hasNext()) {
+			results.add(searchResults.next());
+		}
+		return results;
 	}
 
 	/**
@@ -62,4 +72,13 @@ public class ImportExportSearcherImpl implements ImportExportSearcher {
 		this.epQLSearchEngine = epQLSearchEngine;
 	}
 
+	/**
+	 * Sets the number of results to search for at a time.
+	 *
+	 * @param pageSize the page size
+	 */
+	public void setPageSize(final int pageSize) {
+		this.pageSize = pageSize;
+	}
+
 }
@@ -44,7 +44,7 @@ public class ImportContext {
 	 * 
 	 * @param priceListGuid price list guid to add.
 	 */
-	public void addChangedPriceLists(final String priceListGuid) {
+	public synchronized void addChangedPriceLists(final String priceListGuid) {
 		changedPriceLists.add(priceListGuid);
 	}
 	
@@ -54,7 +54,7 @@ public class ImportContext {
 	 * @param priceListGuid given price list.
 	 * @return true if price list was saved or updated during the import.
 	 */
-	public boolean isChangedPriceLists(final String priceListGuid) {
+	public synchronized boolean isChangedPriceLists(final String priceListGuid) {
 		return changedPriceLists.contains(priceListGuid);
 	}
 	
@@ -64,7 +64,7 @@ public class ImportContext {
 	 * 
 	 * @param productCode product code
 	 */
-	public void addChangedProduct(final String productCode) {
+	public synchronized void addChangedProduct(final String productCode) {
 		changedProducts.add(productCode);
 	}
 
@@ -74,7 +74,7 @@ public class ImportContext {
 	 * @param productCode code of product to verify
 	 * @return true if product has been changed during the import of products, false otherwise
 	 */
-	public boolean isProductChanged(final String productCode) {
+	public synchronized boolean isProductChanged(final String productCode) {
 		return changedProducts.contains(productCode);
 	}
 	
@@ -104,4 +104,13 @@ public interface Importer<DOMAIN extends Persistable, DTO extends Dto> {
 	 * @return status string
 	 */
 	ImportStatusHolder getStatusHolder();
+
+	/**
+	 * Gets the key which orders the import of a DTO relative to the other DTOs of an import run by several threads. DTOs with equal
+	 * keys are imported by one thread in document order, DTOs with different keys may be imported in any order.
+	 *
+	 * @param dto the dto
+	 * @return the dependency key, usually the guid or code of the imported object
+	 */
+	String getDependencyKey(DTO dto);
 }
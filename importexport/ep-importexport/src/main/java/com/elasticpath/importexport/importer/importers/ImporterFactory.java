@@ -24,4 +24,24 @@ public interface ImporterFactory {
 	Importer<? super Persistable, ? super Dto> createImporter(final JobType jobType, final ImportContext context,
 			final SavingManager<? extends Persistable> savingManager) throws ConfigurationException;
 
+	/**
+	 * Checks whether objects of the given job type can be imported by several threads in parallel.
+	 *
+	 * @param jobType the job type
+	 * @return true if {@link #createParallelImporter} can create importers for the job type
+	 */
+	boolean isParallelImportSupported(final JobType jobType);
+
+	/**
+	 * Creates an importer for one of the threads of a parallel import. Unlike {@link #createImporter}, every call returns a new importer,
+	 * so that the threads do not share the state of the import.
+	 *
+	 * @param jobType the job type
+	 * @param context the import context for importer initialization
+	 * @param savingManager the saving manager for importer
+	 * @throws ConfigurationException if the job type cannot be imported in parallel
+	 * @return the new importer
+	 */
+	Importer<? super Persistable, ? super Dto> createParallelImporter(final JobType jobType, final ImportContext context,
+			final SavingManager<? extends Persistable> savingManager) throws ConfigurationException;
 }
@@ -152,6 +152,18 @@ public abstract class AbstractImporterImpl<DOMAIN extends Persistable, DTO exten
 		return 1;
 	}
 
+	/**
+	 * Gets the dependency key of a DTO. The default implementation orders DTOs of the same object, so that duplicates are detected
+	 * and imported in document order; importers of objects depending on other objects of the same import should override this method.
+	 *
+	 * @param dto the dto
+	 * @return the dto guid
+	 */
+	@Override
+	public String getDependencyKey(final DTO dto) {
+		return getDtoGuid(dto);
+	}
+
 	@Override
 	public void postProcessingImportHandling() {
 		// do nothing in default implementation
@@ -73,6 +73,11 @@ public class AssetsImporterImpl extends AbstractEpServiceImpl implements Importe
 		return AssetDTO.ROOT_ELEMENT;
 	}
 
+	@Override
+	public String getDependencyKey(final AssetDTO dto) {
+		return dto.getAsset();
+	}
+
 	@Override
 	public int getObjectsQty(final AssetDTO dto) {
 		return 1;
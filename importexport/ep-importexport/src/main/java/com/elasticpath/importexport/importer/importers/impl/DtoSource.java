@@ -0,0 +1,43 @@
+package com.elasticpath.importexport.importer.importers.impl;
+
+import javax.xml.stream.XMLStreamException;
+
+import com.elasticpath.common.dto.Dto;
+import com.elasticpath.importexport.common.exception.runtime.MarshallingRuntimeException;
+
+/**
+ * The objects to import, in the order {@link ImportProcessorImpl} imports them.
+ */
+interface DtoSource {
+
+	/**
+	 * Checks whether there are objects left to import.
+	 *
+	 * @return true if there is a next object
+	 * @throws XMLStreamException if the source could not be read
+	 */
+	boolean hasNext() throws XMLStreamException;
+
+	/**
+	 * Gets the next object to import.
+	 *
+	 * @return the next object
+	 * @throws XMLStreamException if the source could not be read
+	 * @throws MarshallingRuntimeException if the next object could not be unmarshalled
+	 */
+	Dto next() throws XMLStreamException;
+
+	/**
+	 * Skips what is left of the current object after it failed to import.
+	 *
+	 * @throws XMLStreamException if the source could not be read
+	 */
+	void skipToNext() throws XMLStreamException;
+
+	/**
+	 * Gets the validation error of the last object that could not be unmarshalled.
+	 *
+	 * @return the error status
+	 */
+	String getValidationErrorStatus();
+}
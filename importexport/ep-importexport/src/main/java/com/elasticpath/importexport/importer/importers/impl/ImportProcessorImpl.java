@@ -1,6 +1,10 @@
 package com.elasticpath.importexport.importer.importers.impl;
 
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
@@ -11,6 +15,8 @@ import org.apache.log4j.Logger;
 import org.springframework.transaction.TransactionException;
 
 import com.elasticpath.common.dto.Dto;
+import com.elasticpath.importexport.common.caching.CachingService;
+import com.elasticpath.commons.ThreadLocalMap;
 import com.elasticpath.commons.util.impl.JaxbUtils;
 import com.elasticpath.importexport.common.exception.ConfigurationException;
 import com.elasticpath.importexport.common.exception.runtime.ImportDuplicateAssociatedEntityRuntimeException;
@@ -36,6 +42,9 @@ import com.elasticpath.service.impl.AbstractEpPersistenceServiceImpl;
 
 /**
  * This class is responsible for import processing.
+ * <p>
+ * Job types the importer factory supports parallel imports for are imported by {@link ParallelImportRunner} when the import thread
+ * count is above one; other job types are imported by the calling thread.
  */
 @SuppressWarnings("PMD.CyclomaticComplexity")
 public class ImportProcessorImpl extends AbstractEpPersistenceServiceImpl implements ImportProcessor {
@@ -48,6 +57,14 @@ public class ImportProcessorImpl extends AbstractEpPersistenceServiceImpl implem
 
 	private SavingManager<? extends Persistable> savingManager;
 
+	private CachingService cachingService;
+
+	private Set<JobType> cachedJobTypes = Collections.emptySet();
+
+	private int importThreadCount = 1;
+
+	private ThreadLocalMap<String, Object> metadataMap;
+
 	@Override
 	public void process(final InputStream entryToImport, final ImportContext context) throws ConfigurationException {
 		XMLStreamReader streamReader = null;
@@ -61,7 +78,14 @@ public class ImportProcessorImpl extends AbstractEpPersistenceServiceImpl implem
 			LOG.info("Begin importing " + jobType);
 			final Importer<? super Persistable, ? super Dto> importer = importerFactory.createImporter(jobType, context, savingManager);
 
-			runImport(context, streamReader, summary, jobType, importer);
+			final boolean cachingStarted = startCaching(jobType);
+			try {
+				runImport(context, streamReader, summary, jobType, importer);
+			} finally {
+				if (cachingStarted) {
+					cachingService.stopCaching();
+				}
+			}
 
 			importer.postProcessingImportHandling();
 
@@ -78,6 +102,21 @@ public class ImportProcessorImpl extends AbstractEpPersistenceServiceImpl implem
 		}
 	}
 
+	/**
+	 * Starts caching reference data if the job type only reads reference data. Job types which import reference data themselves are
+	 * run without caching, so that they never modify cached objects.
+	 *
+	 * @param jobType the type of entity being imported
+	 * @return true if caching was started
+	 */
+	private boolean startCaching(final JobType jobType) {
+		if (cachingService == null || !cachedJobTypes.contains(jobType)) {
+			return false;
+		}
+		cachingService.startCaching();
+		return true;
+	}
+
 	/**
 	 * Runs an import of the given <code>jobType</code> from the given <code>streamReader</code>.
 	 *
@@ -87,38 +126,60 @@ public class ImportProcessorImpl extends AbstractEpPersistenceServiceImpl implem
 	 * @param jobType Type of entity being imported
 	 * @param importer The importer to use to do the import
 	 * @throws XMLStreamException
+	 * @throws ConfigurationException if the importers of a parallel import could not be created
 	 */
 	private void runImport(final ImportContext context,
 			final XMLStreamReader streamReader,
 			final Summary summary,
 			final JobType jobType,
-			final Importer<? super Persistable, ? super Dto> importer) throws XMLStreamException {
-		final Class<?>[] jaxbClasses = JaxbUtils.createClassArray(importer.getDtoClass(), importer.getAuxiliaryJaxbClasses());
+			final Importer<? super Persistable, ? super Dto> importer) throws XMLStreamException, ConfigurationException {
+		streamReader.nextTag();
 
-		final XMLUnmarshaller unmarshaller = createUnmarshaller(jaxbClasses,
-				context.getImportConfiguration().isXmlValidation(),
-				importer.getSchemaPath());
+		if (importThreadCount > 1 && importerFactory.isParallelImportSupported(jobType)) {
+			new ParallelImportRunner(this, importThreadCount).run(context, streamReader, summary, jobType, importer);
+			return;
+		}
 
-		streamReader.nextTag();
+		final XMLUnmarshaller unmarshaller = createUnmarshaller(importer, context.getImportConfiguration().isXmlValidation(),
+				validationEventHandler);
 
 		PersistenceSession session = getPersistenceEngine().getSharedPersistenceSession();
+		importDtos(new StreamDtoSource(streamReader, unmarshaller, importer.getImportedObjectName()), session, summary, jobType, importer);
+		session.close();
+	}
 
-		// Continue importing while there are still start tags left in the XML to process for import
-		while (streamReader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+	/**
+	 * Imports the objects of the given <code>source</code> in transactions of the importer's commit unit size. Objects which fail to
+	 * import are reported and skipped; the transaction of an object which requires a rollback is rolled back, and the import continues
+	 * with the next object in a new transaction.
+	 *
+	 * @param source the objects to import
+	 * @param session the persistence session to import in
+	 * @param summary Contains summary details of the import of <code>jobType</code>
+	 * @param jobType Type of entity being imported
+	 * @param importer The importer to use to do the import
+	 * @throws XMLStreamException if the source could not be read
+	 */
+	void importDtos(final DtoSource source,
+			final PersistenceSession session,
+			final Summary summary,
+			final JobType jobType,
+			final Importer<? super Persistable, ? super Dto> importer) throws XMLStreamException {
+		// Continue importing while there are still objects left to process for import
+		while (source.hasNext()) {
 			final Transaction transaction = session.beginTransaction();
 			int transactionVolume = 0;
 			try {
-				for (int idx = 0; idx < importer.getCommitUnit() && (streamReader.getEventType() == XMLStreamConstants.START_ELEMENT); idx++) {
-					streamReader.require(XMLStreamConstants.START_ELEMENT, null, importer.getImportedObjectName());
+				for (int idx = 0; idx < importer.getCommitUnit() && source.hasNext(); idx++) {
 					try {
-						Dto unmarshalledObject = unmarshaller.unmarshall(streamReader);
+						Dto unmarshalledObject = source.next();
 						if (importer.executeImport(unmarshalledObject)) {
 							transactionVolume++;
 							summary.addToCounter(jobType, importer.getObjectsQty(unmarshalledObject));
 						}
 					} catch (MarshallingRuntimeException marshallingRuntimeException) {
 						LOG.error(new Message("IE-30400", marshallingRuntimeException, jobType.toString(),
-								validationEventHandler.getLastErrorStatus()));
+								source.getValidationErrorStatus()));
 						LOG.error(marshallingRuntimeException.getIEMessage());
 					} catch (ImportDuplicateEntityRuntimeException duplicateEntityRuntimeException) {
 						LOG.error((new Message("IE-30401", duplicateEntityRuntimeException, jobType.toString(),
@@ -132,7 +193,7 @@ public class ImportProcessorImpl extends AbstractEpPersistenceServiceImpl implem
 						LOG.error(exception.getIEMessage());
 					}
 
-					skipNotStartElements(streamReader, importer.getImportedObjectName());
+					source.skipToNext();
 				}
 
 				commitTransaction(summary, jobType, importer.getStatusHolder().getImportStatus(), transaction, transactionVolume);
@@ -140,7 +201,7 @@ public class ImportProcessorImpl extends AbstractEpPersistenceServiceImpl implem
 			} catch (PopulationRollbackException exception) {
 				LOG.error(exception.getIEMessage());
 				summary.addToCounter(jobType, -transactionVolume);
-				skipNotStartElements(streamReader, importer.getImportedObjectName());
+				source.skipToNext();
 				try {
 					transaction.rollback();
 					// Report that the transaction was rolled back.
@@ -152,7 +213,7 @@ public class ImportProcessorImpl extends AbstractEpPersistenceServiceImpl implem
 			} catch (Exception exception) {
 				LOG.error(new Message("IE-30402", exception, jobType.toString(), importer.getStatusHolder().getImportStatus()));
 				summary.addToCounter(jobType, -transactionVolume);
-				skipNotStartElements(streamReader, importer.getImportedObjectName());
+				source.skipToNext();
 				try {
 					transaction.rollback();
 					// Report that the transaction was rolled back.
@@ -163,7 +224,6 @@ public class ImportProcessorImpl extends AbstractEpPersistenceServiceImpl implem
 				}
 			}
 		}
-		session.close();
 	}
 
 	/**
@@ -194,22 +254,65 @@ public class ImportProcessorImpl extends AbstractEpPersistenceServiceImpl implem
 
 	}
 
-	private XMLUnmarshaller createUnmarshaller(final Class<?>[] jaxbClasses, final boolean xmlValidation,
-			final String schemaPath) {
+	/**
+	 * Creates an unmarshaller for the DTOs of the given importer.
+	 *
+	 * @param importer the importer
+	 * @param xmlValidation whether to validate the DTOs against the importer's schema
+	 * @param eventHandler the handler of validation errors
+	 * @return the unmarshaller
+	 */
+	XMLUnmarshaller createUnmarshaller(final Importer<? super Persistable, ? super Dto> importer, final boolean xmlValidation,
+			final DefaultValidationEventHandler eventHandler) {
+		final Class<?>[] jaxbClasses = JaxbUtils.createClassArray(importer.getDtoClass(), importer.getAuxiliaryJaxbClasses());
 		XMLUnmarshaller unmarshaller = new XMLUnmarshaller(jaxbClasses);
 		if (xmlValidation) {
-			unmarshaller.initValidationParameters(schemaPath, validationEventHandler);
+			unmarshaller.initValidationParameters(importer.getSchemaPath(), eventHandler);
 		}
 		return unmarshaller;
 	}
 
-	private void skipNotStartElements(final XMLStreamReader streamReader, final String expectedTagName) throws XMLStreamException {
+	/**
+	 * Moves the reader to the next start tag of an object to import, or to the end of the document.
+	 *
+	 * @param streamReader the reader
+	 * @param expectedTagName the tag name of the imported objects
+	 * @throws XMLStreamException if the document could not be read
+	 */
+	static void skipNotStartElements(final XMLStreamReader streamReader, final String expectedTagName) throws XMLStreamException {
 		while ((streamReader.getEventType() != XMLStreamConstants.START_ELEMENT || !streamReader.getLocalName().equals(expectedTagName))
 				&& streamReader.hasNext()) {
 			streamReader.next();
 		}
 	}
 
+	/**
+	 * Copies the persistence listener metadata of the calling thread, to be set up in the threads of a parallel import.
+	 *
+	 * @return the metadata
+	 */
+	Map<String, Object> copyMetadata() {
+		if (metadataMap == null) {
+			return Collections.emptyMap();
+		}
+		return new HashMap<String, Object>(metadataMap);
+	}
+
+	/**
+	 * Sets up the persistence listener metadata of the current thread, as copied from the thread which started the import.
+	 *
+	 * @param metadata the metadata, or null to clear the metadata of the current thread
+	 */
+	void setUpMetadata(final Map<String, Object> metadata) {
+		if (metadataMap == null) {
+			return;
+		}
+		metadataMap.clear();
+		if (metadata != null) {
+			metadataMap.putAll(metadata);
+		}
+	}
+
 	@Override
 	public Object getObject(final long uid) throws EpServiceException {
 		throw new UnsupportedOperationException("unsupported operation");
@@ -238,4 +341,86 @@ public class ImportProcessorImpl extends AbstractEpPersistenceServiceImpl implem
 	public void setSavingManager(final SavingManager<? extends Persistable> savingManager) {
 		this.savingManager = savingManager;
 	}
+
+	public void setCachingService(final CachingService cachingService) {
+		this.cachingService = cachingService;
+	}
+
+	/**
+	 * Sets the number of threads importing the job types which support parallel imports. One, the default, imports all job types in
+	 * the calling thread.
+	 *
+	 * @param importThreadCount the number of import threads
+	 */
+	public void setImportThreadCount(final int importThreadCount) {
+		this.importThreadCount = importThreadCount;
+	}
+
+	public int getImportThreadCount() {
+		return importThreadCount;
+	}
+
+	/**
+	 * Sets the persistence listener metadata, which is copied into the threads of parallel imports.
+	 *
+	 * @param metadataMap the metadata map
+	 */
+	public void setMetadataMap(final ThreadLocalMap<String, Object> metadataMap) {
+		this.metadataMap = metadataMap;
+	}
+
+	/**
+	 * Sets the job types imported with reference data caching. These job types must not import the reference data they look up.
+	 *
+	 * @param cachedJobTypes the job types
+	 */
+	public void setCachedJobTypes(final Set<JobType> cachedJobTypes) {
+		this.cachedJobTypes = cachedJobTypes;
+	}
+
+	/**
+	 * Reads the objects to import from an XML stream, one object at a time.
+	 */
+	private class StreamDtoSource implements DtoSource {
+
+		private final XMLStreamReader streamReader;
+
+		private final XMLUnmarshaller unmarshaller;
+
+		private final String importedObjectName;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param streamReader the reader, at the start tag of the first object
+		 * @param unmarshaller the unmarshaller of the objects
+		 * @param importedObjectName the tag name of the objects
+		 */
+		StreamDtoSource(final XMLStreamReader streamReader, final XMLUnmarshaller unmarshaller, final String importedObjectName) {
+			this.streamReader = streamReader;
+			this.unmarshaller = unmarshaller;
+			this.importedObjectName = importedObjectName;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return streamReader.getEventType() == XMLStreamConstants.START_ELEMENT;
+		}
+
+		@Override
+		public Dto next() throws XMLStreamException {
+			streamReader.require(XMLStreamConstants.START_ELEMENT, null, importedObjectName);
+			return unmarshaller.unmarshall(streamReader);
+		}
+
+		@Override
+		public void skipToNext() throws XMLStreamException {
+			skipNotStartElements(streamReader, importedObjectName);
+		}
+
+		@Override
+		public String getValidationErrorStatus() {
+			return validationEventHandler.getLastErrorStatus();
+		}
+	}
 }
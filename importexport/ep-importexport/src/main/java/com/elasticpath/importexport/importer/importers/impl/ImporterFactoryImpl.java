@@ -1,10 +1,12 @@
 package com.elasticpath.importexport.importer.importers.impl;
 
+import java.util.Collections;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
 
 import com.elasticpath.common.dto.Dto;
+import com.elasticpath.commons.beanframework.BeanFactory;
 import com.elasticpath.importexport.common.exception.ConfigurationException;
 import com.elasticpath.importexport.common.types.JobType;
 import com.elasticpath.importexport.importer.context.ImportContext;
@@ -16,7 +18,7 @@ import com.elasticpath.persistence.api.Persistable;
 
 /**
  * ImporterFactory creates and initializes ready to use importers.<br>
- * Map with available importers is injected by Spring.
+ * Map with available importers is injected by Spring. Importers for parallel imports are looked up by their prototype bean names.
  */
 class ImporterFactoryImpl implements ImporterFactory {
 
@@ -24,6 +26,10 @@ class ImporterFactoryImpl implements ImporterFactory {
 
 	private Map<JobType, Importer<? super Persistable, ? super Dto>> importerMap;
 
+	private Map<JobType, String> parallelImporterBeanNames = Collections.emptyMap();
+
+	private BeanFactory beanFactory;
+
 	@Override
 	public Importer<? super Persistable, ? super Dto> createImporter(final JobType jobType, final ImportContext context,
 			final SavingManager<? extends Persistable> savingManager)
@@ -37,6 +43,23 @@ class ImporterFactoryImpl implements ImporterFactory {
 		return importer;
 	}
 
+	@Override
+	public boolean isParallelImportSupported(final JobType jobType) {
+		return parallelImporterBeanNames.containsKey(jobType);
+	}
+
+	@Override
+	public Importer<? super Persistable, ? super Dto> createParallelImporter(final JobType jobType, final ImportContext context,
+			final SavingManager<? extends Persistable> savingManager) throws ConfigurationException {
+		final String beanName = parallelImporterBeanNames.get(jobType);
+		if (beanName == null) {
+			throw new ConfigurationException("job type " + jobType + " can not be imported in parallel");
+		}
+		final Importer<? super Persistable, ? super Dto> importer = beanFactory.getBean(beanName);
+		initializeImporterHelper(importer, context, context.getImportConfiguration().getImportStrategyType(jobType), savingManager);
+		return importer;
+	}
+
 	@SuppressWarnings("unchecked")
 	private <T extends Persistable, K extends Dto> void initializeImporterHelper(final Importer<T, K> importer,
 			final ImportContext context, final ImportStrategyType strategyType, final SavingManager<?> savingManager)
@@ -77,4 +100,18 @@ class ImporterFactoryImpl implements ImporterFactory {
 	public void setImporterMap(final Map<JobType, Importer<? super Persistable, ? super Dto>> importerMap) {
 		this.importerMap = importerMap;
 	}
+
+	/**
+	 * Sets the names of the prototype importer beans of the job types which can be imported in parallel. Only job types whose objects
+	 * depend on nothing but objects with the same {@link Importer#getDependencyKey dependency key} may be imported in parallel.
+	 *
+	 * @param parallelImporterBeanNames the importer bean names by job type
+	 */
+	public void setParallelImporterBeanNames(final Map<JobType, String> parallelImporterBeanNames) {
+		this.parallelImporterBeanNames = parallelImporterBeanNames;
+	}
+
+	public void setBeanFactory(final BeanFactory beanFactory) {
+		this.beanFactory = beanFactory;
+	}
 }
@@ -0,0 +1,556 @@
+package com.elasticpath.importexport.importer.importers.impl;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.log4j.Logger;
+
+import com.elasticpath.common.dto.Dto;
+import com.elasticpath.importexport.common.exception.ConfigurationException;
+import com.elasticpath.importexport.common.exception.runtime.ImportRuntimeException;
+import com.elasticpath.importexport.common.exception.runtime.MarshallingRuntimeException;
+import com.elasticpath.importexport.common.marshalling.DefaultValidationEventHandler;
+import com.elasticpath.importexport.common.marshalling.XMLUnmarshaller;
+import com.elasticpath.importexport.common.summary.Summary;
+import com.elasticpath.importexport.common.types.JobType;
+import com.elasticpath.importexport.importer.context.ImportContext;
+import com.elasticpath.importexport.importer.importers.Importer;
+import com.elasticpath.persistence.api.Persistable;
+import com.elasticpath.persistence.api.PersistenceSession;
+
+/**
+ * Imports the objects of one job type with several threads.
+ * <p>
+ * The calling thread reads the XML and copies every object to import into a fragment of its own. A pool of threads unmarshals the
+ * fragments, and the calling thread hands the unmarshalled objects, in document order, to the import threads. Objects with the same
+ * {@link Importer#getDependencyKey dependency key} always go to the same import thread, so they are imported in document order. Each
+ * import thread has an importer and a persistence session of its own, and imports its objects in commit units with the error
+ * accounting and rollback semantics of a sequential import.
+ * <p>
+ * The queues between the threads are bounded, so that reading does not get far ahead of importing. An import thread which terminates
+ * abnormally stops the import instead of leaving the calling thread waiting for room in its queue.
+ */
+class ParallelImportRunner {
+
+	private static final Logger LOG = Logger.getLogger(ParallelImportRunner.class);
+
+	/** The number of commit units each import thread may have waiting. */
+	private static final int QUEUED_COMMIT_UNITS = 2;
+
+	/** How long to wait for room in the queue of an import thread before checking whether the thread is still running. */
+	private static final long QUEUE_OFFER_TIMEOUT_MILLIS = 100;
+
+	/** Marks the end of the objects of an import thread. */
+	private static final List<UnmarshalledDto> END_OF_IMPORT = new ArrayList<UnmarshalledDto>(0);
+
+	private final ImportProcessorImpl importProcessor;
+
+	private final int threadCount;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param importProcessor the import processor which runs the import
+	 * @param threadCount the number of unmarshalling threads and of import threads
+	 */
+	ParallelImportRunner(final ImportProcessorImpl importProcessor, final int threadCount) {
+		this.importProcessor = importProcessor;
+		this.threadCount = threadCount;
+	}
+
+	/**
+	 * Runs an import of the given <code>jobType</code> from the given <code>streamReader</code>.
+	 *
+	 * @param context Import configuration settings
+	 * @param streamReader XML stream reader at the start tag of the first object to import
+	 * @param summary Contains summary details of the import of <code>jobType</code>
+	 * @param jobType Type of entity being imported
+	 * @param importer the importer of the calling thread, which tells how objects are read and dispatched
+	 * @throws XMLStreamException if the XML could not be read
+	 * @throws ConfigurationException if the importers of the import threads could not be created
+	 */
+	public void run(final ImportContext context, final XMLStreamReader streamReader, final Summary summary, final JobType jobType,
+			final Importer<? super Persistable, ? super Dto> importer) throws XMLStreamException, ConfigurationException {
+		final List<ImportWorker> workers = new ArrayList<ImportWorker>(threadCount);
+		for (int index = 0; index < threadCount; index++) {
+			workers.add(new ImportWorker(importProcessor.getImporterFactory().createParallelImporter(jobType, context,
+					importProcessor.getSavingManager()), summary, jobType, importProcessor.copyMetadata()));
+		}
+		LOG.info("Importing " + jobType + " with " + threadCount + " threads");
+
+		final ExecutorService unmarshallingExecutor = Executors.newFixedThreadPool(threadCount);
+		final ExecutorService importExecutor = Executors.newFixedThreadPool(threadCount);
+		final List<Future<Void>> importResults = new ArrayList<Future<Void>>(threadCount);
+		for (ImportWorker worker : workers) {
+			final Future<Void> importResult = importExecutor.submit(worker);
+			worker.setImportResult(importResult);
+			importResults.add(importResult);
+		}
+
+		try {
+			new Dispatcher(workers, importer).dispatch(streamReader, context.getImportConfiguration().isXmlValidation(),
+					unmarshallingExecutor);
+		} finally {
+			unmarshallingExecutor.shutdownNow();
+			for (ImportWorker worker : workers) {
+				worker.endImport();
+			}
+			importExecutor.shutdown();
+			awaitImportThreads(importResults, jobType);
+		}
+	}
+
+	private void awaitImportThreads(final List<Future<Void>> importResults, final JobType jobType) {
+		RuntimeException failure = null;
+		for (Future<Void> importResult : importResults) {
+			try {
+				importResult.get();
+			} catch (ExecutionException exception) {
+				failure = new ImportRuntimeException("IE-30410", exception.getCause(), jobType.toString());
+			} catch (CancellationException exception) {
+				failure = new ImportRuntimeException("IE-30410", exception, jobType.toString());
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				failure = new ImportRuntimeException("IE-30410", exception, jobType.toString());
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Copies the element at the reader's position, with its content, into a document of its own, and moves the reader past the element.
+	 * <p>
+	 * Namespaces declared by the ancestors of the element are declared in the copy where they are used.
+	 *
+	 * @param streamReader the reader, at a start tag
+	 * @param outputFactory the factory of the writer of the copy, repairing namespaces
+	 * @return the XML of the element
+	 * @throws XMLStreamException if the XML could not be read
+	 */
+	static String copyElement(final XMLStreamReader streamReader, final XMLOutputFactory outputFactory) throws XMLStreamException {
+		final StringWriter fragment = new StringWriter();
+		final XMLStreamWriter writer = outputFactory.createXMLStreamWriter(fragment);
+		int depth = 0;
+		do {
+			switch (streamReader.getEventType()) {
+			case XMLStreamConstants.START_ELEMENT:
+				copyStartElement(streamReader, writer);
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				writer.writeEndElement();
+				depth--;
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.SPACE:
+				writer.writeCharacters(streamReader.getTextCharacters(), streamReader.getTextStart(), streamReader.getTextLength());
+				break;
+			case XMLStreamConstants.CDATA:
+				writer.writeCData(streamReader.getText());
+				break;
+			default:
+				// comments and processing instructions are not needed to unmarshal the element
+				break;
+			}
+			streamReader.next();
+		} while (depth > 0);
+		writer.close();
+		return fragment.toString();
+	}
+
+	private static void copyStartElement(final XMLStreamReader streamReader, final XMLStreamWriter writer) throws XMLStreamException {
+		writer.writeStartElement(nonNull(streamReader.getPrefix()), streamReader.getLocalName(), nonNull(streamReader.getNamespaceURI()));
+		for (int index = 0; index < streamReader.getNamespaceCount(); index++) {
+			writer.writeNamespace(nonNull(streamReader.getNamespacePrefix(index)), streamReader.getNamespaceURI(index));
+		}
+		for (int index = 0; index < streamReader.getAttributeCount(); index++) {
+			writer.writeAttribute(nonNull(streamReader.getAttributePrefix(index)), nonNull(streamReader.getAttributeNamespace(index)),
+					streamReader.getAttributeLocalName(index), streamReader.getAttributeValue(index));
+		}
+	}
+
+	private static String nonNull(final String value) {
+		if (value == null) {
+			return "";
+		}
+		return value;
+	}
+
+	/**
+	 * Reads the objects to import and hands them to the import threads in commit units.
+	 */
+	private final class Dispatcher {
+
+		private final List<ImportWorker> workers;
+
+		private final Importer<? super Persistable, ? super Dto> importer;
+
+		private final List<List<UnmarshalledDto>> commitUnits;
+
+		private final LinkedList<Future<UnmarshalledDto>> pendingDtos = new LinkedList<Future<UnmarshalledDto>>();
+
+		private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+		private int nextWorker;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param workers the import threads
+		 * @param importer the importer of the calling thread
+		 */
+		Dispatcher(final List<ImportWorker> workers, final Importer<? super Persistable, ? super Dto> importer) {
+			this.workers = workers;
+			this.importer = importer;
+			this.commitUnits = new ArrayList<List<UnmarshalledDto>>(workers.size());
+			for (int index = 0; index < workers.size(); index++) {
+				commitUnits.add(new ArrayList<UnmarshalledDto>(importer.getCommitUnit()));
+			}
+			outputFactory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.TRUE);
+		}
+
+		/**
+		 * Reads all objects to import and hands them to the import threads.
+		 *
+		 * @param streamReader the reader, at the start tag of the first object
+		 * @param xmlValidation whether to validate the objects against the importer's schema
+		 * @param unmarshallingExecutor the executor of the unmarshalling threads
+		 * @throws XMLStreamException if the XML could not be read
+		 */
+		public void dispatch(final XMLStreamReader streamReader, final boolean xmlValidation, final ExecutorService unmarshallingExecutor)
+				throws XMLStreamException {
+			final ThreadLocal<UnmarshallingContext> unmarshallingContexts = new ThreadLocal<UnmarshallingContext>() {
+				@Override
+				protected UnmarshallingContext initialValue() {
+					return new UnmarshallingContext(importer, xmlValidation);
+				}
+			};
+			final int maxPendingDtos = threadCount * importer.getCommitUnit();
+
+			while (streamReader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+				streamReader.require(XMLStreamConstants.START_ELEMENT, null, importer.getImportedObjectName());
+				final String fragment = copyElement(streamReader, outputFactory);
+				pendingDtos.add(unmarshallingExecutor.submit(new Callable<UnmarshalledDto>() {
+					@Override
+					public UnmarshalledDto call() throws XMLStreamException {
+						return unmarshallingContexts.get().unmarshall(fragment);
+					}
+				}));
+				if (pendingDtos.size() > maxPendingDtos) {
+					handOver(pendingDtos.removeFirst());
+				}
+				ImportProcessorImpl.skipNotStartElements(streamReader, importer.getImportedObjectName());
+			}
+
+			while (!pendingDtos.isEmpty()) {
+				handOver(pendingDtos.removeFirst());
+			}
+			for (int index = 0; index < workers.size(); index++) {
+				if (!commitUnits.get(index).isEmpty()) {
+					workers.get(index).queue(commitUnits.get(index));
+				}
+			}
+		}
+
+		private void handOver(final Future<UnmarshalledDto> pendingDto) {
+			final UnmarshalledDto unmarshalledDto = waitFor(pendingDto);
+			final int workerIndex = selectWorker(unmarshalledDto);
+			final List<UnmarshalledDto> commitUnit = commitUnits.get(workerIndex);
+			commitUnit.add(unmarshalledDto);
+			if (commitUnit.size() >= importer.getCommitUnit()) {
+				workers.get(workerIndex).queue(commitUnit);
+				commitUnits.set(workerIndex, new ArrayList<UnmarshalledDto>(importer.getCommitUnit()));
+			}
+		}
+
+		private UnmarshalledDto waitFor(final Future<UnmarshalledDto> pendingDto) {
+			try {
+				return pendingDto.get();
+			} catch (ExecutionException exception) {
+				throw new ImportRuntimeException("IE-30403", exception.getCause());
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				throw new ImportRuntimeException("IE-30403", exception);
+			}
+		}
+
+		/**
+		 * Selects the import thread of an object. Objects with the same dependency key always go to the same thread; objects which
+		 * could not be unmarshalled are only reported, so they go to the threads in turn.
+		 *
+		 * @param unmarshalledDto the object
+		 * @return the index of the import thread
+		 */
+		private int selectWorker(final UnmarshalledDto unmarshalledDto) {
+			if (unmarshalledDto.getDto() != null) {
+				final String dependencyKey = importer.getDependencyKey(unmarshalledDto.getDto());
+				if (dependencyKey != null) {
+					return (dependencyKey.hashCode() & Integer.MAX_VALUE) % workers.size();
+				}
+			}
+			nextWorker = (nextWorker + 1) % workers.size();
+			return nextWorker;
+		}
+	}
+
+	/**
+	 * The unmarshaller of one unmarshalling thread, with a validation event handler of its own, so that a validation error is reported
+	 * with the object it was raised for.
+	 */
+	private final class UnmarshallingContext {
+
+		private final DefaultValidationEventHandler validationEventHandler = new DefaultValidationEventHandler();
+
+		private final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+		private final XMLUnmarshaller unmarshaller;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param importer the importer of the objects to unmarshal
+		 * @param xmlValidation whether to validate the objects against the importer's schema
+		 */
+		UnmarshallingContext(final Importer<? super Persistable, ? super Dto> importer, final boolean xmlValidation) {
+			unmarshaller = importProcessor.createUnmarshaller(importer, xmlValidation, validationEventHandler);
+		}
+
+		/**
+		 * Unmarshals an object.
+		 *
+		 * @param fragment the XML of the object
+		 * @return the object, or the reason why it could not be unmarshalled
+		 * @throws XMLStreamException if the XML could not be read
+		 */
+		public UnmarshalledDto unmarshall(final String fragment) throws XMLStreamException {
+			final XMLStreamReader fragmentReader = inputFactory.createXMLStreamReader(new StringReader(fragment));
+			try {
+				final Dto dto = unmarshaller.unmarshall(fragmentReader);
+				return new UnmarshalledDto(dto, null, null);
+			} catch (MarshallingRuntimeException exception) {
+				return new UnmarshalledDto(null, exception, validationEventHandler.getLastErrorStatus());
+			} finally {
+				fragmentReader.close();
+			}
+		}
+	}
+
+	/**
+	 * An unmarshalled object, or the reason why an object could not be unmarshalled.
+	 */
+	private static final class UnmarshalledDto {
+
+		private final Dto dto;
+
+		private final MarshallingRuntimeException failure;
+
+		private final String validationErrorStatus;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param dto the object, or null if it could not be unmarshalled
+		 * @param failure the reason why the object could not be unmarshalled
+		 * @param validationErrorStatus the validation error of the object
+		 */
+		UnmarshalledDto(final Dto dto, final MarshallingRuntimeException failure, final String validationErrorStatus) {
+			this.dto = dto;
+			this.failure = failure;
+			this.validationErrorStatus = validationErrorStatus;
+		}
+
+		public Dto getDto() {
+			return dto;
+		}
+
+		public MarshallingRuntimeException getFailure() {
+			return failure;
+		}
+
+		public String getValidationErrorStatus() {
+			return validationErrorStatus;
+		}
+	}
+
+	/**
+	 * One import thread. It imports the commit units handed to it with an importer and a persistence session of its own, and keeps
+	 * taking commit units after a failure, so that the dispatcher never waits for it in vain. Should the thread terminate abnormally
+	 * all the same, the commit units handed to it afterwards are refused.
+	 */
+	private final class ImportWorker implements Callable<Void> {
+
+		private final BlockingQueue<List<UnmarshalledDto>> commitUnits = new ArrayBlockingQueue<List<UnmarshalledDto>>(QUEUED_COMMIT_UNITS);
+
+		private final Importer<? super Persistable, ? super Dto> importer;
+
+		private final Summary summary;
+
+		private final JobType jobType;
+
+		private final Map<String, Object> metadata;
+
+		private Future<Void> importResult;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param importer the importer of the thread
+		 * @param summary Contains summary details of the import of <code>jobType</code>
+		 * @param jobType Type of entity being imported
+		 * @param metadata the persistence listener metadata of the thread which started the import
+		 */
+		ImportWorker(final Importer<? super Persistable, ? super Dto> importer, final Summary summary, final JobType jobType,
+				final Map<String, Object> metadata) {
+			this.importer = importer;
+			this.summary = summary;
+			this.jobType = jobType;
+			this.metadata = metadata;
+		}
+
+		/**
+		 * Sets the result of the thread, which tells whether it is still taking commit units.
+		 *
+		 * @param importResult the result of the thread
+		 */
+		public void setImportResult(final Future<Void> importResult) {
+			this.importResult = importResult;
+		}
+
+		/**
+		 * Hands a commit unit to the thread, waiting while the thread has too many commit units waiting.
+		 *
+		 * @param commitUnit the objects to import in one transaction
+		 * @throws ImportRuntimeException if the thread terminated or the import was interrupted, so that the import stops
+		 */
+		public void queue(final List<UnmarshalledDto> commitUnit) {
+			if (!offer(commitUnit)) {
+				throw new ImportRuntimeException("IE-30410", jobType.toString());
+			}
+		}
+
+		/**
+		 * Tells the thread that there are no more commit units, unless it already terminated.
+		 */
+		public void endImport() {
+			offer(END_OF_IMPORT);
+		}
+
+		private boolean offer(final List<UnmarshalledDto> commitUnit) {
+			try {
+				while (!commitUnits.offer(commitUnit, QUEUE_OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+					if (importResult.isDone()) {
+						return false;
+					}
+				}
+				return true;
+			} catch (InterruptedException exception) {
+				// the import is being stopped: stop the thread too, so that nobody waits for it
+				Thread.currentThread().interrupt();
+				importResult.cancel(true);
+				return false;
+			}
+		}
+
+		@Override
+		public Void call() throws Exception {
+			importProcessor.setUpMetadata(metadata);
+			final PersistenceSession session = importProcessor.getPersistenceEngine().getSharedPersistenceSession();
+			Exception failure = null;
+			try {
+				for (List<UnmarshalledDto> commitUnit = commitUnits.take(); commitUnit != END_OF_IMPORT; commitUnit = commitUnits.take()) {
+					if (failure == null) {
+						failure = importCommitUnit(session, commitUnit);
+					}
+				}
+				if (failure == null) {
+					importer.postProcessingImportHandling();
+				}
+			} finally {
+				session.close();
+				importProcessor.setUpMetadata(null);
+			}
+			if (failure != null) {
+				throw failure;
+			}
+			return null;
+		}
+
+		private Exception importCommitUnit(final PersistenceSession session, final List<UnmarshalledDto> commitUnit) {
+			try {
+				importProcessor.importDtos(new CommitUnitDtoSource(commitUnit), session, summary, jobType, importer);
+				return null;
+			} catch (Exception exception) {
+				LOG.error("Import thread of " + jobType + " failed, it skips the remaining objects", exception);
+				return exception;
+			}
+		}
+	}
+
+	/**
+	 * The objects of a commit unit, as unmarshalled by the unmarshalling threads.
+	 */
+	private static final class CommitUnitDtoSource implements DtoSource {
+
+		private final List<UnmarshalledDto> commitUnit;
+
+		private int nextIndex;
+
+		private String validationErrorStatus;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param commitUnit the objects
+		 */
+		CommitUnitDtoSource(final List<UnmarshalledDto> commitUnit) {
+			this.commitUnit = commitUnit;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextIndex < commitUnit.size();
+		}
+
+		@Override
+		public Dto next() {
+			final UnmarshalledDto unmarshalledDto = commitUnit.get(nextIndex++);
+			if (unmarshalledDto.getFailure() != null) {
+				validationErrorStatus = unmarshalledDto.getValidationErrorStatus();
+				throw unmarshalledDto.getFailure();
+			}
+			return unmarshalledDto.getDto();
+		}
+
+		@Override
+		public void skipToNext() {
+			// the object was taken from the commit unit by next()
+		}
+
+		@Override
+		public String getValidationErrorStatus() {
+			return validationErrorStatus;
+		}
+	}
+}
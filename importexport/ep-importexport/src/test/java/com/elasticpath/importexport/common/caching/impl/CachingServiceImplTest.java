@@ -0,0 +1,146 @@
+package com.elasticpath.importexport.common.caching.impl;
+
+import static org.junit.Assert.assertSame;
+
+import java.util.Collections;
+
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.elasticpath.domain.catalog.Brand;
+import com.elasticpath.service.attribute.AttributeService;
+import com.elasticpath.service.catalog.BrandService;
+import com.elasticpath.service.catalog.CatalogService;
+import com.elasticpath.service.catalog.SkuOptionService;
+import com.elasticpath.service.store.StoreService;
+import com.elasticpath.service.store.WarehouseService;
+import com.elasticpath.service.tax.TaxCodeService;
+
+/**
+ * Test {@link CachingServiceImpl}.
+ */
+public class CachingServiceImplTest {
+
+	private static final String BRAND_CODE = "brand";
+
+	private static final String NEW_BRAND_CODE = "new brand";
+
+	@Rule
+	public final JUnitRuleMockery context = new JUnitRuleMockery();
+
+	private final CatalogService catalogService = context.mock(CatalogService.class);
+
+	private final BrandService brandService = context.mock(BrandService.class);
+
+	private final TaxCodeService taxCodeService = context.mock(TaxCodeService.class);
+
+	private final AttributeService attributeService = context.mock(AttributeService.class);
+
+	private final SkuOptionService skuOptionService = context.mock(SkuOptionService.class);
+
+	private final WarehouseService warehouseService = context.mock(WarehouseService.class);
+
+	private final StoreService storeService = context.mock(StoreService.class);
+
+	private final CachingServiceImpl cachingService = new CachingServiceImpl();
+
+	/**
+	 * Set up the caching service.
+	 */
+	@Before
+	public void setUp() {
+		cachingService.setCatalogService(catalogService);
+		cachingService.setBrandService(brandService);
+		cachingService.setTaxCodeService(taxCodeService);
+		cachingService.setAttributeService(attributeService);
+		cachingService.setSkuOptionService(skuOptionService);
+		cachingService.setWarehouseService(warehouseService);
+		cachingService.setStoreService(storeService);
+	}
+
+	/**
+	 * Test that preloaded and looked up reference data is served from the cache while caching is started, and looked up again once
+	 * caching is stopped.
+	 */
+	@Test
+	public void testReferenceDataIsCachedWhileCachingIsStarted() {
+		final Brand brand = context.mock(Brand.class, "brand");
+		final Brand newBrand = context.mock(Brand.class, "new brand");
+
+		expectPreload(brand);
+		context.checking(new Expectations() {
+			{
+				oneOf(brandService).findByCode(NEW_BRAND_CODE);
+				will(returnValue(newBrand));
+			}
+		});
+
+		cachingService.startCaching();
+		assertSame("a preloaded brand should be served from the cache", brand, cachingService.findBrandByCode(BRAND_CODE));
+		assertSame(newBrand, cachingService.findBrandByCode(NEW_BRAND_CODE));
+		assertSame("a brand looked up before should be served from the cache", newBrand, cachingService.findBrandByCode(NEW_BRAND_CODE));
+		cachingService.stopCaching();
+
+		context.checking(new Expectations() {
+			{
+				oneOf(brandService).findByCode(BRAND_CODE);
+				will(returnValue(brand));
+			}
+		});
+		assertSame("brands should be looked up once caching is stopped", brand, cachingService.findBrandByCode(BRAND_CODE));
+	}
+
+	/**
+	 * Test that jobs caching at the same time share the caches, which are only dropped once the last job stops caching.
+	 */
+	@Test
+	public void testCachesAreSharedUntilTheLastJobStopsCaching() {
+		final Brand brand = context.mock(Brand.class, "brand");
+		expectPreload(brand);
+
+		cachingService.startCaching();
+		cachingService.startCaching();
+		cachingService.stopCaching();
+		assertSame("the brand should still be cached for the job which has not stopped", brand, cachingService.findBrandByCode(BRAND_CODE));
+		cachingService.stopCaching();
+		cachingService.stopCaching();
+
+		context.checking(new Expectations() {
+			{
+				oneOf(brandService).findByCode(BRAND_CODE);
+				will(returnValue(brand));
+			}
+		});
+		assertSame("brands should be looked up once the last job stopped caching", brand, cachingService.findBrandByCode(BRAND_CODE));
+	}
+
+	/**
+	 * Expects the reference data to be preloaded once, with a single brand.
+	 */
+	private void expectPreload(final Brand brand) {
+		context.checking(new Expectations() {
+			{
+				allowing(brand).getCode();
+				will(returnValue(BRAND_CODE));
+
+				oneOf(catalogService).findAllCatalogs();
+				will(returnValue(Collections.emptyList()));
+				oneOf(brandService).list();
+				will(returnValue(Collections.singletonList(brand)));
+				oneOf(taxCodeService).list();
+				will(returnValue(Collections.emptyList()));
+				oneOf(attributeService).list();
+				will(returnValue(Collections.emptyList()));
+				oneOf(skuOptionService).list();
+				will(returnValue(Collections.emptyList()));
+				oneOf(warehouseService).findAllWarehouses();
+				will(returnValue(Collections.emptyList()));
+				oneOf(storeService).findAllStores();
+				will(returnValue(Collections.emptyList()));
+			}
+		});
+	}
+}
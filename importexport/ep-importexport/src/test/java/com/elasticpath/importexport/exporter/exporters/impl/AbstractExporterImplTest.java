@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -46,6 +47,13 @@ public class AbstractExporterImplTest {
 	private List<Object> exportableObjectIds = new ArrayList<Object>();
 	private DomainAdapter<Persistable, Dto> domainAdapter;
 	private final List<Persistable> exportableObjects = new ArrayList<Persistable>();
+	private final List<Integer> foundChunkSizes = new ArrayList<Integer>();
+	private int failingChunkSize;
+
+	private static final int CHUNK_SIZE = 2;
+	private static final int MAX_CHUNK_SIZE = 8;
+	private static final int EXPORTED_IDS = 15;
+	private static final int LAST_CHUNK_SIZE = 1;
 
 	private List<Persistable> getExportableObjects() {
 		return exportableObjects;
@@ -96,6 +104,10 @@ public class AbstractExporterImplTest {
 
 			@Override
 			protected List<Persistable> findByIDs(final List<Object> subList) {
+				foundChunkSizes.add(subList.size());
+				if (subList.size() == failingChunkSize) {
+					throw new IllegalStateException("chunk too large");
+				}
 				return getExportableObjects(); // lazy expansion
 			}
 
@@ -262,6 +274,48 @@ public class AbstractExporterImplTest {
 		assertTrue(abstractExporter.isFinished());
 	}
 	
+	/**
+	 * Test that objects are found in chunks which double in size up to the maximum chunk size.
+	 *
+	 * @throws ConfigurationException in case of errors
+	 */
+	@Test
+	public void testProcessExportGrowsChunksUpToMaximumChunkSize() throws ConfigurationException {
+		abstractExporter.initialize(new ExportContext(new ExportConfiguration(), new SearchConfiguration()));
+		for (long id = 0; id < EXPORTED_IDS; id++) {
+			exportableObjectIds.add(id);
+		}
+		abstractExporter.setChunkSize(CHUNK_SIZE);
+		abstractExporter.setMaxChunkSize(MAX_CHUNK_SIZE);
+
+		abstractExporter.processExport(new ByteArrayOutputStream());
+
+		assertEquals(Arrays.asList(CHUNK_SIZE, CHUNK_SIZE * 2, MAX_CHUNK_SIZE, LAST_CHUNK_SIZE), foundChunkSizes);
+		assertTrue(abstractExporter.isFinished());
+	}
+
+	/**
+	 * Test that a chunk larger than the chunk size which fails is found again in chunks of the chunk size, and that the chunks grow
+	 * again from the chunk size.
+	 *
+	 * @throws ConfigurationException in case of errors
+	 */
+	@Test
+	public void testProcessExportFindsFailedChunkInChunksOfChunkSize() throws ConfigurationException {
+		abstractExporter.initialize(new ExportContext(new ExportConfiguration(), new SearchConfiguration()));
+		for (long id = 0; id < EXPORTED_IDS; id++) {
+			exportableObjectIds.add(id);
+		}
+		abstractExporter.setChunkSize(CHUNK_SIZE);
+		abstractExporter.setMaxChunkSize(MAX_CHUNK_SIZE);
+		failingChunkSize = CHUNK_SIZE * 2;
+
+		abstractExporter.processExport(new ByteArrayOutputStream());
+
+		assertEquals(Arrays.asList(CHUNK_SIZE, CHUNK_SIZE * 2, CHUNK_SIZE, CHUNK_SIZE, CHUNK_SIZE, CHUNK_SIZE * 2, CHUNK_SIZE, CHUNK_SIZE,
+				CHUNK_SIZE, LAST_CHUNK_SIZE), foundChunkSizes);
+	}
+
 	/**
 	 * Test that {@link AbstractExporterImpl#removeDuplicatesFromExportableIDs(List)} will remove all duplicates from
 	 * the passed in {@link List} with passed a list of {@link Long}s.
@@ -1,5 +1,10 @@
 package com.elasticpath.importexport.importer.importers.impl;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -9,6 +14,7 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import com.elasticpath.common.dto.Dto;
+import com.elasticpath.commons.beanframework.BeanFactory;
 import com.elasticpath.importexport.common.exception.ConfigurationException;
 import com.elasticpath.importexport.common.types.JobType;
 import com.elasticpath.importexport.importer.configuration.ImportConfiguration;
@@ -64,6 +70,43 @@ public class ImporterFactoryImplTest {
 		factory.createImporter(JobType.PRODUCT, importContext, null);
 	}
 
+	/**
+	 * Check that parallel importers are new prototype beans, and only exist for the job types they are configured for.
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testCreateParallelImporterLooksUpPrototypeBean() throws Exception {
+		final SavingStrategy<? extends Persistable, ? extends Dto> savingStrategy = context.mock(SavingStrategy.class);
+		final BeanFactory beanFactory = context.mock(BeanFactory.class);
+		final Importer<? super Persistable, ? super Dto> importer = context.mock(Importer.class);
+		final ImportContext importContext = new ImportContext(new ImportConfiguration());
+
+		final ImporterFactoryImpl factory = new ImporterFactoryImplWithMockedStrategy(savingStrategy);
+		factory.setBeanFactory(beanFactory);
+		factory.setParallelImporterBeanNames(Collections.singletonMap(JobType.PRODUCT, "productImporter"));
+
+		context.checking(new Expectations() {
+			{
+				oneOf(beanFactory).getBean("productImporter");
+				will(returnValue(importer));
+				oneOf(importer).initialize(with(importContext), with(any(SavingStrategy.class)));
+			}
+		});
+
+		assertTrue(factory.isParallelImportSupported(JobType.PRODUCT));
+		assertFalse(factory.isParallelImportSupported(JobType.CATEGORY));
+		assertSame(importer, factory.createParallelImporter(JobType.PRODUCT, importContext, null));
+	}
+
+	/**
+	 * Check that a job type without a parallel importer can not be imported in parallel.
+	 */
+	@Test(expected = ConfigurationException.class)
+	public void testCreateParallelImporterForNonSupportedJobType() throws Exception {
+		final ImporterFactoryImpl factory = new ImporterFactoryImpl();
+		factory.createParallelImporter(JobType.CATEGORY, new ImportContext(new ImportConfiguration()), null);
+	}
+
 	/** This type was added to fix a checkstyle EOF exception. */
 	private static class ImporterFactoryImplWithMockedStrategy extends ImporterFactoryImpl {
 		private final SavingStrategy<? extends Persistable, ? extends Dto> savingStrategy;
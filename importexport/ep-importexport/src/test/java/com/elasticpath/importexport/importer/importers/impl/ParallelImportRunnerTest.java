@@ -0,0 +1,446 @@
+package com.elasticpath.importexport.importer.importers.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jmock.Expectations;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.action.CustomAction;
+import org.jmock.lib.concurrent.Synchroniser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.elasticpath.common.dto.Dto;
+import com.elasticpath.importexport.common.exception.runtime.ImportRuntimeException;
+import com.elasticpath.importexport.common.exception.runtime.PopulationRollbackException;
+import com.elasticpath.importexport.common.exception.runtime.PopulationRuntimeException;
+import com.elasticpath.importexport.common.summary.impl.SummaryImpl;
+import com.elasticpath.importexport.common.types.JobType;
+import com.elasticpath.importexport.importer.configuration.ImportConfiguration;
+import com.elasticpath.importexport.importer.context.ImportContext;
+import com.elasticpath.importexport.importer.importers.Importer;
+import com.elasticpath.importexport.importer.importers.ImporterFactory;
+import com.elasticpath.importexport.importer.importers.SavingStrategy;
+import com.elasticpath.persistence.api.EpPersistenceException;
+import com.elasticpath.persistence.api.Persistable;
+import com.elasticpath.persistence.api.PersistenceEngine;
+import com.elasticpath.persistence.api.PersistenceSession;
+import com.elasticpath.persistence.api.Query;
+import com.elasticpath.persistence.api.Transaction;
+
+/**
+ * Test {@link ParallelImportRunner}.
+ */
+public class ParallelImportRunnerTest {
+
+	private static final String DOCUMENT = "<products xmlns:x=\"urn:test\">"
+			+ "<product code=\"p1\"><name><![CDATA[A & B]]></name><x:extra>1</x:extra></product>"
+			+ "<!-- comment -->"
+			+ "<product code=\"p2\"/>"
+			+ "</products>";
+
+	private static final int THREAD_COUNT = 2;
+
+	private static final int COMMIT_UNIT = 2;
+
+	private static final int GROUP_COUNT = 3;
+
+	private static final int PRODUCT_COUNT = 15;
+
+	private static final int MANY_PRODUCT_COUNT = 200;
+
+	private static final long RUN_TIMEOUT_MILLIS = 10000;
+
+	@Rule
+	public final JUnitRuleMockery context = new JUnitRuleMockery() {
+		{
+			setThreadingPolicy(new Synchroniser());
+		}
+	};
+
+	private final PersistenceEngine persistenceEngine = context.mock(PersistenceEngine.class);
+
+	private final List<String> committedCodes = Collections.synchronizedList(new ArrayList<String>());
+
+	private final Map<String, String> importThreadsByCode = Collections.synchronizedMap(new HashMap<String, String>());
+
+	private final AtomicInteger rollbackCount = new AtomicInteger();
+
+	private final AtomicInteger postProcessingCount = new AtomicInteger();
+
+	/** The codes imported by the current transaction of each import thread. */
+	private final ThreadLocal<List<String>> pendingCodes = new ThreadLocal<List<String>>() {
+		@Override
+		protected List<String> initialValue() {
+			return new ArrayList<String>();
+		}
+	};
+
+	private XMLOutputFactory outputFactory;
+
+	private ImportProcessorImpl importProcessor;
+
+	private SummaryImpl summary;
+
+	/**
+	 * Set up the writer factory and an import processor with importers and persistence sessions recording what they import.
+	 */
+	@Before
+	public void setUp() {
+		outputFactory = XMLOutputFactory.newInstance();
+		outputFactory.setProperty(XMLOutputFactory.IS_REPAIRING_NAMESPACES, Boolean.TRUE);
+
+		importProcessor = new ImportProcessorImpl();
+		importProcessor.setPersistenceEngine(persistenceEngine);
+		importProcessor.setImporterFactory(new ImporterFactory() {
+			@Override
+			public Importer<? super Persistable, ? super Dto> createImporter(final JobType jobType, final ImportContext context,
+					final SavingManager<? extends Persistable> savingManager) {
+				return new RecordingImporter();
+			}
+
+			@Override
+			public boolean isParallelImportSupported(final JobType jobType) {
+				return true;
+			}
+
+			@Override
+			public Importer<? super Persistable, ? super Dto> createParallelImporter(final JobType jobType, final ImportContext context,
+					final SavingManager<? extends Persistable> savingManager) {
+				return new RecordingImporter();
+			}
+		});
+		summary = new SummaryImpl();
+	}
+
+	/**
+	 * Test that every element is copied into a fragment of its own, declaring the namespaces of its ancestors it uses, and that the
+	 * reader is left past the element.
+	 */
+	@Test
+	public void testCopyElementCopiesOneElementWithItsContent() throws Exception {
+		final XMLStreamReader streamReader = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(DOCUMENT));
+		streamReader.nextTag();
+		streamReader.nextTag();
+
+		final String first = ParallelImportRunner.copyElement(streamReader, outputFactory);
+		assertTrue(first, first.startsWith("<product ") && first.contains("code=\"p1\""));
+		assertTrue(first, first.contains("<name>A &amp; B</name>"));
+		assertTrue("the namespace of the root should be declared", first.contains("xmlns:x=\"urn:test\""));
+		assertTrue(first, first.endsWith("</product>"));
+
+		ImportProcessorImpl.skipNotStartElements(streamReader, "product");
+		assertEquals(XMLStreamConstants.START_ELEMENT, streamReader.getEventType());
+		final String second = ParallelImportRunner.copyElement(streamReader, outputFactory);
+		assertTrue(second, second.startsWith("<product ") && second.contains("code=\"p2\""));
+
+		ImportProcessorImpl.skipNotStartElements(streamReader, "product");
+		assertEquals("there should be no more products", XMLStreamConstants.END_DOCUMENT, streamReader.getEventType());
+	}
+
+	/**
+	 * Test that the objects with the same dependency key are imported by the same thread in document order, and that every object is
+	 * imported and counted.
+	 */
+	@Test(timeout = RUN_TIMEOUT_MILLIS)
+	public void testDispatchKeepsDocumentOrderOfObjectsWithSameDependencyKey() throws Exception {
+		allowingSessions();
+		final StringBuilder document = new StringBuilder("<products>");
+		for (int index = 0; index < PRODUCT_COUNT; index++) {
+			document.append(product(index, "g" + (index % GROUP_COUNT), null));
+		}
+		run(document.append("</products>").toString());
+
+		assertEquals(PRODUCT_COUNT, committedCodes.size());
+		for (int group = 0; group < GROUP_COUNT; group++) {
+			int previousIndex = -1;
+			final String thread = importThreadsByCode.get("p" + group);
+			for (String code : new ArrayList<String>(committedCodes)) {
+				final int index = Integer.parseInt(code.substring(1));
+				if (index % GROUP_COUNT == group) {
+					assertTrue(code + " was imported out of document order", index > previousIndex);
+					assertEquals(code + " was imported by another thread than its group", thread, importThreadsByCode.get(code));
+					previousIndex = index;
+				}
+			}
+		}
+		assertEquals(Integer.valueOf(PRODUCT_COUNT), summary.getCounters().get(JobType.PRODUCT));
+		assertEquals("every import thread should post process its import", THREAD_COUNT, postProcessingCount.get());
+	}
+
+	/**
+	 * Test that an object which fails to import is skipped and not counted, while the other objects of its commit unit are imported.
+	 */
+	@Test(timeout = RUN_TIMEOUT_MILLIS)
+	public void testFailedObjectIsSkippedAndNotCounted() throws Exception {
+		allowingSessions();
+		run("<products>" + product(0, "g", null) + product(1, "g", "skip") + product(2, "g", null) + product(3, "g", null) + "</products>");
+
+		assertEquals(Arrays.asList("p0", "p2", "p3"), committedCodes);
+		assertEquals(0, rollbackCount.get());
+		assertEquals(Integer.valueOf(Arrays.asList("p0", "p2", "p3").size()), summary.getCounters().get(JobType.PRODUCT));
+	}
+
+	/**
+	 * Test that an object which requires a rollback rolls back the objects imported before it in its transaction, which are no longer
+	 * counted, and that the import goes on with the next commit unit.
+	 */
+	@Test(timeout = RUN_TIMEOUT_MILLIS)
+	public void testRollbackDiscardsTheTransactionAndImportGoesOn() throws Exception {
+		allowingSessions();
+		run("<products>" + product(0, "g", null) + product(1, "g", null) + product(2, "g", null) + product(3, "g", "rollback")
+				+ product(4, "g", null) + product(5, "g", null) + "</products>");
+
+		assertEquals(Arrays.asList("p0", "p1", "p4", "p5"), committedCodes);
+		assertEquals(1, rollbackCount.get());
+		assertEquals(Integer.valueOf(Arrays.asList("p0", "p1", "p4", "p5").size()), summary.getCounters().get(JobType.PRODUCT));
+	}
+
+	/**
+	 * Test that an import thread which terminates before taking its commit units stops the import, rather than leaving the calling
+	 * thread waiting for room in its queue.
+	 */
+	@Test(timeout = RUN_TIMEOUT_MILLIS)
+	public void testFailingImportThreadStopsImport() throws Exception {
+		final AtomicInteger sessionCount = new AtomicInteger();
+		context.checking(new Expectations() {
+			{
+				allowing(persistenceEngine).getSharedPersistenceSession();
+				will(new CustomAction("Fails to open the first session") {
+					@Override
+					public Object invoke(final Invocation invocation) {
+						if (sessionCount.getAndIncrement() == 0) {
+							throw new EpPersistenceException("no connection");
+						}
+						return new RecordingSession();
+					}
+				});
+			}
+		});
+		final StringBuilder document = new StringBuilder("<products>");
+		for (int index = 0; index < MANY_PRODUCT_COUNT; index++) {
+			document.append(product(index, "g" + index, null));
+		}
+
+		try {
+			run(document.append("</products>").toString());
+			fail("the import should have failed");
+		} catch (ImportRuntimeException expected) {
+			assertEquals("IE-30410", expected.getIEMessage().getCode());
+		}
+	}
+
+	private void allowingSessions() {
+		context.checking(new Expectations() {
+			{
+				allowing(persistenceEngine).getSharedPersistenceSession();
+				will(new CustomAction("Opens a recording session") {
+					@Override
+					public Object invoke(final Invocation invocation) {
+						return new RecordingSession();
+					}
+				});
+			}
+		});
+	}
+
+	private String product(final int index, final String group, final String failure) {
+		final StringBuilder product = new StringBuilder("<product code=\"p").append(index).append("\" group=\"").append(group).append('"');
+		if (failure != null) {
+			product.append(" failure=\"").append(failure).append('"');
+		}
+		return product.append("/>").toString();
+	}
+
+	private void run(final String document) throws Exception {
+		final ImportConfiguration importConfiguration = new ImportConfiguration();
+		importConfiguration.setXmlValidation(false);
+		final XMLStreamReader streamReader = XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(document));
+		streamReader.nextTag();
+		streamReader.nextTag();
+		new ParallelImportRunner(importProcessor, THREAD_COUNT).run(new ImportContext(importConfiguration), streamReader, summary,
+				JobType.PRODUCT, new RecordingImporter());
+	}
+
+	/**
+	 * The object imported by the tests.
+	 */
+	@XmlRootElement(name = "product")
+	@XmlAccessorType(XmlAccessType.FIELD)
+	public static class TestDto implements Dto {
+
+		private static final long serialVersionUID = 1L;
+
+		@XmlAttribute
+		private String code;
+
+		@XmlAttribute
+		private String group;
+
+		@XmlAttribute
+		private String failure;
+	}
+
+	/**
+	 * An importer recording the objects it imports as pending in the transaction of its thread.
+	 */
+	private class RecordingImporter implements Importer<Persistable, Dto> {
+
+		private final ImportStatusHolder statusHolder = new ImportStatusHolder();
+
+		@Override
+		public boolean executeImport(final Dto object) {
+			final TestDto dto = (TestDto) object;
+			statusHolder.setImportStatus(dto.code);
+			if ("skip".equals(dto.failure)) {
+				throw new PopulationRuntimeException("IE-30402");
+			}
+			if ("rollback".equals(dto.failure)) {
+				throw new PopulationRollbackException("IE-30402");
+			}
+			importThreadsByCode.put(dto.code, Thread.currentThread().getName());
+			pendingCodes.get().add(dto.code);
+			return true;
+		}
+
+		@Override
+		public void initialize(final ImportContext context, final SavingStrategy<Persistable, Dto> savingStrategy) {
+			// nothing to initialize
+		}
+
+		@Override
+		public Class<? extends Dto> getDtoClass() {
+			return TestDto.class;
+		}
+
+		@Override
+		public List<Class<?>> getAuxiliaryJaxbClasses() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public SavingStrategy<Persistable, Dto> getSavingStrategy() {
+			return null;
+		}
+
+		@Override
+		public void setSavingStrategy(final SavingStrategy<Persistable, Dto> savingStrategy) {
+			// not used
+		}
+
+		@Override
+		public String getImportedObjectName() {
+			return "product";
+		}
+
+		@Override
+		public String getSchemaPath() {
+			return null;
+		}
+
+		@Override
+		public int getObjectsQty(final Dto dto) {
+			return 1;
+		}
+
+		@Override
+		public int getCommitUnit() {
+			return COMMIT_UNIT;
+		}
+
+		@Override
+		public void postProcessingImportHandling() {
+			postProcessingCount.incrementAndGet();
+		}
+
+		@Override
+		public ImportStatusHolder getStatusHolder() {
+			return statusHolder;
+		}
+
+		@Override
+		public String getDependencyKey(final Dto dto) {
+			return ((TestDto) dto).group;
+		}
+	}
+
+	/**
+	 * A persistence session whose transactions commit or discard the objects pending in the transaction of their thread.
+	 */
+	private class RecordingSession implements PersistenceSession {
+
+		@Override
+		public Transaction beginTransaction() {
+			pendingCodes.get().clear();
+			return new Transaction() {
+				@Override
+				public void commit() {
+					committedCodes.addAll(pendingCodes.get());
+					pendingCodes.get().clear();
+				}
+
+				@Override
+				public void rollback() {
+					rollbackCount.incrementAndGet();
+					pendingCodes.get().clear();
+				}
+
+				@Override
+				public boolean isRollbackOnly() {
+					return false;
+				}
+			};
+		}
+
+		@Override
+		public void close() {
+			// nothing to close
+		}
+
+		@Override
+		public <T extends Persistable> T update(final Persistable object) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void save(final Persistable object) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Query createQuery(final String queryString) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Query createNamedQuery(final String queryName) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Query createSQLQuery(final String queryString) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
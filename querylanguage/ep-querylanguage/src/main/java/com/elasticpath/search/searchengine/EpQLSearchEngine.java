@@ -31,6 +31,19 @@ public interface EpQLSearchEngine {
 	 */
 	<T> EpQlSearchResult<T> search(final String searchString, final int startIndex, final int maxResults) throws SearchExecutionException;
 
+	/**
+	 * Searches an index with the given EpQueryLanguage (EPQL) search string, returning the results a page at a time as they are iterated
+	 * over. Unlike {@link #search(String)}, the results are never all held in memory at once, and the first page of results is searched
+	 * for only when the iteration starts.
+	 *
+	 * @param <T> the expected type of element returned by the search
+	 * @param searchString the search query string
+	 * @param pageSize the number of results to search for at a time
+	 * @return an iterator over the search results
+	 * @throws SearchExecutionException if the search string cannot be parsed
+	 */
+	<T> EpQlSearchResultIterator<T> searchIterator(final String searchString, final int pageSize) throws SearchExecutionException;
+
     /**
 	 * Verify a query string, returning the string representation of the lucene query.
 	 * 
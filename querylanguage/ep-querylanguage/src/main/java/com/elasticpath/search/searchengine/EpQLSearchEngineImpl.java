@@ -42,6 +42,15 @@ public class EpQLSearchEngineImpl implements EpQLSearchEngine {
 		}, searchString);
 	}
 
+	@Override
+	public <T> EpQlSearchResultIterator<T> searchIterator(final String searchString, final int pageSize) {
+		final EpQuery epQuery = getEpQueryFromParseString(searchString);
+
+		logQuery(epQuery);
+
+		return new PagedEpQlSearchResultIterator<T>(getIndexSearcher(epQuery), epQuery, pageSize);
+	}
+
 	private <T> EpQlSearchResult<T> search(final QueryLauncher provider, final String searchString) {
 		final EpQuery epQuery = getEpQueryFromParseString(searchString);
 
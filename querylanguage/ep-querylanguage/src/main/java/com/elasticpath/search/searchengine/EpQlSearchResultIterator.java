@@ -0,0 +1,20 @@
+package com.elasticpath.search.searchengine;
+
+import java.util.Iterator;
+
+import com.elasticpath.ql.parser.EPQueryType;
+
+/**
+ * Iterates over the results of an EPQL search, fetching them from the index a page at a time as they are needed.
+ *
+ * @param <T> the type of the returned results
+ */
+public interface EpQlSearchResultIterator<T> extends Iterator<T> {
+
+	/**
+	 * Gets the type of EP QL query.
+	 *
+	 * @return the epQueryType
+	 */
+	EPQueryType getEpQueryType();
+}
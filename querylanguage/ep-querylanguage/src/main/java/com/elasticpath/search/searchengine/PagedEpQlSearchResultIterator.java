@@ -0,0 +1,99 @@
+package com.elasticpath.search.searchengine;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.elasticpath.ql.parser.EPQueryType;
+import com.elasticpath.ql.parser.EpQuery;
+
+/**
+ * Iterates over the results of an EPQL query by searching for one page of results after another with an {@link IndexSearcher}. Only
+ * one page is held at a time, and the first page is only searched for when the first result is asked for. A page with fewer results
+ * than the page size is the last one.
+ * <p>
+ * The results of a {@link UidPagedIndexSearcher} are paged by uid, each page following the last uid of the previous one, so that
+ * changes to the index while the results are iterated over neither skip nor repeat results. The results of other searchers are paged
+ * by their position, so their queries should order their results, and the results should not change while they are iterated over.
+ *
+ * @param <T> the type of the returned results
+ */
+class PagedEpQlSearchResultIterator<T> implements EpQlSearchResultIterator<T> {
+
+	private final IndexSearcher indexSearcher;
+
+	private final EpQuery epQuery;
+
+	private final int pageSize;
+
+	private List<T> page = Collections.emptyList();
+
+	private int pageIndex;
+
+	private int nextStartIndex;
+
+	private Long lastUid;
+
+	private boolean lastPage;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param indexSearcher the searcher of the query's target language
+	 * @param epQuery the query
+	 * @param pageSize the number of results to search for at a time
+	 */
+	PagedEpQlSearchResultIterator(final IndexSearcher indexSearcher, final EpQuery epQuery, final int pageSize) {
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("The page size must be positive: " + pageSize);
+		}
+		this.indexSearcher = indexSearcher;
+		this.epQuery = epQuery;
+		this.pageSize = pageSize;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (pageIndex >= page.size()) {
+			if (lastPage) {
+				return false;
+			}
+			searchNextPage();
+		}
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return page.get(pageIndex++);
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("Search results can not be removed");
+	}
+
+	@Override
+	public EPQueryType getEpQueryType() {
+		return epQuery.getQueryType();
+	}
+
+	private void searchNextPage() {
+		final EpQlSearchResult<T> searchResult;
+		if (indexSearcher instanceof UidPagedIndexSearcher) {
+			searchResult = ((UidPagedIndexSearcher) indexSearcher).searchAfterUid(epQuery, lastUid, nextStartIndex, pageSize);
+		} else {
+			searchResult = indexSearcher.search(epQuery, nextStartIndex, pageSize);
+		}
+		page = searchResult.getSearchResults();
+		pageIndex = 0;
+		nextStartIndex += page.size();
+		lastPage = page.size() < pageSize;
+		if (!page.isEmpty() && indexSearcher instanceof UidPagedIndexSearcher) {
+			lastUid = (Long) page.get(page.size() - 1);
+		}
+	}
+}
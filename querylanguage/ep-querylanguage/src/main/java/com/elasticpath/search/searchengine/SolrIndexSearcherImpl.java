@@ -29,9 +29,9 @@ import com.elasticpath.service.search.solr.SolrIndexConstants;
 import com.elasticpath.service.search.solr.SolrProvider;
 
 /**
- * Data access for the SOLR index.
+ * Data access for the SOLR index. Results are ordered by their uids, so that they can be paged through by position or by uid.
  */
-public class SolrIndexSearcherImpl implements IndexSearcher {
+public class SolrIndexSearcherImpl implements UidPagedIndexSearcher {
 
 	private static final Logger LOG = Logger.getLogger(SolrIndexSearcherImpl.class);
 
@@ -62,8 +62,27 @@ public class SolrIndexSearcherImpl implements IndexSearcher {
 		return (EpQlSearchResult<T>) searchResult;
 	}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> EpQlSearchResult<T> searchAfterUid(final EpQuery epQuery, final Long lastUid, final int resultCount, final int maxResults) {
+		final IndexType indexType = typeMap.get(epQuery.getQueryType());
+		final SearchConfig searchConfig = solrProvider.getSearchConfig(indexType);
+		final SolrIndexSearchResult<Long> searchResult = new SolrIndexSearchResult<Long>();
+
+		final SolrQuery solrQuery = createSolrQuery(epQuery, resultCount, maxResults, searchConfig, searchResult);
+		if (lastUid != null) {
+			solrQuery.setStart(0);
+			solrQuery.addFilterQuery(SolrIndexConstants.OBJECT_UID + ":{" + lastUid + " TO *}");
+			searchResult.setStartIndex(0);
+		}
+		final QueryResponse response = performSearch(solrProvider.getServer(indexType), solrQuery);
+
+		parseResponseDocument(response, searchResult, epQuery);
+		return (EpQlSearchResult<T>) searchResult;
+	}
+
 	/**
-	 * Constructs a SolrQuery from an EpQuery.
+	 * Constructs a SolrQuery from an EpQuery, ordering its results by uid.
 	 *
 	 * @param epQuery the EP query from which to construct a Solr query.
 	 * @param startIndex the index from which the result set should begin
@@ -89,6 +108,7 @@ public class SolrIndexSearcherImpl implements IndexSearcher {
 		solrQuery.setStart(startFromIndex);
 		solrQuery.setRows(maxReturnNum);
 		solrQuery.setFields(SolrIndexConstants.OBJECT_UID);
+		solrQuery.setSortField(SolrIndexConstants.OBJECT_UID, SolrQuery.ORDER.asc);
 
 		searchResult.setStartIndex(startFromIndex);
 		return solrQuery;
@@ -0,0 +1,26 @@
+package com.elasticpath.search.searchengine;
+
+import com.elasticpath.ql.parser.EpQuery;
+import com.elasticpath.ql.parser.SearchExecutionException;
+
+/**
+ * An {@link IndexSearcher} whose results are uids which it can page through in uid order, each page starting after the last uid of the
+ * previous page rather than at a position. Such pages neither skip nor repeat results when the index changes between pages, and
+ * later pages cost no more to search for than the first one.
+ */
+public interface UidPagedIndexSearcher extends IndexSearcher {
+
+	/**
+	 * Searches for the page of results whose uids follow the given uid, in ascending uid order. The start index of the query applies
+	 * to the first page only, and its limit to the results of all the pages.
+	 *
+	 * @param <T> the expected type of element returned by the search
+	 * @param epQuery the epQuery object
+	 * @param lastUid the last uid of the previous page, or null to search for the first page
+	 * @param resultCount the number of results of the previous pages
+	 * @param maxResults the maximum number of results to return
+	 * @return the page of results
+	 * @throws SearchExecutionException if the search string cannot be parsed
+	 */
+	<T> EpQlSearchResult<T> searchAfterUid(EpQuery epQuery, Long lastUid, int resultCount, int maxResults) throws SearchExecutionException;
+}
@@ -0,0 +1,159 @@
+package com.elasticpath.search.searchengine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import com.elasticpath.ql.parser.EPQueryType;
+import com.elasticpath.ql.parser.EpQuery;
+
+/**
+ * Test cases for PagedEpQlSearchResultIterator.
+ */
+public class PagedEpQlSearchResultIteratorTest {
+
+	private static final int PAGE_SIZE = 2;
+
+	private static final long FIRST_UID = 1L;
+
+	private static final long SECOND_UID = 2L;
+
+	private static final long THIRD_UID = 3L;
+
+	private final EpQuery epQuery = new EpQuery();
+
+	/**
+	 * Test that pages are searched for as the results are iterated over, until a page is not full.
+	 */
+	@Test
+	public void testIteratesOverPagesUntilPageIsNotFull() {
+		final PagedIndexSearcher indexSearcher = new PagedIndexSearcher(Arrays.asList(FIRST_UID, SECOND_UID), Arrays.asList(THIRD_UID));
+
+		final PagedEpQlSearchResultIterator<Long> iterator = new PagedEpQlSearchResultIterator<Long>(indexSearcher, epQuery, PAGE_SIZE);
+		assertEquals("no page should be searched for before the iteration starts", 0, indexSearcher.getStartIndexes().size());
+
+		final List<Long> uids = new ArrayList<Long>();
+		while (iterator.hasNext()) {
+			uids.add(iterator.next());
+		}
+
+		assertEquals(Arrays.asList(FIRST_UID, SECOND_UID, THIRD_UID), uids);
+		assertFalse(iterator.hasNext());
+		assertEquals("the last page should not be searched for again", Arrays.asList(0, PAGE_SIZE), indexSearcher.getStartIndexes());
+	}
+
+	/**
+	 * Test that an empty page after full pages ends the iteration.
+	 */
+	@Test(expected = NoSuchElementException.class)
+	public void testEmptyPageEndsIteration() {
+		final PagedIndexSearcher indexSearcher = new PagedIndexSearcher(Arrays.asList(FIRST_UID, SECOND_UID), new ArrayList<Long>());
+
+		final PagedEpQlSearchResultIterator<Long> iterator = new PagedEpQlSearchResultIterator<Long>(indexSearcher, epQuery, PAGE_SIZE);
+		assertEquals(Long.valueOf(FIRST_UID), iterator.next());
+		assertEquals(Long.valueOf(SECOND_UID), iterator.next());
+		iterator.next();
+	}
+
+	/**
+	 * Test that the pages of a uid paged searcher are searched for after the last uid of the previous page rather than by position.
+	 */
+	@Test
+	public void testUidPagedSearcherPagesAfterLastUid() {
+		final UidPagedSearcher indexSearcher = new UidPagedSearcher(Arrays.asList(FIRST_UID, SECOND_UID), Arrays.asList(THIRD_UID));
+
+		final PagedEpQlSearchResultIterator<Long> iterator = new PagedEpQlSearchResultIterator<Long>(indexSearcher, epQuery, PAGE_SIZE);
+		final List<Long> uids = new ArrayList<Long>();
+		while (iterator.hasNext()) {
+			uids.add(iterator.next());
+		}
+
+		assertEquals(Arrays.asList(FIRST_UID, SECOND_UID, THIRD_UID), uids);
+		assertEquals("each page should follow the last uid of the previous page", Arrays.asList(null, SECOND_UID), indexSearcher.getLastUids());
+		assertEquals("the limit of the query should count the results of the previous pages", Arrays.asList(0, PAGE_SIZE),
+				indexSearcher.getStartIndexes());
+	}
+
+	/**
+	 * An index searcher returning given pages and recording the start indexes it is asked for.
+	 */
+	private static class PagedIndexSearcher implements IndexSearcher {
+
+		private final LinkedList<List<Long>> pages = new LinkedList<List<Long>>();
+
+		private final List<Integer> startIndexes = new ArrayList<Integer>();
+
+		/**
+		 * Constructor.
+		 *
+		 * @param pages the pages to return, in order
+		 */
+		PagedIndexSearcher(final List<Long>... pages) {
+			this.pages.addAll(Arrays.asList(pages));
+		}
+
+		@Override
+		public <T> EpQlSearchResult<T> search(final EpQuery epQuery) {
+			throw new UnsupportedOperationException("results should be searched for a page at a time");
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> EpQlSearchResult<T> search(final EpQuery epQuery, final int startIndex, final int maxResults) {
+			startIndexes.add(startIndex);
+			final SolrIndexSearchResult<Long> result = new SolrIndexSearchResult<Long>();
+			result.setStartIndex(startIndex);
+			result.setResultUids(pages.removeFirst());
+			return (EpQlSearchResult<T>) result;
+		}
+
+		@Override
+		public void setSearchResultConverterMap(final Map<EPQueryType, SearchResultConverter<?, ?>> converterMap) {
+			// no conversion
+		}
+
+		public List<Integer> getStartIndexes() {
+			return startIndexes;
+		}
+	}
+
+	/**
+	 * A uid paged index searcher returning given pages and recording the uids they are asked to follow.
+	 */
+	private static class UidPagedSearcher extends PagedIndexSearcher implements UidPagedIndexSearcher {
+
+		private final List<Long> lastUids = new ArrayList<Long>();
+
+		/**
+		 * Constructor.
+		 *
+		 * @param pages the pages to return, in order
+		 */
+		UidPagedSearcher(final List<Long>... pages) {
+			super(pages);
+		}
+
+		@Override
+		public <T> EpQlSearchResult<T> search(final EpQuery epQuery, final int startIndex, final int maxResults) {
+			throw new UnsupportedOperationException("results should be paged by uid");
+		}
+
+		@Override
+		public <T> EpQlSearchResult<T> searchAfterUid(final EpQuery epQuery, final Long lastUid, final int resultCount, final int maxResults) {
+			lastUids.add(lastUid);
+			return super.search(epQuery, resultCount, maxResults);
+		}
+
+		public List<Long> getLastUids() {
+			return lastUids;
+		}
+	}
+}
@@ -14,6 +14,7 @@ import com.elasticpath.domain.misc.SearchConfig;
 import com.elasticpath.domain.misc.impl.SearchConfigImpl;
 import com.elasticpath.ql.parser.EpQuery;
 import com.elasticpath.ql.parser.query.NativeQuery;
+import com.elasticpath.service.search.solr.SolrIndexConstants;
 
 /**
  * Test cases for SolrIndexSearcherImpl.
@@ -49,6 +50,8 @@ public class SolrIndexSearcherImplTest {
 		assertEquals(String.valueOf(paramStartIndex), solrQuery.get(CommonParams.START));
 		assertEquals(String.valueOf(paramLimit), solrQuery.get(CommonParams.ROWS));
 		assertEquals(queryString, solrQuery.get(CommonParams.Q));
+		assertEquals("results should be ordered by uid so that they can be paged through", SolrIndexConstants.OBJECT_UID + " asc",
+				solrQuery.get(CommonParams.SORT));
 
 		// case 2. epQuery.limit is blank, epQuery.start is set
 		epQuery.setStartIndex(epQueryStartIndex);
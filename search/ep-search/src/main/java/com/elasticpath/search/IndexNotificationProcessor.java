@@ -1,5 +1,6 @@
 package com.elasticpath.search;
 
+import java.util.Collection;
 import java.util.List;
 
 import com.elasticpath.domain.search.IndexNotification;
@@ -49,9 +50,26 @@ public interface IndexNotificationProcessor {
 	 */
 	List<IndexNotification> findAllNewRawNotifications(final IndexType indexType);
 
+	/**
+	 * Retrieves the oldest raw {@link IndexNotification}s, in the order they were stored. This
+	 * list is freshly retrieved and is not cached.
+	 * 
+	 * @param indexType the type of notifications to retrieve
+	 * @param maxResults the maximum number of notifications to retrieve
+	 * @return the oldest raw {@link IndexNotification}s
+	 */
+	List<IndexNotification> findOldestRawNotifications(final IndexType indexType, final int maxResults);
+
 	/**
 	 * Removes all of the stored notifications.
 	 */
 	void removeStoredNotifications();
 
+	/**
+	 * Removes the given notifications, once they have been processed.
+	 * 
+	 * @param notifications the notifications to remove
+	 */
+	void removeNotifications(final Collection<IndexNotification> notifications);
+
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.elasticpath.search.impl;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -73,19 +74,41 @@ public class IndexNotificationProcessorImpl implements IndexNotificationProcesso
 	}
 
 	/**
-	 * Removes all of the stored notifications.
+	 * Retrieves the oldest raw {@link IndexNotification}s, in the order they were stored. This list is freshly retrieved and is not
+	 * cached, so it does not change the stored notifications.
+	 * 
+	 * @param indexType the type of notifications to retrieve
+	 * @param maxResults the maximum number of notifications to retrieve
+	 * @return the oldest raw {@link IndexNotification}s
+	 */
+	public List<IndexNotification> findOldestRawNotifications(final IndexType indexType, final int maxResults) {
+		if (indexType == null) {
+			throw new EpSystemException("indexType must not be null");
+		}
+		return indexNotificationService.findOldestByIndexType(indexType, maxResults);
+	}
+
+	/**
+	 * Removes all of the stored notifications, in bulk.
 	 */
 	public void removeStoredNotifications() {
 		lock.writeLock().lock();
 		try {
-			for (IndexNotification notification : rawNotifications) {
-				indexNotificationService.remove(notification);
-			}
+			indexNotificationService.removeAll(rawNotifications);
 		} finally {
 			lock.writeLock().unlock();
 		}
 	}
 
+	/**
+	 * Removes the given notifications in bulk, once they have been processed.
+	 * 
+	 * @param notifications the notifications to remove
+	 */
+	public void removeNotifications(final Collection<IndexNotification> notifications) {
+		indexNotificationService.removeAll(notifications);
+	}
+
 	private void findRawNotifications(final IndexType indexType) {
 		if (indexType == null) {
 			throw new EpSystemException("indexType must not be null");
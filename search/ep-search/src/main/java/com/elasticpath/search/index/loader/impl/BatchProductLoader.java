@@ -4,6 +4,7 @@ import java.util.Collection;
 
 import com.elasticpath.domain.store.Store;
 import com.elasticpath.persistence.api.FetchGroupLoadTuner;
+import com.elasticpath.search.index.solr.document.impl.ProductIndexingContextProvider;
 import com.elasticpath.service.catalogview.IndexProduct;
 import com.elasticpath.service.catalogview.StoreProductService;
 import com.elasticpath.service.store.StoreService;
@@ -19,6 +20,8 @@ public class BatchProductLoader extends AbstractEntityLoader<IndexProduct> {
 
 	private FetchGroupLoadTuner productLoadTuner;
 
+	private ProductIndexingContextProvider productIndexingContextProvider;
+
 	/**
 	 * Loads the {@link IndexProduct}s for the batched ids and loads each batch in bulk.
 	 * 
@@ -29,6 +32,12 @@ public class BatchProductLoader extends AbstractEntityLoader<IndexProduct> {
 		Collection<Store> stores = getStoreService().findAllCompleteStores(getProductLoadTuner());
 		Collection<IndexProduct> loadedIndexProductBatch = getStoreProductService().getIndexProducts(getUidsToLoad(), stores, getProductLoadTuner());
 
+		if (getProductIndexingContextProvider() != null) {
+			final long start = System.currentTimeMillis();
+			getProductIndexingContextProvider().createBatchContext(loadedIndexProductBatch, stores);
+			getPipelinePerformance().addValue("loader:context_build_time", System.currentTimeMillis() - start);
+		}
+
 		return loadedIndexProductBatch;
 	}
 
@@ -54,6 +63,20 @@ public class BatchProductLoader extends AbstractEntityLoader<IndexProduct> {
 		return storeService;
 	}
 
+	/**
+	 * @param productIndexingContextProvider the provider to build the indexing context of each batch with
+	 */
+	public void setProductIndexingContextProvider(final ProductIndexingContextProvider productIndexingContextProvider) {
+		this.productIndexingContextProvider = productIndexingContextProvider;
+	}
+
+	/**
+	 * @return the provider to build the indexing context of each batch with
+	 */
+	public ProductIndexingContextProvider getProductIndexingContextProvider() {
+		return productIndexingContextProvider;
+	}
+
 	/**
 	 * @param loadTuner the loadTuner to set
 	 */
@@ -39,7 +39,9 @@ public class CategoryIndexBuilder extends AbstractIndexBuilder {
 	 * @return deleted UIDs.
 	 */
 	public List<Long> findDeletedUids(final Date lastBuildDate) {
-		return categoryService.findUidsByDeletedDate(lastBuildDate);
+		final List<Long> deletedUids = categoryService.findUidsByDeletedDate(lastBuildDate);
+		categoryService.refreshCategoryHierarchy(deletedUids);
+		return deletedUids;
 	}
 
 	/**
@@ -50,6 +52,8 @@ public class CategoryIndexBuilder extends AbstractIndexBuilder {
 	 */
 	public List<Long> findAddedOrModifiedUids(final Date lastBuildDate) {
 		final List<Long> directlyModifiedCategoryUids = categoryService.findUidsByModifiedDate(lastBuildDate);
+		// reload the hierarchies of changed catalogs first, so that the descendants of moved categories are found under their new parents
+		categoryService.refreshCategoryHierarchy(directlyModifiedCategoryUids);
 		final List<Long> indirectlyModifiedCategoryUids = categoryService.findDescendantCategoryUids(directlyModifiedCategoryUids);
 		final Set<Long> categoryUidsSet = new HashSet<Long>(directlyModifiedCategoryUids.size()
 				+ indirectlyModifiedCategoryUids.size());
@@ -28,7 +28,9 @@ public abstract class AbstractDocumentCreatingTask<ENTITY> extends AbstractSolrI
 		}
 
 		getPipelinePerformance().addCount("createdocument:docs_in", 1);
+		final long start = System.currentTimeMillis();
 		final SolrInputDocument solrInputDocument = createDocument();
+		getPipelinePerformance().addValue("createdocument:document_create_time", System.currentTimeMillis() - start);
 		getNextStage().send(solrInputDocument);
 		getPipelinePerformance().addCount("createdocument:docs_out", 1);
 	}
@@ -0,0 +1,211 @@
+package com.elasticpath.search.index.solr.document.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.elasticpath.domain.catalog.Brand;
+import com.elasticpath.domain.catalog.Category;
+import com.elasticpath.domain.catalog.Price;
+import com.elasticpath.domain.pricing.PriceListAssignment;
+import com.elasticpath.domain.store.Store;
+
+/**
+ * The store, price list assignment, brand and category data needed to index a batch of products. A context is built once per
+ * {@code EntityLoadingTask} batch by the {@link ProductIndexingContextProvider} and shared by every {@link ProductSolrInputDocumentCreator}
+ * working on a product of that batch, so that creating a document does not go back to the database for data that is the same for the
+ * whole batch.
+ * <p>
+ * When the provider was able to price the batch up front, the context also holds the catalog promoted price of each product in each
+ * price list of each store, so that the document creators do not fire the promotion rules product by product.
+ * <p>
+ * The context is immutable apart from a thread-safe cache of the stores containing a set of catalogs.
+ */
+public final class ProductIndexingContext {
+
+	private final Collection<Store> stores;
+
+	private final Map<Store, Collection<PriceListAssignment>> priceListAssignmentsByStore;
+
+	private final Map<String, Brand> brandsByCode;
+
+	private final Map<Long, CategoryAncestry> categoriesByUid;
+
+	private final Map<String, Map<String, Map<String, Price>>> pricesByStoreCode;
+
+	private final ConcurrentMap<Set<Long>, Collection<Store>> storesByCatalogUids = new ConcurrentHashMap<Set<Long>, Collection<Store>>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param stores all complete stores
+	 * @param priceListAssignmentsByStore the price list assignments of the catalog of each store
+	 * @param brandsByCode the brands of the products in the batch, keyed by brand code
+	 * @param categoriesByUid the categories of the products in the batch, keyed by category uid
+	 * @param pricesByStoreCode the prices of the products in the batch keyed by store code, price list guid and product code, or null if
+	 *        the batch was not priced up front
+	 */
+	public ProductIndexingContext(final Collection<Store> stores, final Map<Store, Collection<PriceListAssignment>> priceListAssignmentsByStore,
+			final Map<String, Brand> brandsByCode, final Map<Long, CategoryAncestry> categoriesByUid,
+			final Map<String, Map<String, Map<String, Price>>> pricesByStoreCode) {
+		this.stores = Collections.unmodifiableCollection(stores);
+		this.priceListAssignmentsByStore = Collections.unmodifiableMap(priceListAssignmentsByStore);
+		this.brandsByCode = Collections.unmodifiableMap(brandsByCode);
+		this.categoriesByUid = Collections.unmodifiableMap(categoriesByUid);
+		if (pricesByStoreCode == null) {
+			this.pricesByStoreCode = null;
+		} else {
+			this.pricesByStoreCode = Collections.unmodifiableMap(pricesByStoreCode);
+		}
+	}
+
+	public Collection<Store> getStores() {
+		return stores;
+	}
+
+	/**
+	 * Gets the price list assignments of the catalog of the given store.
+	 *
+	 * @param store the store
+	 * @return the price list assignments, or null if the store is not one of {@link #getStores()}
+	 */
+	public Collection<PriceListAssignment> getPriceListAssignments(final Store store) {
+		return priceListAssignmentsByStore.get(store);
+	}
+
+	/**
+	 * Checks whether the brand with the given code was looked up for this context.
+	 *
+	 * @param brandCode the brand code
+	 * @return true if {@link #getBrand(String)} has the answer for the code
+	 */
+	public boolean hasBrand(final String brandCode) {
+		return brandsByCode.containsKey(brandCode);
+	}
+
+	/**
+	 * Gets the brand with the given code.
+	 *
+	 * @param brandCode the brand code
+	 * @return the brand, or null if there is no such brand or it was not looked up for this context
+	 */
+	public Brand getBrand(final String brandCode) {
+		return brandsByCode.get(brandCode);
+	}
+
+	/**
+	 * Gets the ancestry of the category with the given uid.
+	 *
+	 * @param categoryUid the category uid
+	 * @return the category ancestry, or null if the category was not loaded for this context
+	 */
+	public CategoryAncestry getCategoryAncestry(final long categoryUid) {
+		return categoriesByUid.get(categoryUid);
+	}
+
+	/**
+	 * Checks whether the products of the batch were priced up front.
+	 *
+	 * @return true if {@link #getPrice(Store, String, String)} has the prices of the batch
+	 */
+	public boolean hasPrices() {
+		return pricesByStoreCode != null;
+	}
+
+	/**
+	 * Gets the catalog promoted price of a product of the batch in a price list of a store.
+	 *
+	 * @param store the store
+	 * @param priceListGuid the guid of the price list
+	 * @param productCode the product code
+	 * @return the price, or null if the product has no price in the price list
+	 */
+	public Price getPrice(final Store store, final String priceListGuid, final String productCode) {
+		if (pricesByStoreCode == null) {
+			return null;
+		}
+		final Map<String, Map<String, Price>> pricesByPriceList = pricesByStoreCode.get(store.getCode());
+		if (pricesByPriceList == null) {
+			return null;
+		}
+		final Map<String, Price> pricesByProductCode = pricesByPriceList.get(priceListGuid);
+		if (pricesByProductCode == null) {
+			return null;
+		}
+		return pricesByProductCode.get(productCode);
+	}
+
+	/**
+	 * Gets the stores containing any of the given catalogs, as previously cached with {@link #putStoresWithCatalogUids(Set, Collection)}.
+	 *
+	 * @param catalogUids the catalog uids
+	 * @return the stores, or null if they are not cached yet
+	 */
+	public Collection<Store> getStoresWithCatalogUids(final Set<Long> catalogUids) {
+		return storesByCatalogUids.get(catalogUids);
+	}
+
+	/**
+	 * Caches the stores containing any of the given catalogs.
+	 *
+	 * @param catalogUids the catalog uids
+	 * @param storesWithCatalogs the stores containing any of the catalogs
+	 */
+	public void putStoresWithCatalogUids(final Set<Long> catalogUids, final Collection<Store> storesWithCatalogs) {
+		storesByCatalogUids.putIfAbsent(new HashSet<Long>(catalogUids), storesWithCatalogs);
+	}
+
+	/**
+	 * A category, loaded with its catalog and ancestors, along with the codes of its ancestors and whether it and all its ancestors are
+	 * available.
+	 */
+	public static final class CategoryAncestry {
+
+		private final Category category;
+
+		private final Set<String> ancestorCodes;
+
+		private final boolean available;
+
+		/**
+		 * Walks the ancestors of the given category.
+		 *
+		 * @param category the category, loaded with its ancestors
+		 */
+		public CategoryAncestry(final Category category) {
+			this.category = category;
+
+			final Set<String> codes = new HashSet<String>();
+			boolean allAvailable = category.isAvailable();
+			Category parent = category.getParent();
+			while (parent != null) {
+				codes.add(parent.getCode());
+				allAvailable &= parent.isAvailable();
+				parent = parent.getParent();
+			}
+			this.ancestorCodes = Collections.unmodifiableSet(codes);
+			this.available = allAvailable;
+		}
+
+		public Category getCategory() {
+			return category;
+		}
+
+		public Set<String> getAncestorCodes() {
+			return ancestorCodes;
+		}
+
+		/**
+		 * Whether the category and all of its ancestors are available.
+		 *
+		 * @return true if the category is available through its ancestors
+		 */
+		public boolean isAvailable() {
+			return available;
+		}
+	}
+}
@@ -0,0 +1,261 @@
+package com.elasticpath.search.index.solr.document.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+
+import com.elasticpath.common.pricing.service.PromotedPriceLookupService;
+import com.elasticpath.commons.beanframework.BeanFactory;
+import com.elasticpath.commons.constants.ContextIdNames;
+import com.elasticpath.domain.catalog.Brand;
+import com.elasticpath.domain.catalog.Category;
+import com.elasticpath.domain.catalog.Price;
+import com.elasticpath.domain.catalog.Product;
+import com.elasticpath.domain.pricing.PriceListAssignment;
+import com.elasticpath.domain.pricing.PriceListDescriptor;
+import com.elasticpath.domain.pricing.PriceListStack;
+import com.elasticpath.domain.store.Store;
+import com.elasticpath.persistence.api.FetchGroupLoadTuner;
+import com.elasticpath.persistence.support.FetchGroupConstants;
+import com.elasticpath.search.index.solr.document.impl.ProductIndexingContext.CategoryAncestry;
+import com.elasticpath.service.catalog.BrandService;
+import com.elasticpath.service.catalog.CategoryService;
+import com.elasticpath.service.pricing.PriceListAssignmentService;
+import com.elasticpath.service.pricing.datasource.BaseAmountDataSourceFactory;
+import com.elasticpath.service.pricing.datasource.BaseAmountDataSourceFactoryBuilder;
+
+/**
+ * Builds the {@link ProductIndexingContext} of a batch of products and hands it over to the {@link ProductSolrInputDocumentCreator}s of
+ * the batch. The loading stage registers the context against the uid of every product in the batch, and each document creator releases
+ * the registration of its product, so a context lives exactly as long as documents of its batch are still being created.
+ * <p>
+ * The documents of some products may never be created, for instance when the batch could not be handed over to the document creating
+ * stage. To keep their registrations from piling up, at most {@link #setMaxRegisteredProducts(int) maxRegisteredProducts} products are
+ * registered at once and the oldest registrations are dropped beyond that. The document creator of a product whose registration was dropped
+ * looks up the data of its own product instead.
+ * <p>
+ * When a {@link PromotedPriceLookupService} is set, the whole batch is also priced up front: the base amounts of the batch are read in one
+ * go and the catalog promotion rules are fired once per store and currency instead of once per SKU, price list and store.
+ */
+public class ProductIndexingContextProvider {
+
+	private static final Logger LOG = Logger.getLogger(ProductIndexingContextProvider.class);
+
+	private static final int DEFAULT_MAX_REGISTERED_PRODUCTS = 100000;
+
+	private int maxRegisteredProducts = DEFAULT_MAX_REGISTERED_PRODUCTS;
+
+	private final Map<Long, ProductIndexingContext> contextsByProductUid = new LinkedHashMap<Long, ProductIndexingContext>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Long, ProductIndexingContext> eldest) {
+			return size() > maxRegisteredProducts;
+		}
+	};
+
+	private PriceListAssignmentService priceListAssignmentService;
+
+	private BrandService brandService;
+
+	private CategoryService categoryService;
+
+	private BeanFactory beanFactory;
+
+	private PromotedPriceLookupService promotedPriceLookupService;
+
+	private FetchGroupLoadTuner parentCategoryLoadTuner;
+
+	/**
+	 * Builds the context for a batch of products and registers it for each of them, dropping the oldest registrations when more than
+	 * {@code maxRegisteredProducts} products would be registered.
+	 *
+	 * @param products the products of the batch
+	 * @param stores all complete stores
+	 * @return the context
+	 */
+	public ProductIndexingContext createBatchContext(final Collection<? extends Product> products, final Collection<Store> stores) {
+		final ProductIndexingContext context = createContext(products, stores);
+		synchronized (contextsByProductUid) {
+			for (final Product product : products) {
+				// re-registering a product makes it the newest registration
+				contextsByProductUid.remove(product.getUidPk());
+				contextsByProductUid.put(product.getUidPk(), context);
+			}
+		}
+		return context;
+	}
+
+	/**
+	 * Removes and returns the context registered for the given product.
+	 *
+	 * @param productUid the uid of the product
+	 * @return the context of the batch the product was loaded in, or null if none is registered or its registration was dropped
+	 */
+	public ProductIndexingContext releaseContext(final long productUid) {
+		synchronized (contextsByProductUid) {
+			return contextsByProductUid.remove(productUid);
+		}
+	}
+
+	/**
+	 * Builds a context for the given products without registering it.
+	 *
+	 * @param products the products
+	 * @param stores all complete stores
+	 * @return the context
+	 */
+	public ProductIndexingContext createContext(final Collection<? extends Product> products, final Collection<Store> stores) {
+		final Map<Store, Collection<PriceListAssignment>> priceListAssignmentsByStore = new HashMap<Store, Collection<PriceListAssignment>>();
+		for (final Store store : stores) {
+			priceListAssignmentsByStore.put(store, getPriceListAssignmentService().listByCatalog(store.getCatalog(), true));
+		}
+
+		final Map<String, Brand> brandsByCode = new HashMap<String, Brand>();
+		final Map<Long, CategoryAncestry> categoriesByUid = new HashMap<Long, CategoryAncestry>();
+		for (final Product product : products) {
+			if (product.getBrand() != null && !brandsByCode.containsKey(product.getBrand().getCode())) {
+				final String brandCode = product.getBrand().getCode();
+				brandsByCode.put(brandCode, getBrandService().findByCode(brandCode));
+			}
+			for (final Category category : product.getCategories()) {
+				if (!categoriesByUid.containsKey(category.getUidPk())) {
+					final Category loadedCategory = getCategoryService().load(category.getUidPk(), getParentCategoryLoadTuner());
+					categoriesByUid.put(category.getUidPk(), new CategoryAncestry(loadedCategory));
+				}
+			}
+		}
+
+		Map<String, Map<String, Map<String, Price>>> pricesByStoreCode = null;
+		if (getPromotedPriceLookupService() != null) {
+			pricesByStoreCode = lookupPrices(products, priceListAssignmentsByStore);
+		}
+
+		return new ProductIndexingContext(stores, priceListAssignmentsByStore, brandsByCode, categoriesByUid, pricesByStoreCode);
+	}
+
+	/**
+	 * Looks up the catalog promoted prices of the given products in every price list assigned to each store. Should the batch lookup
+	 * fail, null is returned and the document creators fall back to looking up the prices of their own product.
+	 *
+	 * @param products the products
+	 * @param priceListAssignmentsByStore the price list assignments of each store
+	 * @return the prices keyed by store code, price list guid and product code, or null if the prices could not be looked up
+	 */
+	protected Map<String, Map<String, Map<String, Price>>> lookupPrices(final Collection<? extends Product> products,
+			final Map<Store, Collection<PriceListAssignment>> priceListAssignmentsByStore) {
+		try {
+			final BaseAmountDataSourceFactoryBuilder builder = getBeanFactory().getBean(ContextIdNames.BASE_AMOUNT_DATA_SOURCE_FACTORY_BUILDER);
+			builder.products(new ArrayList<Product>(products));
+			for (final Collection<PriceListAssignment> assignments : priceListAssignmentsByStore.values()) {
+				builder.priceListAssignments(assignments);
+			}
+			final BaseAmountDataSourceFactory dataSourceFactory = builder.build();
+
+			final Map<String, Map<String, Map<String, Price>>> pricesByStoreCode = new HashMap<String, Map<String, Map<String, Price>>>();
+			for (final Map.Entry<Store, Collection<PriceListAssignment>> storeEntry : priceListAssignmentsByStore.entrySet()) {
+				final Map<String, PriceListStack> stacksByPriceListGuid = new HashMap<String, PriceListStack>();
+				for (final PriceListAssignment assignment : storeEntry.getValue()) {
+					final PriceListDescriptor priceListDescriptor = assignment.getPriceListDescriptor();
+					if (!stacksByPriceListGuid.containsKey(priceListDescriptor.getGuid())) {
+						stacksByPriceListGuid.put(priceListDescriptor.getGuid(), createSingleStack(priceListDescriptor));
+					}
+				}
+				pricesByStoreCode.put(storeEntry.getKey().getCode(),
+						getPromotedPriceLookupService().getPromotedProductsPrices(products, stacksByPriceListGuid, storeEntry.getKey(),
+								dataSourceFactory));
+			}
+			return pricesByStoreCode;
+		} catch (final RuntimeException e) {
+			LOG.warn("Could not price the batch of products up front, prices will be looked up product by product.", e);
+			return null;
+		}
+	}
+
+	private PriceListStack createSingleStack(final PriceListDescriptor priceListDescriptor) {
+		final PriceListStack singleStack = getBeanFactory().getBean(ContextIdNames.PRICE_LIST_STACK);
+		singleStack.addPriceList(priceListDescriptor.getGuid());
+		singleStack.setCurrency(Currency.getInstance(priceListDescriptor.getCurrencyCode()));
+		return singleStack;
+	}
+
+	/**
+	 * Gets the load tuner to be used when loading a product's Category for indexing purposes.
+	 *
+	 * @return the load tuner to use when loading categories for the purpose of building the search index
+	 */
+	protected FetchGroupLoadTuner getParentCategoryLoadTuner() {
+		if (parentCategoryLoadTuner == null) {
+			final FetchGroupLoadTuner loadTuner = getBeanFactory().getBean(ContextIdNames.FETCH_GROUP_LOAD_TUNER);
+			loadTuner.addFetchGroup(FetchGroupConstants.INIFINITE_PARENT_CATEGORY_DEPTH, // Force loading of ancestor Categories
+					FetchGroupConstants.CATEGORY_AVAILABILITY, // load startdate, enddate, hidden
+					FetchGroupConstants.CATALOG, // Force loading of Catalog with Category
+					FetchGroupConstants.CATEGORY_HASH_MINIMAL, // Force loading of category code
+					FetchGroupConstants.PROMOTION_INDEX); // force loading of CatalogCode with Catalog
+			parentCategoryLoadTuner = loadTuner;
+		}
+		return parentCategoryLoadTuner;
+	}
+
+	public PriceListAssignmentService getPriceListAssignmentService() {
+		return priceListAssignmentService;
+	}
+
+	public void setPriceListAssignmentService(final PriceListAssignmentService priceListAssignmentService) {
+		this.priceListAssignmentService = priceListAssignmentService;
+	}
+
+	public BrandService getBrandService() {
+		return brandService;
+	}
+
+	public void setBrandService(final BrandService brandService) {
+		this.brandService = brandService;
+	}
+
+	public CategoryService getCategoryService() {
+		return categoryService;
+	}
+
+	public void setCategoryService(final CategoryService categoryService) {
+		this.categoryService = categoryService;
+	}
+
+	public BeanFactory getBeanFactory() {
+		return beanFactory;
+	}
+
+	public void setBeanFactory(final BeanFactory beanFactory) {
+		this.beanFactory = beanFactory;
+	}
+
+	/**
+	 * Sets the maximum number of products a context can be registered for at once. This should exceed the number of products that are
+	 * loaded but whose documents are still to be created; registrations dropped while their documents are pending only cost those
+	 * documents the shared lookups.
+	 *
+	 * @param maxRegisteredProducts the maximum number of registered products
+	 */
+	public void setMaxRegisteredProducts(final int maxRegisteredProducts) {
+		synchronized (contextsByProductUid) {
+			this.maxRegisteredProducts = maxRegisteredProducts;
+		}
+	}
+
+	public int getMaxRegisteredProducts() {
+		return maxRegisteredProducts;
+	}
+
+	public PromotedPriceLookupService getPromotedPriceLookupService() {
+		return promotedPriceLookupService;
+	}
+
+	public void setPromotedPriceLookupService(final PromotedPriceLookupService promotedPriceLookupService) {
+		this.promotedPriceLookupService = promotedPriceLookupService;
+	}
+}
@@ -42,6 +42,7 @@ import com.elasticpath.domain.pricing.PriceListStack;
 import com.elasticpath.domain.store.Store;
 import com.elasticpath.persistence.api.FetchGroupLoadTuner;
 import com.elasticpath.persistence.support.FetchGroupConstants;
+import com.elasticpath.search.index.solr.document.impl.ProductIndexingContext.CategoryAncestry;
 import com.elasticpath.service.catalog.BrandService;
 import com.elasticpath.service.catalog.CategoryService;
 import com.elasticpath.service.catalogview.IndexProduct;
@@ -94,6 +95,10 @@ public class ProductSolrInputDocumentCreator extends AbstractDocumentCreatingTas
 
 	private BeanFactory beanFactory;
 
+	private ProductIndexingContextProvider productIndexingContextProvider;
+
+	private ProductIndexingContext indexingContext;
+
 	private Collection<Store> stores;
 
 	private final Map<Store, Collection<PriceListAssignment>> priceListAssignmentsByStore = new HashMap<Store, Collection<PriceListAssignment>>();
@@ -203,7 +208,8 @@ public class ProductSolrInputDocumentCreator extends AbstractDocumentCreatingTas
 		final Set<String> allCategoryCodes = new HashSet<String>();
 		final Map<String, Collection<String>> masterCategoryCodesMap = new HashMap<String, Collection<String>>();
 		for (final Category cat : product.getCategories()) {
-			final Category category = getCategoryService().load(cat.getUidPk(), getParentCategoryLoadTuner());
+			final CategoryAncestry categoryAncestry = getCategoryAncestry(cat);
+			final Category category = categoryAncestry.getCategory();
 			final long catalogUid = category.getCatalog().getUidPk();
 			final String catalogCode = category.getCatalog().getCode();
 			final String categoryCode = category.getCode();
@@ -216,9 +222,8 @@ public class ProductSolrInputDocumentCreator extends AbstractDocumentCreatingTas
 			}
 
 			// 1: if this category or any of this category's parent categories are not available, it's not available
-			boolean available = true;
-			available &= category.isAvailable();
-			available &= checkAvailableAndPopulateParents(category.getParent(), parentCategoryCodes, available);
+			final boolean available = categoryAncestry.isAvailable();
+			parentCategoryCodes.addAll(categoryAncestry.getAncestorCodes());
 
 			// 2: As long as one route to the root is available, we're available
 			Boolean mapAvailability = catalogUidAvailability.get(catalogUid);
@@ -368,7 +373,10 @@ public class ProductSolrInputDocumentCreator extends AbstractDocumentCreatingTas
 	 */
 	protected void addPriceFieldsToDocument(final SolrInputDocument doc, final IndexProduct product, final Collection<Store> stores) {
 		final Map<String, Price> cachedPricefieldPriceMap = new HashMap<String, Price>();
-		final BaseAmountDataSourceFactory dataSourceFactory = initDataSourceFactory(product, stores);
+		BaseAmountDataSourceFactory dataSourceFactory = null;
+		if (indexingContext == null || !indexingContext.hasPrices()) {
+			dataSourceFactory = initDataSourceFactory(product, stores);
+		}
 		for (final Store store : stores) {
 			final Collection<PriceListAssignment> assignments = getPriceListAssignmentByStore(store);
 			cachedPricefieldPriceMap.putAll(createPricefieldPriceMap(assignments, product, store, dataSourceFactory));
@@ -390,7 +398,16 @@ public class ProductSolrInputDocumentCreator extends AbstractDocumentCreatingTas
 	 */
 	protected void addStoreSpecificFieldsToDocument(final SolrInputDocument solrInputDocument, final IndexProduct product,
 			final Map<Long, Boolean> catalogUidAvailability) {
-		final Collection<Store> containingStores = storeService.findStoresWithCatalogUids(catalogUidAvailability.keySet());
+		Collection<Store> containingStores = null;
+		if (indexingContext != null) {
+			containingStores = indexingContext.getStoresWithCatalogUids(catalogUidAvailability.keySet());
+		}
+		if (containingStores == null) {
+			containingStores = storeService.findStoresWithCatalogUids(catalogUidAvailability.keySet());
+			if (indexingContext != null) {
+				indexingContext.putStoresWithCatalogUids(catalogUidAvailability.keySet(), containingStores);
+			}
+		}
 		for (final Store store : containingStores) {
 			addFieldToDocument(solrInputDocument, SolrIndexConstants.STORE_CODE, store.getCode());
 		}
@@ -553,7 +570,8 @@ public class ProductSolrInputDocumentCreator extends AbstractDocumentCreatingTas
 	}
 
 	/**
-	 * Looks up the price for the given product in the given price list.
+	 * Looks up the price for the given product in the given price list. If the batch of the product was priced up front, the price is
+	 * taken from the indexing context.
 	 *
 	 * @param product the product
 	 * @param priceListDescriptor the descriptor
@@ -563,6 +581,10 @@ public class ProductSolrInputDocumentCreator extends AbstractDocumentCreatingTas
 	 */
 	protected Price lookupPrice(final Product product, final PriceListDescriptor priceListDescriptor, final Store store,
 			final BaseAmountDataSourceFactory baseAmountDataSourceFactory) {
+		if (indexingContext != null && indexingContext.hasPrices()) {
+			return indexingContext.getPrice(store, priceListDescriptor.getGuid(), product.getCode());
+		}
+
 		final PriceListStack singleStack = getBeanFactory().getBean(ContextIdNames.PRICE_LIST_STACK);
 
 		singleStack.addPriceList(priceListDescriptor.getGuid());
@@ -773,7 +795,15 @@ public class ProductSolrInputDocumentCreator extends AbstractDocumentCreatingTas
 	private void initialize() {
 		solrInputDocument = new SolrInputDocument();
 		productLoadTuner.addFetchGroup(FetchGroupConstants.ORDER_DEFAULT);
-		populateStoreAndPriceListAssignmentCache();
+		indexingContext = null;
+		if (getProductIndexingContextProvider() != null) {
+			indexingContext = getProductIndexingContextProvider().releaseContext(getEntity().getUidPk());
+		}
+		if (indexingContext == null) {
+			populateStoreAndPriceListAssignmentCache();
+		} else {
+			stores = indexingContext.getStores();
+		}
 	}
 
 	private void populateStoreAndPriceListAssignmentCache() {
@@ -787,20 +817,25 @@ public class ProductSolrInputDocumentCreator extends AbstractDocumentCreatingTas
 	private Brand getProductBrand(final Product product) {
 		Brand brand = null;
 		if (product.getBrand() != null) {
-			brand = getBrandService().findByCode(product.getBrand().getCode());
+			final String brandCode = product.getBrand().getCode();
+			if (indexingContext != null && indexingContext.hasBrand(brandCode)) {
+				brand = indexingContext.getBrand(brandCode);
+			} else {
+				brand = getBrandService().findByCode(brandCode);
+			}
 		}
 		return brand;
 	}
 
-	private boolean checkAvailableAndPopulateParents(final Category parent, final Set<String> parentCategoryCodes, final boolean currentVisiblity) {
-		boolean available = currentVisiblity;
-		Category curParent = parent;
-		while (curParent != null) {
-			parentCategoryCodes.add(curParent.getCode());
-			available &= curParent.isAvailable();
-			curParent = curParent.getParent();
+	private CategoryAncestry getCategoryAncestry(final Category category) {
+		CategoryAncestry categoryAncestry = null;
+		if (indexingContext != null) {
+			categoryAncestry = indexingContext.getCategoryAncestry(category.getUidPk());
+		}
+		if (categoryAncestry == null) {
+			categoryAncestry = new CategoryAncestry(getCategoryService().load(category.getUidPk(), getParentCategoryLoadTuner()));
 		}
-		return available;
+		return categoryAncestry;
 	}
 
 	/**
@@ -861,6 +896,9 @@ public class ProductSolrInputDocumentCreator extends AbstractDocumentCreatingTas
 	}
 
 	private Collection<PriceListAssignment> getPriceListAssignmentByStore(final Store store) {
+		if (indexingContext != null) {
+			return indexingContext.getPriceListAssignments(store);
+		}
 		return priceListAssignmentsByStore.get(store);
 	}
 
@@ -978,6 +1016,20 @@ public class ProductSolrInputDocumentCreator extends AbstractDocumentCreatingTas
 		return categoryService;
 	}
 
+	/**
+	 * @param productIndexingContextProvider the provider of the indexing context shared by the products of a batch
+	 */
+	public void setProductIndexingContextProvider(final ProductIndexingContextProvider productIndexingContextProvider) {
+		this.productIndexingContextProvider = productIndexingContextProvider;
+	}
+
+	/**
+	 * @return the provider of the indexing context shared by the products of a batch
+	 */
+	public ProductIndexingContextProvider getProductIndexingContextProvider() {
+		return productIndexingContextProvider;
+	}
+
 	/**
 	 * @param brandService the brandService to set
 	 */
@@ -28,4 +28,13 @@ public class DeleteCommand implements SolrPublishCommand {
 		server.deleteById(uid);
 	}
 
+	/**
+	 * Gets the identifier of the document this command deletes.
+	 *
+	 * @return the domain object identifier
+	 */
+	public String getUid() {
+		return uid;
+	}
+
 }
@@ -32,4 +32,13 @@ public class UpdateCommand implements SolrPublishCommand {
 	public void apply(final SolrServer server) throws SolrServerException, IOException {
 		server.add(document);
 	}
+
+	/**
+	 * Gets the document this command adds or updates.
+	 *
+	 * @return the document
+	 */
+	public SolrInputDocument getDocument() {
+		return document;
+	}
 }
\ No newline at end of file
@@ -15,5 +15,15 @@ public interface IndexBuildService {
 	 * @throws EpServiceException in case of problems during building indexes
 	 */
 	void buildIndex(final IndexType indexType) throws EpServiceException;
+
+	/**
+	 * Applies the oldest index notifications of a given index type to its index between builds.
+	 * 
+	 * @param indexType the index type enum
+	 * @param maxNotifications the maximum number of notifications to apply
+	 * @return the number of notifications applied
+	 * @throws EpServiceException in case of problems during updating the index
+	 */
+	int applyJournalledChanges(final IndexType indexType, final int maxNotifications) throws EpServiceException;
 	
 }
@@ -3,6 +3,9 @@ package com.elasticpath.search.index.solr.service.impl;
 import java.util.Date;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.ObjectFactory;
@@ -41,6 +44,9 @@ public abstract class AbstractIndexServiceImpl extends AbstractEpPersistenceServ
 
 	private final Map<IndexType, Date> lastInitialized = new ConcurrentHashMap<IndexType, Date>();
 
+	/** Serializes the builds of an index with any other changes made to it between builds. */
+	private final ConcurrentMap<IndexType, Lock> indexLocks = new ConcurrentHashMap<IndexType, Lock>();
+
 	/**
 	 * Default constructor.
 	 */
@@ -140,22 +146,45 @@ public abstract class AbstractIndexServiceImpl extends AbstractEpPersistenceServ
 	}
 
 	/**
-	 * Builds the search index.
+	 * Builds the search index. The index is locked from reading its notifications until it is built.
 	 * 
 	 * @param indexType the index type
 	 */
 	public void buildIndex(final IndexType indexType) {
+		final Lock indexLock = getIndexLock(indexType);
+		indexLock.lock();
+		try {
+			initialize(indexType);
 
-		initialize(indexType);
-
-		final boolean rebuildRequired = wasRebuildInterrupted(indexType) || getLastBuildDate(indexType) == null || isRebuildRequired(indexType);
+			final boolean rebuildRequired = wasRebuildInterrupted(indexType) || getLastBuildDate(indexType) == null
+					|| isRebuildRequired(indexType);
 
-		setIndexStatusInProgress(indexType, rebuildRequired);
+			setIndexStatusInProgress(indexType, rebuildRequired);
 
-		build(indexType, rebuildRequired);
+			build(indexType, rebuildRequired);
 
-		setIndexStatusComplete(indexType);
+			setIndexStatusComplete(indexType);
+		} finally {
+			indexLock.unlock();
+		}
+	}
 
+	/**
+	 * Gets the lock serializing the builds of an index with any other changes made to it. The lock is reentrant.
+	 *
+	 * @param indexType the index type
+	 * @return the lock of the index
+	 */
+	protected Lock getIndexLock(final IndexType indexType) {
+		Lock indexLock = indexLocks.get(indexType);
+		if (indexLock == null) {
+			final Lock newLock = new ReentrantLock();
+			indexLock = indexLocks.putIfAbsent(indexType, newLock);
+			if (indexLock == null) {
+				indexLock = newLock;
+			}
+		}
+		return indexLock;
 	}
 
 	/**
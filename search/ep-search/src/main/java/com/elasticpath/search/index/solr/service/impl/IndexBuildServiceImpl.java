@@ -1,16 +1,24 @@
 package com.elasticpath.search.index.solr.service.impl;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 
 import org.apache.log4j.Logger;
 import org.apache.solr.client.solrj.SolrServer;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.CommonsHttpSolrServer;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
 import org.springframework.jmx.export.annotation.ManagedOperation;
 import org.springframework.jmx.export.annotation.ManagedOperationParameter;
 import org.springframework.jmx.export.annotation.ManagedOperationParameters;
@@ -32,6 +40,7 @@ import com.elasticpath.base.exception.EpServiceException;
 import com.elasticpath.service.search.IndexType;
 import com.elasticpath.service.search.index.IndexSearchService;
 import com.elasticpath.service.search.query.LuceneRawSearchCriteria;
+import com.elasticpath.service.search.solr.SolrDocumentPublisher;
 import com.elasticpath.service.search.solr.SolrManager;
 
 /**
@@ -43,6 +52,8 @@ public class IndexBuildServiceImpl extends AbstractIndexServiceImpl {
 
 	private static final Logger LOG = Logger.getLogger(IndexBuildServiceImpl.class);
 
+	private static final long PUBLISHER_IDLE_POLL_MILLIS = 100;
+
 	private SolrManager solrManager;
 
 	private IndexSearchService indexSearchService;
@@ -53,6 +64,16 @@ public class IndexBuildServiceImpl extends AbstractIndexServiceImpl {
 
 	private IndexBuildPolicyContextFactory indexBuildPolicyContextFactory;
 
+	private boolean shadowCoreRebuild;
+
+	private final AtomicLong journalledChangesApplied = new AtomicLong();
+
+	/**
+	 * The uids the journalled changes updated in each index since its last build, by the time they were read from the database at.
+	 * The inner maps are guarded by the index lock.
+	 */
+	private final ConcurrentMap<IndexType, Map<Date, Set<Long>>> journalUpdatedUids = new ConcurrentHashMap<IndexType, Map<Date, Set<Long>>>();
+
 	/**
 	 * Finds all deleted uids.
 	 *
@@ -68,16 +89,8 @@ public class IndexBuildServiceImpl extends AbstractIndexServiceImpl {
 		deletedUidsSet.addAll(deletedUids);
 
 		for (final IndexNotification notification : indexNotificationProcessor.getNotifications()) {
-			if (notification.getUpdateType() != UpdateType.DELETE) {
-				continue;
-			}
-
-			if (notification.getAffectedEntityType() == null) {
-				deletedUidsSet.addAll(findAffectedUidsByQuery(indexBuilder.getIndexType(), notification.getQueryString()));
-			} else if (AffectedEntityType.SINGLE_UNIT.equals(notification.getAffectedEntityType())) {
-				deletedUidsSet.add(notification.getAffectedUid());
-			} else {
-				deletedUidsSet.addAll(indexBuilder.findUidsByNotification(notification));
+			if (notification.getUpdateType() == UpdateType.DELETE) {
+				addAffectedUids(indexBuilder, notification, deletedUidsSet);
 			}
 		}
 
@@ -101,18 +114,11 @@ public class IndexBuildServiceImpl extends AbstractIndexServiceImpl {
 
 		final Set<Long> allModifiedUids = new HashSet<Long>(addedOrModifiedUids.size());
 		allModifiedUids.addAll(addedOrModifiedUids);
+		removeUidsUpdatedByJournal(indexBuilder, allModifiedUids);
 
 		for (final IndexNotification notification : indexNotificationProcessor.getNotifications()) {
-			if (notification.getUpdateType() != UpdateType.UPDATE) {
-				continue;
-			}
-
-			if (notification.getAffectedEntityType() == null) {
-				allModifiedUids.addAll(findAffectedUidsByQuery(indexBuilder.getIndexType(), notification.getQueryString()));
-			} else if (AffectedEntityType.SINGLE_UNIT.equals(notification.getAffectedEntityType())) {
-				allModifiedUids.add(notification.getAffectedUid());
-			} else {
-				allModifiedUids.addAll(indexBuilder.findUidsByNotification(notification));
+			if (notification.getUpdateType() == UpdateType.UPDATE) {
+				addAffectedUids(indexBuilder, notification, allModifiedUids);
 			}
 		}
 		if (LOG.isDebugEnabled()) {
@@ -122,6 +128,45 @@ public class IndexBuildServiceImpl extends AbstractIndexServiceImpl {
 		return allModifiedUids;
 	}
 
+	/**
+	 * Removes the uids whose journalled changes were already applied since the last build and which were not modified again since, so
+	 * that the build does not index them a second time. Entities the journal misses, such as new ones, are left to the build.
+	 *
+	 * @param indexBuilder the index builder
+	 * @param addedOrModifiedUids the uids found modified since the last build
+	 */
+	private void removeUidsUpdatedByJournal(final IndexBuilder indexBuilder, final Set<Long> addedOrModifiedUids) {
+		final Map<Date, Set<Long>> updatedUidsByReadDate = journalUpdatedUids.get(indexBuilder.getIndexType());
+		if (updatedUidsByReadDate == null) {
+			return;
+		}
+		for (final Map.Entry<Date, Set<Long>> updatedUids : updatedUidsByReadDate.entrySet()) {
+			final Set<Long> alreadyIndexed = new HashSet<Long>(updatedUids.getValue());
+			alreadyIndexed.retainAll(addedOrModifiedUids);
+			if (!alreadyIndexed.isEmpty()) {
+				alreadyIndexed.removeAll(indexBuilder.findAddedOrModifiedUids(updatedUids.getKey()));
+				addedOrModifiedUids.removeAll(alreadyIndexed);
+			}
+		}
+	}
+
+	/**
+	 * Adds the uids an update or delete notification affects.
+	 *
+	 * @param indexBuilder the index builder
+	 * @param notification the notification
+	 * @param uids the uids to add to
+	 */
+	private void addAffectedUids(final IndexBuilder indexBuilder, final IndexNotification notification, final Set<Long> uids) {
+		if (notification.getAffectedEntityType() == null) {
+			uids.addAll(findAffectedUidsByQuery(indexBuilder.getIndexType(), notification.getQueryString()));
+		} else if (AffectedEntityType.SINGLE_UNIT.equals(notification.getAffectedEntityType())) {
+			uids.add(notification.getAffectedUid());
+		} else {
+			uids.addAll(indexBuilder.findUidsByNotification(notification));
+		}
+	}
+
 	/**
 	 * Concrete implementation of the build method. <br>
 	 * Checks whether there is a notification for rebuild and triggers one if required.
@@ -134,17 +179,117 @@ public class IndexBuildServiceImpl extends AbstractIndexServiceImpl {
 		final IndexBuilder indexBuilder = getIndexBuilder(indexType);
 		final SolrServer solrServer = getSolrManager().getServer(indexBuilder.getIndexType());
 
-		int operations = 0;
+		final Lock indexLock = getIndexLock(indexType);
+		indexLock.lock();
+		try {
+			int operations = 0;
 
-		if (rebuild) {
-			// just find notifications for indexType and then clear this notifications then buildFinished(..) called
-			indexBuilder.getIndexNotificationProcessor().findAllNewNotifications(indexType);
+			if (rebuild) {
+				// just find notifications for indexType and then clear this notifications then buildFinished(..) called
+				indexBuilder.getIndexNotificationProcessor().findAllNewNotifications(indexType);
 
-			operations = rebuildInternal(indexBuilder, solrServer);
+				operations = rebuildInternal(indexBuilder, solrServer);
+			} else {
+				operations = buildInternal(indexBuilder, solrServer);
+			}
+			buildFinished(indexBuilder, operations, solrServer);
+			journalUpdatedUids.remove(indexType);
+		} finally {
+			indexLock.unlock();
+		}
+	}
+
+	/**
+	 * Applies the oldest notifications of an index to it, in a micro-batch, and removes them in bulk. This lets changes journalled by
+	 * the persistence layer reach the index within seconds instead of at the next build. Notifications are applied up to the first
+	 * {@link UpdateType#DELETE_ALL} or {@link UpdateType#REBUILD} one, which is left to the next build along with those after it.
+	 * <p>
+	 * Nothing is applied before the first build of the index, or while the index is being built; the build then processes the
+	 * notifications itself. The updated uids are remembered until the next build, which leaves them out unless they were modified again.
+	 *
+	 * @param indexType the index type
+	 * @param maxNotifications the maximum number of notifications to apply
+	 * @return the number of notifications applied
+	 */
+	@Override
+	public int applyJournalledChanges(final IndexType indexType, final int maxNotifications) {
+		final Lock indexLock = getIndexLock(indexType);
+		if (!indexLock.tryLock()) {
+			return 0;
+		}
+		try {
+			if (getIndexBuildStatus(indexType) == null || getLastBuildDate(indexType) == null) {
+				return 0;
+			}
+			// the documents reflect the entities as of this date or later; modifications made before it need no build
+			final Date readDate = getTimeService().getCurrentTime();
+			final IndexBuilder indexBuilder = getIndexBuilder(indexType);
+			final IndexNotificationProcessor indexNotificationProcessor = indexBuilder.getIndexNotificationProcessor();
+			final List<IndexNotification> applicable = new ArrayList<IndexNotification>();
+			final Set<Long> modifiedUids = new HashSet<Long>();
+			final Set<Long> deletedUids = new HashSet<Long>();
+			for (final IndexNotification notification : indexNotificationProcessor.findOldestRawNotifications(indexType, maxNotifications)) {
+				if (notification.getUpdateType() == UpdateType.DELETE_ALL || notification.getUpdateType() == UpdateType.REBUILD) {
+					break;
+				}
+				if (notification.getUpdateType() == UpdateType.UPDATE) {
+					addAffectedUids(indexBuilder, notification, modifiedUids);
+				} else if (notification.getUpdateType() == UpdateType.DELETE) {
+					addAffectedUids(indexBuilder, notification, deletedUids);
+				}
+				applicable.add(notification);
+			}
+			if (applicable.isEmpty()) {
+				return 0;
+			}
+
+			modifiedUids.removeAll(deletedUids);
+			if (!modifiedUids.isEmpty()) {
+				indexBuilder.submit(modifiedUids);
+
+				waitUntilPipelineCompleted(indexType);
+			}
+			deleteDocumentInIndex(indexBuilder, deletedUids, 0);
+
+			final SolrDocumentPublisher publisher = getSolrManager().getDocumentPublisher(indexType);
+			publisher.flush();
+			publisher.commit();
+
+			indexNotificationProcessor.removeNotifications(applicable);
+			journalledChangesApplied.addAndGet(applicable.size());
+			if (!modifiedUids.isEmpty()) {
+				addJournalUpdatedUids(indexType, readDate, modifiedUids);
+			}
+			if (LOG.isDebugEnabled()) {
+				LOG.debug("Applied " + applicable.size() + " journalled changes to " + indexBuilder.getName() + ": " + modifiedUids.size()
+						+ " updated and " + deletedUids.size() + " deleted documents");
+			}
+			return applicable.size();
+		} finally {
+			indexLock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of journalled notifications applied to the indexes between builds
+	 */
+	@ManagedAttribute(description = "Journalled notifications applied to the indexes between builds", currencyTimeLimit = 1)
+	public long getJournalledChangesApplied() {
+		return journalledChangesApplied.get();
+	}
+
+	private void addJournalUpdatedUids(final IndexType indexType, final Date readDate, final Set<Long> updatedUids) {
+		Map<Date, Set<Long>> updatedUidsByReadDate = journalUpdatedUids.get(indexType);
+		if (updatedUidsByReadDate == null) {
+			updatedUidsByReadDate = new LinkedHashMap<Date, Set<Long>>();
+			journalUpdatedUids.put(indexType, updatedUidsByReadDate);
+		}
+		final Set<Long> uidsReadAtSameDate = updatedUidsByReadDate.get(readDate);
+		if (uidsReadAtSameDate == null) {
+			updatedUidsByReadDate.put(readDate, updatedUids);
 		} else {
-			operations = buildInternal(indexBuilder, solrServer);
+			uidsReadAtSameDate.addAll(updatedUids);
 		}
-		buildFinished(indexBuilder, operations, solrServer);
 	}
 
 	/**
@@ -205,18 +350,7 @@ public class IndexBuildServiceImpl extends AbstractIndexServiceImpl {
 
 				indexBuilder.submit(addedOrModifiedUids);
 
-				PipelineStatus status = getIndexingStatistics().getPipelineStatus(indexBuilder.getIndexType());
-
-				if (status == null) {
-					LOG.error("Pipeline status could not be found. "
-							+ "Index build is started asynchronously, and there is no guarantee it finishes before this method returns.");
-				} else {
-					try {
-						status.waitUntilCompleted();
-					} catch (InterruptedException e) {
-						LOG.error("While waiting for index to build, received exception:", e);
-					}
-				}
+				waitUntilPipelineCompleted(indexBuilder.getIndexType());
 			}
 
 			operations += deleteDocumentInIndex(indexBuilder, deletedUids, operations);
@@ -226,13 +360,18 @@ public class IndexBuildServiceImpl extends AbstractIndexServiceImpl {
 	}
 
 	/**
-	 * Rebuild an index by removing all the elements and building it from scratch.
+	 * Rebuild an index by removing all the elements and building it from scratch. When {@link #setShadowCoreRebuild(boolean)} is enabled
+	 * the index is rebuilt into its shadow core instead, see {@link #rebuildIntoShadowCore(IndexBuilder, SolrServer)}.
 	 *
 	 * @param indexBuilder the index builder to use
 	 * @param solrServer the solr server to use
 	 * @return the number of changes done to the index
 	 */
 	protected int rebuildInternal(final IndexBuilder indexBuilder, final SolrServer solrServer) {
+		if (isShadowCoreRebuild()) {
+			return rebuildIntoShadowCore(indexBuilder, solrServer);
+		}
+
 		// if rebuild, create new index
 		if (LOG.isDebugEnabled()) {
 			LOG.debug("Building Index -- recreate start: " + indexBuilder.getName());
@@ -261,18 +400,7 @@ public class IndexBuildServiceImpl extends AbstractIndexServiceImpl {
 
 			indexBuilder.submit(allUids);
 
-			PipelineStatus status = getIndexingStatistics().getPipelineStatus(indexBuilder.getIndexType());
-
-			if (status == null) {
-				LOG.error("Pipeline status could not be found. "
-						+ "Index build is started asynchronously, and there is no guarantee it finishes before this method returns.");
-			} else {
-				try {
-					status.waitUntilCompleted();
-				} catch (InterruptedException e) {
-					LOG.error("While waiting for index to build, received exception:", e);
-				}
-			}
+			waitUntilPipelineCompleted(indexBuilder.getIndexType());
 		} else {
 			commitWithEmptyIndex(solrServer);
 		}
@@ -280,6 +408,116 @@ public class IndexBuildServiceImpl extends AbstractIndexServiceImpl {
 		return operations;
 	}
 
+	/**
+	 * Rebuild an index into its shadow core while the live core keeps serving searches. The shadow core is cleared and filled through
+	 * the indexing pipeline, then the changes that were made while the rebuild ran are replayed into it. Once it is committed, the
+	 * shadow core is swapped with the live core. If the rebuild fails, the live core is left untouched.
+	 *
+	 * @param indexBuilder the index builder to use
+	 * @param solrServer the solr server of the live core
+	 * @return the number of changes done to the index
+	 */
+	protected int rebuildIntoShadowCore(final IndexBuilder indexBuilder, final SolrServer solrServer) {
+		final IndexType indexType = indexBuilder.getIndexType();
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Building Index -- recreate into shadow core start: " + indexBuilder.getName());
+		}
+
+		final Date rebuildStartDate = getTimeService().getCurrentTime();
+		final List<Long> allUids = indexBuilder.findAllUids();
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Building Index -- total objects of " + indexBuilder.getName() + " to index:" + allUids.size());
+		}
+
+		final SolrServer rebuildServer = getSolrManager().getRebuildServer(indexType);
+		final SolrDocumentPublisher publisher = getSolrManager().getDocumentPublisher(indexType);
+
+		onIndexUpdatingInternal(indexBuilder, solrServer);
+
+		deleteIndex(rebuildServer);
+
+		// the pipeline publishes through the publisher of the live core, so point it at the shadow core for the rebuild
+		publisher.flush();
+		waitUntilPublisherIdle(publisher);
+		publisher.setSolrServer(rebuildServer);
+		int operations = allUids.size();
+		try {
+			if (operations > 0) {
+				onAddUpdateDocuments(indexBuilder, allUids, rebuildServer, operations);
+
+				indexBuilder.submit(allUids);
+
+				waitUntilPipelineCompleted(indexType);
+			}
+
+			operations += replayChanges(indexBuilder, rebuildStartDate);
+
+			publisher.flush();
+			waitUntilPublisherIdle(publisher);
+			publisher.commit();
+		} finally {
+			publisher.setSolrServer(solrServer);
+		}
+
+		getSolrManager().swapRebuildCore(indexType);
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Building Index -- swapped shadow core into place: " + indexBuilder.getName());
+		}
+		return operations;
+	}
+
+	/**
+	 * Replays the changes made since the given date into the index that is currently being published to. The notifications stored
+	 * while a rebuild ran are re-read, so they are removed along with the others once the build finishes.
+	 *
+	 * @param indexBuilder the index builder
+	 * @param sinceDate the date the rebuild started
+	 * @return the number of changes replayed
+	 */
+	private int replayChanges(final IndexBuilder indexBuilder, final Date sinceDate) {
+		indexBuilder.getIndexNotificationProcessor().findAllNewNotifications(indexBuilder.getIndexType());
+
+		final Collection<Long> addedOrModifiedUids = findAddedOrModifiedUidsInternal(indexBuilder, sinceDate);
+		final Collection<Long> deletedUids = findDeletedUidsInternal(indexBuilder, sinceDate);
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("Building Index -- replaying " + addedOrModifiedUids.size() + " updates and " + deletedUids.size()
+					+ " deletes made during the rebuild of " + indexBuilder.getName());
+		}
+
+		if (!addedOrModifiedUids.isEmpty()) {
+			indexBuilder.submit(addedOrModifiedUids);
+
+			waitUntilPipelineCompleted(indexBuilder.getIndexType());
+		}
+		return deleteDocumentInIndex(indexBuilder, deletedUids, addedOrModifiedUids.size());
+	}
+
+	private void waitUntilPipelineCompleted(final IndexType indexType) {
+		PipelineStatus status = getIndexingStatistics().getPipelineStatus(indexType);
+
+		if (status == null) {
+			LOG.error("Pipeline status could not be found. "
+					+ "Index build is started asynchronously, and there is no guarantee it finishes before this method returns.");
+		} else {
+			try {
+				status.waitUntilCompleted();
+			} catch (InterruptedException e) {
+				LOG.error("While waiting for index to build, received exception:", e);
+			}
+		}
+	}
+
+	private void waitUntilPublisherIdle(final SolrDocumentPublisher publisher) {
+		try {
+			while (publisher.isBusy()) {
+				Thread.sleep(PUBLISHER_IDLE_POLL_MILLIS);
+			}
+		} catch (InterruptedException e) {
+			LOG.error("While waiting for the publisher queue to drain, received exception:", e);
+			Thread.currentThread().interrupt();
+		}
+	}
+
 	/**
 	 * Run finalizing build operations (i.e. final commit, build date)
 	 *
@@ -496,4 +734,18 @@ public class IndexBuildServiceImpl extends AbstractIndexServiceImpl {
 	public void setIndexBuildPolicyContextFactory(final IndexBuildPolicyContextFactory indexBuildPolicyContextFactory) {
 		this.indexBuildPolicyContextFactory = indexBuildPolicyContextFactory;
 	}
+
+	protected boolean isShadowCoreRebuild() {
+		return shadowCoreRebuild;
+	}
+
+	/**
+	 * Sets whether full rebuilds go into the shadow core of an index and are swapped in once complete, rather than clearing the live
+	 * core first. The Solr home must define a <code>&lt;index&gt;_rebuild</code> core for every index.
+	 *
+	 * @param shadowCoreRebuild true to rebuild into the shadow core
+	 */
+	public void setShadowCoreRebuild(final boolean shadowCoreRebuild) {
+		this.shadowCoreRebuild = shadowCoreRebuild;
+	}
 }
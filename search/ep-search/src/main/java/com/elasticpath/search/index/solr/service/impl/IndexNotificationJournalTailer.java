@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.search.index.solr.service.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+
+import com.elasticpath.base.exception.EpSystemException;
+import com.elasticpath.search.index.solr.service.IndexBuildService;
+import com.elasticpath.service.search.IndexType;
+
+/**
+ * Tails the index notifications journalled by the persistence layer and applies them to their indexes in micro-batches, so that
+ * changes reach search within seconds rather than at the next scheduled build. It is meant to be run with a short fixed delay;
+ * each run drains the notifications of every tailed index, one batch at a time.
+ * <p>
+ * The scheduled builds keep running and pick up whatever the journal misses, such as new entities and changes made by bulk queries.
+ * They leave out the entities the tailer already indexed, unless those were modified again.
+ */
+public class IndexNotificationJournalTailer implements Runnable {
+
+	private static final Logger LOG = Logger.getLogger(IndexNotificationJournalTailer.class);
+
+	private static final int DEFAULT_MAX_BATCH_SIZE = 500;
+
+	private IndexBuildService indexBuildService;
+
+	private final List<IndexType> indexTypes = new ArrayList<IndexType>();
+
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+	@Override
+	public void run() {
+		for (IndexType indexType : indexTypes) {
+			try {
+				int applied;
+				do {
+					applied = indexBuildService.applyJournalledChanges(indexType, maxBatchSize);
+				} while (applied == maxBatchSize);
+			} catch (final RuntimeException e) {
+				// keep tailing the other indexes, and this one on the next run
+				LOG.error("Could not apply the journalled changes of the " + indexType.getIndexName() + " index", e);
+			}
+		}
+	}
+
+	/**
+	 * Sets the index build service which applies the notifications.
+	 *
+	 * @param indexBuildService the index build service
+	 */
+	public void setIndexBuildService(final IndexBuildService indexBuildService) {
+		this.indexBuildService = indexBuildService;
+	}
+
+	/**
+	 * Sets the indexes whose notifications are tailed.
+	 *
+	 * @param indexTypeNames the names of the index types
+	 */
+	public void setIndexTypes(final List<String> indexTypeNames) {
+		indexTypes.clear();
+		for (String indexTypeName : indexTypeNames) {
+			final IndexType indexType = IndexType.findFromName(indexTypeName);
+			if (indexType == null) {
+				throw new EpSystemException("Unknown index type " + indexTypeName);
+			}
+			indexTypes.add(indexType);
+		}
+	}
+
+	/**
+	 * Sets the maximum number of notifications applied to an index at once.
+	 *
+	 * @param maxBatchSize the maximum batch size
+	 */
+	public void setMaxBatchSize(final int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+}
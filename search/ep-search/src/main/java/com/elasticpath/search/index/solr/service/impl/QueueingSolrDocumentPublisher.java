@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -23,6 +24,7 @@ import com.elasticpath.search.index.solr.queueingpublisher.impl.SolrPublishComma
 import com.elasticpath.search.index.solr.queueingpublisher.impl.UpdateCommand;
 import com.elasticpath.service.search.IndexType;
 import com.elasticpath.service.search.solr.SolrDocumentPublisher;
+import com.elasticpath.service.search.solr.SolrIndexConstants;
 
 /**
  * This implementation of a {@code SolrDocumentPublisher} will spin off a background thread which it uses to add documents asynchronously.
@@ -34,6 +36,12 @@ import com.elasticpath.service.search.solr.SolrDocumentPublisher;
  * 
  * It is <i>very likely</i> that since we do <b>not</b> do periodic commits that area of index building can be replaced by using a
  * {@code StreamingUpdateSolrServer} instead as long as you honour commit requests through the {@code SolrDocumentPublisher#commit()} call.
+ * <p>
+ * With {@code batchPublishing} enabled, consecutive updates are sent to Solr as one {@code add(Collection)} request and consecutive deletes
+ * as one {@code deleteById(List)} request, of up to {@code maxBatchSize} documents each. A publisher thread waits up to
+ * {@code flushIntervalMillis} for a batch to fill before sending it. Setting {@code publisherThreadCount} above one runs several publisher
+ * threads, each with its own queue; documents are assigned to a thread by uid so that the updates and deletes of one document are always
+ * applied in order.
  */
 public class QueueingSolrDocumentPublisher implements SolrDocumentPublisher {
 
@@ -46,13 +54,19 @@ public class QueueingSolrDocumentPublisher implements SolrDocumentPublisher {
 
 	private static final int BUFFER_SIZE = 510;
 
-	private SolrServer solrServer;
+	private static final int DEFAULT_MAX_BATCH_SIZE = 500;
+
+	private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 100;
+
+	private static final double MILLIS_PER_SECOND = 1000.0;
+
+	private volatile SolrServer solrServer;
 
 	private TaskExecutor taskExecutor;
 
 	private PipelinePerformance performance;
 
-	private BlockingQueue<SolrPublishCommand> documentQueue;
+	private List<PublisherTask> publisherTasks;
 
 	private static final Logger LOG = Logger.getLogger(QueueingSolrDocumentPublisher.class);
 
@@ -62,17 +76,38 @@ public class QueueingSolrDocumentPublisher implements SolrDocumentPublisher {
 
 	private int bufferSize = BUFFER_SIZE;
 
-	/**
-	 * Used by {@code #isBusy()} and the working thread. Not busy is defined as the working thread being blocked in {@code BlockingQueue#take()} and
-	 * the associated queue being empty. This lock freezes the state to do this check.
-	 */
-	private final Lock busyLock = new ReentrantLock(true);
+	private boolean batchPublishing;
+
+	private int publisherThreadCount = 1;
+
+	private int publisherThreadsPerCore;
+
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+	private long flushIntervalMillis = DEFAULT_FLUSH_INTERVAL_MILLIS;
 
 	/**
 	 * Consumes the Solr document queue and publishes to the Solr server.
 	 */
 	class PublisherTask implements Runnable {
 
+		private final BlockingQueue<SolrPublishCommand> documentQueue;
+
+		/**
+		 * Used by {@code #isBusy()} and the working thread. Not busy is defined as the working thread being blocked in
+		 * {@code BlockingQueue#take()} and the associated queue being empty. This lock freezes the state to do this check.
+		 */
+		private final Lock busyLock = new ReentrantLock(true);
+
+		/**
+		 * Constructor.
+		 *
+		 * @param queueSize the capacity of this task's document queue
+		 */
+		PublisherTask(final int queueSize) {
+			documentQueue = new ArrayBlockingQueue<SolrPublishCommand>(queueSize);
+		}
+
 		/**
 		 * Consumes the Solr document queue and publishes to the Solr server.
 		 */
@@ -111,52 +146,238 @@ public class QueueingSolrDocumentPublisher implements SolrDocumentPublisher {
 			}
 		}
 
-		private boolean handleDocuments(final List<SolrPublishCommand> localCopy) {
+		private boolean handleDocuments(final List<SolrPublishCommand> localCopy) throws InterruptedException {
 			documentQueue.drainTo(localCopy, queueDrainSize);
+			if (batchPublishing) {
+				fillBatch(localCopy);
+			}
 			getPipelinePerformance().addCount("publish:documents_in", localCopy.size());
 
 			final long start = System.currentTimeMillis();
 
-			for (final SolrPublishCommand cmd : localCopy) {
-				try {
-
-					cmd.apply(solrServer);
-
-				} catch (final InterruptedException ie) {
-					Thread.currentThread().interrupt();
-					LOG.info("Shutdown requested.");
-					return false;
-
-				} catch (final Exception e) {
-					LOG.error("Error processing command.", e);
-				}
+			final boolean keepRunning;
+			if (batchPublishing) {
+				keepRunning = publishBatched(localCopy);
+			} else {
+				keepRunning = publishIndividually(localCopy);
 			}
+			if (!keepRunning) {
+				return false;
+			}
+
 			if (solrServer instanceof CommonsHttpSolrServer) {
 				LOG.info("Updated " + localCopy.size() + " documents against " + ((CommonsHttpSolrServer) solrServer).getBaseURL());
 			}
-			getPipelinePerformance().addValue("publish:time", System.currentTimeMillis() - start);
+			final long elapsed = System.currentTimeMillis() - start;
+			getPipelinePerformance().addValue("publish:time", elapsed);
+			if (elapsed > 0) {
+				getPipelinePerformance().addValue("publish:documents_per_second", localCopy.size() * MILLIS_PER_SECOND / elapsed);
+			}
 			getPipelinePerformance().addCount("publish:documents_out", localCopy.size());
 
 			localCopy.clear();
 			return true;
 		}
 
+		/**
+		 * Waits up to the flush interval for more commands, until the batch is full.
+		 */
+		private void fillBatch(final List<SolrPublishCommand> localCopy) throws InterruptedException {
+			final long deadline = System.currentTimeMillis() + flushIntervalMillis;
+			while (localCopy.size() < maxBatchSize) {
+				final long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					return;
+				}
+				final SolrPublishCommand next = documentQueue.poll(remaining, TimeUnit.MILLISECONDS);
+				if (next == null) {
+					return;
+				}
+				localCopy.add(next);
+				documentQueue.drainTo(localCopy, maxBatchSize - localCopy.size());
+			}
+		}
+
+		/**
+		 * Checks whether this task has nothing left to publish.
+		 *
+		 * @return true if the queue is empty and no commands are being published
+		 */
+		boolean isIdle() {
+			busyLock.lock();
+			try {
+				return documentQueue.isEmpty();
+			} finally {
+				busyLock.unlock();
+			}
+		}
+
+		/**
+		 * Queues a command for this task.
+		 *
+		 * @param command the command
+		 * @throws InterruptedException from {@code BlockingQueue#put(Object)}
+		 */
+		void put(final SolrPublishCommand command) throws InterruptedException {
+			documentQueue.put(command);
+		}
+
+		/**
+		 * Queues a shutdown command for this task.
+		 */
+		void shutdown() {
+			documentQueue.add(new ShutdownCommand());
+		}
+	}
+
+	/**
+	 * Applies each command with its own Solr request.
+	 *
+	 * @param commands the commands to apply
+	 * @return false if a shutdown was requested
+	 */
+	boolean publishIndividually(final List<SolrPublishCommand> commands) {
+		for (final SolrPublishCommand cmd : commands) {
+			if (!applyCommand(cmd)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Folds runs of consecutive update commands into single {@code add(Collection)} requests and runs of consecutive delete commands into
+	 * single {@code deleteById(List)} requests. Any other command ends the current run and is applied on its own, so the relative order of
+	 * updates, deletes and other commands is kept.
+	 *
+	 * @param commands the commands to apply
+	 * @return false if a shutdown was requested
+	 */
+	boolean publishBatched(final List<SolrPublishCommand> commands) {
+		final List<SolrInputDocument> pendingAdds = new ArrayList<SolrInputDocument>();
+		final List<String> pendingDeletes = new ArrayList<String>();
+
+		for (final SolrPublishCommand cmd : commands) {
+			if (cmd instanceof UpdateCommand) {
+				flushDeletes(pendingDeletes);
+				pendingAdds.add(((UpdateCommand) cmd).getDocument());
+				if (pendingAdds.size() >= maxBatchSize) {
+					flushAdds(pendingAdds);
+				}
+			} else if (cmd instanceof DeleteCommand) {
+				flushAdds(pendingAdds);
+				pendingDeletes.add(((DeleteCommand) cmd).getUid());
+				if (pendingDeletes.size() >= maxBatchSize) {
+					flushDeletes(pendingDeletes);
+				}
+			} else {
+				flushAdds(pendingAdds);
+				flushDeletes(pendingDeletes);
+				if (!applyCommand(cmd)) {
+					return false;
+				}
+			}
+		}
+		flushAdds(pendingAdds);
+		flushDeletes(pendingDeletes);
+		return true;
+	}
+
+	private void flushAdds(final List<SolrInputDocument> documents) {
+		if (documents.isEmpty()) {
+			return;
+		}
+		final long start = System.currentTimeMillis();
+		try {
+			solrServer.add(documents);
+		} catch (final Exception e) {
+			LOG.error("Error adding a batch of " + documents.size() + " documents, retrying them one at a time.", e);
+			for (final SolrInputDocument document : documents) {
+				applyCommand(new UpdateCommand(document));
+			}
+		}
+		recordBatch("publish:add_batch", documents.size(), start);
+		documents.clear();
+	}
+
+	private void flushDeletes(final List<String> uids) {
+		if (uids.isEmpty()) {
+			return;
+		}
+		final long start = System.currentTimeMillis();
+		try {
+			solrServer.deleteById(uids);
+		} catch (final Exception e) {
+			LOG.error("Error deleting a batch of " + uids.size() + " documents, retrying them one at a time.", e);
+			for (final String uid : uids) {
+				applyCommand(new DeleteCommand(Long.parseLong(uid)));
+			}
+		}
+		recordBatch("publish:delete_batch", uids.size(), start);
+		uids.clear();
+	}
+
+	private void recordBatch(final String keyPrefix, final int size, final long start) {
+		getPipelinePerformance().addCount(keyPrefix + "_requests", 1);
+		getPipelinePerformance().addValue(keyPrefix + "_size", size);
+		getPipelinePerformance().addValue(keyPrefix + "_latency", System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * Applies a single command, logging any failure.
+	 *
+	 * @param cmd the command
+	 * @return false if the command requested a shutdown
+	 */
+	private boolean applyCommand(final SolrPublishCommand cmd) {
+		try {
+
+			cmd.apply(solrServer);
+
+		} catch (final InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			LOG.info("Shutdown requested.");
+			return false;
+
+		} catch (final Exception e) {
+			LOG.error("Error processing command.", e);
+		}
+		return true;
 	}
 
 	/** Called by Spring to initialize this bean. */
 	public void initialize() {
-		this.documentQueue = new ArrayBlockingQueue<SolrPublishCommand>(documentQueueSize);
-
+		int threadCount = publisherThreadCount;
+		if (publisherThreadsPerCore > 0) {
+			threadCount = publisherThreadsPerCore * Runtime.getRuntime().availableProcessors();
+		}
+		threadCount = Math.max(1, threadCount);
+		final int queueSize = Math.max(1, documentQueueSize / threadCount);
+		publisherTasks = new ArrayList<PublisherTask>(threadCount);
+		for (int i = 0; i < threadCount; i++) {
+			publisherTasks.add(new PublisherTask(queueSize));
+		}
 	}
 
 	@Override
 	public void start() {
-		taskExecutor.execute(new PublisherTask());
+		if (taskExecutor instanceof ThreadPoolTaskExecutor) {
+			final ThreadPoolTaskExecutor threadPool = (ThreadPoolTaskExecutor) taskExecutor;
+			if (threadPool.getCorePoolSize() < publisherTasks.size()) {
+				// each publisher task runs until shutdown, so each needs its own core thread
+				threadPool.setCorePoolSize(publisherTasks.size());
+			}
+		}
+		for (final PublisherTask task : publisherTasks) {
+			taskExecutor.execute(task);
+		}
 	}
 
 	@Override
 	public void shutdown() {
-		documentQueue.add(new ShutdownCommand());
+		for (final PublisherTask task : publisherTasks) {
+			task.shutdown();
+		}
 	}
 
 	/**
@@ -167,7 +388,7 @@ public class QueueingSolrDocumentPublisher implements SolrDocumentPublisher {
 	 * @throws InterruptedException from {@code BlockingQueue#put(Object)}
 	 */
 	public void addUpdate(final IndexType indexType, final SolrInputDocument document) throws InterruptedException {
-		documentQueue.put(new UpdateCommand(document));
+		getPublisherTask(getDocumentUid(document)).put(new UpdateCommand(document));
 	}
 
 	/**
@@ -178,7 +399,35 @@ public class QueueingSolrDocumentPublisher implements SolrDocumentPublisher {
 	 * @throws InterruptedException from {@code BlockingQueue#put(Object)}
 	 */
 	public void deleteDocument(final IndexType indexType, final long uid) throws InterruptedException {
-		documentQueue.put(new DeleteCommand(uid));
+		getPublisherTask(uid).put(new DeleteCommand(uid));
+	}
+
+	/**
+	 * Gets the publisher task responsible for the document with the given uid, so that all commands for one document are applied in order.
+	 *
+	 * @param uid the document uid
+	 * @return the publisher task
+	 */
+	PublisherTask getPublisherTask(final long uid) {
+		if (publisherTasks.size() == 1) {
+			return publisherTasks.get(0);
+		}
+		return publisherTasks.get((int) Math.abs(uid % publisherTasks.size()));
+	}
+
+	private long getDocumentUid(final SolrInputDocument document) {
+		final Object uid = document.getFieldValue(SolrIndexConstants.OBJECT_UID);
+		if (uid instanceof Number) {
+			return ((Number) uid).longValue();
+		}
+		if (uid == null) {
+			return 0;
+		}
+		try {
+			return Long.parseLong(uid.toString());
+		} catch (final NumberFormatException e) {
+			return uid.hashCode();
+		}
 	}
 
 	/**
@@ -207,12 +456,12 @@ public class QueueingSolrDocumentPublisher implements SolrDocumentPublisher {
 		if (taskExecutor instanceof SyncTaskExecutor) {
 			return false;
 		} else if (taskExecutor instanceof ThreadPoolTaskExecutor) {
-			busyLock.lock();
-			try {
-				return !documentQueue.isEmpty();
-			} finally {
-				busyLock.unlock();
+			for (final PublisherTask task : publisherTasks) {
+				if (!task.isIdle()) {
+					return true;
+				}
 			}
+			return false;
 		} else {
 			throw new EpSystemException("The implementation of the taskExecutor (which is " + taskExecutor.getClass()
 					+ ") for this class is not known, so we don't know how to check if it's busy or not.");
@@ -267,4 +516,50 @@ public class QueueingSolrDocumentPublisher implements SolrDocumentPublisher {
 	protected void setBufferSize(final int bufferSize) {
 		this.bufferSize = bufferSize;
 	}
+
+	/**
+	 * Enables folding consecutive updates and deletes into multi-document Solr requests.
+	 *
+	 * @param batchPublishing true to publish in batches
+	 */
+	public void setBatchPublishing(final boolean batchPublishing) {
+		this.batchPublishing = batchPublishing;
+	}
+
+	/**
+	 * The number of publisher threads, each consuming its own share of the documents. Must be set before {@code #initialize()}.
+	 *
+	 * @param publisherThreadCount the number of publisher threads
+	 */
+	public void setPublisherThreadCount(final int publisherThreadCount) {
+		this.publisherThreadCount = publisherThreadCount;
+	}
+
+	/**
+	 * The number of publisher threads to run per available processor. When set, this overrides {@code publisherThreadCount}. Must be set
+	 * before {@code #initialize()}.
+	 *
+	 * @param publisherThreadsPerCore the number of publisher threads per processor
+	 */
+	public void setPublisherThreadsPerCore(final int publisherThreadsPerCore) {
+		this.publisherThreadsPerCore = publisherThreadsPerCore;
+	}
+
+	/**
+	 * The maximum number of documents sent to Solr in one request when batch publishing.
+	 *
+	 * @param maxBatchSize documents per request
+	 */
+	public void setMaxBatchSize(final int maxBatchSize) {
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * How long a publisher thread waits for a batch to fill before sending what it has, when batch publishing.
+	 *
+	 * @param flushIntervalMillis the wait in milliseconds
+	 */
+	public void setFlushIntervalMillis(final long flushIntervalMillis) {
+		this.flushIntervalMillis = flushIntervalMillis;
+	}
 }
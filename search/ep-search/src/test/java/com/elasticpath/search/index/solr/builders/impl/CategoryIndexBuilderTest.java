@@ -91,6 +91,7 @@ public class CategoryIndexBuilderTest {
 			{
 				oneOf(mockCategoryService).findUidsByDeletedDate(with(any(Date.class)));
 				will(returnValue(uidList));
+				oneOf(mockCategoryService).refreshCategoryHierarchy(uidList);
 			}
 		});
 		assertSame(uidList, categoryIndexBuilder.findDeletedUids(new Date()));
@@ -108,6 +109,7 @@ public class CategoryIndexBuilderTest {
 			{
 				oneOf(mockCategoryService).findUidsByModifiedDate(with(any(Date.class)));
 				will(returnValue(directlyModifiedCategoryUids));
+				oneOf(mockCategoryService).refreshCategoryHierarchy(directlyModifiedCategoryUids);
 			}
 		});
 
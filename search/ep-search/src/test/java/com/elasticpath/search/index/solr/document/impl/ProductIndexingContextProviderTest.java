@@ -0,0 +1,269 @@
+package com.elasticpath.search.index.solr.document.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.elasticpath.common.pricing.service.PromotedPriceLookupService;
+import com.elasticpath.commons.beanframework.BeanFactory;
+import com.elasticpath.commons.constants.ContextIdNames;
+import com.elasticpath.domain.catalog.Brand;
+import com.elasticpath.domain.catalog.Catalog;
+import com.elasticpath.domain.catalog.Category;
+import com.elasticpath.domain.catalog.Price;
+import com.elasticpath.domain.catalog.Product;
+import com.elasticpath.domain.pricing.PriceListAssignment;
+import com.elasticpath.domain.pricing.PriceListDescriptor;
+import com.elasticpath.domain.pricing.PriceListStack;
+import com.elasticpath.domain.store.Store;
+import com.elasticpath.persistence.api.FetchGroupLoadTuner;
+import com.elasticpath.search.index.solr.document.impl.ProductIndexingContext.CategoryAncestry;
+import com.elasticpath.service.catalog.BrandService;
+import com.elasticpath.service.catalog.CategoryService;
+import com.elasticpath.service.pricing.PriceListAssignmentService;
+import com.elasticpath.service.pricing.datasource.BaseAmountDataSourceFactory;
+import com.elasticpath.service.pricing.datasource.BaseAmountDataSourceFactoryBuilder;
+
+/**
+ * Test {@link ProductIndexingContextProvider}.
+ */
+public class ProductIndexingContextProviderTest {
+
+	private static final String BRAND_CODE = "brand";
+
+	private static final long CATEGORY_UID = 10L;
+
+	private static final long FIRST_PRODUCT_UID = 1L;
+
+	private static final long SECOND_PRODUCT_UID = 2L;
+
+	private static final long THIRD_PRODUCT_UID = 3L;
+
+	private static final String STORE_CODE = "store";
+
+	private static final String PRICE_LIST_GUID = "priceList";
+
+	@Rule
+	public final JUnitRuleMockery context = new JUnitRuleMockery();
+
+	private final BrandService brandService = context.mock(BrandService.class);
+
+	private final CategoryService categoryService = context.mock(CategoryService.class);
+
+	private final PriceListAssignmentService priceListAssignmentService = context.mock(PriceListAssignmentService.class);
+
+	private final BeanFactory beanFactory = context.mock(BeanFactory.class);
+
+	private final FetchGroupLoadTuner loadTuner = context.mock(FetchGroupLoadTuner.class);
+
+	private ProductIndexingContextProvider provider;
+
+	/**
+	 * Set up the provider.
+	 */
+	@Before
+	public void setUp() {
+		provider = new ProductIndexingContextProvider();
+		provider.setBrandService(brandService);
+		provider.setCategoryService(categoryService);
+		provider.setPriceListAssignmentService(priceListAssignmentService);
+		provider.setBeanFactory(beanFactory);
+
+		context.checking(new Expectations() {
+			{
+				allowing(beanFactory).getBean(ContextIdNames.FETCH_GROUP_LOAD_TUNER);
+				will(returnValue(loadTuner));
+				ignoring(loadTuner);
+			}
+		});
+	}
+
+	/**
+	 * Test that data shared by the products of a batch is looked up once per batch and the ancestry of categories is precomputed.
+	 */
+	@Test
+	public void testSharedDataIsLookedUpOncePerBatch() {
+		final Brand brand = context.mock(Brand.class);
+		final Category category = context.mock(Category.class, "category");
+		final Category loadedCategory = context.mock(Category.class, "loaded category");
+		final Category parentCategory = context.mock(Category.class, "parent category");
+		final Store store = context.mock(Store.class);
+		final Catalog catalog = context.mock(Catalog.class);
+		final List<PriceListAssignment> assignments = Collections.emptyList();
+		final Product first = mockProduct("first", FIRST_PRODUCT_UID, brand, category);
+		final Product second = mockProduct("second", SECOND_PRODUCT_UID, brand, category);
+
+		context.checking(new Expectations() {
+			{
+				allowing(brand).getCode();
+				will(returnValue(BRAND_CODE));
+				allowing(category).getUidPk();
+				will(returnValue(CATEGORY_UID));
+				allowing(store).getCatalog();
+				will(returnValue(catalog));
+
+				allowing(loadedCategory).isAvailable();
+				will(returnValue(true));
+				allowing(loadedCategory).getParent();
+				will(returnValue(parentCategory));
+				allowing(parentCategory).isAvailable();
+				will(returnValue(false));
+				allowing(parentCategory).getCode();
+				will(returnValue("parent"));
+				allowing(parentCategory).getParent();
+				will(returnValue(null));
+
+				oneOf(priceListAssignmentService).listByCatalog(catalog, true);
+				will(returnValue(assignments));
+				oneOf(brandService).findByCode(BRAND_CODE);
+				will(returnValue(brand));
+				oneOf(categoryService).load(CATEGORY_UID, loadTuner);
+				will(returnValue(loadedCategory));
+			}
+		});
+
+		final ProductIndexingContext indexingContext = provider.createContext(Arrays.asList(first, second), Collections.singleton(store));
+
+		assertEquals(assignments, indexingContext.getPriceListAssignments(store));
+		assertTrue(indexingContext.hasBrand(BRAND_CODE));
+		assertSame(brand, indexingContext.getBrand(BRAND_CODE));
+
+		final CategoryAncestry categoryAncestry = indexingContext.getCategoryAncestry(CATEGORY_UID);
+		assertSame(loadedCategory, categoryAncestry.getCategory());
+		assertEquals(Collections.singleton("parent"), categoryAncestry.getAncestorCodes());
+		assertFalse("an unavailable parent makes the category unavailable", categoryAncestry.isAvailable());
+	}
+
+	/**
+	 * Test that the whole batch is priced with a single lookup per store when a promoted price lookup service is set.
+	 */
+	@Test
+	public void testBatchIsPricedUpFront() {
+		final PromotedPriceLookupService promotedPriceLookupService = context.mock(PromotedPriceLookupService.class);
+		final BaseAmountDataSourceFactoryBuilder builder = context.mock(BaseAmountDataSourceFactoryBuilder.class);
+		final BaseAmountDataSourceFactory dataSourceFactory = context.mock(BaseAmountDataSourceFactory.class);
+		final PriceListStack priceListStack = context.mock(PriceListStack.class);
+		final PriceListAssignment assignment = context.mock(PriceListAssignment.class);
+		final PriceListDescriptor priceListDescriptor = context.mock(PriceListDescriptor.class);
+		final Price price = context.mock(Price.class);
+		final Store store = context.mock(Store.class);
+		final Catalog catalog = context.mock(Catalog.class);
+		final List<PriceListAssignment> assignments = Collections.singletonList(assignment);
+		final Product first = mockProduct("first", FIRST_PRODUCT_UID, null);
+		final Product second = mockProduct("second", SECOND_PRODUCT_UID, null);
+		final List<Product> products = Arrays.asList(first, second);
+		provider.setPromotedPriceLookupService(promotedPriceLookupService);
+
+		final Map<String, Map<String, Price>> prices = new HashMap<String, Map<String, Price>>();
+		prices.put(PRICE_LIST_GUID, Collections.singletonMap("first", price));
+
+		context.checking(new Expectations() {
+			{
+				allowing(store).getCatalog();
+				will(returnValue(catalog));
+				allowing(store).getCode();
+				will(returnValue(STORE_CODE));
+				allowing(assignment).getPriceListDescriptor();
+				will(returnValue(priceListDescriptor));
+				allowing(priceListDescriptor).getGuid();
+				will(returnValue(PRICE_LIST_GUID));
+				allowing(priceListDescriptor).getCurrencyCode();
+				will(returnValue("CAD"));
+				oneOf(priceListAssignmentService).listByCatalog(catalog, true);
+				will(returnValue(assignments));
+
+				oneOf(beanFactory).getBean(ContextIdNames.BASE_AMOUNT_DATA_SOURCE_FACTORY_BUILDER);
+				will(returnValue(builder));
+				oneOf(builder).products(products);
+				oneOf(builder).priceListAssignments(assignments);
+				oneOf(builder).build();
+				will(returnValue(dataSourceFactory));
+
+				oneOf(beanFactory).getBean(ContextIdNames.PRICE_LIST_STACK);
+				will(returnValue(priceListStack));
+				oneOf(priceListStack).addPriceList(PRICE_LIST_GUID);
+				oneOf(priceListStack).setCurrency(Currency.getInstance("CAD"));
+
+				oneOf(promotedPriceLookupService).getPromotedProductsPrices(products,
+						Collections.singletonMap(PRICE_LIST_GUID, priceListStack), store, dataSourceFactory);
+				will(returnValue(prices));
+			}
+		});
+
+		final ProductIndexingContext indexingContext = provider.createContext(products, Collections.singleton(store));
+
+		assertTrue(indexingContext.hasPrices());
+		assertSame(price, indexingContext.getPrice(store, PRICE_LIST_GUID, "first"));
+		assertNull("a product without a price has no price in the context", indexingContext.getPrice(store, PRICE_LIST_GUID, "second"));
+	}
+
+	/**
+	 * Test that a batch context is handed out once for each product of the batch.
+	 */
+	@Test
+	public void testBatchContextIsReleasedOncePerProduct() {
+		final Product first = mockProduct("first", FIRST_PRODUCT_UID, null);
+		final Product second = mockProduct("second", SECOND_PRODUCT_UID, null);
+		final Collection<Store> stores = Collections.emptyList();
+
+		final ProductIndexingContext indexingContext = provider.createBatchContext(Arrays.asList(first, second), stores);
+
+		assertSame(indexingContext, provider.releaseContext(FIRST_PRODUCT_UID));
+		assertSame(indexingContext, provider.releaseContext(SECOND_PRODUCT_UID));
+		assertNull(provider.releaseContext(FIRST_PRODUCT_UID));
+	}
+
+	/**
+	 * Test that the oldest registrations are dropped once more products are registered than allowed, so products whose documents are
+	 * never created do not keep their batch context forever.
+	 */
+	@Test
+	public void testOldestRegistrationsAreDroppedBeyondTheMaximum() {
+		final Product first = mockProduct("first", FIRST_PRODUCT_UID, null);
+		final Product second = mockProduct("second", SECOND_PRODUCT_UID, null);
+		final Product third = mockProduct("third", THIRD_PRODUCT_UID, null);
+		final Collection<Store> stores = Collections.emptyList();
+		provider.setMaxRegisteredProducts(2);
+
+		final ProductIndexingContext firstBatchContext = provider.createBatchContext(Arrays.asList(first, second), stores);
+		final ProductIndexingContext secondBatchContext = provider.createBatchContext(Collections.singletonList(third), stores);
+
+		assertNull("the oldest registration should be dropped", provider.releaseContext(FIRST_PRODUCT_UID));
+		assertSame(firstBatchContext, provider.releaseContext(SECOND_PRODUCT_UID));
+		assertSame(secondBatchContext, provider.releaseContext(THIRD_PRODUCT_UID));
+	}
+
+	private Product mockProduct(final String name, final long uid, final Brand brand, final Category... categories) {
+		final Product product = context.mock(Product.class, name);
+		context.checking(new Expectations() {
+			{
+				allowing(product).getUidPk();
+				will(returnValue(uid));
+				allowing(product).getCode();
+				will(returnValue(name));
+				allowing(product).getBrand();
+				will(returnValue(brand));
+				allowing(product).getCategories();
+				will(returnValue(new HashSet<Category>(Arrays.asList(categories))));
+			}
+		});
+		return product;
+	}
+}
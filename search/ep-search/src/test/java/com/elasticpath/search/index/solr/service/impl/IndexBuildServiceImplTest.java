@@ -1,5 +1,6 @@
 package com.elasticpath.search.index.solr.service.impl;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
@@ -26,9 +27,11 @@ import org.apache.solr.client.solrj.SolrServer;
 
 import com.elasticpath.domain.search.IndexBuildStatus;
 import com.elasticpath.domain.search.IndexNotification;
+import com.elasticpath.domain.search.IndexNotification.AffectedEntityType;
 import com.elasticpath.domain.search.IndexStatus;
 import com.elasticpath.domain.search.UpdateType;
 import com.elasticpath.domain.search.impl.IndexBuildStatusImpl;
+import com.elasticpath.domain.search.impl.IndexNotificationImpl;
 import com.elasticpath.persistence.dao.IndexBuildStatusDao;
 import com.elasticpath.search.IndexNotificationProcessor;
 import com.elasticpath.search.index.pipeline.stats.impl.IndexingStatsImpl;
@@ -40,6 +43,7 @@ import com.elasticpath.search.index.solr.service.IndexBuildPolicyContext;
 import com.elasticpath.search.index.solr.service.IndexBuildPolicyContextFactory;
 import com.elasticpath.service.misc.TimeService;
 import com.elasticpath.service.search.IndexType;
+import com.elasticpath.service.search.solr.SolrDocumentPublisher;
 import com.elasticpath.service.search.solr.SolrManager;
 
 /**
@@ -53,6 +57,8 @@ public class IndexBuildServiceImplTest {
 	 */
 	protected static final long BAD_UID = 1234L;
 
+	private static final int MAX_NOTIFICATIONS = 10;
+
 
 	private IndexBuildServiceImpl indexBuildService;
 
@@ -256,6 +262,144 @@ public class IndexBuildServiceImplTest {
 
 	}
 
+	/**
+	 * Tests that journalled changes are applied up to the first notification which needs a build, and that the applied notifications
+	 * are removed in bulk.
+	 *
+	 * @throws Exception on error
+	 */
+	@Test
+	public void testApplyJournalledChanges() throws Exception {
+		final IndexBuildStatus buildIndexStatus = new IndexBuildStatusImpl();
+		buildIndexStatus.setLastBuildDate(new Date());
+		buildIndexStatus.setIndexType(indexType);
+		indexBuildService.getIndexingStatistics().attachIndexBuildStatus(indexType, buildIndexStatus);
+
+		final IndexNotification updated = createSingleUnitNotification(2L, UpdateType.UPDATE);
+		final IndexNotification updatedThenDeleted = createSingleUnitNotification(1L, UpdateType.UPDATE);
+		final IndexNotification deleted = createSingleUnitNotification(1L, UpdateType.DELETE);
+		final IndexNotification rebuild = new IndexNotificationImpl();
+		rebuild.setUpdateType(UpdateType.REBUILD);
+
+		final SolrDocumentPublisher publisher = context.mock(SolrDocumentPublisher.class);
+		context.checking(new Expectations() {
+			{
+				oneOf(mockIndexNotificationProcessor).findOldestRawNotifications(indexType, MAX_NOTIFICATIONS);
+				will(returnValue(Arrays.asList(updated, updatedThenDeleted, deleted, rebuild)));
+
+				allowing(mockSolrManager).getDocumentPublisher(indexType);
+				will(returnValue(publisher));
+				oneOf(publisher).deleteDocument(indexType, 1L);
+				oneOf(publisher).flush();
+				oneOf(publisher).commit();
+
+				oneOf(mockIndexNotificationProcessor).removeNotifications(Arrays.asList(updated, updatedThenDeleted, deleted));
+			}
+		});
+
+		assertEquals(3, indexBuildService.applyJournalledChanges(indexType, MAX_NOTIFICATIONS));
+		assertEquals(3, indexBuildService.getJournalledChangesApplied());
+	}
+
+	/**
+	 * Tests that a build leaves out the entities whose journalled changes were applied since the last build, unless they were modified
+	 * again since, and still indexes the entities the journal missed.
+	 */
+	@Test
+	public void testBuildLeavesOutEntitiesIndexedByTheJournal() {
+		final Date lastBuildDate = new Date(0L);
+		final List<Long> journalledUids = Arrays.asList(2L, 3L);
+		final List<Collection<Long>> submittedUids = new ArrayList<Collection<Long>>();
+		final IndexBuilder journalledIndexBuilder = new AbstractIndexBuilder() {
+			public String getName() {
+				return "journalledIndexBuilder";
+			}
+
+			public List<Long> findDeletedUids(final Date deletedSince) {
+				return Collections.emptyList();
+			}
+
+			public List<Long> findAddedOrModifiedUids(final Date modifiedSince) {
+				if (lastBuildDate.equals(modifiedSince)) {
+					// 2 and 3 were journalled, 4 is new
+					return Arrays.asList(2L, 3L, 4L);
+				}
+				// 3 was modified again once its journalled change was read
+				return Arrays.asList(3L);
+			}
+
+			public List<Long> findAllUids() {
+				return Arrays.asList(2L, 3L, 4L);
+			}
+
+			public IndexType getIndexType() {
+				return indexType;
+			}
+
+			public Collection<Long> findUidsByNotification(final IndexNotification notification) {
+				return Collections.emptySet();
+			}
+
+			@Override
+			public IndexNotificationProcessor getIndexNotificationProcessor() {
+				return mockIndexNotificationProcessor;
+			}
+
+			@Override
+			public void submit(final Collection<Long> uids) {
+				submittedUids.add(new HashSet<Long>(uids));
+			}
+		};
+		final IndexBuilderFactoryImpl factoryImpl = new IndexBuilderFactoryImpl();
+		factoryImpl.setIndexBuilderMap(Collections.singletonMap(indexType.getIndexName(), journalledIndexBuilder));
+		indexBuildService.setIndexBuilderFactory(factoryImpl);
+
+		final IndexBuildStatus buildIndexStatus = new IndexBuildStatusImpl();
+		buildIndexStatus.setLastBuildDate(lastBuildDate);
+		buildIndexStatus.setIndexType(indexType);
+		indexBuildService.getIndexingStatistics().attachIndexBuildStatus(indexType, buildIndexStatus);
+		final List<IndexNotification> notifications = Arrays.asList(createSingleUnitNotification(2L, UpdateType.UPDATE),
+				createSingleUnitNotification(3L, UpdateType.UPDATE));
+		final TestSolrDocumentPublisher publisher = new TestSolrDocumentPublisher();
+		context.checking(new Expectations() {
+			{
+				oneOf(mockIndexNotificationProcessor).findOldestRawNotifications(indexType, MAX_NOTIFICATIONS);
+				will(returnValue(notifications));
+				oneOf(mockIndexNotificationProcessor).removeNotifications(notifications);
+
+				oneOf(mockIndexBuildStatusDao).get(indexType);
+				will(returnValue(buildIndexStatus));
+				allowing(mockIndexBuildStatusDao).saveOrUpdate(with(any(IndexBuildStatus.class)));
+				will(returnValue(buildIndexStatus));
+				allowing(mockIndexNotificationProcessor).findAllNewNotifications(indexType);
+				will(returnValue(Collections.emptyList()));
+				allowing(mockIndexNotificationProcessor).getNotifications();
+				will(returnValue(Collections.emptyList()));
+				allowing(mockIndexNotificationProcessor).removeStoredNotifications();
+
+				oneOf(mockSolrManager).getServer(with(any(IndexType.class)));
+				will(returnValue(mockSolrServer));
+				allowing(mockSolrManager).getDocumentPublisher(with(any(IndexType.class)));
+				will(returnValue(publisher));
+			}
+		});
+
+		assertEquals(2, indexBuildService.applyJournalledChanges(indexType, MAX_NOTIFICATIONS));
+		indexBuildService.buildIndex(indexType);
+
+		assertEquals(Arrays.<Collection<Long>>asList(new HashSet<Long>(journalledUids), new HashSet<Long>(Arrays.asList(3L, 4L))),
+				submittedUids);
+	}
+
+	private IndexNotification createSingleUnitNotification(final long affectedUid, final UpdateType updateType) {
+		final IndexNotification notification = new IndexNotificationImpl();
+		notification.setIndexType(indexType);
+		notification.setAffectedUid(affectedUid);
+		notification.setAffectedEntityType(AffectedEntityType.SINGLE_UNIT);
+		notification.setUpdateType(updateType);
+		return notification;
+	}
+
 	/**
 	 * Tests that the rebuild will be invoked if there is a REBUILD update type in the list of notifications.
 	 */
@@ -347,4 +491,64 @@ public class IndexBuildServiceImplTest {
 		assertTrue("All scheduled document changes must be flushed.", publisher.getUpdated().isEmpty());
 	}
 
+	/**
+	 * Tests that a shadow core rebuild leaves the live core alone, publishes into the shadow core and swaps it in once committed.
+	 */
+	@Test
+	public void testRebuildIntoShadowCore() throws Exception {
+		final IndexBuildStatus buildIndexStatus = new IndexBuildStatusImpl();
+		buildIndexStatus.setLastBuildDate(new Date());
+		buildIndexStatus.setIndexType(IndexType.PRODUCT);
+		buildIndexStatus.setIndexStatus(IndexStatus.REBUILD_IN_PROGRESS);
+
+		final SolrServer mockRebuildServer = context.mock(SolrServer.class, "rebuild server");
+		final SolrDocumentPublisher mockPublisher = context.mock(SolrDocumentPublisher.class);
+		indexBuildService.setShadowCoreRebuild(true);
+
+		context.checking(new Expectations() {
+			{
+				oneOf(mockIndexBuildStatusDao).get(indexType);
+				will(returnValue(buildIndexStatus));
+				allowing(mockIndexBuildStatusDao).saveOrUpdate(with(any(IndexBuildStatus.class)));
+				will(returnValue(buildIndexStatus));
+
+				allowing(mockIndexNotificationProcessor).findAllNewNotifications(indexType);
+				will(returnValue(Collections.emptyList()));
+				allowing(mockIndexNotificationProcessor).getNotifications();
+				will(returnValue(Collections.emptyList()));
+				oneOf(mockIndexNotificationProcessor).removeStoredNotifications();
+
+				oneOf(mockSolrManager).getServer(with(any(IndexType.class)));
+				will(returnValue(mockSolrServer));
+				oneOf(mockSolrManager).getRebuildServer(indexType);
+				will(returnValue(mockRebuildServer));
+				allowing(mockSolrManager).getDocumentPublisher(indexType);
+				will(returnValue(mockPublisher));
+
+				allowing(mockPublisher).flush();
+				allowing(mockPublisher).isBusy();
+				will(returnValue(false));
+				allowing(mockPublisher).deleteDocument(with(indexType), with(any(Long.class)));
+
+				Sequence rebuild = context.sequence("shadow core rebuild");
+				oneOf(mockRebuildServer).deleteByQuery("*:*");
+				inSequence(rebuild);
+				oneOf(mockPublisher).setSolrServer(mockRebuildServer);
+				inSequence(rebuild);
+				oneOf(mockPublisher).commit();
+				inSequence(rebuild);
+				oneOf(mockPublisher).setSolrServer(mockSolrServer);
+				inSequence(rebuild);
+				oneOf(mockSolrManager).swapRebuildCore(indexType);
+				inSequence(rebuild);
+				// the final commit of the build goes to the swapped-in core
+				oneOf(mockPublisher).commit();
+				inSequence(rebuild);
+
+				never(mockSolrServer).deleteByQuery(with(any(String.class)));
+			}
+		});
+
+		indexBuildService.buildIndex(indexType);
+	}
 }
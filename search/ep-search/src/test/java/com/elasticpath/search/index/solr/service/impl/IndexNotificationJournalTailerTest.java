@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.search.index.solr.service.impl;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.jmock.Expectations;
+import org.jmock.Sequence;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.elasticpath.base.exception.EpSystemException;
+import com.elasticpath.search.index.solr.service.IndexBuildService;
+import com.elasticpath.service.search.IndexType;
+
+/**
+ * Test {@link IndexNotificationJournalTailer}.
+ */
+public class IndexNotificationJournalTailerTest {
+
+	private static final int MAX_BATCH_SIZE = 3;
+
+	@Rule
+	public final JUnitRuleMockery context = new JUnitRuleMockery();
+
+	private final IndexBuildService indexBuildService = context.mock(IndexBuildService.class);
+
+	private IndexNotificationJournalTailer tailer;
+
+	/**
+	 * Set up a tailer of the product and category indexes.
+	 */
+	@Before
+	public void setUp() {
+		tailer = new IndexNotificationJournalTailer();
+		tailer.setIndexBuildService(indexBuildService);
+		tailer.setMaxBatchSize(MAX_BATCH_SIZE);
+		tailer.setIndexTypes(Arrays.asList(IndexType.PRODUCT.getIndexName(), IndexType.CATEGORY.getIndexName()));
+	}
+
+	/**
+	 * Test that each index is drained one full batch at a time, until a batch is not full.
+	 */
+	@Test
+	public void testEachIndexIsDrainedInBatches() {
+		final Sequence sequence = context.sequence("tailing");
+		context.checking(new Expectations() { {
+			exactly(2).of(indexBuildService).applyJournalledChanges(IndexType.PRODUCT, MAX_BATCH_SIZE);
+			will(returnValue(MAX_BATCH_SIZE)); inSequence(sequence);
+			oneOf(indexBuildService).applyJournalledChanges(IndexType.PRODUCT, MAX_BATCH_SIZE);
+			will(returnValue(1)); inSequence(sequence);
+			oneOf(indexBuildService).applyJournalledChanges(IndexType.CATEGORY, MAX_BATCH_SIZE);
+			will(returnValue(0)); inSequence(sequence);
+		} });
+
+		tailer.run();
+	}
+
+	/**
+	 * Test that a failure to apply the changes of an index does not stop the other indexes from being tailed.
+	 */
+	@Test
+	public void testFailingIndexDoesNotStopTheOthers() {
+		context.checking(new Expectations() { {
+			oneOf(indexBuildService).applyJournalledChanges(IndexType.PRODUCT, MAX_BATCH_SIZE);
+			will(throwException(new EpSystemException("solr is down")));
+			oneOf(indexBuildService).applyJournalledChanges(IndexType.CATEGORY, MAX_BATCH_SIZE);
+			will(returnValue(1));
+		} });
+
+		tailer.run();
+	}
+
+	/**
+	 * Test that unknown index types are rejected when the tailer is configured.
+	 */
+	@Test(expected = EpSystemException.class)
+	public void testUnknownIndexTypeIsRejected() {
+		tailer.setIndexTypes(Collections.singletonList("unknown"));
+	}
+}
@@ -0,0 +1,151 @@
+package com.elasticpath.search.index.solr.service.impl;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.solr.client.solrj.SolrServer;
+import org.apache.solr.common.SolrInputDocument;
+import org.jmock.Expectations;
+import org.jmock.Sequence;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.legacy.ClassImposteriser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.elasticpath.search.index.pipeline.stats.impl.PipelinePerformanceImpl;
+import com.elasticpath.search.index.solr.queueingpublisher.impl.DeleteCommand;
+import com.elasticpath.search.index.solr.queueingpublisher.impl.ShutdownCommand;
+import com.elasticpath.search.index.solr.queueingpublisher.impl.SolrPublishCommand;
+import com.elasticpath.search.index.solr.queueingpublisher.impl.UpdateCommand;
+import com.elasticpath.service.search.solr.SolrIndexConstants;
+
+/**
+ * Test {@link QueueingSolrDocumentPublisher} batch publishing.
+ */
+public class QueueingSolrDocumentPublisherTest {
+
+	private static final long UID_1 = 1L;
+	private static final long UID_2 = 2L;
+	private static final long UID_3 = 3L;
+
+	@Rule
+	public final JUnitRuleMockery context = new JUnitRuleMockery() {
+		{
+			setImposteriser(ClassImposteriser.INSTANCE);
+		}
+	};
+
+	private SolrServer solrServer;
+
+	private QueueingSolrDocumentPublisher publisher;
+
+	/**
+	 * Set up the publisher with a mock Solr server.
+	 */
+	@Before
+	public void setUp() {
+		solrServer = context.mock(SolrServer.class);
+		publisher = new QueueingSolrDocumentPublisher();
+		publisher.setSolrServer(solrServer);
+		publisher.setPipelinePerformance(new PipelinePerformanceImpl());
+		publisher.setBatchPublishing(true);
+	}
+
+	/**
+	 * Test that consecutive updates and deletes are folded into single requests, keeping their order.
+	 *
+	 * @throws Exception on failure
+	 */
+	@Test
+	public void testConsecutiveCommandsAreFolded() throws Exception {
+		final SolrInputDocument first = createDocument(UID_1);
+		final SolrInputDocument second = createDocument(UID_2);
+		final SolrInputDocument third = createDocument(UID_3);
+		final Sequence publishing = context.sequence("publishing");
+
+		context.checking(new Expectations() {
+			{
+				oneOf(solrServer).add(Arrays.asList(first, second));
+				inSequence(publishing);
+				oneOf(solrServer).deleteById(Arrays.asList(String.valueOf(UID_1), String.valueOf(UID_2)));
+				inSequence(publishing);
+				oneOf(solrServer).add(Arrays.asList(third));
+				inSequence(publishing);
+			}
+		});
+
+		final List<SolrPublishCommand> commands = Arrays.<SolrPublishCommand>asList(
+				new UpdateCommand(first), new UpdateCommand(second),
+				new DeleteCommand(UID_1), new DeleteCommand(UID_2),
+				new UpdateCommand(third));
+
+		assertTrue(publisher.publishBatched(commands));
+	}
+
+	/**
+	 * Test that batches are split at the maximum batch size.
+	 *
+	 * @throws Exception on failure
+	 */
+	@Test
+	public void testBatchesAreSplitAtMaxBatchSize() throws Exception {
+		final SolrInputDocument first = createDocument(UID_1);
+		final SolrInputDocument second = createDocument(UID_2);
+		final SolrInputDocument third = createDocument(UID_3);
+		publisher.setMaxBatchSize(2);
+
+		context.checking(new Expectations() {
+			{
+				oneOf(solrServer).add(Arrays.asList(first, second));
+				oneOf(solrServer).add(Arrays.asList(third));
+			}
+		});
+
+		assertTrue(publisher.publishBatched(Arrays.<SolrPublishCommand>asList(
+				new UpdateCommand(first), new UpdateCommand(second), new UpdateCommand(third))));
+	}
+
+	/**
+	 * Test that pending documents are published before a shutdown command stops the publisher.
+	 *
+	 * @throws Exception on failure
+	 */
+	@Test
+	public void testShutdownFlushesPendingDocuments() throws Exception {
+		final SolrInputDocument first = createDocument(UID_1);
+
+		context.checking(new Expectations() {
+			{
+				oneOf(solrServer).add(Arrays.asList(first));
+			}
+		});
+
+		assertFalse(publisher.publishBatched(Arrays.<SolrPublishCommand>asList(new UpdateCommand(first), new ShutdownCommand())));
+		// clear the interrupt flag set by the shutdown
+		Thread.interrupted();
+	}
+
+	/**
+	 * Test that all commands for a document go to the same publisher thread.
+	 */
+	@Test
+	public void testDocumentsAreAssignedToPublisherTasksByUid() {
+		publisher.setPublisherThreadCount(2);
+		publisher.initialize();
+
+		assertSame(publisher.getPublisherTask(UID_1), publisher.getPublisherTask(UID_3));
+		assertNotSame(publisher.getPublisherTask(UID_1), publisher.getPublisherTask(UID_2));
+	}
+
+	private SolrInputDocument createDocument(final long uid) {
+		final SolrInputDocument document = new SolrInputDocument();
+		document.addField(SolrIndexConstants.OBJECT_UID, uid);
+		return document;
+	}
+}
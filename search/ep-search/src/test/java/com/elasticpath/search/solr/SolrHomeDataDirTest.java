@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.search.solr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+
+import org.apache.solr.common.util.DOMUtil;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.elasticpath.service.search.solr.SolrIndexConstants;
+
+/**
+ * Test that the cores of the shipped Solr home, in particular the live cores and the shadow cores they are rebuilt into, resolve to
+ * distinct index directories. The cores share their configs, so a data directory set by the config rather than by the core would make
+ * a rebuild clear the live index.
+ */
+public class SolrHomeDataDirTest {
+
+	private static final String SOLR_HOME = "/solrHome/";
+
+	private static final String SOLR_HOME_DIR = "/opt/solrHome";
+
+	/**
+	 * Test that every core resolves to its own index directory.
+	 *
+	 * @throws Exception on error
+	 */
+	@Test
+	public void testCoresResolveToDistinctDataDirs() throws Exception {
+		final XPath xpath = XPathFactory.newInstance().newXPath();
+		final NodeList cores = (NodeList) xpath.evaluate("/solr/cores/core", parse("solr.xml"), XPathConstants.NODESET);
+
+		final Map<String, String> coresByDataDir = new HashMap<String, String>();
+		for (int i = 0; i < cores.getLength(); i++) {
+			final Element core = (Element) cores.item(i);
+			final String coreName = core.getAttribute("name");
+			assertEquals("The data directory of core " + coreName + " must be set by its config", "", core.getAttribute("dataDir"));
+
+			final Properties systemProperties = new Properties();
+			systemProperties.setProperty(SolrIndexConstants.SOLR_HOME_PROPERTY, SOLR_HOME_DIR);
+			final Properties coreProperties = new Properties();
+			final NodeList properties = core.getElementsByTagName("property");
+			for (int j = 0; j < properties.getLength(); j++) {
+				final Element property = (Element) properties.item(j);
+				final String value = DOMUtil.substituteProperty(property.getAttribute("value"), systemProperties);
+				coreProperties.setProperty(property.getAttribute("name"), value);
+			}
+
+			final String configuredDataDir = xpath.evaluate("/config/dataDir", parse("conf/" + core.getAttribute("config")));
+			final String dataDir = DOMUtil.substituteProperty(configuredDataDir, coreProperties);
+			assertNull("Cores " + coresByDataDir.get(dataDir) + " and " + coreName + " share " + dataDir, coresByDataDir.put(dataDir, coreName));
+		}
+		assertEquals("A shadow core is expected for every live core", 0, coresByDataDir.size() % 2);
+	}
+
+	private Document parse(final String resource) throws Exception {
+		final InputStream stream = getClass().getResourceAsStream(SOLR_HOME + resource);
+		assertNotNull("Missing " + resource, stream);
+		try {
+			return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(stream);
+		} finally {
+			stream.close();
+		}
+	}
+}
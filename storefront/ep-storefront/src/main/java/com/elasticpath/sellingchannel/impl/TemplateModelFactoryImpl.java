@@ -25,6 +25,7 @@ import com.elasticpath.domain.catalog.StoreProductLoadTuner;
 import com.elasticpath.domain.catalogview.CatalogViewResult;
 import com.elasticpath.domain.catalogview.CatalogViewResultHistory;
 import com.elasticpath.domain.catalogview.StoreProduct;
+import com.elasticpath.domain.shopper.Shopper;
 import com.elasticpath.domain.shoppingcart.ShoppingCart;
 import com.elasticpath.domain.shoppingcart.ShoppingItem;
 import com.elasticpath.domain.store.Warehouse;
@@ -76,8 +77,13 @@ public class TemplateModelFactoryImpl implements TemplateModelFactory {
 		
 		// The guided SKU selection currently requires that shopping carts be persistent
 		// so that the cart can be retrieved server-side for rules firing when a new
-		// SKU is requested through DWR
-		ShoppingCart updatedCart = getShoppingCartService().saveIfNotPersisted(shoppingCart);
+		// SKU is requested through DWR. The cart of a session whose persistence is deferred
+		// stays in the http session until an item is added, so that browsing costs no inserts.
+		ShoppingCart updatedCart = shoppingCart;
+		final Shopper shopper = shoppingCart.getShopper();
+		if (shopper == null || shopper.isPersisted()) {
+			updatedCart = getShoppingCartService().saveIfNotPersisted(shoppingCart);
+		}
 
 		final Price price = priceLookupFacade.getPromotedPriceForSku(product.getDefaultSku(), 
 				updatedCart.getStore(), updatedCart.getShopper(), updatedCart.getAppliedRules());
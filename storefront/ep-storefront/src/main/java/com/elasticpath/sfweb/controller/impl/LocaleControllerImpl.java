@@ -50,7 +50,10 @@ public class LocaleControllerImpl extends AbstractEpControllerImpl {
 		final Currency currency = getCurrency(currencyStr);
 		customerSession.setCurrency(currency);
 
-		customerSessionService.update(customerSession);
+		// a session whose persistence is deferred keeps its locale and currency in memory until it is persisted
+		if (customerSession.getShopper().isPersisted()) {
+			customerSessionService.update(customerSession);
+		}
 		customerSession.getShopper().getCurrentShoppingCart().fireRules();
 
 		return new ModelAndView(new RedirectView(getReferrer(request)));
@@ -32,7 +32,8 @@ import com.elasticpath.web.ajax.dwrconverter.EpCurrencyConverter;
  * If a new customer send a request without customer session id, a new customer session will be created and stored. <br>
  * If a return customer send a request with a valid customer session id, the customer information will be loaded for controllers' usage. The
  * customer-information-load operation will only be done <b>once</b> for a session.<br>
- * The customer session id is written back to customer browser as a cookie.
+ * The customer session id is written back to customer browser as a cookie.<br>
+ * A customer session whose persistence was deferred is persisted once the request has given its shopper something worth keeping.
  *
  */
 public class CustomerSessionFilter implements Filter {
@@ -100,6 +101,11 @@ public class CustomerSessionFilter implements Filter {
 		}
 
 		inFilterChain.doFilter(inRequest, inResponse);
+
+		// a session invalidated by the request, such as on sign out, has nothing left to persist
+		if (request.getSession(false) != null) {
+			webCustomerSessionService.persistDeferredCustomerSession(requestResponseFacade);
+		}
 	}
 
 	/**
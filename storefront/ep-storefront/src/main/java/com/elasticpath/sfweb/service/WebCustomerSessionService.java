@@ -40,6 +40,12 @@ public interface WebCustomerSessionService {
 	 * @param customer the guest customer that has signed in
 	 */
 	void handleGuestSignIn(final HttpServletRequestResponseFacade requestResponse, final Customer customer);
+
+	/**
+	 * Persist the customer session of a request, if its persistence was deferred and its shopper has since been persisted.
+	 * @param requestResponse the HTTP request
+	 */
+	void persistDeferredCustomerSession(final HttpServletRequestResponseFacade requestResponse);
 	
 	/**
 	 * Adds an listener to the creation of new HTTP sessions.
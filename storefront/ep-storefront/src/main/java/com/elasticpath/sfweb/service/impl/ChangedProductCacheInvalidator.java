@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.sfweb.service.impl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+import com.elasticpath.commons.util.CacheInvalidationStrategy;
+import com.elasticpath.domain.catalog.Product;
+import com.elasticpath.service.catalog.ProductService;
+import com.elasticpath.service.misc.TimeService;
+
+/**
+ * Evicts products changed or deleted elsewhere in the cluster from the storefront caches, so that they do not have to wait for the
+ * caches to expire. Every run looks up the products modified or deleted since the previous run, the same change source the search
+ * indexer uses, and evicts just those products, the bundles containing them and their associations. The first run only records the
+ * time to look for changes from.
+ * <p>
+ * Meant to be run periodically, for instance by a scheduled executor.
+ */
+public class ChangedProductCacheInvalidator implements Runnable {
+
+	private static final Logger LOG = Logger.getLogger(ChangedProductCacheInvalidator.class);
+
+	private ProductService productService;
+
+	private TimeService timeService;
+
+	private CacheInvalidationStrategy cacheInvalidationStrategy;
+
+	private Date lastRunDate;
+
+	private volatile int lastRemovedEntries;
+
+	private volatile long totalRemovedEntries;
+
+	/**
+	 * Evicts the products changed since the previous run. Failures are logged, the changes are looked for again on the next run.
+	 */
+	public synchronized void run() {
+		final Date runDate = timeService.getCurrentTime();
+		if (lastRunDate == null) {
+			lastRunDate = runDate;
+			return;
+		}
+
+		try {
+			final List<Long> modifiedUids = productService.findUidsByModifiedDate(lastRunDate);
+			final Set<Object> productKeys = new LinkedHashSet<Object>(modifiedUids);
+			productKeys.addAll(productService.findUidsByDeletedDate(lastRunDate));
+			if (!modifiedUids.isEmpty()) {
+				productKeys.addAll(productService.findCodesByUids(new ArrayList<Long>(modifiedUids)).values());
+			}
+
+			lastRemovedEntries = cacheInvalidationStrategy.invalidateCachesForEntities(Product.class, productKeys);
+			totalRemovedEntries += lastRemovedEntries;
+			lastRunDate = runDate;
+			if (LOG.isDebugEnabled()) {
+				LOG.debug(productKeys.size() + " changed product keys evicted " + lastRemovedEntries + " cache entries");
+			}
+		} catch (final RuntimeException e) {
+			LOG.error("Could not evict changed products from the caches", e);
+		}
+	}
+
+	/**
+	 * Gets the number of cache entries removed by the last run.
+	 *
+	 * @return the number of entries removed
+	 */
+	public int getLastRemovedEntries() {
+		return lastRemovedEntries;
+	}
+
+	/**
+	 * Gets the number of cache entries removed by all runs.
+	 *
+	 * @return the number of entries removed
+	 */
+	public long getTotalRemovedEntries() {
+		return totalRemovedEntries;
+	}
+
+	public void setProductService(final ProductService productService) {
+		this.productService = productService;
+	}
+
+	public void setTimeService(final TimeService timeService) {
+		this.timeService = timeService;
+	}
+
+	public void setCacheInvalidationStrategy(final CacheInvalidationStrategy cacheInvalidationStrategy) {
+		this.cacheInvalidationStrategy = cacheInvalidationStrategy;
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.sfweb.service.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+/**
+ * Counts the anonymous customer sessions whose persistence was deferred, and how many of them were persisted later on, which gives
+ * the ratio of shopper and customer session inserts avoided. The counts are logged every {@link #setLogInterval(int) log interval}
+ * deferred sessions and exposed through JMX.
+ */
+@ManagedResource(objectName = "com.elasticpath.sfweb:name=DeferredCustomerSessionStats",
+		description = "Stats of anonymous customer sessions whose persistence was deferred", currencyTimeLimit = 1)
+public class DeferredCustomerSessionStatistics {
+
+	private static final Logger LOG = Logger.getLogger(DeferredCustomerSessionStatistics.class);
+
+	private static final int DEFAULT_LOG_INTERVAL = 1000;
+
+	private static final double PERCENT = 100.0;
+
+	private final AtomicLong deferredSessionCount = new AtomicLong();
+
+	private final AtomicLong persistedSessionCount = new AtomicLong();
+
+	private int logInterval = DEFAULT_LOG_INTERVAL;
+
+	/**
+	 * Counts a new anonymous customer session which was not persisted.
+	 */
+	public void sessionDeferred() {
+		final long deferred = deferredSessionCount.incrementAndGet();
+		if (logInterval > 0 && deferred % logInterval == 0 && LOG.isInfoEnabled()) {
+			LOG.info(String.format("%d anonymous customer sessions deferred, %d persisted since: %.1f%% of session inserts avoided",
+					deferred, getPersistedSessionCount(), getAvoidedInsertPercentage()));
+		}
+	}
+
+	/**
+	 * Counts a deferred customer session which was persisted because of an event worth keeping, such as a cart or wish list change or
+	 * a sign in.
+	 */
+	public void sessionPersisted() {
+		persistedSessionCount.incrementAndGet();
+	}
+
+	/**
+	 * @return the number of anonymous customer sessions which were not persisted when created
+	 */
+	@ManagedAttribute(description = "Anonymous customer sessions not persisted when created", currencyTimeLimit = 1)
+	public long getDeferredSessionCount() {
+		return deferredSessionCount.get();
+	}
+
+	/**
+	 * @return the number of deferred customer sessions which were persisted later on
+	 */
+	@ManagedAttribute(description = "Deferred customer sessions persisted later on", currencyTimeLimit = 1)
+	public long getPersistedSessionCount() {
+		return persistedSessionCount.get();
+	}
+
+	/**
+	 * @return the number of deferred customer sessions which were never persisted
+	 */
+	@ManagedAttribute(description = "Deferred customer sessions never persisted", currencyTimeLimit = 1)
+	public long getAvoidedInsertCount() {
+		return Math.max(0, getDeferredSessionCount() - getPersistedSessionCount());
+	}
+
+	/**
+	 * @return the percentage of deferred customer sessions which were never persisted
+	 */
+	@ManagedAttribute(description = "Percentage of shopper and customer session inserts avoided", currencyTimeLimit = 1)
+	public double getAvoidedInsertPercentage() {
+		final long deferred = getDeferredSessionCount();
+		if (deferred == 0) {
+			return 0;
+		}
+		return PERCENT * getAvoidedInsertCount() / deferred;
+	}
+
+	/**
+	 * Resets the counts.
+	 */
+	@ManagedOperation(description = "Reset the counts.")
+	public void reset() {
+		deferredSessionCount.set(0);
+		persistedSessionCount.set(0);
+	}
+
+	/**
+	 * Sets the number of deferred sessions between two logs of the counts, or zero to not log them.
+	 *
+	 * @param logInterval the log interval
+	 */
+	public void setLogInterval(final int logInterval) {
+		this.logInterval = logInterval;
+	}
+}
@@ -1,11 +1,13 @@
 package com.elasticpath.sfweb.service.impl;
 
+import java.util.Collection;
 import java.util.Set;
 
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 
-import com.elasticpath.commons.util.InvalidatableCache;
+import com.elasticpath.commons.util.EntityInvalidatableCache;
+import com.elasticpath.domain.catalog.Product;
 import com.elasticpath.domain.catalog.ProductAssociation;
 import com.elasticpath.service.catalog.ProductAssociationRetrieveStrategy;
 import com.elasticpath.service.catalog.ProductAssociationService;
@@ -15,7 +17,7 @@ import com.elasticpath.service.search.query.ProductAssociationSearchCriteria;
  * The cacheable product association retrieve strategy implementation.
  */
 public class EhCacheProductAssociationRetrieveStrategyImpl
-	implements ProductAssociationRetrieveStrategy, InvalidatableCache {
+	implements ProductAssociationRetrieveStrategy, EntityInvalidatableCache {
 
 	private Ehcache cache;
 
@@ -100,4 +102,55 @@ public class EhCacheProductAssociationRetrieveStrategyImpl
 		getCache().remove(objectUid);
 
 	}
+
+	/**
+	 * Removes the cached associations of the given products, that is the entries searched for with one of the products as source, and
+	 * the entries holding an association from or to one of the products. The entries of other products are kept, so an association to a
+	 * changed product which the search filtered out, for instance because its target was not yet available, is only found once the
+	 * entry expires.
+	 *
+	 * @param entityType the type of the changed entities, entries are only removed for products
+	 * @param entityKeys the uids or codes of the changed products
+	 * @return the number of entries removed
+	 */
+	@Override
+	public int invalidate(final Class< ? > entityType, final Collection< ? > entityKeys) {
+		if (!Product.class.isAssignableFrom(entityType)) {
+			return 0;
+		}
+
+		int removedEntries = 0;
+		for (final Object key : getCache().getKeys()) {
+			final Element element = getCache().getQuiet(key);
+			if (element != null && dependsOnAny(key, element.getValue(), entityKeys) && getCache().remove(key)) {
+				removedEntries++;
+			}
+		}
+		return removedEntries;
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean dependsOnAny(final Object key, final Object value, final Collection< ? > entityKeys) {
+		if (key instanceof ProductAssociationSearchCriteria) {
+			final ProductAssociationSearchCriteria criteria = (ProductAssociationSearchCriteria) key;
+			if (entityKeys.contains(criteria.getSourceProductCode()) || isAnyOf(criteria.getSourceProduct(), entityKeys)) {
+				return true;
+			}
+		}
+
+		final Set<ProductAssociation> productAssociations = (Set<ProductAssociation>) value;
+		if (productAssociations == null) {
+			return false;
+		}
+		for (final ProductAssociation productAssociation : productAssociations) {
+			if (isAnyOf(productAssociation.getSourceProduct(), entityKeys) || isAnyOf(productAssociation.getTargetProduct(), entityKeys)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isAnyOf(final Product product, final Collection< ? > entityKeys) {
+		return product != null && (entityKeys.contains(product.getUidPk()) || entityKeys.contains(product.getCode()));
+	}
 }
@@ -3,13 +3,17 @@
  */
 package com.elasticpath.sfweb.service.impl;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 
-import com.elasticpath.commons.util.InvalidatableCache;
+import com.elasticpath.commons.util.EntityInvalidatableCache;
 import com.elasticpath.commons.util.Pair;
+import com.elasticpath.domain.catalog.BundleConstituent;
 import com.elasticpath.domain.catalog.Product;
 import com.elasticpath.domain.catalog.ProductBundle;
 import com.elasticpath.persistence.api.FetchGroupLoadTuner;
@@ -19,8 +23,12 @@ import com.elasticpath.service.catalogview.impl.AbstractProductRetrieveStrategyI
 
 /**
  * A <code>ProductRetrieveStrategy</code> using EhCache.
+ * <p>
+ * Changed products can be evicted individually through {@link #invalidate(Class, Collection)}, which also evicts the cached bundles
+ * containing them.
  */
-public class EhCacheProductRetrieveStrategyImpl extends AbstractProductRetrieveStrategyImpl implements ProductRetrieveStrategy, InvalidatableCache {
+public class EhCacheProductRetrieveStrategyImpl extends AbstractProductRetrieveStrategyImpl
+		implements ProductRetrieveStrategy, EntityInvalidatableCache {
 
 	private Ehcache cache;
 
@@ -208,5 +216,98 @@ public class EhCacheProductRetrieveStrategyImpl extends AbstractProductRetrieveS
 			productBundleCache.remove(objectUid);
 	}
 
+	/**
+	 * Removes the given products from the caches, along with the cached bundles which contain any of them, directly or through a
+	 * nested bundle. Products may be given by uid or by code; products given by code are found by scanning the caches.
+	 *
+	 * @param entityType the type of the changed entities, entries are only removed for products
+	 * @param entityKeys the uids or codes of the changed products
+	 * @return the number of entries removed
+	 */
+	@Override
+	public int invalidate(final Class< ? > entityType, final Collection< ? > entityKeys) {
+		if (!Product.class.isAssignableFrom(entityType)) {
+			return 0;
+		}
+
+		final Set<Long> productUids = new HashSet<Long>();
+		final Set<String> productCodes = new HashSet<String>();
+		for (final Object entityKey : entityKeys) {
+			if (entityKey instanceof Long) {
+				productUids.add((Long) entityKey);
+			} else if (entityKey instanceof String) {
+				productCodes.add((String) entityKey);
+			}
+		}
+
+		int removedEntries = removeProducts(getCache(), productUids, productCodes);
+		removedEntries += removeProducts(getProductWithFetchGroupLoadTunerCache(), productUids, productCodes);
+		removedEntries += removeBundles(productUids, productCodes);
+		return removedEntries;
+	}
+
+	private int removeProducts(final Ehcache productCache, final Set<Long> productUids, final Set<String> productCodes) {
+		int removedEntries = 0;
+		for (final Long productUid : productUids) {
+			if (productCache.remove(productUid)) {
+				removedEntries++;
+			}
+		}
+		if (productCodes.isEmpty()) {
+			return removedEntries;
+		}
+
+		for (final Object key : productCache.getKeys()) {
+			final Product product = getCachedProduct(productCache, key);
+			if (product != null && productCodes.contains(product.getCode()) && productCache.remove(key)) {
+				removedEntries++;
+			}
+		}
+		return removedEntries;
+	}
+
+	private int removeBundles(final Set<Long> productUids, final Set<String> productCodes) {
+		int removedEntries = 0;
+		for (final Object key : getProductBundleCache().getKeys()) {
+			final Product product = getCachedProduct(getProductBundleCache(), key);
+			if (product != null && dependsOnAny(product, productUids, productCodes) && getProductBundleCache().remove(key)) {
+				removedEntries++;
+			}
+		}
+		return removedEntries;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Product getCachedProduct(final Ehcache productCache, final Object key) {
+		final Element element = productCache.getQuiet(key);
+		if (element == null || element.getValue() == null) {
+			return null;
+		}
+		return ((Pair<Product, LoadTuner>) element.getValue()).getFirst();
+	}
+
+	/**
+	 * Checks whether the given product is one of the given products or is a bundle containing one of them.
+	 *
+	 * @param product the product
+	 * @param productUids the uids of the products looked for
+	 * @param productCodes the codes of the products looked for
+	 * @return true if the product depends on any of the products looked for
+	 */
+	protected boolean dependsOnAny(final Product product, final Set<Long> productUids, final Set<String> productCodes) {
+		if (productUids.contains(product.getUidPk()) || productCodes.contains(product.getCode())) {
+			return true;
+		}
+		if (product instanceof ProductBundle) {
+			for (final BundleConstituent constituent : ((ProductBundle) product).getConstituents()) {
+				final Product constituentProduct = constituent.getConstituent().getProduct();
+				if (constituentProduct != null && dependsOnAny(constituentProduct, productUids, productCodes)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 
 }
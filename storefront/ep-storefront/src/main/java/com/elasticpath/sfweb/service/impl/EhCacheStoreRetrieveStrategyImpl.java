@@ -2,12 +2,14 @@ package com.elasticpath.sfweb.service.impl;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 
-import com.elasticpath.commons.util.InvalidatableCache;
+import com.elasticpath.commons.util.EntityInvalidatableCache;
 import com.elasticpath.commons.util.Pair;
 import com.elasticpath.domain.store.Store;
 import com.elasticpath.persistence.api.FetchGroupLoadTuner;
@@ -18,7 +20,7 @@ import com.elasticpath.service.store.StoreRetrieveStrategy;
 /**
  * Implementation of the Store Cache.
  */
-public class EhCacheStoreRetrieveStrategyImpl extends AbstractEpServiceImpl implements StoreRetrieveStrategy, InvalidatableCache {
+public class EhCacheStoreRetrieveStrategyImpl extends AbstractEpServiceImpl implements StoreRetrieveStrategy, EntityInvalidatableCache {
 
 	private Ehcache storeCache;
 
@@ -32,6 +34,40 @@ public class EhCacheStoreRetrieveStrategyImpl extends AbstractEpServiceImpl impl
 		storeCache.remove(objectUid);
 	}
 
+	/**
+	 * Removes the given stores from the cache, both the entry keyed by uid and the entry keyed by code.
+	 *
+	 * @param entityType the type of the changed entities, entries are only removed for stores
+	 * @param entityKeys the uids or codes of the changed stores
+	 * @return the number of entries removed
+	 */
+	@Override
+	public int invalidate(final Class< ? > entityType, final Collection< ? > entityKeys) {
+		if (!Store.class.isAssignableFrom(entityType)) {
+			return 0;
+		}
+
+		final Set<Object> storeUids = new HashSet<Object>();
+		for (final Object entityKey : entityKeys) {
+			final Element codeElement = storeCache.getQuiet(entityKey);
+			if (codeElement != null && codeElement.getValue() instanceof Long) {
+				storeUids.add(codeElement.getValue());
+			} else {
+				storeUids.add(entityKey);
+			}
+		}
+
+		int removedEntries = 0;
+		for (final Object key : storeCache.getKeys()) {
+			final Element element = storeCache.getQuiet(key);
+			final boolean codeOfRemovedStore = element != null && storeUids.contains(element.getValue());
+			if ((storeUids.contains(key) || codeOfRemovedStore || entityKeys.contains(key)) && storeCache.remove(key)) {
+				removedEntries++;
+			}
+		}
+		return removedEntries;
+	}
+
 	@Override
 	public Store retrieveStore(final long storeUid, final FetchGroupLoadTuner storeLoadTuner) {
 		final Pair<Store, LoadTuner> cacheRecord = findInCache(storeUid);
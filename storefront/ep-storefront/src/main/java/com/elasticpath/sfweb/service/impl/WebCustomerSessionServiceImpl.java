@@ -60,6 +60,10 @@ public class WebCustomerSessionServiceImpl implements WebCustomerSessionService
 
 	private PriceListLookupService priceListLookupService;
 
+	private boolean deferAnonymousSessionPersistence;
+
+	private DeferredCustomerSessionStatistics deferredSessionStatistics;
+
 	/**
 	 * Handle a request intercepted by a filter. <br>
 	 * Performs any required actions to update the CustomerSession, shopping cart, and cookie.
@@ -191,8 +195,12 @@ public class WebCustomerSessionServiceImpl implements WebCustomerSessionService
 
 		updateSessionLocale(requestResponse, customerSession, customerLocale);
 
+		final boolean deferred = isDeferred(customerSession);
 		final Store store = requestResponse.getStore();
 		customerSessionService.handleShopperChangeAndUpdate(customerSession, store.getCode());
+		if (deferred) {
+			deferredSessionStatistics.sessionPersisted();
+		}
 
 		updateShoppingCart(customerSession.getShopper().getCurrentShoppingCart());
 	}
@@ -207,6 +215,27 @@ public class WebCustomerSessionServiceImpl implements WebCustomerSessionService
 		customerSession.setLocale(getLocaleMatchFromStore(requestResponse.getStore(), customerSession.getLocale()));
 	}
 
+	@Override
+	public void persistDeferredCustomerSession(final HttpServletRequestResponseFacade requestResponse) {
+		final CustomerSession customerSession = requestResponse.getCustomerSession();
+		if (!isDeferred(customerSession)) {
+			return;
+		}
+
+		// the shopper is persisted by the first cart or wish list save
+		final Shopper shopper = customerSession.getShopper();
+		if (shopper.isPersisted()) {
+			// re-set the shopper so that the memento picks up its uid
+			customerSession.setShopper(shopper);
+			customerSessionService.add(customerSession);
+			deferredSessionStatistics.sessionPersisted();
+		}
+	}
+
+	private boolean isDeferred(final CustomerSession customerSession) {
+		return deferAnonymousSessionPersistence && customerSession != null && !customerSession.getCustomerSessionMemento().isPersisted();
+	}
+
 	/**
 	 * Finds a shopping cart to attach to the current customer session.
 	 *
@@ -411,7 +440,9 @@ public class WebCustomerSessionServiceImpl implements WebCustomerSessionService
 	}
 
 	/**
-	 * Creates a persistent CustomerSession object.
+	 * Creates a persistent CustomerSession object. When anonymous session persistence is deferred, neither the shopper nor the
+	 * session are saved here: the shopper is saved with the first cart or wish list, the session at the end of that request or on
+	 * sign in, so that visitors who only browse cost no inserts.
 	 *
 	 * @param guid the session's GUID
 	 * @param locale the session locale
@@ -421,7 +452,12 @@ public class WebCustomerSessionServiceImpl implements WebCustomerSessionService
 	 */
 	protected CustomerSession createPersistentCustomerSession(final String guid, final Locale locale, final Store store, final String ipAddress) {
 
-		final Shopper shopper = shopperService.createAndSaveShopper(store.getCode());
+		final Shopper shopper;
+		if (deferAnonymousSessionPersistence) {
+			shopper = shopperService.createShopper(store.getCode());
+		} else {
+			shopper = shopperService.createAndSaveShopper(store.getCode());
+		}
 		final CustomerSession customerSession = customerSessionService.createWithShopper(shopper);
 		final Date currentTime = timeService.getCurrentTime();
 
@@ -432,7 +468,11 @@ public class WebCustomerSessionServiceImpl implements WebCustomerSessionService
 		customerSession.setGuid(guid);
 		customerSession.setIpAddress(ipAddress);
 
-		customerSessionService.add(customerSession);
+		if (deferAnonymousSessionPersistence) {
+			deferredSessionStatistics.sessionDeferred();
+		} else {
+			customerSessionService.add(customerSession);
+		}
 
 		return customerSession;
 	}
@@ -660,4 +700,23 @@ public class WebCustomerSessionServiceImpl implements WebCustomerSessionService
 		this.shopperService = shopperService;
 	}
 
+	/**
+	 * Sets whether new anonymous customer sessions are only persisted once the shopper has something worth keeping: an item in the
+	 * cart or wish list, or a sign in.
+	 *
+	 * @param deferAnonymousSessionPersistence true to defer the persistence of anonymous sessions
+	 */
+	public void setDeferAnonymousSessionPersistence(final boolean deferAnonymousSessionPersistence) {
+		this.deferAnonymousSessionPersistence = deferAnonymousSessionPersistence;
+	}
+
+	/**
+	 * Sets the statistics of deferred customer sessions.
+	 *
+	 * @param deferredSessionStatistics the statistics
+	 */
+	public void setDeferredSessionStatistics(final DeferredCustomerSessionStatistics deferredSessionStatistics) {
+		this.deferredSessionStatistics = deferredSessionStatistics;
+	}
+
 }
@@ -95,6 +95,8 @@ public class LocaleControllerImplTest {
 
 				allowing(customerSession).getShopper();
 				will(returnValue(shopper));
+				allowing(shopper).isPersisted();
+				will(returnValue(true));
 				allowing(shopper).getCurrentShoppingCart();
 				will(returnValue(shoppingCart));
 
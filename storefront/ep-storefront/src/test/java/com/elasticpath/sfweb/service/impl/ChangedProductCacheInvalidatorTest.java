@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.sfweb.service.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.elasticpath.commons.util.CacheInvalidationStrategy;
+import com.elasticpath.domain.catalog.Product;
+import com.elasticpath.persistence.api.EpPersistenceException;
+import com.elasticpath.service.catalog.ProductService;
+import com.elasticpath.service.misc.TimeService;
+
+/**
+ * Test that {@link ChangedProductCacheInvalidator} evicts the products changed since its previous run.
+ */
+public class ChangedProductCacheInvalidatorTest {
+
+	private static final Long MODIFIED_UID = 1L;
+
+	private static final String MODIFIED_CODE = "modified";
+
+	private static final Long DELETED_UID = 2L;
+
+	private static final int REMOVED_ENTRIES = 3;
+
+	private static final Date FIRST_RUN_DATE = new Date(1000L);
+
+	private static final Date SECOND_RUN_DATE = new Date(2000L);
+
+	private static final Date THIRD_RUN_DATE = new Date(3000L);
+
+	@Rule
+	public final JUnitRuleMockery context = new JUnitRuleMockery();
+
+	private final ProductService productService = context.mock(ProductService.class);
+
+	private final TimeService timeService = context.mock(TimeService.class);
+
+	private final CacheInvalidationStrategy cacheInvalidationStrategy = context.mock(CacheInvalidationStrategy.class);
+
+	private final ChangedProductCacheInvalidator invalidator = new ChangedProductCacheInvalidator();
+
+	/**
+	 * Set up the invalidator.
+	 */
+	@Before
+	public void setUp() {
+		invalidator.setProductService(productService);
+		invalidator.setTimeService(timeService);
+		invalidator.setCacheInvalidationStrategy(cacheInvalidationStrategy);
+
+		context.checking(new Expectations() {
+			{
+				allowing(timeService).getCurrentTime();
+				will(onConsecutiveCalls(returnValue(FIRST_RUN_DATE), returnValue(SECOND_RUN_DATE), returnValue(THIRD_RUN_DATE)));
+			}
+		});
+	}
+
+	/**
+	 * Test that the first run only records the time to look for changes from, and that the next run evicts the uids and codes of the
+	 * modified products and the uids of the deleted products, and nothing else.
+	 */
+	@Test
+	public void testChangedProductsAreEvictedByUidAndCode() {
+		invalidator.run();
+
+		context.checking(new Expectations() {
+			{
+				oneOf(productService).findUidsByModifiedDate(FIRST_RUN_DATE); will(returnValue(Arrays.asList(MODIFIED_UID)));
+				oneOf(productService).findUidsByDeletedDate(FIRST_RUN_DATE); will(returnValue(Arrays.asList(DELETED_UID)));
+				oneOf(productService).findCodesByUids(Arrays.asList(MODIFIED_UID));
+				will(returnValue(Collections.singletonMap(MODIFIED_UID, MODIFIED_CODE)));
+				oneOf(cacheInvalidationStrategy).invalidateCachesForEntities(Product.class,
+						new LinkedHashSet<Object>(Arrays.<Object>asList(MODIFIED_UID, DELETED_UID, MODIFIED_CODE)));
+				will(returnValue(REMOVED_ENTRIES));
+			}
+		});
+		invalidator.run();
+
+		assertEquals(REMOVED_ENTRIES, invalidator.getLastRemovedEntries());
+		assertEquals(REMOVED_ENTRIES, invalidator.getTotalRemovedEntries());
+	}
+
+	/**
+	 * Test that a run which fails to look for changes leaves the next run to look for them from the same time.
+	 */
+	@Test
+	public void testFailedRunIsRetriedFromTheSameTime() {
+		invalidator.run();
+
+		context.checking(new Expectations() {
+			{
+				oneOf(productService).findUidsByModifiedDate(FIRST_RUN_DATE); will(throwException(new EpPersistenceException("down")));
+			}
+		});
+		invalidator.run();
+
+		context.checking(new Expectations() {
+			{
+				oneOf(productService).findUidsByModifiedDate(FIRST_RUN_DATE); will(returnValue(Collections.emptyList()));
+				oneOf(productService).findUidsByDeletedDate(FIRST_RUN_DATE); will(returnValue(Collections.emptyList()));
+				oneOf(cacheInvalidationStrategy).invalidateCachesForEntities(Product.class, Collections.emptySet());
+				will(returnValue(0));
+			}
+		});
+		invalidator.run();
+
+		assertEquals(0, invalidator.getTotalRemovedEntries());
+	}
+}
@@ -1,5 +1,9 @@
 package com.elasticpath.sfweb.service.impl;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -12,6 +16,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import com.elasticpath.domain.catalog.Product;
 import com.elasticpath.domain.catalog.ProductAssociation;
 import com.elasticpath.service.catalog.ProductAssociationService;
 import com.elasticpath.service.search.query.ProductAssociationSearchCriteria;
@@ -22,6 +27,12 @@ import com.elasticpath.service.search.query.ProductAssociationSearchCriteria;
 
 public class EhCacheProductAssociationRetrieveStrategyImplTest {
 
+	private static final long CHANGED_UID = 1L;
+
+	private static final String CHANGED_CODE = "changed";
+
+	private static final String OTHER_CODE = "other";
+
 	@Rule
 	public final JUnitRuleMockery context = new JUnitRuleMockery();
 	private final EhCacheProductAssociationRetrieveStrategyImpl strategy = new EhCacheProductAssociationRetrieveStrategyImpl();
@@ -118,5 +129,73 @@ public class EhCacheProductAssociationRetrieveStrategyImplTest {
 		strategy.getAssociations(criteria);
 		
 	}
+	/**
+	 * Test that a changed product evicts the associations searched for from it and the associations to it, and that the associations
+	 * of unchanged products survive.
+	 */
+	@Test
+	public void testInvalidateChangedProductEvictsOnlyItsAssociations() {
+		final Product changedProduct = product("changedProduct", CHANGED_UID, CHANGED_CODE);
+		final Product otherProduct = product("otherProduct", 2L, OTHER_CODE);
+		final Product thirdProduct = product("thirdProduct", 3L, "third");
+
+		final ProductAssociationSearchCriteria fromChanged = criteria(CHANGED_CODE);
+		final ProductAssociationSearchCriteria toChanged = criteria(OTHER_CODE);
+		final ProductAssociationSearchCriteria unchanged = criteria("third");
+		final ProductAssociationSearchCriteria unchangedWithoutAssociations = criteria("fourth");
+
+		context.checking(new Expectations() {
+			{
+				allowing(cache).getKeys();
+				will(returnValue(Arrays.asList(fromChanged, toChanged, unchanged, unchangedWithoutAssociations)));
+				allowing(cache).getQuiet((Object) fromChanged);
+				will(returnValue(new Element(fromChanged, associations(association("fromChanged", changedProduct, otherProduct)))));
+				allowing(cache).getQuiet((Object) toChanged);
+				will(returnValue(new Element(toChanged, associations(association("toChanged", otherProduct, changedProduct)))));
+				allowing(cache).getQuiet((Object) unchanged);
+				will(returnValue(new Element(unchanged, associations(association("unchanged", thirdProduct, otherProduct)))));
+				allowing(cache).getQuiet((Object) unchangedWithoutAssociations);
+				will(returnValue(new Element(unchangedWithoutAssociations, associations())));
+
+				oneOf(cache).remove((Object) fromChanged); will(returnValue(true));
+				oneOf(cache).remove((Object) toChanged); will(returnValue(true));
+			}
+		});
+
+		assertEquals("only the associations from and to the changed product should be evicted",
+				2, strategy.invalidate(Product.class, Arrays.asList(CHANGED_UID, CHANGED_CODE)));
+		assertEquals("other entity types should be ignored", 0, strategy.invalidate(String.class, Collections.singleton(CHANGED_UID)));
+	}
 
+	private Product product(final String name, final long uid, final String code) {
+		final Product product = context.mock(Product.class, name);
+		context.checking(new Expectations() {
+			{
+				allowing(product).getUidPk(); will(returnValue(uid));
+				allowing(product).getCode(); will(returnValue(code));
+			}
+		});
+		return product;
+	}
+
+	private ProductAssociation association(final String name, final Product sourceProduct, final Product targetProduct) {
+		final ProductAssociation productAssociation = context.mock(ProductAssociation.class, name);
+		context.checking(new Expectations() {
+			{
+				allowing(productAssociation).getSourceProduct(); will(returnValue(sourceProduct));
+				allowing(productAssociation).getTargetProduct(); will(returnValue(targetProduct));
+			}
+		});
+		return productAssociation;
+	}
+
+	private static Set<ProductAssociation> associations(final ProductAssociation... productAssociations) {
+		return new HashSet<ProductAssociation>(Arrays.asList(productAssociations));
+	}
+
+	private static ProductAssociationSearchCriteria criteria(final String sourceProductCode) {
+		final ProductAssociationSearchCriteria criteria = new ProductAssociationSearchCriteria();
+		criteria.setSourceProductCode(sourceProductCode);
+		return criteria;
+	}
 }
@@ -8,6 +8,8 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import net.sf.ehcache.Ehcache;
@@ -20,6 +22,8 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import com.elasticpath.commons.util.Pair;
+import com.elasticpath.domain.catalog.BundleConstituent;
+import com.elasticpath.domain.catalog.ConstituentItem;
 import com.elasticpath.domain.catalog.Product;
 import com.elasticpath.domain.catalog.ProductBundle;
 import com.elasticpath.domain.catalog.ProductLoadTuner;
@@ -401,4 +405,48 @@ public class EhCacheProductRetrieveStrategyImplTest {
 		resolvedCache = strategy.getCacheByLoadTuner(fetchGroupLoadTuner);
 		assertEquals("Get wrong cache", cacheForFetchGroupLoadTuner, resolvedCache);
 	}
+
+	/**
+	 * Test that invalidating a changed product evicts it and the cached bundles containing it, and counts the entries removed.
+	 */
+	@Test
+	public void testInvalidateChangedProductEvictsContainingBundles() {
+		final long changedUid = 123L;
+		final long bundleUid = 456L;
+		final long otherBundleUid = 789L;
+		final Product changedProduct = context.mock(Product.class, "changedProduct");
+		final ProductBundle bundle = context.mock(ProductBundle.class, "bundle");
+		final ProductBundle otherBundle = context.mock(ProductBundle.class, "otherBundle");
+		final BundleConstituent constituent = context.mock(BundleConstituent.class);
+		final ConstituentItem constituentItem = context.mock(ConstituentItem.class);
+
+		context.checking(new Expectations() {
+			{
+				oneOf(cache).remove(changedUid); will(returnValue(true));
+				oneOf(cacheForFetchGroupLoadTuner).remove(changedUid); will(returnValue(false));
+
+				allowing(changedProduct).getUidPk(); will(returnValue(changedUid));
+				allowing(changedProduct).getCode(); will(returnValue("changed"));
+				allowing(bundle).getUidPk(); will(returnValue(bundleUid));
+				allowing(bundle).getCode(); will(returnValue("bundle"));
+				allowing(bundle).getConstituents(); will(returnValue(Arrays.asList(constituent)));
+				allowing(constituent).getConstituent(); will(returnValue(constituentItem));
+				allowing(constituentItem).getProduct(); will(returnValue(changedProduct));
+				allowing(otherBundle).getUidPk(); will(returnValue(otherBundleUid));
+				allowing(otherBundle).getCode(); will(returnValue("otherBundle"));
+				allowing(otherBundle).getConstituents(); will(returnValue(Collections.emptyList()));
+
+				allowing(productBundleCache).getKeys(); will(returnValue(Arrays.asList(bundleUid, otherBundleUid)));
+				allowing(productBundleCache).getQuiet(bundleUid);
+				will(returnValue(new Element(bundleUid, new Pair<Product, LoadTuner>(bundle, loadTuner))));
+				allowing(productBundleCache).getQuiet(otherBundleUid);
+				will(returnValue(new Element(otherBundleUid, new Pair<Product, LoadTuner>(otherBundle, loadTuner))));
+				oneOf(productBundleCache).remove(bundleUid); will(returnValue(true));
+			}
+		});
+
+		assertEquals("the product and the bundle containing it should be evicted",
+				2, strategy.invalidate(Product.class, Collections.singleton(changedUid)));
+		assertEquals("other entity types should be ignored", 0, strategy.invalidate(String.class, Collections.singleton(changedUid)));
+	}
 }
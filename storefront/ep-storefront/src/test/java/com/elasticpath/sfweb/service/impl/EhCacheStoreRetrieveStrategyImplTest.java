@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) Elastic Path Software Inc., 2013
+ */
+package com.elasticpath.sfweb.service.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+
+import org.jmock.Expectations;
+import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.elasticpath.commons.util.Pair;
+import com.elasticpath.domain.catalog.Product;
+import com.elasticpath.domain.store.Store;
+import com.elasticpath.persistence.api.LoadTuner;
+
+/**
+ * Test that {@link EhCacheStoreRetrieveStrategyImpl} evicts just the changed stores from the cache.
+ */
+public class EhCacheStoreRetrieveStrategyImplTest {
+
+	private static final Long CHANGED_UID = 1L;
+
+	private static final String CHANGED_CODE = "CHANGED";
+
+	private static final Long OTHER_UID = 2L;
+
+	private static final String OTHER_CODE = "OTHER";
+
+	@Rule
+	public final JUnitRuleMockery context = new JUnitRuleMockery();
+
+	private final Ehcache storeCache = context.mock(Ehcache.class);
+
+	private final EhCacheStoreRetrieveStrategyImpl strategy = new EhCacheStoreRetrieveStrategyImpl();
+
+	/**
+	 * Set up a cache of a changed and an unchanged store, each cached by uid and by code.
+	 */
+	@Before
+	public void setUp() {
+		strategy.setStoreCache(storeCache);
+
+		final Store changedStore = context.mock(Store.class, "changedStore");
+		final Store otherStore = context.mock(Store.class, "otherStore");
+		context.checking(new Expectations() {
+			{
+				allowing(storeCache).getKeys(); will(returnValue(Arrays.asList(CHANGED_UID, CHANGED_CODE, OTHER_UID, OTHER_CODE)));
+				allowing(storeCache).getQuiet((Object) CHANGED_UID);
+				will(returnValue(new Element(CHANGED_UID, new Pair<Store, LoadTuner>(changedStore, null))));
+				allowing(storeCache).getQuiet((Object) CHANGED_CODE); will(returnValue(new Element(CHANGED_CODE, CHANGED_UID)));
+				allowing(storeCache).getQuiet((Object) OTHER_UID);
+				will(returnValue(new Element(OTHER_UID, new Pair<Store, LoadTuner>(otherStore, null))));
+				allowing(storeCache).getQuiet((Object) OTHER_CODE); will(returnValue(new Element(OTHER_CODE, OTHER_UID)));
+			}
+		});
+	}
+
+	/**
+	 * Test that a store changed by code is evicted along with its uid entry, and that the other store survives.
+	 */
+	@Test
+	public void testInvalidateByCodeEvictsOnlyTheChangedStore() {
+		expectChangedStoreRemoved();
+
+		assertEquals("the code and uid entries of the changed store should be evicted",
+				2, strategy.invalidate(Store.class, Collections.singleton(CHANGED_CODE)));
+	}
+
+	/**
+	 * Test that a store changed by uid is evicted along with its code entry, and that the other store survives.
+	 */
+	@Test
+	public void testInvalidateByUidEvictsOnlyTheChangedStore() {
+		expectChangedStoreRemoved();
+
+		assertEquals("the uid and code entries of the changed store should be evicted",
+				2, strategy.invalidate(Store.class, Collections.singleton(CHANGED_UID)));
+	}
+
+	/**
+	 * Test that changes to other entity types leave the stores cached.
+	 */
+	@Test
+	public void testInvalidateIgnoresOtherEntityTypes() {
+		assertEquals(0, strategy.invalidate(Product.class, Collections.singleton(CHANGED_UID)));
+	}
+
+	private void expectChangedStoreRemoved() {
+		context.checking(new Expectations() {
+			{
+				oneOf(storeCache).remove((Object) CHANGED_UID); will(returnValue(true));
+				oneOf(storeCache).remove((Object) CHANGED_CODE); will(returnValue(true));
+			}
+		});
+	}
+}
@@ -12,6 +12,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Currency;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -33,12 +34,15 @@ import com.elasticpath.common.pricing.service.PriceListLookupService;
 import com.elasticpath.domain.catalog.Catalog;
 import com.elasticpath.domain.customer.Customer;
 import com.elasticpath.domain.customer.CustomerSession;
+import com.elasticpath.domain.customer.CustomerSessionMemento;
 import com.elasticpath.domain.pricing.impl.PriceListStackImpl;
 import com.elasticpath.domain.shopper.Shopper;
 import com.elasticpath.domain.shoppingcart.ShoppingCart;
 import com.elasticpath.domain.store.Store;
 import com.elasticpath.domain.store.impl.StoreImpl;
 import com.elasticpath.service.catalogview.StoreConfig;
+import com.elasticpath.service.customer.CustomerSessionService;
+import com.elasticpath.service.misc.TimeService;
 import com.elasticpath.service.shopper.ShopperService;
 import com.elasticpath.sfweb.servlet.facade.HttpServletFacadeFactory;
 import com.elasticpath.sfweb.servlet.facade.HttpServletRequestFacade;
@@ -57,6 +61,8 @@ import com.elasticpath.tags.TagSet;
  */
 public class WebCustomerSessionServiceImplTest {
 
+	private static final String STORE_CODE = "store";
+
 	@Rule
 	public final JUnitRuleMockery context = new JUnitRuleMockery();
 
@@ -457,4 +463,94 @@ public class WebCustomerSessionServiceImplTest {
 
 		assertEquals(localeDefault, service.getLocaleFromServletPath(requestFacade));
 	}
+
+	/**
+	 * Test that when anonymous session persistence is deferred, neither the shopper nor the customer session of a new visitor is saved.
+	 */
+	@Test
+	public void testDeferredCustomerSessionIsNotPersisted() {
+		final ShopperService shopperService = context.mock(ShopperService.class);
+		final CustomerSessionService customerSessionService = context.mock(CustomerSessionService.class);
+		final TimeService timeService = context.mock(TimeService.class);
+		final Shopper shopper = context.mock(Shopper.class);
+		final CustomerSession customerSession = context.mock(CustomerSession.class);
+		final Store store = context.mock(Store.class);
+		final Currency currency = Currency.getInstance("USD");
+		final Date now = new Date();
+
+		context.checking(new Expectations() {
+			{
+				allowing(store).getCode(); will(returnValue(STORE_CODE));
+				allowing(store).getDefaultCurrency(); will(returnValue(currency));
+				allowing(timeService).getCurrentTime(); will(returnValue(now));
+
+				oneOf(shopperService).createShopper(STORE_CODE); will(returnValue(shopper));
+				oneOf(customerSessionService).createWithShopper(shopper); will(returnValue(customerSession));
+				never(customerSessionService).add(customerSession);
+
+				oneOf(customerSession).setCreationDate(now);
+				oneOf(customerSession).setLastAccessedDate(now);
+				oneOf(customerSession).setLocale(Locale.CANADA);
+				oneOf(customerSession).setCurrency(currency);
+				oneOf(customerSession).setGuid("guid");
+				oneOf(customerSession).setIpAddress("127.0.0.1");
+			}
+		});
+
+		final DeferredCustomerSessionStatistics statistics = new DeferredCustomerSessionStatistics();
+		final WebCustomerSessionServiceImpl service = createDeferringService(shopperService, customerSessionService, statistics);
+		service.setTimeService(timeService);
+
+		assertEquals(customerSession, service.createPersistentCustomerSession("guid", Locale.CANADA, store, "127.0.0.1"));
+		assertEquals(1, statistics.getDeferredSessionCount());
+		assertEquals(1, statistics.getAvoidedInsertCount());
+	}
+
+	/**
+	 * Test that a deferred customer session is persisted at the end of a request which persisted its shopper, and only then.
+	 */
+	@Test
+	public void testDeferredCustomerSessionIsPersistedWithItsShopper() {
+		final MockHttpServletRequest mockRequest = new MockHttpServletRequest();
+		final HttpServletFacadeFactory httpServletFacadeFactory = new HttpServletFacadeFactoryImpl(new RequestHelperImpl(), null, null);
+		final HttpServletRequestResponseFacade requestResponse = httpServletFacadeFactory.createRequestResponseFacade(mockRequest,
+				new MockHttpServletResponse());
+		final CustomerSessionService customerSessionService = context.mock(CustomerSessionService.class);
+		final CustomerSession customerSession = context.mock(CustomerSession.class);
+		final CustomerSessionMemento memento = context.mock(CustomerSessionMemento.class);
+		final Shopper shopper = context.mock(Shopper.class);
+
+		context.checking(new Expectations() {
+			{
+				allowing(customerSession).getCustomerSessionMemento(); will(returnValue(memento));
+				allowing(memento).isPersisted(); will(returnValue(false));
+				allowing(customerSession).getShopper(); will(returnValue(shopper));
+				// browsing first, then adding to the cart persists the shopper
+				oneOf(shopper).isPersisted(); will(returnValue(false));
+				oneOf(shopper).isPersisted(); will(returnValue(true));
+
+				oneOf(customerSession).setShopper(shopper);
+				oneOf(customerSessionService).add(customerSession);
+			}
+		});
+		requestResponse.setCustomerSession(customerSession);
+
+		final DeferredCustomerSessionStatistics statistics = new DeferredCustomerSessionStatistics();
+		final WebCustomerSessionServiceImpl service = createDeferringService(null, customerSessionService, statistics);
+		service.persistDeferredCustomerSession(requestResponse);
+		assertEquals(0, statistics.getPersistedSessionCount());
+
+		service.persistDeferredCustomerSession(requestResponse);
+		assertEquals(1, statistics.getPersistedSessionCount());
+	}
+
+	private WebCustomerSessionServiceImpl createDeferringService(final ShopperService shopperService,
+			final CustomerSessionService customerSessionService, final DeferredCustomerSessionStatistics statistics) {
+		final WebCustomerSessionServiceImpl service = new WebCustomerSessionServiceImpl();
+		service.setShopperService(shopperService);
+		service.setCustomerSessionService(customerSessionService);
+		service.setDeferAnonymousSessionPersistence(true);
+		service.setDeferredSessionStatistics(statistics);
+		return service;
+	}
 }
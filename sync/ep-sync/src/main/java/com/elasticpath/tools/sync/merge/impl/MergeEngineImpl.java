@@ -11,10 +11,10 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import javax.persistence.ManyToMany;
 import javax.persistence.MapKey;
-import javax.persistence.OneToMany;
 
 import com.elasticpath.persistence.api.Persistable;
 import com.elasticpath.tools.sync.exception.SyncToolConfigurationException;
@@ -27,11 +27,15 @@ import com.elasticpath.tools.sync.merge.configuration.EntityLocator;
 import com.elasticpath.tools.sync.merge.configuration.GuidLocator;
 import com.elasticpath.tools.sync.merge.configuration.MergeBoundarySpecification;
 import com.elasticpath.tools.sync.merge.configuration.ValueObjectMerger;
+import com.elasticpath.tools.sync.merge.impl.MergePlan.PropertyAccessors;
 import com.elasticpath.tools.sync.utils.MethodComparator;
 import com.elasticpath.tools.sync.utils.SyncUtils;
 
 /**
  * Merges objects before save.
+ * <p>
+ * The persistent properties of each entity class are worked out once and kept as a {@link MergePlan}, since looking them up through
+ * the annotations of the class for every object merged dominates the time taken to merge large change sets.
  */
 public class MergeEngineImpl implements MergeEngine {
 
@@ -55,6 +59,8 @@ public class MergeEngineImpl implements MergeEngine {
 
 	private Map<String, EntityFilter> mergeFilters;
 
+	private final ConcurrentMap<Class< ? >, MergePlan> mergePlans = new ConcurrentHashMap<Class< ? >, MergePlan>();
+
 	/**
 	 * Merge source on target.
 	 *
@@ -97,28 +103,56 @@ public class MergeEngineImpl implements MergeEngine {
 		sanityCheck(source, target);
 		dependencyManagerThreadLocal.get().registerProcessedObject(source, target);
 
-		final Map<Method, Method> basicAttributes = new TreeMap<Method, Method>(new MethodComparator());
-		final Map<Method, Method> singleValuedAssociations = new TreeMap<Method, Method>(new MethodComparator());
-		final Map<Method, Method> collectionValuedAssociations = new TreeMap<Method, Method>(new MethodComparator());
-		final Set<Method> postLoadMethods = new HashSet<Method>();
-		jpaPersistentStateLocator.extractPersistentStateAttributes(source.getClass(), basicAttributes, singleValuedAssociations,
-				collectionValuedAssociations, postLoadMethods);
-
-		for (final Entry<Method, Method> basicAttribute : basicAttributes.entrySet()) {
+		final MergePlan mergePlan = getMergePlan(source.getClass());
+		for (final PropertyAccessors basicAttribute : mergePlan.getBasicAttributes()) {
 			resolveBasicAttribute(source, target, basicAttribute);
 		}
-		for (final Entry<Method, Method> singleValuedAssociation : singleValuedAssociations.entrySet()) {
+		for (final PropertyAccessors singleValuedAssociation : mergePlan.getSingleValuedAssociations()) {
 			resolveSingleValuedAssociation(source, target, singleValuedAssociation);
 		}
-		for (final Entry<Method, Method> collectionValuedAssociation : collectionValuedAssociations.entrySet()) {
+		for (final PropertyAccessors collectionValuedAssociation : mergePlan.getCollectionValuedAssociations()) {
 			resolveCollectionValuedAssociation(source, target, collectionValuedAssociation);
 		}
 
-		for (final Method postLoadMethod : postLoadMethods) {
+		for (final Method postLoadMethod : mergePlan.getPostLoadMethods()) {
 			syncUtils.invokePostLoadMethod(target, postLoadMethod);
 		}
 	}
 
+	/**
+	 * Gets the merge plan of an entity class, working it out on first use.
+	 *
+	 * @param entityClass the entity class
+	 * @return the merge plan
+	 */
+	MergePlan getMergePlan(final Class< ? > entityClass) {
+		MergePlan mergePlan = mergePlans.get(entityClass);
+		if (mergePlan == null) {
+			mergePlan = createMergePlan(entityClass);
+			final MergePlan existingPlan = mergePlans.putIfAbsent(entityClass, mergePlan);
+			if (existingPlan != null) {
+				mergePlan = existingPlan;
+			}
+		}
+		return mergePlan;
+	}
+
+	/**
+	 * Works out the merge plan of an entity class from its persistent state attributes.
+	 *
+	 * @param entityClass the entity class
+	 * @return a new merge plan
+	 */
+	protected MergePlan createMergePlan(final Class< ? > entityClass) {
+		final Map<Method, Method> basicAttributes = new TreeMap<Method, Method>(new MethodComparator());
+		final Map<Method, Method> singleValuedAssociations = new TreeMap<Method, Method>(new MethodComparator());
+		final Map<Method, Method> collectionValuedAssociations = new TreeMap<Method, Method>(new MethodComparator());
+		final Set<Method> postLoadMethods = new HashSet<Method>();
+		jpaPersistentStateLocator.extractPersistentStateAttributes(entityClass, basicAttributes, singleValuedAssociations,
+				collectionValuedAssociations, postLoadMethods);
+		return new MergePlan(basicAttributes, singleValuedAssociations, collectionValuedAssociations, postLoadMethods);
+	}
+
 	private void resolveBasicAttribute(final Persistable object, final Persistable target, final Entry<Method, Method> accessors) {
 		syncUtils.invokeCopyMethod(object, target, accessors);
 	}
@@ -182,11 +216,11 @@ public class MergeEngineImpl implements MergeEngine {
 	}
 
 	@SuppressWarnings("unchecked")
-	private void resolveCollectionValuedAssociation(final Object source, final Object target, final Entry<Method, Method> accessors)
+	private void resolveCollectionValuedAssociation(final Object source, final Object target, final PropertyAccessors accessors)
 			throws SyncToolConfigurationException {
 
-		final Method getterMethod = accessors.getKey();
-		final Method setterMethod = accessors.getValue();
+		final Method getterMethod = accessors.getGetter();
+		final Method setterMethod = accessors.getSetter();
 
 		final Object sourceCollectionOrMap = syncUtils.invokeGetterMethod(source, getterMethod);
 		Object targetCollectionOrMap = syncUtils.invokeGetterMethod(target, getterMethod);
@@ -201,13 +235,13 @@ public class MergeEngineImpl implements MergeEngine {
 			targetCollectionOrMap = createEmptyCollectionOrMap(target, setterMethod, sourceCollectionOrMap);
 		}
 
-		if (shouldNotMergeCollection(getterMethod)) {
-			refreshCollection(getterMethod, sourceCollectionOrMap, targetCollectionOrMap);
+		if (stopMergingCollectionOf(accessors.getTargetEntity())) {
+			refreshContainer(accessors.getMapKey(), sourceCollectionOrMap, targetCollectionOrMap);
 			return;
 		}
 
 		if (sourceCollectionOrMap instanceof Map) {
-			mergeMap(getterMethod, (Map<?, ?>) sourceCollectionOrMap, (Map<Object, Object>) targetCollectionOrMap);
+			mergeMap(accessors.getMapKey(), (Map<?, ?>) sourceCollectionOrMap, (Map<Object, Object>) targetCollectionOrMap);
 		} else if (sourceCollectionOrMap instanceof Collection) {
 			mergeCollection((Collection<?>) sourceCollectionOrMap, (Collection<Object>) targetCollectionOrMap);
 		} else {
@@ -292,7 +326,7 @@ public class MergeEngineImpl implements MergeEngine {
 		}
 	}
 
-	private void mergeMap(final Method getterMethod, final Map<?, ?> sourceMap, final Map<? super Object, ? super Object> targetMap)
+	private void mergeMap(final MapKey mapKey, final Map<?, ?> sourceMap, final Map<? super Object, ? super Object> targetMap)
 			throws SyncToolConfigurationException {
 		final Map<Object, Object> newObjects = new HashMap<Object, Object>();
 
@@ -302,7 +336,7 @@ public class MergeEngineImpl implements MergeEngine {
 			final Persistable elementToAdd = mergeCollectionElements(removeManager, (Persistable) sourceEntry, targetMap.values(),
 					isMergeable((Persistable) sourceEntry));
 			if (elementToAdd != null) {
-				final Object key = syncUtils.getMapKey(getterMethod.getAnnotation(MapKey.class), elementToAdd);
+				final Object key = syncUtils.getMapKey(mapKey, elementToAdd);
 				newObjects.put(key, elementToAdd);
 			}
 		}
@@ -318,9 +352,18 @@ public class MergeEngineImpl implements MergeEngine {
 	 * @param targetCollectionOrMap target container
 	 * @throws SyncToolConfigurationException in case of unsupported container type
 	 */
-	@SuppressWarnings("unchecked")
 	void refreshCollection(final Method getterMethod, final Object sourceCollectionOrMap, final Object targetCollectionOrMap)
 			throws SyncToolConfigurationException {
+		MapKey mapKey = null;
+		if (getterMethod != null) {
+			mapKey = getterMethod.getAnnotation(MapKey.class);
+		}
+		refreshContainer(mapKey, sourceCollectionOrMap, targetCollectionOrMap);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void refreshContainer(final MapKey mapKey, final Object sourceCollectionOrMap, final Object targetCollectionOrMap)
+			throws SyncToolConfigurationException {
 		if (sourceCollectionOrMap instanceof Map) {
 			final Map<Object, Object> targetMap = (Map<Object, Object>) targetCollectionOrMap;
 			targetMap.clear();
@@ -328,7 +371,7 @@ public class MergeEngineImpl implements MergeEngine {
 			final Map<Object, Object> sourceMap = (Map<Object, Object>) sourceCollectionOrMap;
 			for (final Entry<Object, Object> entry : sourceMap.entrySet()) {
 				final Persistable retrieveFreshReference = retrieveFreshReference((Persistable) entry.getValue());
-				targetMap.put(syncUtils.getMapKey(getterMethod.getAnnotation(MapKey.class), retrieveFreshReference), retrieveFreshReference);
+				targetMap.put(syncUtils.getMapKey(mapKey, retrieveFreshReference), retrieveFreshReference);
 			}
 		} else if (sourceCollectionOrMap instanceof Collection) {
 			final Collection<Object> targetCollection = (Collection<Object>) targetCollectionOrMap;
@@ -350,18 +393,10 @@ public class MergeEngineImpl implements MergeEngine {
 	 * @return true if collection objects should be updated without deep merge (i.e. object's class in the boundary)
 	 */
 	boolean shouldNotMergeCollection(final Method method) {
-		final OneToMany oneToManyAssociation = method.getAnnotation(OneToMany.class);
-		Class< ? > targetEntity = null;
-
-		if (oneToManyAssociation == null) {
-			final ManyToMany manyToManyAssociation = method.getAnnotation(ManyToMany.class);
-			if (manyToManyAssociation != null) {
-				targetEntity = manyToManyAssociation.targetEntity();
-			}
-		} else {
-			targetEntity = oneToManyAssociation.targetEntity();
-		}
+		return stopMergingCollectionOf(PropertyAccessors.findTargetEntity(method));
+	}
 
+	private boolean stopMergingCollectionOf(final Class< ? > targetEntity) {
 		if (targetEntity == null) {
 			throw new SyncToolRuntimeException("Can't find OneToMany or ManyToMany for collection-value association");
 		}
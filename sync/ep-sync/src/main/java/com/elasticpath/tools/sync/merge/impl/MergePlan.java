@@ -0,0 +1,138 @@
+package com.elasticpath.tools.sync.merge.impl;
+
+import java.lang.reflect.Method;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.persistence.ManyToMany;
+import javax.persistence.MapKey;
+import javax.persistence.OneToMany;
+
+/**
+ * The persistent properties of one entity class, as needed to merge instances of the class. A plan is worked out once per class from
+ * the JPA annotations of its accessors and then reused for every instance merged, so that merging an instance does not have to look
+ * at the class again.
+ */
+public class MergePlan {
+
+	private final List<PropertyAccessors> basicAttributes;
+
+	private final List<PropertyAccessors> singleValuedAssociations;
+
+	private final List<PropertyAccessors> collectionValuedAssociations;
+
+	private final List<Method> postLoadMethods;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param basicAttributes getters and setters of the basic attributes
+	 * @param singleValuedAssociations getters and setters of the single valued associations
+	 * @param collectionValuedAssociations getters and setters of the collection valued associations
+	 * @param postLoadMethods the methods to call once an instance is merged
+	 */
+	public MergePlan(final Map<Method, Method> basicAttributes, final Map<Method, Method> singleValuedAssociations,
+			final Map<Method, Method> collectionValuedAssociations, final Collection<Method> postLoadMethods) {
+		this.basicAttributes = toPropertyAccessors(basicAttributes);
+		this.singleValuedAssociations = toPropertyAccessors(singleValuedAssociations);
+		this.collectionValuedAssociations = toPropertyAccessors(collectionValuedAssociations);
+		this.postLoadMethods = Collections.unmodifiableList(new ArrayList<Method>(postLoadMethods));
+	}
+
+	private static List<PropertyAccessors> toPropertyAccessors(final Map<Method, Method> accessors) {
+		final List<PropertyAccessors> propertyAccessors = new ArrayList<PropertyAccessors>(accessors.size());
+		for (final Entry<Method, Method> entry : accessors.entrySet()) {
+			propertyAccessors.add(new PropertyAccessors(entry.getKey(), entry.getValue()));
+		}
+		return Collections.unmodifiableList(propertyAccessors);
+	}
+
+	public List<PropertyAccessors> getBasicAttributes() {
+		return basicAttributes;
+	}
+
+	public List<PropertyAccessors> getSingleValuedAssociations() {
+		return singleValuedAssociations;
+	}
+
+	public List<PropertyAccessors> getCollectionValuedAssociations() {
+		return collectionValuedAssociations;
+	}
+
+	public List<Method> getPostLoadMethods() {
+		return postLoadMethods;
+	}
+
+	/**
+	 * The getter and setter of a persistent property, along with the mapping details of the getter that merging needs.
+	 */
+	public static class PropertyAccessors extends SimpleImmutableEntry<Method, Method> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient MapKey mapKey;
+
+		private final transient Class< ? > targetEntity;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param getter the getter
+		 * @param setter the setter
+		 */
+		public PropertyAccessors(final Method getter, final Method setter) {
+			super(getter, setter);
+			this.mapKey = getter.getAnnotation(MapKey.class);
+			this.targetEntity = findTargetEntity(getter);
+		}
+
+		/**
+		 * Finds the type of the elements of a collection valued association.
+		 *
+		 * @param getter the getter of the association
+		 * @return the target entity of the one-to-many or many-to-many mapping of the getter, or null if there is no such mapping
+		 */
+		static Class< ? > findTargetEntity(final Method getter) {
+			final OneToMany oneToManyAssociation = getter.getAnnotation(OneToMany.class);
+			if (oneToManyAssociation != null) {
+				return oneToManyAssociation.targetEntity();
+			}
+			final ManyToMany manyToManyAssociation = getter.getAnnotation(ManyToMany.class);
+			if (manyToManyAssociation != null) {
+				return manyToManyAssociation.targetEntity();
+			}
+			return null;
+		}
+
+		public Method getGetter() {
+			return getKey();
+		}
+
+		public Method getSetter() {
+			return getValue();
+		}
+
+		/**
+		 * Gets the map key mapping of a map valued association.
+		 *
+		 * @return the map key annotation of the getter, or null
+		 */
+		public MapKey getMapKey() {
+			return mapKey;
+		}
+
+		/**
+		 * Gets the type of the elements of a collection valued association.
+		 *
+		 * @return the target entity of the one-to-many or many-to-many mapping of the getter, or null if there is no such mapping
+		 */
+		public Class< ? > getTargetEntity() {
+			return targetEntity;
+		}
+	}
+}
@@ -2,11 +2,14 @@ package com.elasticpath.tools.sync.utils.impl;
 
 import java.lang.reflect.Method;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.persistence.MapKey;
 
 import org.apache.log4j.Logger;
 
+import com.elasticpath.commons.util.Pair;
 import com.elasticpath.tools.sync.exception.SyncToolRuntimeException;
 import com.elasticpath.tools.sync.utils.SyncUtils;
 
@@ -22,23 +25,33 @@ public class SyncUtilsImpl implements SyncUtils {
 
 	private static final String GET_PREFIX = "get";
 
+	/** Map key getters found so far, by element class and map key property. */
+	private final ConcurrentMap<Pair<Class< ? >, String>, Method> mapKeyGetters = new ConcurrentHashMap<Pair<Class< ? >, String>, Method>();
+
 	@Override
 	public Object getMapKey(final MapKey annotation, final Object elementToAdd) {
-		String partOfMapKeyProperty = annotation.name();
-		String mapKeyProperty = GET_PREFIX + partOfMapKeyProperty.substring(0, 1).toUpperCase()
-				+ partOfMapKeyProperty.substring(1, partOfMapKeyProperty.length());
-
-		// TODO: consider isProperty
-		Method getter = null;
 		try {
-			getter = findDeclaredMethodWithFallback(elementToAdd.getClass(), mapKeyProperty);
-			getter.setAccessible(true);
-			return invokeGetterMethod(elementToAdd, getter);
+			return invokeGetterMethod(elementToAdd, getMapKeyGetter(elementToAdd.getClass(), annotation.name()));
 		} catch (Exception e) {
 			throw new SyncToolRuntimeException(e);
 		}
 	}
 
+	private Method getMapKeyGetter(final Class< ? > elementClass, final String partOfMapKeyProperty) {
+		final Pair<Class< ? >, String> key = new Pair<Class< ? >, String>(elementClass, partOfMapKeyProperty);
+		Method getter = mapKeyGetters.get(key);
+		if (getter == null) {
+			final String mapKeyProperty = GET_PREFIX + partOfMapKeyProperty.substring(0, 1).toUpperCase()
+					+ partOfMapKeyProperty.substring(1, partOfMapKeyProperty.length());
+
+			// TODO: consider isProperty
+			getter = findDeclaredMethodWithFallback(elementClass, mapKeyProperty);
+			getter.setAccessible(true);
+			mapKeyGetters.putIfAbsent(key, getter);
+		}
+		return getter;
+	}
+
 	@Override
 	public void invokeCopyMethod(final Object source, final Object target, final Entry<Method, Method> accessors) {
 		try {
@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.lang.reflect.Method;
@@ -12,17 +13,21 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import javax.persistence.MapKey;
 
 import org.jmock.Expectations;
+import org.jmock.api.Invocation;
 import org.jmock.integration.junit4.JUnitRuleMockery;
+import org.jmock.lib.action.CustomAction;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
 import com.elasticpath.domain.attribute.AttributeValue;
 import com.elasticpath.domain.attribute.impl.CategoryAttributeValueImpl;
+import com.elasticpath.domain.attribute.impl.ProductAttributeValueImpl;
 import com.elasticpath.domain.catalog.Category;
 import com.elasticpath.domain.catalog.Product;
 import com.elasticpath.domain.catalog.ProductCategory;
@@ -35,6 +40,7 @@ import com.elasticpath.tags.domain.impl.ConditionalExpressionImpl;
 import com.elasticpath.tools.sync.MockInterface;
 import com.elasticpath.tools.sync.exception.SyncToolConfigurationException;
 import com.elasticpath.tools.sync.exception.SyncToolRuntimeException;
+import com.elasticpath.tools.sync.merge.PersistentStateLocator;
 import com.elasticpath.tools.sync.merge.configuration.EntityFilter;
 import com.elasticpath.tools.sync.merge.configuration.EntityLocator;
 import com.elasticpath.tools.sync.merge.configuration.GuidLocator;
@@ -50,6 +56,8 @@ public class MergeEngineImplTest {
 
 	private static final String PRODUCT_GUID = "PRODUCT_GUID";
 
+	private static final int COLLECTION_VALUED_PARAMETER = 3;
+
 	@Rule
 	public final JUnitRuleMockery context = new JUnitRuleMockery();
 
@@ -331,4 +339,40 @@ public class MergeEngineImplTest {
 		assertTrue("Unknown type should be mergable.", mergeEngine.isMergeable(product));
 	}
 
+	/**
+	 * Check that the persistent state of a class is extracted once and the resulting merge plan reused for later merges,
+	 * with the mapping details of collection valued associations resolved up front.
+	 *
+	 * @throws NoSuchMethodException when the accessors cannot be found
+	 */
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testMergePlanIsCreatedOncePerClass() throws NoSuchMethodException {
+		final PersistentStateLocator persistentStateLocator = context.mock(PersistentStateLocator.class);
+		mergeEngine.setJpaPersistentStateLocator(persistentStateLocator);
+		final Method getter = ProductImpl.class.getMethod("getAttributeValueMap");
+		final Method setter = ProductImpl.class.getMethod("setAttributeValueMap", Map.class);
+
+		context.checking(new Expectations() { {
+			oneOf(persistentStateLocator).extractPersistentStateAttributes(with(same(ProductImpl.class)), with(any(Map.class)),
+					with(any(Map.class)), with(any(Map.class)), with(any(Set.class)));
+			will(new CustomAction("add collection valued association") {
+				public Object invoke(final Invocation invocation) {
+					((Map<Method, Method>) invocation.getParameter(COLLECTION_VALUED_PARAMETER)).put(getter, setter);
+					return null;
+				}
+			});
+		} });
+
+		final MergePlan mergePlan = mergeEngine.getMergePlan(ProductImpl.class);
+		assertSame("the merge plan should be reused", mergePlan, mergeEngine.getMergePlan(ProductImpl.class));
+		assertTrue(mergePlan.getBasicAttributes().isEmpty());
+		assertEquals(1, mergePlan.getCollectionValuedAssociations().size());
+
+		final MergePlan.PropertyAccessors accessors = mergePlan.getCollectionValuedAssociations().get(0);
+		assertSame(getter, accessors.getGetter());
+		assertSame(setter, accessors.getSetter());
+		assertNotNull("the map key mapping should be resolved", accessors.getMapKey());
+		assertSame("the collection's element type should be resolved", ProductAttributeValueImpl.class, accessors.getTargetEntity());
+	}
 }